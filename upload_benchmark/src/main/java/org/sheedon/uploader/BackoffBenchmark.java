@@ -0,0 +1,142 @@
+package org.sheedon.uploader;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sheedon.uploader.backend.DirectSchedulerBackend;
+import org.sheedon.uploader.backend.ExecutorSchedulerBackend;
+import org.sheedon.uploader.backend.SchedulerBackend;
+import org.sheedon.uploader.backoff.BackoffTracker;
+import org.sheedon.uploader.backoff.TableBackoff;
+import org.sheedon.uploader.timeout.RttTimeoutEstimator;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 退避与超时的开销：按事件键记录失败/成功、计算最早重试时间，
+ * 超时估算的样本记录与计算，以及为在途调度布置、撤销超时消息（同步后端与线程池后端）
+ *
+ * @Author: sheedon
+ * @Email: sheedonsun@163.com
+ * @Date: 2021/10/6 11:00 上午
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BackoffBenchmark {
+
+    @Param({"10", "1000"})
+    int keys;
+
+    private String[] names;
+    private BackoffTracker tracker;
+    private BackoffTracker backingOff;
+    private RttTimeoutEstimator estimator;
+    private MessageHandler directHandler;
+    private SchedulerBackend executorBackend;
+    private MessageHandler executorHandler;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        names = new String[keys];
+        tracker = new BackoffTracker(TableBackoff.defaultBackoff());
+        backingOff = new BackoffTracker(TableBackoff.defaultBackoff());
+        estimator = new RttTimeoutEstimator(30000, 1000, 120000);
+        for (int i = 0; i < keys; i++) {
+            names[i] = "key-" + i;
+            backingOff.onFailure(names[i]);
+            estimator.onSample(names[i], 100 + i % 50);
+        }
+        directHandler = new MessageHandler(new DirectSchedulerBackend(), (what, obj) -> {
+        });
+        executorBackend = new ExecutorSchedulerBackend();
+        executorHandler = new MessageHandler(executorBackend, (what, obj) -> {
+        });
+    }
+
+    @TearDown
+    public void tearDown() {
+        executorBackend.quit();
+    }
+
+    private String nextKey() {
+        int index = next;
+        next = index + 1 == keys ? 0 : index + 1;
+        return names[index];
+    }
+
+    /**
+     * 事件键调度失败进入退避，随后成功解除
+     */
+    @Benchmark
+    public long failureThenSuccess() {
+        String key = nextKey();
+        long delay = tracker.onFailure(key);
+        tracker.onSuccess(key);
+        return delay;
+    }
+
+    /**
+     * 全部事件键退避中时，核实是否退避中
+     */
+    @Benchmark
+    public boolean isBackingOff() {
+        return backingOff.isBackingOff(nextKey());
+    }
+
+    /**
+     * 全部事件键退避中时，计算最早的重试时间
+     */
+    @Benchmark
+    public long nextRetryDelay() {
+        return backingOff.nextRetryDelay();
+    }
+
+    /**
+     * 记录耗时样本，并计算下一次调度的超时
+     */
+    @Benchmark
+    public long timeoutEstimate() {
+        String key = nextKey();
+        estimator.onSample(key, 120);
+        return estimator.timeoutFor(key, 4096);
+    }
+
+    /**
+     * 发起调度、布置超时消息并在反馈后撤销，同步后端，只测量调度器自身的开销
+     */
+    @Benchmark
+    public InFlightCall timeoutScheduleDirect() {
+        return scheduleAndFinish(directHandler);
+    }
+
+    /**
+     * 发起调度、布置超时消息并在反馈后撤销，线程池后端
+     */
+    @Benchmark
+    public InFlightCall timeoutScheduleExecutor() {
+        return scheduleAndFinish(executorHandler);
+    }
+
+    private InFlightCall scheduleAndFinish(MessageHandler handler) {
+        InFlightCall call = handler.newCall(nextKey());
+        handler.takeDispatchedCall();
+        handler.sendTimeoutMessage(call, 30000);
+        call.finish();
+        handler.finishCall(call);
+        return call;
+    }
+}
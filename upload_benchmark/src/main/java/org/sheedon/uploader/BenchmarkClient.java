@@ -0,0 +1,38 @@
+package org.sheedon.uploader;
+
+import androidx.annotation.NonNull;
+
+import org.sheedon.uploader.backend.SchedulerBackend;
+import org.sheedon.uploader.process.AbstractProcess;
+
+/**
+ * 基准测试使用的调度客户端构造器，默认流程省略服务器核实，只保留限流、熔断（若开启）与事件真实执行流程，
+ * 避免健康监测线程与网络探测影响测量
+ *
+ * @Author: sheedon
+ * @Email: sheedonsun@163.com
+ * @Date: 2021/10/6 9:20 上午
+ */
+final class BenchmarkClient extends ScheduleClient.AbstractBuilder<BenchmarkClient> {
+
+    BenchmarkClient(@NonNull SchedulerBackend backend) {
+        super(backend);
+        netConnected(() -> true);
+    }
+
+    @Override
+    protected BenchmarkClient self() {
+        return this;
+    }
+
+    @Override
+    protected AbstractProcess createDefaultProcess(String baseUrl, INetConnected netConnected,
+                                                   EventQueue queue, MessageHandler workHandler) {
+        return createScheduleProcess(queue, workHandler);
+    }
+
+    ScheduleClient build() {
+        prepareBuild();
+        return new ScheduleClient(this);
+    }
+}
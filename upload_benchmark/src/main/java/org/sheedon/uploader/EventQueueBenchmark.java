@@ -0,0 +1,114 @@
+package org.sheedon.uploader;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 事件队列的取出、核实与提交，注册 10 ~ 10000 个事件键，其中只有少量可调度，
+ * 开销应与事件键数量无关，取出与核实不产生分配
+ *
+ * @Author: sheedon
+ * @Email: sheedonsun@163.com
+ * @Date: 2021/10/6 9:40 上午
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventQueueBenchmark {
+
+    private static final int READY_KEYS = 4;
+
+    @Param({"10", "100", "1000", "10000"})
+    int keys;
+
+    private EventQueue queue;
+    private ToggleListener[] listeners;
+    private ToggleListener[] idleListeners;
+    private String[] names;
+    private EventQueue idleQueue;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        queue = new EventQueue();
+        idleQueue = new EventQueue();
+        listeners = new ToggleListener[keys];
+        idleListeners = new ToggleListener[keys];
+        names = new String[keys];
+        for (int i = 0; i < keys; i++) {
+            names[i] = "key-" + i;
+            listeners[i] = new ToggleListener();
+            queue.offerEvent(names[i], listeners[i]);
+            idleListeners[i] = new ToggleListener();
+            idleQueue.offerEvent(names[i], idleListeners[i]);
+        }
+        // 首次核实挂起全部事件
+        queue.hasEvent();
+        idleQueue.hasEvent();
+        for (int i = 0; i < READY_KEYS; i++) {
+            listeners[i].idle = true;
+            queue.signal(names[i]);
+        }
+    }
+
+    /**
+     * 取出可调度的事件并记录调度
+     */
+    @Benchmark
+    public String pollHit() {
+        String key = queue.pollEvent();
+        queue.onDispatched(key, 0);
+        return key;
+    }
+
+    /**
+     * 没有可调度的事件时核实
+     */
+    @Benchmark
+    public boolean hasEventMiss() {
+        return idleQueue.hasEvent();
+    }
+
+    /**
+     * 重复提交已注册的事件（更新监听器并发出信号），再核实一次使信号生效
+     */
+    @Benchmark
+    public boolean offerExisting() {
+        int index = next;
+        next = index + 1 == keys ? 0 : index + 1;
+        idleQueue.offerEvent(names[index], idleListeners[index]);
+        return idleQueue.hasEvent();
+    }
+
+    private static final class ToggleListener implements EventListener {
+        volatile boolean idle;
+
+        @Override
+        public boolean hasSource() {
+            return true;
+        }
+
+        @Override
+        public boolean hasIdleSource() {
+            return idle;
+        }
+
+        @Override
+        public void handleEvent(MessageHandleCenter center) {
+        }
+    }
+}
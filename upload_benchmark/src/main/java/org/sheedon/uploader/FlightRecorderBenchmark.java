@@ -0,0 +1,69 @@
+package org.sheedon.uploader;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sheedon.uploader.metrics.SchedulerMetrics;
+import org.sheedon.uploader.recorder.FlightRecorder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 每次状态切换的记录开销：飞行记录、调度指标，以及两者共用一次时钟读取（与 MessageHandler 一致），
+ * GC 分析中每次操作的分配应为0
+ *
+ * @Author: sheedon
+ * @Email: sheedonsun@163.com
+ * @Date: 2021/10/7 10:00 上午
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FlightRecorderBenchmark {
+
+    private static final String KEY = "benchmark";
+
+    private FlightRecorder recorder;
+    private SchedulerMetrics metrics;
+    private int state;
+    private long nanos;
+
+    @Setup
+    public void setUp() {
+        recorder = new FlightRecorder();
+        metrics = new SchedulerMetrics();
+        recorder.keyIdOf(KEY);
+    }
+
+    /**
+     * 只写入飞行记录，不读取时钟
+     */
+    @Benchmark
+    public void record() {
+        int from = state;
+        state = (from + 1) & 7;
+        recorder.record(++nanos, from, state, KEY, 1);
+    }
+
+    /**
+     * 一次完整的状态切换记录：读取时钟，写入调度指标与飞行记录
+     */
+    @Benchmark
+    public void transition() {
+        int from = state;
+        state = (from + 1) & 7;
+        long now = System.nanoTime();
+        metrics.onTransition(from, state, now);
+        recorder.record(now, from, state, KEY, 1);
+    }
+}
@@ -0,0 +1,82 @@
+package org.sheedon.uploader;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sheedon.uploader.message.DefaultMessageGroup;
+import org.sheedon.uploader.metrics.SchedulerMetrics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 只记录调度指标时每次状态切换的开销（未开启飞行记录，与 MessageHandler 一致），需低于50ns，
+ * 按一轮调度的真实状态序列切换，包含按需的时钟读取
+ *
+ * @Author: sheedon
+ * @Email: sheedonsun@163.com
+ * @Date: 2021/10/13 10:00 上午
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricsBenchmark {
+
+    // 一轮调度：核实、执行、等待结果、完成后继续核实，队列为空时回到空闲
+    private static final int[] CYCLE = {
+            DefaultMessageGroup.TYPE_NORMAL,
+            DefaultMessageGroup.TYPE_CHECK,
+            DefaultMessageGroup.TYPE_EXECUTE,
+            DefaultMessageGroup.TYPE_TIMEOUT,
+            DefaultMessageGroup.TYPE_COMPLETE,
+            DefaultMessageGroup.TYPE_CHECK,
+    };
+
+    private SchedulerMetrics metrics;
+    private int index;
+    private long nanos;
+
+    @Setup
+    public void setUp() {
+        metrics = new SchedulerMetrics();
+    }
+
+    /**
+     * 一次状态切换，离开计时状态时读取时钟
+     */
+    @Benchmark
+    public void transition() {
+        int from = CYCLE[index];
+        index = index == CYCLE.length - 1 ? 0 : index + 1;
+        metrics.onTransition(from, CYCLE[index]);
+    }
+
+    /**
+     * 每次切换都读取时钟，与飞行记录共用时钟读取时的指标开销
+     */
+    @Benchmark
+    public void transitionWithClock() {
+        int from = CYCLE[index];
+        index = index == CYCLE.length - 1 ? 0 : index + 1;
+        metrics.onTransition(from, CYCLE[index], System.nanoTime());
+    }
+
+    /**
+     * 只写入调度指标，不读取时钟
+     */
+    @Benchmark
+    public void record() {
+        int from = CYCLE[index];
+        index = index == CYCLE.length - 1 ? 0 : index + 1;
+        metrics.onTransition(from, CYCLE[index], ++nanos);
+    }
+}
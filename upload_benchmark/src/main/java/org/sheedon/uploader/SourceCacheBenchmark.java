@@ -0,0 +1,146 @@
+package org.sheedon.uploader;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sheedon.uploader.backend.DirectSchedulerBackend;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 子调度器资源缓存在大积压下的开销：每次操作反馈上一次调度成功（从缓存移除资源），
+ * 并发起下一次调度（从缓存选取空闲资源），积压 1000 ~ 1000000 条
+ *
+ * @Author: sheedon
+ * @Email: sheedonsun@163.com
+ * @Date: 2021/10/6 10:30 上午
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SourceCacheBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    int backlog;
+
+    // 每次调度的资源数量
+    @Param({"1", "50"})
+    int batchSize;
+
+    private List<Integer> sources;
+    private DirectSchedulerBackend backend;
+    private ScheduleClient client;
+    private BacklogHandler handler;
+
+    @Setup(Level.Trial)
+    public void createSources() {
+        sources = new ArrayList<>(backlog);
+        for (int i = 0; i < backlog; i++) {
+            sources.add(i);
+        }
+    }
+
+    /**
+     * 每轮迭代重新填满积压，并发起第一次调度
+     */
+    @Setup(Level.Iteration)
+    public void setUp() {
+        backend = new DirectSchedulerBackend();
+        client = new BenchmarkClient(backend).build();
+        handler = BacklogHandler.create(client, sources, batchSize);
+        handler.startUp();
+        backend.drain();
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        handler.destroy();
+        client.onDestroy();
+    }
+
+    /**
+     * 完成一次调度并发起下一次
+     *
+     * @return 执行的消息数量
+     */
+    @Benchmark
+    public int completeAndDispatch() {
+        handler.complete();
+        return backend.drain();
+    }
+
+    /**
+     * 积压资源的子调度器，调度时只记录结果反馈，由基准方法反馈成功
+     */
+    static final class BacklogHandler extends AbstractRealHandler<Integer> {
+
+        // 构造时由 loadScheduleClient() 读取
+        private static ScheduleClient creatingClient;
+
+        private List<Integer> backlog;
+        private int batchSize;
+        private MessageHandleCenter center;
+        private BatchResultCenter batchCenter;
+
+        static BacklogHandler create(ScheduleClient client, List<Integer> backlog, int batchSize) {
+            creatingClient = client;
+            BacklogHandler handler = new BacklogHandler();
+            creatingClient = null;
+            handler.backlog = backlog;
+            handler.batchSize = batchSize;
+            return handler;
+        }
+
+        @Override
+        protected ScheduleClient loadScheduleClient() {
+            return creatingClient;
+        }
+
+        @Override
+        protected void loadSource(OnSourceCallback<Integer> callback) {
+            callback.attachSource(backlog);
+        }
+
+        @Override
+        protected int maxBatchSize() {
+            return batchSize;
+        }
+
+        @Override
+        protected void handleRealEvent(Integer source, MessageHandleCenter center) {
+            this.center = center;
+        }
+
+        @Override
+        protected void handleRealBatch(List<Integer> sources, BatchResultCenter center) {
+            this.batchCenter = center;
+        }
+
+        void complete() {
+            if (batchCenter != null) {
+                BatchResultCenter current = batchCenter;
+                batchCenter = null;
+                current.sendSuccessMessage();
+            } else if (center != null) {
+                MessageHandleCenter current = center;
+                center = null;
+                current.sendSuccessMessage();
+            }
+        }
+    }
+}
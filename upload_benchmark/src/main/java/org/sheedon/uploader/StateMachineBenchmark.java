@@ -0,0 +1,96 @@
+package org.sheedon.uploader;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sheedon.uploader.backend.DirectSchedulerBackend;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 调度状态机完整一轮的吞吐：信号 → 核实 CHECK → 执行 EXECUTE → 完成 COMPLETE → 核实无事件回到默认状态，
+ * 事件监听器不做任何处理，立即反馈成功，消息在基准线程上同步执行，只测量调度器自身的开销
+ *
+ * @Author: sheedon
+ * @Email: sheedonsun@163.com
+ * @Date: 2021/10/6 10:00 上午
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StateMachineBenchmark {
+
+    private static final String KEY = "benchmark";
+
+    // 同时注册的其他（无资源）事件键数量
+    @Param({"0", "1000"})
+    int idleKeys;
+
+    private DirectSchedulerBackend backend;
+    private ScheduleClient client;
+    private NoOpListener listener;
+
+    @Setup
+    public void setUp() {
+        backend = new DirectSchedulerBackend();
+        client = new BenchmarkClient(backend).build();
+        for (int i = 0; i < idleKeys; i++) {
+            client.submitEvent("idle-" + i, new NoOpListener());
+        }
+        listener = new NoOpListener();
+        client.submitEvent(KEY, listener);
+        backend.drain();
+    }
+
+    @TearDown
+    public void tearDown() {
+        client.onDestroy();
+    }
+
+    /**
+     * 一次调度的完整流转
+     *
+     * @return 执行的消息数量
+     */
+    @Benchmark
+    public int cycle() {
+        listener.pending = 1;
+        client.signalEvent(KEY);
+        return backend.drain();
+    }
+
+    /**
+     * 不做任何处理的事件监听器，每次调度处理一个资源并立即反馈成功
+     */
+    private static final class NoOpListener implements EventListener {
+        int pending;
+
+        @Override
+        public boolean hasSource() {
+            return pending > 0;
+        }
+
+        @Override
+        public int pendingCount() {
+            return pending;
+        }
+
+        @Override
+        public void handleEvent(MessageHandleCenter center) {
+            pending--;
+            center.sendSuccessMessage();
+        }
+    }
+}
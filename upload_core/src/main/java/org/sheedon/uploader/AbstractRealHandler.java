@@ -0,0 +1,1113 @@
+package org.sheedon.uploader;
+
+import androidx.annotation.Nullable;
+
+import org.sheedon.uploader.batch.AdaptiveBatchSizer;
+import org.sheedon.uploader.network.NetworkConstraint;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 各项业务需要实现的基础处理逻辑
+ * 包含流程为：
+ * 启动 -> 取（数据库或其他方式）资源 -> 是否有资源 -> 无 则结束
+ * -> 有数据，清空缓存，将新获取数据填充到缓存中 -> 提交调度任务（至当前库{@link ScheduleClient#submitEvent(String, EventListener, int, int)}）
+ * -> 等待调度
+ * -> 执行调度，取出未在执行中的资源，发送真实操作 -> 失败，反馈失败结果（回到「等待调度」）
+ * -> 成功调度，缓存中移除该资源（批量调度时，按条移除成功的资源，失败的资源等待重试）
+ * -> 核实缓存是否有数据 -> 有，等待调度
+ * -> 无 「取（数据库或其他方式）资源」
+ * <p>
+ * 监听到新消息
+ * -> 「核实缓存是否有数据」-> ...
+ * <p>
+ * 开启分页加载（{@link #pageSize()} 大于0）时，按游标逐页取资源并追加到缓存，
+ * 缓存数量降到低水位{@link #lowWatermark()}时预取下一页，不必等缓存清空后再取，
+ * 全部取完且缓存清空后，从头开始取
+ * <p>
+ * 开启合并（{@link #coalesceKey(Object)} 返回非null）时，新取到的资源与缓存中尚未调度、合并键相同的资源合并，
+ * 合并结果替换原资源所在的位置，不改变调度顺序；被合并的资源在合并结果处理完成后一并回调移除
+ * <p>
+ * 资源可提供截止时间{@link #deadline(Object)}或存活时间{@link #ttl(Object)}：
+ * 超过截止时间仍未调度的资源直接丢弃（{@link #onSourceExpired(Object)}），不再消耗调度；
+ * 空闲资源中最早的截止时间提供给事件队列，在事件键之间按截止时间最早优先调度
+ *
+ * @Author: sheedon
+ * @Email: sheedonsun@163.com
+ * @Date: 2021/9/13 4:44 下午
+ */
+public abstract class AbstractRealHandler<Source> {
+
+    // 资源缓存
+    private final List<Source> sources = new ArrayList<>();
+    // 执行中的资源，与其对应的调度反馈，按引用区分
+    private final Map<Source, MessageHandleCenter> runningSources = new IdentityHashMap<>();
+    // 数据上传执行器
+    private final ScheduleClient scheduleClient;
+    // 分页加载，下一页的游标
+    private Object pageCursor;
+    // 分页加载，是否还有下一页
+    private boolean hasMorePage;
+    // 分页加载，是否正在加载
+    private boolean pageLoading;
+    // 合并键对应的未调度资源
+    private final Map<Object, Source> pendingByKey = new HashMap<>();
+    // 合并结果与其合并掉的资源，按引用区分
+    private final Map<Source, List<Source>> absorbedSources = new IdentityHashMap<>();
+    // 由合并产生的资源（非取到的资源），移除时不回调
+    private final Set<Source> mergedSources = Collections.newSetFromMap(new IdentityHashMap<>());
+    // 参与合并的资源数量（存在合并键）
+    private long coalesceOffered;
+    // 被合并的资源数量
+    private long coalesceHits;
+    // 资源的截止时间（System.currentTimeMillis() 时间），只记录存在截止时间的资源，按引用区分
+    private final Map<Source, Long> sourceDeadlines = new IdentityHashMap<>();
+    // 缓存中最早的截止时间，到达后核实过期资源
+    private long earliestDeadline = EventListener.NO_DEADLINE;
+    // 空闲资源中最早的截止时间
+    private long nextIdleDeadline = EventListener.NO_DEADLINE;
+    // 资源或其执行状态已变化，需重新计算截止时间
+    private boolean deadlineDirty;
+
+    /**
+     * 事件监听器，用于核实是否有资源，以及处理真实调度
+     */
+    private final EventListener eventListener = new EventListener() {
+
+        /**
+         * 子调度器是否还有资源需要调度
+         */
+        @Override
+        public boolean hasSource() {
+            synchronized (sources) {
+                return !sources.isEmpty();
+            }
+        }
+
+        /**
+         * 子调度器是否还有未在执行中的资源
+         */
+        @Override
+        public boolean hasIdleSource() {
+            List<Source> expired = null;
+            boolean hasIdle;
+            boolean isEmpty;
+            synchronized (sources) {
+                if (!sourceDeadlines.isEmpty()) {
+                    expired = refreshDeadlines();
+                }
+                hasIdle = findIdleSource() != null;
+                isEmpty = sources.isEmpty();
+            }
+            if (expired != null && !expired.isEmpty()) {
+                onExpired(expired, isEmpty);
+            }
+            return hasIdle;
+        }
+
+        /**
+         * 事件键的网络约束
+         */
+        @Override
+        public NetworkConstraint networkConstraint() {
+            return AbstractRealHandler.this.networkConstraint();
+        }
+
+        /**
+         * 空闲资源中最早的截止时间，紧随{@link #hasIdleSource()}之后读取
+         */
+        @Override
+        public long nextDeadline() {
+            synchronized (sources) {
+                return nextIdleDeadline;
+            }
+        }
+
+        /**
+         * 待处理的资源数量，包含执行中的资源
+         */
+        @Override
+        public int pendingCount() {
+            synchronized (sources) {
+                return sources.size();
+            }
+        }
+
+        /**
+         * 执行调度，数据上报操作
+         * 每次调度取出未在执行中的资源，保证同时执行的调度处理的是不同资源
+         * 开启批量调度时，按数量与字节上限一次取出多个资源，开启自适应批量时数量不超过该事件键当前的批量大小
+         * @param center 消息执行，发送成功/失败
+         */
+        @Override
+        public void handleEvent(MessageHandleCenter center) {
+            List<Source> batch = new ArrayList<>();
+            List<Source> expired = null;
+            boolean isEmpty;
+            synchronized (sources) {
+                if (!sourceDeadlines.isEmpty()) {
+                    expired = refreshDeadlines();
+                }
+                fillIdleSources(batch, batchLimit(), maxBatchBytes());
+                for (Source source : batch) {
+                    runningSources.put(source, center);
+                    // 取出的是空闲资源中最早截止的资源时，才需重新计算
+                    Long deadline = sourceDeadlines.get(source);
+                    if (deadline != null && deadline <= nextIdleDeadline) {
+                        deadlineDirty = true;
+                    }
+                    // 已开始调度的资源不再参与合并
+                    Object key = coalesceKey(source);
+                    if (key != null && pendingByKey.get(key) == source) {
+                        pendingByKey.remove(key);
+                    }
+                }
+                isEmpty = sources.isEmpty();
+            }
+            if (expired != null && !expired.isEmpty()) {
+                onExpired(expired, isEmpty);
+            }
+            if (batch.isEmpty()) {
+                center.sendFailureMessage();
+                return;
+            }
+
+            // 代理消息执行，回调后需要做些额外的处理行为
+            BatchHandleCenter handleCenter = new BatchHandleCenter(batch, center);
+            if (center instanceof InFlightCall) {
+                ((InFlightCall) center).setPayloadBytes(sizeOfBatch(batch));
+                ((InFlightCall) center).setRecordCount(batch.size());
+                // 资源已在执行线上选定，真实处理交由调度后端执行，可离开执行线阻塞
+                ((InFlightCall) center).execute(() -> dispatchReal(batch, handleCenter));
+            } else {
+                dispatchReal(batch, handleCenter);
+            }
+        }
+    };
+
+    /**
+     * 本次调度最多取出的资源数量，开启自适应批量时取该事件键当前的批量大小
+     */
+    private int batchLimit() {
+        int limit = Math.max(1, maxBatchSize());
+        AdaptiveBatchSizer batchSizer = scheduleClient.getBatchSizer();
+        if (limit > 1 && batchSizer != null) {
+            limit = Math.max(1, Math.min(limit, batchSizer.batchSizeFor(this.getClass().getCanonicalName())));
+        }
+        return limit;
+    }
+
+    /**
+     * 本次调度资源的字节数之和
+     */
+    private long sizeOfBatch(List<Source> batch) {
+        long bytes = 0;
+        for (Source source : batch) {
+            bytes += Math.max(0, sizeOf(source));
+        }
+        return bytes;
+    }
+
+    /**
+     * 移除超过截止时间的空闲资源，并重新计算最早的截止时间，需持有缓存的锁
+     * 未到最早的截止时间且空闲资源中最早的截止时间未失效时不遍历缓存；
+     * 需要遍历时一次遍历压缩缓存，大量资源同时过期（如离线后的定位上报）不逐个移动
+     *
+     * @return 过期移除的资源
+     */
+    private List<Source> refreshDeadlines() {
+        releaseFinishedSources();
+        long now = System.currentTimeMillis();
+        if (!deadlineDirty && now < earliestDeadline) {
+            return null;
+        }
+        deadlineDirty = false;
+
+        List<Source> expired = null;
+        long earliest = EventListener.NO_DEADLINE;
+        long idleEarliest = EventListener.NO_DEADLINE;
+        int kept = 0;
+        int size = sources.size();
+        for (int index = 0; index < size; index++) {
+            Source source = sources.get(index);
+            Long deadline = sourceDeadlines.get(source);
+            if (deadline != null) {
+                boolean idle = isIdle(source);
+                if (idle && deadline <= now) {
+                    if (expired == null) {
+                        expired = new ArrayList<>();
+                    }
+                    forgetSource(source, expired);
+                    continue;
+                }
+                earliest = Math.min(earliest, deadline);
+                if (idle) {
+                    idleEarliest = Math.min(idleEarliest, deadline);
+                }
+            }
+            if (kept != index) {
+                sources.set(kept, source);
+            }
+            kept++;
+        }
+        if (kept < size) {
+            sources.subList(kept, size).clear();
+        }
+        earliestDeadline = earliest;
+        nextIdleDeadline = idleEarliest;
+        return expired;
+    }
+
+    /**
+     * 超时结束的调度所持有的资源恢复空闲，计入空闲资源中最早的截止时间，需持有缓存的锁
+     * 只遍历执行中的资源，不遍历缓存
+     */
+    private void releaseFinishedSources() {
+        Iterator<Map.Entry<Source, MessageHandleCenter>> iterator = runningSources.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Source, MessageHandleCenter> entry = iterator.next();
+            MessageHandleCenter center = entry.getValue();
+            if (!(center instanceof InFlightCall) || !((InFlightCall) center).isFinished()) {
+                continue;
+            }
+            iterator.remove();
+            Long deadline = sourceDeadlines.get(entry.getKey());
+            if (deadline != null) {
+                nextIdleDeadline = Math.min(nextIdleDeadline, deadline);
+            }
+        }
+    }
+
+    /**
+     * 过期资源移除后回调并计入指标，缓存已清空时重新取资源
+     *
+     * @param expired 过期移除的资源
+     * @param isEmpty 缓存是否已清空
+     */
+    private void onExpired(List<Source> expired, boolean isEmpty) {
+        if (scheduleClient != null) {
+            scheduleClient.getMetrics().onExpired(expired.size());
+        }
+        for (Source source : expired) {
+            onSourceExpired(source);
+        }
+        if (isEmpty) {
+            loadSourceToSubmit();
+        } else if (pageSize() > 0) {
+            loadNextPage();
+        }
+    }
+
+    /**
+     * 资源的截止时间，取{@link #deadline(Object)}与 加入缓存时间 + {@link #ttl(Object)} 中较早者
+     *
+     * @param source 资源
+     * @param now    加入缓存的时间
+     * @return 截止时间，没有则返回{@link EventListener#NO_DEADLINE}
+     */
+    private long deadlineOf(Source source, long now) {
+        long deadline = deadline(source);
+        long ttl = ttl(source);
+        if (ttl > 0) {
+            deadline = Math.min(deadline, now + ttl);
+        }
+        return deadline;
+    }
+
+    /**
+     * 记录资源的截止时间，需持有缓存的锁
+     */
+    private void trackDeadline(Source source, long now) {
+        long deadline = deadlineOf(source, now);
+        if (deadline == EventListener.NO_DEADLINE) {
+            return;
+        }
+        sourceDeadlines.put(source, deadline);
+        earliestDeadline = Math.min(earliestDeadline, deadline);
+        deadlineDirty = true;
+    }
+
+    /**
+     * 清空截止时间，需持有缓存的锁
+     */
+    private void clearDeadlines() {
+        sourceDeadlines.clear();
+        earliestDeadline = EventListener.NO_DEADLINE;
+        nextIdleDeadline = EventListener.NO_DEADLINE;
+        deadlineDirty = false;
+    }
+
+    /**
+     * 执行真实处理，处理过程中抛出异常视为本次调度失败
+     *
+     * @param batch        本次调度的资源
+     * @param handleCenter 代理消息执行
+     */
+    private void dispatchReal(List<Source> batch, BatchHandleCenter handleCenter) {
+        try {
+            if (maxBatchSize() > 1) {
+                handleRealBatch(batch, handleCenter);
+            } else {
+                handleRealEvent(batch.get(0), handleCenter);
+            }
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            handleCenter.sendFailureMessage();
+        }
+    }
+
+    /**
+     * 判断资源是否空闲，即不在执行中，已结束的在途调度所持有的资源视为空闲
+     *
+     * @param source 资源
+     * @return 是否空闲
+     */
+    private boolean isIdle(Source source) {
+        MessageHandleCenter center = runningSources.get(source);
+        return center == null
+                || (center instanceof InFlightCall && ((InFlightCall) center).isFinished());
+    }
+
+    /**
+     * 获取第一个未在执行中的资源
+     *
+     * @return 空闲资源，不存在则返回null
+     */
+    private Source findIdleSource() {
+        for (Source source : sources) {
+            if (isIdle(source)) {
+                return source;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 按顺序取出未在执行中的资源，直到达到数量或字节上限，
+     * 至少取出一个资源，防止单个资源超过字节上限后永远无法调度
+     *
+     * @param batch    取出的资源
+     * @param maxSize  数量上限
+     * @param maxBytes 字节上限
+     */
+    private void fillIdleSources(List<Source> batch, int maxSize, long maxBytes) {
+        long bytes = 0;
+        for (Source source : sources) {
+            if (batch.size() >= maxSize) {
+                return;
+            }
+            if (!isIdle(source)) {
+                continue;
+            }
+
+            long size = Math.max(0, sizeOf(source));
+            if (!batch.isEmpty() && bytes + size > maxBytes) {
+                return;
+            }
+            bytes += size;
+            batch.add(source);
+        }
+    }
+
+    /**
+     * 消息发送代理，每次调度各自持有一个，单个资源的调度视为只有一条的批量，
+     * 按下标记录每个资源的结果，全部反馈后：
+     * 成功的资源 需要移除，失败的资源 恢复为空闲等待重试，
+     * 有成功则反馈成功调度，全部失败则反馈失败调度，最后核实资源
+     */
+    private final class BatchHandleCenter implements BatchResultCenter {
+
+        // 未反馈
+        private static final int RESULT_NONE = 0;
+        // 成功
+        private static final int RESULT_SUCCESS = 1;
+        // 失败
+        private static final int RESULT_FAILURE = 2;
+
+        // 当前调度的资源
+        private final List<Source> batch;
+        // 当前调度的消息执行
+        private final MessageHandleCenter center;
+        // 每个资源的结果
+        private final int[] results;
+        // 未反馈的数量
+        private int remaining;
+
+        BatchHandleCenter(List<Source> batch, MessageHandleCenter center) {
+            this.batch = batch;
+            this.center = center;
+            this.results = new int[batch.size()];
+            this.remaining = batch.size();
+        }
+
+        @Override
+        public void sendSuccessMessage(int index) {
+            attachResult(index, RESULT_SUCCESS);
+        }
+
+        @Override
+        public void sendFailureMessage(int index) {
+            attachResult(index, RESULT_FAILURE);
+        }
+
+        /**
+         * 发送成功，先移除，在反馈，最后核实是否还有资源需要上报
+         */
+        @Override
+        public void sendSuccessMessage() {
+            attachRemainingResult(RESULT_SUCCESS);
+        }
+
+        /**
+         * 发送失败消息
+         */
+        @Override
+        public void sendFailureMessage() {
+            attachRemainingResult(RESULT_FAILURE);
+        }
+
+        /**
+         * 记录单个资源的结果，重复反馈或下标越界则忽略
+         */
+        private void attachResult(int index, int result) {
+            synchronized (this) {
+                if (index < 0 || index >= results.length || results[index] != RESULT_NONE) {
+                    return;
+                }
+                results[index] = result;
+                if (--remaining > 0) {
+                    return;
+                }
+            }
+            complete();
+        }
+
+        /**
+         * 记录剩余未反馈资源的结果
+         */
+        private void attachRemainingResult(int result) {
+            synchronized (this) {
+                if (remaining == 0) {
+                    return;
+                }
+                for (int index = 0; index < results.length; index++) {
+                    if (results[index] == RESULT_NONE) {
+                        results[index] = result;
+                    }
+                }
+                remaining = 0;
+            }
+            complete();
+        }
+
+        /**
+         * 全部反馈后，更新缓存，反馈调度结果，最后核实是否还有资源需要上报
+         */
+        private void complete() {
+            int succeeded = 0;
+            boolean isEmpty;
+            List<Source> removed = new ArrayList<>(results.length);
+            synchronized (sources) {
+                boolean removeByFailure = needRemoveFirstByFailure();
+                for (int index = 0; index < results.length; index++) {
+                    Source source = batch.get(index);
+                    if (results[index] == RESULT_SUCCESS) {
+                        succeeded++;
+                        if (isOwnedBy(source, center)) {
+                            removeSource(source, removed);
+                        }
+                    } else if (removeByFailure) {
+                        if (isOwnedBy(source, center)) {
+                            removeSource(source, removed);
+                        }
+                    } else if (runningSources.get(source) == center) {
+                        runningSources.remove(source);
+                        Long deadline = sourceDeadlines.get(source);
+                        if (deadline != null) {
+                            nextIdleDeadline = Math.min(nextIdleDeadline, deadline);
+                        }
+                        // 恢复空闲，没有更新的同键资源时重新参与合并
+                        Object key = coalesceKey(source);
+                        if (key != null && !pendingByKey.containsKey(key)) {
+                            pendingByKey.put(key, source);
+                        }
+                    }
+                }
+                isEmpty = sources.isEmpty();
+            }
+
+            for (Source source : removed) {
+                onSourceRemoved(source);
+            }
+
+            if (succeeded > 0) {
+                if (center instanceof InFlightCall) {
+                    ((InFlightCall) center).setRecordCount(succeeded);
+                }
+                center.sendSuccessMessage();
+            } else {
+                center.sendFailureMessage();
+            }
+
+            if (isEmpty) {
+                loadSourceToSubmit();
+            } else if (pageSize() > 0) {
+                loadNextPage();
+            }
+        }
+    }
+
+    /**
+     * 资源是否仍归属于该调度，需持有缓存的锁
+     * 超时结束的调度所持有的资源视为空闲，可能已被新的调度取出或已移除，迟到的结果不再移除该资源
+     *
+     * @param source 资源
+     * @param center 调度的消息执行
+     * @return 仍由该调度执行，或未在执行中且仍在缓存中
+     */
+    private boolean isOwnedBy(Source source, MessageHandleCenter center) {
+        MessageHandleCenter owner = runningSources.get(source);
+        if (owner != null) {
+            return owner == center;
+        }
+        return indexOfSource(source) >= 0;
+    }
+
+    /**
+     * 按引用从缓存中移除资源，资源与其合并掉的资源加入移除列表
+     *
+     * @param source  资源
+     * @param removed 移除列表
+     */
+    private void removeSource(Source source, List<Source> removed) {
+        forgetSource(source, removed);
+        int index = indexOfSource(source);
+        if (index >= 0) {
+            sources.remove(index);
+        }
+    }
+
+    /**
+     * 清除资源的执行、合并与截止时间记录，不从缓存列表中移除，资源与其合并掉的资源加入移除列表
+     *
+     * @param source  资源
+     * @param removed 移除列表
+     */
+    private void forgetSource(Source source, List<Source> removed) {
+        if (!mergedSources.remove(source)) {
+            removed.add(source);
+        }
+        List<Source> absorbed = absorbedSources.remove(source);
+        if (absorbed != null) {
+            removed.addAll(absorbed);
+        }
+        Object key = coalesceKey(source);
+        if (key != null && pendingByKey.get(key) == source) {
+            pendingByKey.remove(key);
+        }
+        runningSources.remove(source);
+        sourceDeadlines.remove(source);
+    }
+
+
+    /**
+     * 追加资源到缓存，存在合并键时与缓存中尚未调度的同键资源合并
+     * 需持有缓存的锁
+     *
+     * @param incoming 新资源
+     */
+    private void appendSources(List<Source> incoming) {
+        long now = System.currentTimeMillis();
+        for (Source source : incoming) {
+            Object key = coalesceKey(source);
+            if (key == null) {
+                sources.add(source);
+                trackDeadline(source, now);
+                continue;
+            }
+
+            coalesceOffered++;
+            Source older = pendingByKey.get(key);
+            int index = older == null ? -1 : indexOfSource(older);
+            if (index < 0) {
+                sources.add(source);
+                pendingByKey.put(key, source);
+                trackDeadline(source, now);
+                continue;
+            }
+
+            // 替换原位置，合并结果记录其合并掉的取到的资源
+            Source merged = mergeSource(older, source);
+            sources.set(index, merged);
+            pendingByKey.put(key, merged);
+            sourceDeadlines.remove(older);
+            trackDeadline(merged, now);
+            List<Source> absorbed = absorbedSources.remove(older);
+            if (absorbed == null) {
+                absorbed = new ArrayList<>(2);
+            }
+            if (older != merged && !mergedSources.remove(older)) {
+                absorbed.add(older);
+            }
+            if (source != merged) {
+                absorbed.add(source);
+            }
+            if (merged != older && merged != source) {
+                mergedSources.add(merged);
+            }
+            if (!absorbed.isEmpty()) {
+                absorbedSources.put(merged, absorbed);
+            }
+            coalesceHits++;
+        }
+    }
+
+    /**
+     * 按引用查找资源在缓存中的位置
+     */
+    private int indexOfSource(Source source) {
+        for (int index = 0; index < sources.size(); index++) {
+            if (sources.get(index) == source) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    public AbstractRealHandler() {
+        scheduleClient = loadScheduleClient();
+    }
+
+    /**
+     * 启动,执行取数据库动作，核实资源，填充缓存，触发调度指令
+     */
+    public void startUp() {
+        loadSourceToSubmit();
+    }
+
+    /**
+     * 加载 数据上传执行器
+     * 后续执行 「提交调度任务」和「清除当前绑定」职责
+     *
+     * @return ScheduleClient  数据上传执行器
+     */
+    protected abstract ScheduleClient loadScheduleClient();
+
+    /**
+     * 取（数据库或其他方式）资源，无数据则结束
+     * 有数据，清空缓存，将新获取数据填充到缓存中
+     * 提交调度任务
+     * 开启分页加载时，改为取下一页
+     */
+    private void loadSourceToSubmit() {
+        if (pageSize() > 0) {
+            loadNextPage();
+            return;
+        }
+
+        loadSource(sources -> {
+            // 执行器不存在,后续无法执行操作，则return，无需消耗获取信息所造成的资源消耗
+            if (scheduleClient == null) return;
+
+            synchronized (this.sources) {
+                this.sources.clear();
+                runningSources.clear();
+                pendingByKey.clear();
+                absorbedSources.clear();
+                mergedSources.clear();
+                clearDeadlines();
+                if (sources != null) {
+                    appendSources(sources);
+                }
+            }
+            if (sources == null || sources.isEmpty()) {
+                scheduleClient.removeEvent(this.getClass().getCanonicalName());
+                return;
+            }
+
+            scheduleClient.submitEvent(this.getClass().getCanonicalName(), eventListener, priority(), weight());
+        });
+    }
+
+    /**
+     * 分页取资源，追加到缓存中并提交调度任务
+     * 还有下一页时，缓存数量不高于低水位才预取；已取完时，缓存清空后从头开始取
+     * 同一时间只有一次加载
+     */
+    private void loadNextPage() {
+        Object cursor;
+        synchronized (sources) {
+            if (pageLoading) {
+                return;
+            }
+            if (hasMorePage) {
+                if (sources.size() > lowWatermark()) {
+                    return;
+                }
+            } else {
+                if (!sources.isEmpty()) {
+                    return;
+                }
+                pageCursor = null;
+            }
+            pageLoading = true;
+            cursor = pageCursor;
+        }
+
+        loadPage(cursor, pageSize(), (page, nextCursor) -> {
+            boolean isEmpty;
+            boolean needPrefetch;
+            synchronized (sources) {
+                pageLoading = false;
+                // 执行器不存在,后续无法执行操作，则return
+                if (scheduleClient == null) return;
+
+                if (page != null) {
+                    appendSources(page);
+                }
+                pageCursor = nextCursor;
+                hasMorePage = nextCursor != null && page != null && !page.isEmpty();
+                isEmpty = sources.isEmpty();
+                needPrefetch = hasMorePage && sources.size() <= lowWatermark();
+            }
+
+            if (isEmpty) {
+                scheduleClient.removeEvent(this.getClass().getCanonicalName());
+                return;
+            }
+
+            scheduleClient.submitEvent(this.getClass().getCanonicalName(), eventListener, priority(), weight());
+
+            // 取到的资源仍不足低水位，继续预取
+            if (needPrefetch) {
+                loadNextPage();
+            }
+        });
+    }
+
+    /**
+     * 加载真实资源，未开启分页加载时使用，需一次性反馈全部资源
+     * 默认无资源
+     *
+     * @param callback 获取后反馈
+     */
+    protected void loadSource(OnSourceCallback<Source> callback) {
+        callback.attachSource(Collections.<Source>emptyList());
+    }
+
+    /**
+     * 分页加载真实资源，{@link #pageSize()} 大于0时使用
+     * 默认不分页，交由{@link #loadSource(OnSourceCallback)}一次性加载
+     *
+     * @param cursor   游标，由上一页反馈，第一页为null
+     * @param limit    本页最多取出的数量
+     * @param callback 获取后反馈本页资源与下一页游标
+     */
+    protected void loadPage(@Nullable Object cursor, int limit, OnPageCallback<Source> callback) {
+        loadSource(sources -> callback.attachPage(sources, null));
+    }
+
+    /**
+     * 分页加载的每页数量，大于0时开启分页加载{@link #loadPage(Object, int, OnPageCallback)}
+     *
+     * @return 默认为0，即一次性加载全部资源
+     */
+    protected int pageSize() {
+        return 0;
+    }
+
+    /**
+     * 分页加载的低水位，缓存数量不高于该值且还有下一页时，预取下一页
+     *
+     * @return 默认为每页数量的一半
+     */
+    protected int lowWatermark() {
+        return pageSize() / 2;
+    }
+
+
+    /**
+     * 通知有新数据
+     * 开启分页加载时，由分页的低水位规则决定是否加载
+     */
+    public void notifyNewSource() {
+        if (pageSize() > 0) {
+            loadNextPage();
+            return;
+        }
+        synchronized (sources) {
+            if (!sources.isEmpty()) {
+                return;
+            }
+        }
+        loadSourceToSubmit();
+    }
+
+
+    /**
+     * 执行真实事件
+     *
+     * @param source 资源
+     * @param center 消息执行处理中心
+     */
+    protected abstract void handleRealEvent(Source source, MessageHandleCenter center);
+
+    /**
+     * 批量执行真实事件，{@link #maxBatchSize()} 大于1时调用
+     * 可通过{@link BatchResultCenter}按下标反馈每个资源的结果，成功的资源移除，失败的资源等待重试
+     * 默认逐条交由{@link #handleRealEvent(Object, MessageHandleCenter)}执行
+     *
+     * @param sources 本次批量的资源
+     * @param center  批量结果反馈
+     */
+    protected void handleRealBatch(List<Source> sources, BatchResultCenter center) {
+        for (int index = 0; index < sources.size(); index++) {
+            final int position = index;
+            handleRealEvent(sources.get(index), new MessageHandleCenter() {
+                @Override
+                public void sendSuccessMessage() {
+                    center.sendSuccessMessage(position);
+                }
+
+                @Override
+                public void sendFailureMessage() {
+                    center.sendFailureMessage(position);
+                }
+            });
+        }
+    }
+
+    /**
+     * 单次调度最多处理的资源数量，大于1时开启批量调度{@link #handleRealBatch(List, BatchResultCenter)}
+     * 客户端开启自适应批量{@link ScheduleClient.AbstractBuilder#adaptiveBatch(AdaptiveBatchSizer)}时，作为批量大小的上限
+     *
+     * @return 默认为1，即逐条调度
+     */
+    protected int maxBatchSize() {
+        return 1;
+    }
+
+    /**
+     * 单次批量调度的字节上限，按{@link #sizeOf(Object)}累计，单个资源超过上限时仍会单独调度
+     *
+     * @return 默认不限制
+     */
+    protected long maxBatchBytes() {
+        return Long.MAX_VALUE;
+    }
+
+    /**
+     * 估算资源的字节大小，用于批量调度的字节上限
+     *
+     * @param source 资源
+     * @return 默认为0，即只按数量限制
+     */
+    protected long sizeOf(Source source) {
+        return 0;
+    }
+
+    /**
+     * 资源的合并键，取到的新资源与缓存中尚未调度、合并键相同的资源合并，
+     * 例如同一条记录离线期间多次修改，只上传最终的版本
+     *
+     * @param source 资源
+     * @return 默认为null，即不合并
+     */
+    @Nullable
+    protected Object coalesceKey(Source source) {
+        return null;
+    }
+
+    /**
+     * 合并同键的两个资源，结果替换较旧资源在缓存中的位置
+     * 增量类的更新可重写为累加两者的内容
+     *
+     * @param older 缓存中尚未调度的资源
+     * @param newer 新取到的资源
+     * @return 默认返回较新的资源（后写入者胜出）
+     */
+    protected Source mergeSource(Source older, Source newer) {
+        return newer;
+    }
+
+    /**
+     * 资源的截止时间（System.currentTimeMillis() 时间），超过后仍未调度的资源直接丢弃，
+     * 例如定位上报只在一定时间内有意义；在事件键之间按截止时间最早优先调度
+     *
+     * @param source 资源
+     * @return 默认为{@link EventListener#NO_DEADLINE}，即不会过期
+     */
+    protected long deadline(Source source) {
+        return EventListener.NO_DEADLINE;
+    }
+
+    /**
+     * 资源的存活时间，从加入缓存开始计算，与{@link #deadline(Object)}同时存在时取较早者
+     *
+     * @param source 资源
+     * @return 存活时间（毫秒），默认为0，即不限制
+     */
+    protected long ttl(Source source) {
+        return 0;
+    }
+
+    /**
+     * 资源超过截止时间、未调度即从缓存中丢弃后回调，计入指标{@link org.sheedon.uploader.metrics.MetricsSnapshot#getExpired()}
+     *
+     * @param source 资源
+     */
+    protected void onSourceExpired(Source source) {
+        onSourceRemoved(source);
+    }
+
+    /**
+     * 合并的命中情况，用于核实合并节省的调度量
+     */
+    public CoalesceStat getCoalesceStat() {
+        synchronized (sources) {
+            return new CoalesceStat(coalesceOffered, coalesceHits);
+        }
+    }
+
+    /**
+     * 资源处理完成并从缓存中移除后回调（上传成功，或失败后不再重试，或过期丢弃），
+     * 在反馈调度结果之前执行，可用于同步删除或确认持久化的记录
+     * 被合并的资源在合并结果移除后回调
+     *
+     * @param source 资源
+     */
+    protected void onSourceRemoved(Source source) {
+
+    }
+
+    /**
+     * 调度优先级，紧急优先级的事件只要可调度就先于普通事件调度
+     *
+     * @return 默认为普通优先级{@link EventQueue#PRIORITY_NORMAL}
+     */
+    @EventQueue.Priority
+    protected int priority() {
+        return EventQueue.PRIORITY_NORMAL;
+    }
+
+    /**
+     * 网络约束，当前网络不满足时不调度，例如大文件只在不计费的网络上传，
+     * 网络类别由平台的网络监测提供（Android 端为 NetworkCapabilities）
+     *
+     * @return 默认为null，即任意已连接的网络均可调度
+     */
+    @Nullable
+    protected NetworkConstraint networkConstraint() {
+        return null;
+    }
+
+    /**
+     * 调度权重，普通优先级的事件之间按权重比例分配调度量
+     *
+     * @return 默认为1
+     */
+    protected int weight() {
+        return 1;
+    }
+
+    /**
+     * 失败时是否移除该资源，不再重试
+     */
+    protected boolean needRemoveFirstByFailure() {
+        return false;
+    }
+
+
+    /**
+     * 销毁
+     */
+    public void destroy() {
+        if (scheduleClient != null) {
+            scheduleClient.removeEvent(this.getClass().getCanonicalName());
+        }
+        synchronized (sources) {
+            sources.clear();
+            runningSources.clear();
+            pendingByKey.clear();
+            absorbedSources.clear();
+            mergedSources.clear();
+            clearDeadlines();
+            pageCursor = null;
+            hasMorePage = false;
+        }
+    }
+
+    /**
+     * 合并的命中情况
+     */
+    public static final class CoalesceStat {
+        // 参与合并的资源数量（存在合并键）
+        private final long offered;
+        // 被合并的资源数量
+        private final long coalesced;
+
+        CoalesceStat(long offered, long coalesced) {
+            this.offered = offered;
+            this.coalesced = coalesced;
+        }
+
+        public long getOffered() {
+            return offered;
+        }
+
+        public long getCoalesced() {
+            return coalesced;
+        }
+
+        /**
+         * 命中率，没有参与合并的资源时为0
+         */
+        public float getHitRate() {
+            return offered == 0 ? 0 : (float) coalesced / offered;
+        }
+
+        @Override
+        public String toString() {
+            return "CoalesceStat{offered=" + offered + ", coalesced=" + coalesced + ", hitRate=" + getHitRate() + '}';
+        }
+    }
+
+    /**
+     * 资源加载 回调
+     *
+     * @param <Source> 资源类型
+     */
+    public interface OnSourceCallback<Source> {
+
+        /**
+         * 附加资源
+         *
+         * @param sources 资源列表
+         */
+        void attachSource(List<Source> sources);
+    }
+
+    /**
+     * 分页资源加载 回调
+     *
+     * @param <Source> 资源类型
+     */
+    public interface OnPageCallback<Source> {
+
+        /**
+         * 附加一页资源
+         *
+         * @param sources    本页资源列表
+         * @param nextCursor 下一页游标，没有下一页则为null
+         */
+        void attachPage(List<Source> sources, @Nullable Object nextCursor);
+    }
+
+}
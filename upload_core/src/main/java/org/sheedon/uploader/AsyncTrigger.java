@@ -1,15 +1,18 @@
 package org.sheedon.uploader;
 
-import android.os.HandlerThread;
+import androidx.annotation.NonNull;
 
+import org.sheedon.uploader.backend.ExecutorSchedulerBackend;
+import org.sheedon.uploader.backend.SchedulerBackend;
 import org.sheedon.uploader.message.DefaultMessageGroup;
 import org.sheedon.uploader.message.MessageStrategy;
 import org.sheedon.uploader.process.AbstractProcess;
 
 /**
  * 异步触发器
- * 借助 {@link HandlerThread} 维持一个异步队列
+ * 借助 调度后端{@link SchedulerBackend} 维持一个异步队列
  * 按顺序依次执行事件
+ * 后端可替换，如 Android 的 Handler，或服务端的{@link java.util.concurrent.ScheduledExecutorService}
  *
  * @Author: sheedon
  * @Email: sheedonsun@163.com
@@ -17,12 +20,12 @@ import org.sheedon.uploader.process.AbstractProcess;
  */
 public class AsyncTrigger {
 
-    // 处理线程
-    private final HandlerThread triggerThread;
+    // 调度后端
+    private final SchedulerBackend backend;
     // 事务处理器
     private MessageHandler workHandler = null;
     // 上报客户端
-    private UploadScheduleClient client;
+    private ScheduleClient client;
 
     // 给消息处理需要提供的行为
     private final MessageStrategy.OnMessageBehavior behavior = new MessageStrategy.OnMessageBehavior() {
@@ -48,28 +51,33 @@ public class AsyncTrigger {
     }
 
     /**
-     * 异步触发器
-     * @param name HandlerThread 添加的名称
+     * 异步触发器，使用单线程执行器的调度后端
+     * @param name 执行线程的名称
      */
     public AsyncTrigger(String name) {
-        // 创建一个HandlerThread 用于执行消息Loop
-        triggerThread = new HandlerThread(name);
-        triggerThread.start();
+        this(new ExecutorSchedulerBackend(name));
+    }
+
+    /**
+     * 异步触发器
+     * @param backend 调度后端
+     */
+    public AsyncTrigger(@NonNull SchedulerBackend backend) {
+        this.backend = backend;
 
-        // 创建绑定在triggerThread的handler
-        workHandler = new MessageHandler(triggerThread.getLooper(), msg -> {
+        // 创建绑定在调度后端的handler
+        workHandler = new MessageHandler(backend, (what, obj) -> {
             // 获取并执行消息策略
-            MessageStrategy messageStrategy = DefaultMessageGroup.obtainByStatus(msg.what);
+            MessageStrategy messageStrategy = DefaultMessageGroup.obtainByStatus(what);
             if (messageStrategy != null) {
-                messageStrategy.handleEvent(behavior);
-                return true;
+                messageStrategy.handleEvent(behavior, obj);
+                return;
             }
 
             // 一般不会执行到当前项，若执行到，重试一次
-            if (msg.what != DefaultMessageGroup.TYPE_COMPLETE && workHandler != null) {
+            if (what != DefaultMessageGroup.TYPE_COMPLETE && workHandler != null) {
                 workHandler.handleError();
             }
-            return true;
         });
     }
 
@@ -78,7 +86,7 @@ public class AsyncTrigger {
      *
      * @param client 数据上报客户端
      */
-    public void attach(UploadScheduleClient client) {
+    public void attach(ScheduleClient client) {
         this.client = client;
     }
 
@@ -94,8 +102,8 @@ public class AsyncTrigger {
      * 销毁
      */
     void onDestroy() {
-        if (triggerThread != null) {
-            triggerThread.quitSafely();
+        if (backend != null) {
+            backend.quit();
         }
     }
 }
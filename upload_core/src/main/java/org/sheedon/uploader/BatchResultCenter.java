@@ -0,0 +1,40 @@
+package org.sheedon.uploader;
+
+/**
+ * 批量调度的结果反馈，可按下标逐条反馈成功或失败，
+ * 成功的资源从缓存中移除，失败的资源保留等待重试。
+ * 所有下标都反馈后，本次批量调度结束；
+ * 其中只要有一条成功，即视为调度成功，全部失败才视为调度失败。
+ *
+ * @Author: sheedon
+ * @Email: sheedonsun@163.com
+ * @Date: 2021/9/19 3:12 下午
+ */
+public interface BatchResultCenter extends MessageHandleCenter {
+
+    /**
+     * 指定下标的资源处理成功
+     *
+     * @param index 资源在本次批量中的下标
+     */
+    void sendSuccessMessage(int index);
+
+    /**
+     * 指定下标的资源处理失败
+     *
+     * @param index 资源在本次批量中的下标
+     */
+    void sendFailureMessage(int index);
+
+    /**
+     * 剩余未反馈的资源全部处理成功
+     */
+    @Override
+    void sendSuccessMessage();
+
+    /**
+     * 剩余未反馈的资源全部处理失败
+     */
+    @Override
+    void sendFailureMessage();
+}
@@ -0,0 +1,48 @@
+package org.sheedon.uploader;
+
+import androidx.annotation.NonNull;
+
+/**
+ * 事件准入过滤，由流程（如熔断）注册到事件队列{@link EventQueue}，
+ * 被拒绝的事件键在取出事件时跳过，不会进入流程，也不会引起全局的失败延迟。
+ * 所有方法在调度的执行线上调用。
+ *
+ * @Author: sheedon
+ * @Email: sheedonsun@163.com
+ * @Date: 2021/9/29 10:10 上午
+ */
+public interface EventFilter {
+
+    /**
+     * 是否允许调度该事件键
+     *
+     * @param key 事件键
+     */
+    boolean accept(@NonNull String key);
+
+    /**
+     * 被拒绝的事件键中，最早可以重新允许的剩余时间，用于到期后唤醒调度
+     *
+     * @return 剩余时间（毫秒），没有需要等待的事件键返回0
+     */
+    long nextAcceptDelay();
+
+    /**
+     * 被拒绝的事件键可以重新允许的剩余时间，事件队列按此时间挂起该事件键
+     *
+     * @param key 事件键
+     * @return 剩余时间（毫秒），0表示没有确定的时间，等待任一调度结束后重新核实
+     */
+    default long acceptDelay(@NonNull String key) {
+        return nextAcceptDelay();
+    }
+
+    /**
+     * 事件键发起了一次调度
+     *
+     * @param key          事件键
+     * @param payloadBytes 本次调度的字节数，未知为0
+     */
+    default void onDispatched(@NonNull String key, long payloadBytes) {
+    }
+}
@@ -0,0 +1,65 @@
+package org.sheedon.uploader;
+
+import androidx.annotation.Nullable;
+
+import org.sheedon.uploader.network.NetworkConstraint;
+
+/**
+ * 事件监听器，由外部判定是否由资源和调度事件
+ * 事件队列不会轮询监听器，没有空闲资源的事件被挂起，
+ * 资源发生变化时需通过重新提交事件或{@link ScheduleClient#signalEvent(String)}发出信号，
+ * 调度结束（成功、失败、超时）时由调度器自动发出信号；不再有资源时通过移除事件告知
+ *
+ * @Author: sheedon
+ * @Email: sheedonsun@163.com
+ * @Date: 2021/9/12 12:11 下午
+ */
+public interface EventListener {
+
+    // 没有截止时间
+    long NO_DEADLINE = Long.MAX_VALUE;
+
+    /**
+     * 是否有资源
+     */
+    boolean hasSource();
+
+    /**
+     * 是否有空闲资源，即尚未处于执行中的资源，
+     * 允许多个调度同时执行时，用于避免同一资源被重复调度，默认与{@link #hasSource()}一致
+     */
+    default boolean hasIdleSource() {
+        return hasSource();
+    }
+
+
+    /**
+     * 待处理的资源数量，用于指标中的各事件键队列深度，未知返回-1
+     */
+    default int pendingCount() {
+        return -1;
+    }
+
+    /**
+     * 空闲资源中最早的截止时间（System.currentTimeMillis() 时间），
+     * 事件队列按截止时间最早优先在事件键之间调度，没有截止时间返回{@link #NO_DEADLINE}
+     */
+    default long nextDeadline() {
+        return NO_DEADLINE;
+    }
+
+    /**
+     * 事件键的网络约束，当前网络不满足时事件队列不调度该事件键，网络变化后重新核实
+     *
+     * @return 默认为null，即任意已连接的网络均可调度
+     */
+    @Nullable
+    default NetworkConstraint networkConstraint() {
+        return null;
+    }
+
+    /**
+     * 处理事件
+     */
+    void handleEvent(MessageHandleCenter center);
+}
@@ -0,0 +1,945 @@
+package org.sheedon.uploader;
+
+import androidx.annotation.IntDef;
+import androidx.annotation.NonNull;
+
+import org.sheedon.uploader.backoff.BackoffPolicy;
+import org.sheedon.uploader.backoff.BackoffTracker;
+import org.sheedon.uploader.backoff.TableBackoff;
+import org.sheedon.uploader.network.NetworkConstraint;
+import org.sheedon.uploader.network.NetworkState;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 事件队列，事件准备执行到真实调度存在一定的事件间隔，所以采用键值对的方式维持了事件队列，
+ * 防止直接持有，导致外部删除后，内部还持有引用。
+ * 遍历操作任务，防止出现一个类型的任务操作完成才能操作其他任务
+ * <p>
+ * 按优先级分为两条通道：
+ * 紧急通道{@link #PRIORITY_URGENT}：严格优先，只要有可调度的紧急事件，总是先于普通事件调度，紧急事件之间轮询；
+ * 普通通道{@link #PRIORITY_NORMAL}：按权重的差额轮询（Deficit Round Robin），
+ * 每轮事件获得 权重 * 份额 的额度，每次调度按条数或字节数扣除，额度用完后轮到下一个事件，
+ * 长期来看各事件获得的调度量与权重成正比。
+ * <p>
+ * 通道中只保存「可能可调度」的事件，取出事件时只核实通道头部：
+ * 没有空闲资源的事件移出通道挂起，直到收到信号{@link #signal(String)}（重新提交、调度结束）才重新进入；
+ * 退避中或被准入过滤延迟的事件按到期时间挂起，到期后重新进入。
+ * 因此取出事件的开销与注册的事件数量无关，且不分配对象。
+ * <p>
+ * 截止时间最早优先（EDF）：有事件键通过{@link EventListener#nextDeadline()}提供截止时间时，
+ * 通道内可调度的事件键按截止时间最早优先取出，此时需核实通道内全部事件键，开销与事件键数量成正比；
+ * 没有截止时间的事件键视为在上次调度（或进入通道）后{@link #setDeadlineAging(long)}到期，不会一直让位。
+ * 全部事件键都没有截止时间时，回到原有的轮询。
+ * <p>
+ * 网络约束：事件键的网络约束{@link EventListener#networkConstraint()}不满足当前网络{@link #getNetworkState()}时，
+ * 移出通道挂起，网络类别变化后统一重新核实。
+ * 通道只在调度的执行线上读写，外部线程的信号先进入信号队列，在取出事件时统一生效。
+ *
+ * @Author: sheedon
+ * @Email: sheedonsun@163.com
+ * @Date: 2021/9/12 12:10 下午
+ */
+public final class EventQueue {
+
+    // 紧急，严格优先
+    public static final int PRIORITY_URGENT = 0;
+    // 普通，按权重轮询
+    public static final int PRIORITY_NORMAL = 1;
+
+    @IntDef({PRIORITY_URGENT, PRIORITY_NORMAL})
+    @Retention(RetentionPolicy.SOURCE)
+    public @interface Priority {
+    }
+
+    // 按条数扣除额度
+    public static final int COST_ITEMS = 0;
+    // 按字节数扣除额度
+    public static final int COST_BYTES = 1;
+
+    @IntDef({COST_ITEMS, COST_BYTES})
+    @Retention(RetentionPolicy.SOURCE)
+    public @interface CostType {
+    }
+
+    // 截止时间调度时，没有截止时间的事件键的默认等待上限（毫秒）
+    public static final long DEFAULT_DEADLINE_AGING = 30_000;
+
+    // 事件状态的位置：挂起，等待信号
+    private static final int LOCATION_PARKED = 0;
+    // 事件状态的位置：在通道中
+    private static final int LOCATION_RING = 1;
+    // 事件状态的位置：按到期时间挂起
+    private static final int LOCATION_DELAYED = 2;
+    // 事件状态的位置：被准入过滤拒绝，等待任一信号
+    private static final int LOCATION_FILTERED = 3;
+    // 事件状态的位置：网络约束不满足，等待网络变化
+    private static final int LOCATION_NETWORK = 4;
+
+    // 事件键对应的事件状态
+    private final ConcurrentHashMap<String, KeyState> states = new ConcurrentHashMap<>();
+    // 紧急通道
+    private final ArrayDeque<KeyState> urgentRing = new ArrayDeque<>();
+    // 普通通道
+    private final ArrayDeque<KeyState> normalRing = new ArrayDeque<>();
+    // 按到期时间挂起的事件
+    private final DelayedHeap delayed = new DelayedHeap();
+    // 被准入过滤拒绝的事件
+    private final ArrayDeque<KeyState> filtered = new ArrayDeque<>();
+    // 网络约束不满足的事件
+    private final ArrayDeque<KeyState> networkWaiting = new ArrayDeque<>();
+    // 当前网络
+    private volatile NetworkState networkState = NetworkState.UNKNOWN;
+    // 网络类别是否已变化，由信号队列的锁保护
+    private boolean networkChanged;
+    // 外部线程发出的信号，同时作为锁
+    private final ArrayDeque<KeyState> signals = new ArrayDeque<>();
+    // 当前需要操作的事件
+    private KeyState current;
+    // 额度扣除方式
+    @CostType
+    private int costType = COST_ITEMS;
+    // 每份权重每轮获得的额度
+    private long quantum = 1;
+    // 事件键累计的调度量
+    private final ConcurrentHashMap<String, ServedCounter> served = new ConcurrentHashMap<>();
+    // 按事件键记录的退避状态
+    private final BackoffTracker backoff = new BackoffTracker(TableBackoff.defaultBackoff());
+    // 事件准入过滤
+    private final List<EventFilter> filters = new CopyOnWriteArrayList<>();
+    // 截止时间调度时，没有截止时间的事件键的等待上限（毫秒）
+    private long deadlineAging = DEFAULT_DEADLINE_AGING;
+    // 核实为可调度且提供截止时间的事件键数量，大于0时按截止时间最早优先取出
+    private int deadlineKeys;
+    // 开始按截止时间调度的时间，此前没有记录事件键的等待起点
+    private long deadlineSince;
+
+    /**
+     * 添加普通优先级、权重为1的任务
+     *
+     * @param key      自调度器唯一名称，一般用A.class.getCanonicalName()
+     * @param listener 消息监听器
+     */
+    void offerEvent(@NonNull String key, @NonNull EventListener listener) {
+        offerEvent(key, listener, PRIORITY_NORMAL, 1);
+    }
+
+    /**
+     * 添加任务，已存在时更新监听器、优先级与权重，并发出信号重新核实该事件
+     *
+     * @param key      自调度器唯一名称，一般用A.class.getCanonicalName()
+     * @param listener 消息监听器
+     * @param priority 优先级
+     * @param weight   权重，需大于0，仅对普通优先级生效
+     */
+    void offerEvent(@NonNull String key, @NonNull EventListener listener, @Priority int priority, int weight) {
+        if (key.isEmpty()) {
+            return;
+        }
+        if (weight < 1) throw new IllegalArgumentException("weight must be greater than 0");
+
+        KeyState state = states.get(key);
+        if (state == null) {
+            ServedCounter counter = served.get(key);
+            if (counter == null) {
+                counter = new ServedCounter();
+                ServedCounter previous = served.putIfAbsent(key, counter);
+                if (previous != null) {
+                    counter = previous;
+                }
+            }
+            KeyState created = new KeyState(key, counter);
+            state = states.putIfAbsent(key, created);
+            if (state == null) {
+                state = created;
+            }
+        }
+        state.listener = listener;
+        state.priority = priority;
+        state.weight = weight;
+        signal(state);
+    }
+
+    /**
+     * 事件可调度的情况可能发生变化（有新的空闲资源、调度结束等），重新核实该事件
+     * 可在任意线程调用，只记录信号，在调度的执行线上取出事件时生效
+     *
+     * @param key 事件键
+     */
+    public void signal(@NonNull String key) {
+        KeyState state = states.get(key);
+        if (state != null) {
+            signal(state);
+        }
+    }
+
+    private void signal(KeyState state) {
+        synchronized (signals) {
+            if (!state.signaled) {
+                state.signaled = true;
+                signals.addLast(state);
+            }
+        }
+    }
+
+    /**
+     * 设置普通通道的额度扣除方式
+     *
+     * @param costType 按条数或字节数
+     * @param quantum  每份权重每轮获得的额度，需大于0
+     */
+    void setSchedulingCost(@CostType int costType, long quantum) {
+        if (quantum < 1) throw new IllegalArgumentException("quantum must be greater than 0");
+        this.costType = costType;
+        this.quantum = quantum;
+    }
+
+    /**
+     * 设置截止时间调度时，没有截止时间的事件键的等待上限
+     *
+     * @param agingMillis 等待上限（毫秒），需大于0
+     */
+    void setDeadlineAging(long agingMillis) {
+        if (agingMillis < 1) throw new IllegalArgumentException("deadlineAging must be greater than 0");
+        this.deadlineAging = agingMillis;
+    }
+
+    /**
+     * 取出事件，先从紧急通道取，再按权重从普通通道取，
+     * 存在截止时间时，通道内按截止时间最早优先取，
+     * 取出的事件键不会被移除，调度后由{@link #onDispatched(String, long)}扣除额度
+     * 没有空闲资源、处于退避等待中或被准入过滤拒绝的事件移出通道挂起
+     *
+     * @return 若有事件，则返回事件名（引用），否则返回null
+     */
+    public String pollEvent() {
+        applySignals();
+        KeyState state = pollChannel(urgentRing);
+        if (state == null) {
+            state = pollChannel(normalRing);
+        }
+        current = state;
+        return state == null ? null : state.key;
+    }
+
+    /**
+     * 从通道取出事件，存在截止时间时按截止时间最早优先，否则紧急通道轮询、普通通道按权重轮询
+     */
+    private KeyState pollChannel(ArrayDeque<KeyState> ring) {
+        if (deadlineKeys > 0) {
+            KeyState state = pollEarliestDeadline(ring);
+            if (state != null) {
+                return state;
+            }
+        }
+        return ring == urgentRing ? peekReady(ring) : pollWeighted();
+    }
+
+    /**
+     * 核实通道内全部事件键，取出截止时间最早的可调度事件，不可调度的移出通道挂起，
+     * 其余事件键保持原有顺序；没有截止时间的事件键按 上次调度时间 + 等待上限 计算
+     *
+     * @param ring 通道
+     * @return 截止时间最早的事件，通道内没有提供截止时间的事件键时返回null
+     */
+    private KeyState pollEarliestDeadline(ArrayDeque<KeyState> ring) {
+        KeyState earliest = null;
+        long earliestDeadline = EventListener.NO_DEADLINE;
+        boolean hasDeadline = false;
+        for (int count = ring.size(); count > 0; count--) {
+            KeyState state = ring.pollFirst();
+            if (state.deleted) {
+                state.location = LOCATION_PARKED;
+                setDeadline(state, EventListener.NO_DEADLINE);
+                continue;
+            }
+            if (ringOf(state.priority) != ring) {
+                state.deficit = 0;
+                ringOf(state.priority).addLast(state);
+                continue;
+            }
+            if (!admit(state)) {
+                continue;
+            }
+            ring.addLast(state);
+
+            long deadline = state.deadline;
+            if (deadline == EventListener.NO_DEADLINE) {
+                deadline = Math.max(state.readySince, deadlineSince) + deadlineAging;
+            } else {
+                hasDeadline = true;
+            }
+            if (earliest == null || deadline < earliestDeadline) {
+                earliest = state;
+                earliestDeadline = deadline;
+            }
+        }
+        return hasDeadline ? earliest : null;
+    }
+
+    /**
+     * 普通通道差额轮询，队首事件额度用完时补充一轮额度，仍不足则轮到下一个
+     * 一圈之后仍没有额度为正的事件（如按字节扣除后欠下大量额度），一次补足所需的整圈，不逐圈重新核实
+     */
+    private KeyState pollWeighted() {
+        while (true) {
+            if (peekReady(normalRing) == null) {
+                return null;
+            }
+            int steps = normalRing.size();
+            while (steps-- > 0) {
+                KeyState state = peekReady(normalRing);
+                if (state == null) {
+                    return null;
+                }
+                if (state.deficit <= 0) {
+                    state.deficit += state.weight * quantum;
+                }
+                if (state.deficit > 0) {
+                    return state;
+                }
+                normalRing.addLast(normalRing.pollFirst());
+            }
+            skipRounds(normalRing);
+        }
+    }
+
+    /**
+     * 跳过没有事件能获得正额度的整圈，通道中的事件均已核实可调度且额度不为正
+     * 每个事件需 -deficit / (weight * quantum) + 1 圈才能调度，取最少者，其余整圈一次补充给所有事件
+     *
+     * @param ring 通道
+     */
+    private void skipRounds(ArrayDeque<KeyState> ring) {
+        long rounds = Long.MAX_VALUE;
+        for (KeyState state : ring) {
+            rounds = Math.min(rounds, -state.deficit / (state.weight * quantum) + 1);
+        }
+        if (rounds <= 1) {
+            return;
+        }
+        for (KeyState state : ring) {
+            state.deficit += (rounds - 1) * state.weight * quantum;
+        }
+    }
+
+    /**
+     * 通道头部第一个可调度的事件，不可调度的头部移出通道挂起
+     *
+     * @param ring 通道
+     * @return 可调度的事件，没有则返回null
+     */
+    private KeyState peekReady(ArrayDeque<KeyState> ring) {
+        while (!ring.isEmpty()) {
+            KeyState state = ring.peekFirst();
+            if (state.deleted) {
+                ring.pollFirst();
+                state.location = LOCATION_PARKED;
+                setDeadline(state, EventListener.NO_DEADLINE);
+                continue;
+            }
+            if (ringOf(state.priority) != ring) {
+                // 优先级已变更，转到对应通道
+                ring.pollFirst();
+                state.deficit = 0;
+                ringOf(state.priority).addLast(state);
+                continue;
+            }
+            if (admit(state)) {
+                return state;
+            }
+            ring.pollFirst();
+        }
+        return null;
+    }
+
+    /**
+     * 核实事件是否可调度，不可调度时按原因挂起
+     * 退避中 - 按退避到期时间挂起；
+     * 网络约束不满足 - 等待网络变化；
+     * 被准入过滤拒绝 - 存在到期时间时按到期时间挂起，否则等待任一信号（如其他事件键的调度结束）；
+     * 没有空闲资源 - 等待该事件的信号
+     *
+     * @param state 事件状态
+     * @return 是否可调度
+     */
+    private boolean admit(KeyState state) {
+        long remaining = backoff.remaining(state.key);
+        if (remaining > 0) {
+            park(state, LOCATION_DELAYED, remaining);
+            return false;
+        }
+        EventListener listener = state.listener;
+        NetworkConstraint constraint = listener.networkConstraint();
+        if (constraint != null && !constraint.isSatisfiedBy(networkState)) {
+            park(state, LOCATION_NETWORK, 0);
+            return false;
+        }
+        for (EventFilter filter : filters) {
+            if (!filter.accept(state.key)) {
+                long delay = filter.acceptDelay(state.key);
+                park(state, delay > 0 ? LOCATION_DELAYED : LOCATION_FILTERED, delay);
+                return false;
+            }
+        }
+        if (!listener.hasIdleSource()) {
+            park(state, LOCATION_PARKED, 0);
+            return false;
+        }
+        setDeadline(state, listener.nextDeadline());
+        return true;
+    }
+
+    /**
+     * 更新事件键的截止时间，同步提供截止时间的事件键数量
+     */
+    private void setDeadline(KeyState state, long deadline) {
+        if (state.deadline == deadline) {
+            return;
+        }
+        if (state.deadline == EventListener.NO_DEADLINE) {
+            if (deadlineKeys++ == 0) {
+                deadlineSince = System.currentTimeMillis();
+            }
+        } else if (deadline == EventListener.NO_DEADLINE) {
+            deadlineKeys--;
+        }
+        state.deadline = deadline;
+    }
+
+    /**
+     * 挂起事件，调用方负责将其移出通道，挂起时清空剩余的正额度，欠下的额度保留
+     */
+    private void park(KeyState state, int location, long delay) {
+        if (state.deficit > 0) {
+            state.deficit = 0;
+        }
+        setDeadline(state, EventListener.NO_DEADLINE);
+        state.location = location;
+        if (location == LOCATION_DELAYED) {
+            state.readyAt = now() + delay;
+            delayed.offer(state);
+        } else if (location == LOCATION_FILTERED) {
+            filtered.addLast(state);
+        } else if (location == LOCATION_NETWORK) {
+            networkWaiting.addLast(state);
+        }
+    }
+
+    /**
+     * 应用外部线程的信号，以及到期的挂起事件
+     * 收到任一信号时，被准入过滤拒绝的事件一并重新核实（其他事件键的结果可能改变了过滤状态）
+     */
+    private void applySignals() {
+        synchronized (signals) {
+            if (!signals.isEmpty()) {
+                while (!filtered.isEmpty()) {
+                    enqueue(filtered.pollFirst());
+                }
+            }
+            if (networkChanged) {
+                networkChanged = false;
+                while (!networkWaiting.isEmpty()) {
+                    enqueue(networkWaiting.pollFirst());
+                }
+            }
+            KeyState state;
+            while ((state = signals.pollFirst()) != null) {
+                state.signaled = false;
+                if (state.location == LOCATION_DELAYED) {
+                    delayed.remove(state);
+                }
+                enqueue(state);
+            }
+        }
+
+        if (delayed.isEmpty()) {
+            return;
+        }
+        long now = now();
+        while (!delayed.isEmpty() && delayed.peek().readyAt <= now) {
+            enqueue(delayed.poll());
+        }
+    }
+
+    /**
+     * 事件进入所属通道，已在通道中或已删除则忽略
+     */
+    private void enqueue(KeyState state) {
+        if (state.location == LOCATION_RING) {
+            return;
+        }
+        state.location = LOCATION_PARKED;
+        if (state.deleted) {
+            return;
+        }
+        state.location = LOCATION_RING;
+        if (deadlineKeys > 0) {
+            state.readySince = System.currentTimeMillis();
+        }
+        ringOf(state.priority).addLast(state);
+    }
+
+    private ArrayDeque<KeyState> ringOf(int priority) {
+        return priority == PRIORITY_URGENT ? urgentRing : normalRing;
+    }
+
+    /**
+     * 记录一次调度，扣除事件的额度，额度用完则轮到下一个事件；紧急事件调度后移到队尾
+     * 在调度的执行线上，{@link #pollEvent()}取出的事件发起调度后调用
+     *
+     * @param key          事件键
+     * @param payloadBytes 本次调度的字节数，未知为0
+     */
+    public void onDispatched(@NonNull String key, long payloadBytes) {
+        KeyState state = current != null && current.key.equals(key) ? current : states.get(key);
+        if (state == null) {
+            return;
+        }
+        for (EventFilter filter : filters) {
+            filter.onDispatched(key, payloadBytes);
+        }
+
+        ServedCounter counter = state.counter;
+        counter.items++;
+        counter.bytes += Math.max(0, payloadBytes);
+        counter.priority = state.priority;
+        counter.weight = state.weight;
+        if (deadlineKeys > 0) {
+            state.readySince = System.currentTimeMillis();
+        }
+
+        ArrayDeque<KeyState> ring = ringOf(state.priority);
+        if (ring.peekFirst() != state) {
+            return;
+        }
+        if (state.priority == PRIORITY_URGENT) {
+            ring.addLast(ring.pollFirst());
+            return;
+        }
+        state.deficit -= costType == COST_BYTES ? Math.max(1, payloadBytes) : 1;
+        if (state.deficit <= 0) {
+            ring.addLast(ring.pollFirst());
+        }
+    }
+
+    /**
+     * 在当前队列中是否还有可调度的事件
+     */
+    public boolean hasEvent() {
+        applySignals();
+        return peekReady(urgentRing) != null || peekReady(normalRing) != null;
+    }
+
+    /**
+     * 添加事件准入过滤
+     *
+     * @param filter 事件准入过滤
+     */
+    public void addEventFilter(@NonNull EventFilter filter) {
+        if (!filters.contains(filter)) {
+            filters.add(filter);
+        }
+    }
+
+    /**
+     * 移除事件准入过滤
+     *
+     * @param filter 事件准入过滤
+     */
+    public void removeEventFilter(@NonNull EventFilter filter) {
+        filters.remove(filter);
+    }
+
+    /**
+     * 退避中或被过滤的事件键，最早可以重新调度的剩余时间
+     * 在调度的执行线上调用
+     *
+     * @return 剩余时间（毫秒），没有需要等待的事件键返回0
+     */
+    public long nextReadyDelay() {
+        long delay = 0;
+        KeyState head = delayed.peek();
+        if (head != null) {
+            delay = Math.max(1, head.readyAt - now());
+        }
+        for (EventFilter filter : filters) {
+            long filterDelay = filter.nextAcceptDelay();
+            if (filterDelay > 0 && (delay == 0 || filterDelay < delay)) {
+                delay = filterDelay;
+            }
+        }
+        return delay;
+    }
+
+    /**
+     * 更新当前网络，等待网络的事件键在下次取出事件时重新核实，可在任意线程调用
+     *
+     * @param state 当前网络
+     */
+    public void setNetworkState(@NonNull NetworkState state) {
+        synchronized (signals) {
+            if (state.equals(networkState)) {
+                return;
+            }
+            networkState = state;
+            networkChanged = true;
+        }
+    }
+
+    /**
+     * 当前网络，网络监测未提供时为{@link NetworkState#UNKNOWN}
+     */
+    @NonNull
+    public NetworkState getNetworkState() {
+        return networkState;
+    }
+
+    /**
+     * 按事件键记录的退避状态，调度失败只推迟对应事件键的重试
+     */
+    @NonNull
+    public BackoffTracker getBackoff() {
+        return backoff;
+    }
+
+    /**
+     * 设置退避策略
+     *
+     * @param policy 退避策略
+     */
+    void setBackoffPolicy(@NonNull BackoffPolicy policy) {
+        backoff.setPolicy(policy);
+    }
+
+    /**
+     * 当前需要操作的事件键
+     *
+     * @return 事件键，没有则返回null
+     */
+    public String getCurrentKey() {
+        KeyState state = current;
+        return state == null ? null : state.key;
+    }
+
+    /**
+     * 通过key拿到事件监听器
+     *
+     * @return 事件监听器
+     */
+    public EventListener getEventListenerByKey() {
+        if (current == null) {
+            pollEvent();
+        }
+        KeyState state = current;
+        return state == null ? null : state.listener;
+    }
+
+    /**
+     * 各事件键累计的调度量与占比，用于核实权重是否生效，可在任意线程读取
+     *
+     * @return 事件键 -> 调度量
+     */
+    @NonNull
+    public Map<String, ServedStat> getServedStats() {
+        long totalItems = 0;
+        long totalBytes = 0;
+        for (ServedCounter counter : served.values()) {
+            totalItems += counter.items;
+            totalBytes += counter.bytes;
+        }
+        Map<String, ServedStat> stats = new HashMap<>();
+        for (Map.Entry<String, ServedCounter> entry : served.entrySet()) {
+            ServedCounter counter = entry.getValue();
+            if (counter.items == 0) {
+                continue;
+            }
+            stats.put(entry.getKey(), new ServedStat(counter.priority, counter.weight,
+                    counter.items, counter.bytes,
+                    totalItems == 0 ? 0 : (float) counter.items / totalItems,
+                    totalBytes == 0 ? 0 : (float) counter.bytes / totalBytes));
+        }
+        return Collections.unmodifiableMap(stats);
+    }
+
+    /**
+     * 各事件键待处理的资源数量，未提供数量的事件监听器不计入，可在任意线程读取
+     *
+     * @return 事件键 -> 待处理数量
+     */
+    @NonNull
+    public Map<String, Long> getQueueDepths() {
+        Map<String, Long> depths = new HashMap<>();
+        for (KeyState state : states.values()) {
+            EventListener listener = state.listener;
+            if (state.deleted || listener == null) {
+                continue;
+            }
+            int pending = listener.pendingCount();
+            if (pending >= 0) {
+                depths.put(state.key, (long) pending);
+            }
+        }
+        return depths;
+    }
+
+    /**
+     * 清空累计的调度量
+     */
+    public void resetServedStats() {
+        for (ServedCounter counter : served.values()) {
+            counter.items = 0;
+            counter.bytes = 0;
+        }
+    }
+
+    /**
+     * 通过key 彻底删除事件，通道中的事件在到达头部时丢弃
+     *
+     * @param key 类名
+     */
+    void deleteEvent(@NonNull String key) {
+        KeyState state = states.remove(key);
+        if (state != null) {
+            state.deleted = true;
+        }
+        backoff.remove(key);
+    }
+
+    /**
+     * 销毁清空
+     */
+    void onDestroy() {
+        synchronized (signals) {
+            signals.clear();
+        }
+        for (KeyState state : states.values()) {
+            state.deleted = true;
+        }
+        states.clear();
+        urgentRing.clear();
+        normalRing.clear();
+        delayed.clear();
+        filtered.clear();
+        networkWaiting.clear();
+        current = null;
+        deadlineKeys = 0;
+        backoff.clear();
+    }
+
+    private static long now() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+    }
+
+    /**
+     * 单个事件键的调度状态，位置、额度与到期时间只在执行线上读写
+     */
+    private static final class KeyState {
+        final String key;
+        // 累计的调度量
+        final ServedCounter counter;
+        volatile EventListener listener;
+        volatile int priority;
+        volatile int weight;
+        // 是否已删除
+        volatile boolean deleted;
+        // 是否已在信号队列中，由信号队列的锁保护
+        boolean signaled;
+        // 所在位置
+        int location = LOCATION_PARKED;
+        // 差额轮询的剩余额度
+        long deficit;
+        // 按到期时间挂起时，重新进入通道的时间
+        long readyAt;
+        // 在挂起堆中的下标，不在堆中为-1
+        int heapIndex = -1;
+        // 最近核实为可调度时的截止时间（System.currentTimeMillis() 时间），挂起时清除
+        long deadline = EventListener.NO_DEADLINE;
+        // 进入通道或上次调度的时间（System.currentTimeMillis() 时间），只在按截止时间调度时记录
+        long readySince;
+
+        KeyState(String key, ServedCounter counter) {
+            this.key = key;
+            this.counter = counter;
+        }
+    }
+
+    /**
+     * 按到期时间挂起的事件，最小堆，事件状态记录自身下标，收到信号时按下标 O(log n) 移除
+     * 只在执行线上读写
+     */
+    private static final class DelayedHeap {
+        // 堆数组
+        private KeyState[] heap = new KeyState[16];
+        // 堆中事件数量
+        private int size;
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        KeyState peek() {
+            return size == 0 ? null : heap[0];
+        }
+
+        void offer(KeyState state) {
+            if (size == heap.length) {
+                heap = Arrays.copyOf(heap, size << 1);
+            }
+            siftUp(size++, state);
+        }
+
+        KeyState poll() {
+            KeyState head = peek();
+            if (head != null) {
+                removeAt(0);
+            }
+            return head;
+        }
+
+        /**
+         * 移除指定事件，不在堆中则忽略
+         */
+        void remove(KeyState state) {
+            int index = state.heapIndex;
+            if (index >= 0 && index < size && heap[index] == state) {
+                removeAt(index);
+            }
+        }
+
+        void clear() {
+            for (int index = 0; index < size; index++) {
+                heap[index].heapIndex = -1;
+                heap[index] = null;
+            }
+            size = 0;
+        }
+
+        private void removeAt(int index) {
+            KeyState removed = heap[index];
+            removed.heapIndex = -1;
+            KeyState last = heap[--size];
+            heap[size] = null;
+            if (index == size) {
+                return;
+            }
+            siftDown(index, last);
+            if (heap[index] == last) {
+                siftUp(index, last);
+            }
+        }
+
+        private void siftUp(int index, KeyState state) {
+            while (index > 0) {
+                int parent = (index - 1) >>> 1;
+                KeyState parentState = heap[parent];
+                if (parentState.readyAt <= state.readyAt) {
+                    break;
+                }
+                place(index, parentState);
+                index = parent;
+            }
+            place(index, state);
+        }
+
+        private void siftDown(int index, KeyState state) {
+            int half = size >>> 1;
+            while (index < half) {
+                int child = (index << 1) + 1;
+                int right = child + 1;
+                if (right < size && heap[right].readyAt < heap[child].readyAt) {
+                    child = right;
+                }
+                if (state.readyAt <= heap[child].readyAt) {
+                    break;
+                }
+                place(index, heap[child]);
+                index = child;
+            }
+            place(index, state);
+        }
+
+        private void place(int index, KeyState state) {
+            heap[index] = state;
+            state.heapIndex = index;
+        }
+    }
+
+    /**
+     * 累计的调度量，只在执行线上修改
+     */
+    private static final class ServedCounter {
+        volatile int priority = PRIORITY_NORMAL;
+        volatile int weight = 1;
+        volatile long items;
+        volatile long bytes;
+    }
+
+    /**
+     * 事件键累计的调度量与占比
+     */
+    public static final class ServedStat {
+        // 优先级
+        private final int priority;
+        // 权重
+        private final int weight;
+        // 调度条数
+        private final long items;
+        // 调度字节数
+        private final long bytes;
+        // 条数占比
+        private final float itemShare;
+        // 字节数占比
+        private final float byteShare;
+
+        ServedStat(int priority, int weight, long items, long bytes, float itemShare, float byteShare) {
+            this.priority = priority;
+            this.weight = weight;
+            this.items = items;
+            this.bytes = bytes;
+            this.itemShare = itemShare;
+            this.byteShare = byteShare;
+        }
+
+        @Priority
+        public int getPriority() {
+            return priority;
+        }
+
+        public int getWeight() {
+            return weight;
+        }
+
+        public long getItems() {
+            return items;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public float getItemShare() {
+            return itemShare;
+        }
+
+        public float getByteShare() {
+            return byteShare;
+        }
+
+        @Override
+        public String toString() {
+            return "ServedStat{priority=" + priority + ", weight=" + weight + ", items=" + items
+                    + ", bytes=" + bytes + ", itemShare=" + itemShare + ", byteShare=" + byteShare + '}';
+        }
+    }
+}
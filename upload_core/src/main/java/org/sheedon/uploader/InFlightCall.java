@@ -0,0 +1,178 @@
+package org.sheedon.uploader;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 单次调度的执行句柄，每次发起{@link EventListener#handleEvent(MessageHandleCenter)}都会创建一个，
+ * 在允许多个调度同时执行（在途）时，用于区分是哪一次调度反馈的结果，并绑定各自的超时消息。
+ * 成功、失败与超时只会生效其中第一个，后续反馈将被忽略。
+ *
+ * @Author: sheedon
+ * @Email: sheedonsun@163.com
+ * @Date: 2021/9/18 10:20 上午
+ */
+public final class InFlightCall implements MessageHandleCenter {
+
+    // 所属消息执行器
+    private final MessageHandler handler;
+    // 事件键
+    private final String key;
+    // 是否已结束（成功/失败/超时）
+    private final AtomicBoolean finished = new AtomicBoolean(false);
+    // 发起时间
+    private final long startNanos = System.nanoTime();
+    // 结束时间
+    private volatile long finishNanos;
+    // 本次调度的字节数，未知为0
+    private volatile long payloadBytes;
+    // 本次调度的资源条数，批量结束后为成功的条数
+    private volatile int recordCount;
+    // 是否因超时结束
+    private volatile boolean timedOut;
+    // 该事件键的第几次尝试（连续失败次数 + 1）
+    private volatile int attempt = 1;
+
+    InFlightCall(@NonNull MessageHandler handler, @NonNull String key) {
+        this.handler = handler;
+        this.key = key;
+    }
+
+    /**
+     * 当前调度所属的事件键
+     */
+    @NonNull
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * 当前调度是否已结束
+     */
+    public boolean isFinished() {
+        return finished.get();
+    }
+
+    /**
+     * 本次调度的字节数，用于按字节数计算超时
+     */
+    public long getPayloadBytes() {
+        return payloadBytes;
+    }
+
+    /**
+     * 设置本次调度的字节数
+     *
+     * @param payloadBytes 字节数
+     */
+    void setPayloadBytes(long payloadBytes) {
+        this.payloadBytes = payloadBytes;
+    }
+
+    /**
+     * 本次调度的资源条数，批量结束后为其中成功的条数，用于自适应批量与吞吐量估算
+     */
+    public int getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * 设置本次调度的资源条数
+     *
+     * @param recordCount 条数
+     */
+    void setRecordCount(int recordCount) {
+        this.recordCount = recordCount;
+    }
+
+    /**
+     * 是否因超时结束
+     */
+    public boolean isTimedOut() {
+        return timedOut;
+    }
+
+    /**
+     * 该事件键的第几次尝试，即连续失败次数 + 1
+     */
+    public int getAttempt() {
+        return attempt;
+    }
+
+    /**
+     * 设置尝试次数
+     *
+     * @param attempt 第几次尝试
+     */
+    public void setAttempt(int attempt) {
+        this.attempt = attempt;
+    }
+
+    /**
+     * 从发起到结束的耗时，未结束时为到当前的耗时
+     *
+     * @return 耗时（毫秒）
+     */
+    public long getElapsedMillis() {
+        long end = finished.get() ? finishNanos : System.nanoTime();
+        return TimeUnit.NANOSECONDS.toMillis(end - startNanos);
+    }
+
+    /**
+     * 标记结束，只有第一次标记生效
+     *
+     * @return 是否由本次标记结束
+     */
+    boolean finish() {
+        long now = System.nanoTime();
+        if (finished.compareAndSet(false, true)) {
+            finishNanos = now;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 因超时标记结束，只有第一次标记生效
+     *
+     * @return 是否由本次标记结束
+     */
+    boolean timeout() {
+        if (finish()) {
+            timedOut = true;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 执行本次调度的真实处理，由调度后端决定是否离开执行线执行
+     *
+     * @param task 真实处理
+     */
+    void execute(@NonNull Runnable task) {
+        handler.executeBlocking(task);
+    }
+
+    /**
+     * 发送处理成功，超时后的迟到反馈将被忽略
+     */
+    @Override
+    public void sendSuccessMessage() {
+        if (finish()) {
+            handler.sendSuccessMessage(this);
+        }
+    }
+
+    /**
+     * 发送处理失败
+     */
+    @Override
+    public void sendFailureMessage() {
+        if (finish()) {
+            handler.sendFailureMessage(this);
+        }
+    }
+}
@@ -0,0 +1,459 @@
+package org.sheedon.uploader;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.sheedon.uploader.backend.SchedulerBackend;
+import org.sheedon.uploader.batch.AdaptiveBatchSizer;
+import org.sheedon.uploader.message.DefaultMessageGroup;
+import org.sheedon.uploader.message.MessageStrategy;
+import org.sheedon.uploader.metrics.SchedulerMetrics;
+import org.sheedon.uploader.recorder.FlightRecorder;
+import org.sheedon.uploader.timeout.RttTimeoutEstimator;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * 消息执行者，借助{@link DefaultMessageGroup} 构建消息，并执行发送实现{@link MessageStrategy}的对象，
+ * 该MessageHandler与AsyncTrigger的调度后端{@link SchedulerBackend}的消息队列相关联，并在它们从消息中出来时执行它们队列。
+ * 主要将要在线程不同的线程上执行的操作排入队列。
+ *
+ * @Author: sheedon
+ * @Email: sheedonsun@163.com
+ * @Date: 2021/9/12 9:57 上午
+ */
+public class MessageHandler implements MessageHandleCenter {
+
+    // 绑定到 AsyncTrigger 中进行消息执行
+    private final SchedulerBackend backend;
+
+    // 当前状态，控制业务客户端，防止多次发送任务添加，导致消息处理执行出错
+    // 其中 TYPE_TIMEOUT 表示已发起调度，正在等待执行结果
+    @DefaultMessageGroup.StatusType
+    private int status = DefaultMessageGroup.TYPE_NORMAL;
+
+    // 允许同时执行（在途）的调度数量
+    private int maxInFlight = 1;
+    // 在途调度
+    private final Set<InFlightCall> inFlightCalls = new HashSet<>();
+    // 在途调度数量，供非工作线程读取
+    private volatile int inFlightCount;
+    // 最近一次发起但尚未布置超时消息的调度
+    private InFlightCall dispatchedCall;
+    // 退避结束后唤醒调度的核实消息附件
+    private static final Object RETRY_TOKEN = new Object();
+    // 按事件键自适应的调度超时
+    private RttTimeoutEstimator timeoutEstimator = new RttTimeoutEstimator(
+            DefaultMessageGroup.TIMEOUT, DefaultMessageGroup.MIN_TIMEOUT, DefaultMessageGroup.MAX_TIMEOUT);
+    // 按事件键自适应的批量大小，为null时使用固定的批量上限
+    private AdaptiveBatchSizer batchSizer;
+    // 调度指标
+    private final SchedulerMetrics metrics = new SchedulerMetrics();
+    // 状态切换的飞行记录，为null时不记录
+    private FlightRecorder flightRecorder = new FlightRecorder();
+    // 接下来的状态切换所关联的事件键
+    private String recordKey;
+    // 接下来的状态切换所关联的尝试次数
+    private int recordAttempt;
+    // 执行失败到进入延迟等待之间收到的唤醒，进入延迟等待时立即核实
+    private boolean wakePending;
+
+    /**
+     * 消息执行器
+     *
+     * @param backend  调度后端
+     * @param callback 消息回调
+     */
+    MessageHandler(@NonNull SchedulerBackend backend, @NonNull SchedulerBackend.MessageCallback callback) {
+        this.backend = backend;
+        backend.attach(callback);
+    }
+
+    /**
+     * 从子调度器中传来数据，若当前状态为 DefaultMessageGroup.DEFAULT 则可执行，
+     * 或者正在等待执行结果且还有空闲的在途名额，也可执行，否则等待
+     * 防止重复发送消息，导致消息发送出现意料之外的问题
+     * 状态判断统一切换到工作线程中执行
+     */
+    void sendDelayMessage() {
+        backend.post(() -> {
+            if (status != DefaultMessageGroup.TYPE_NORMAL
+                    && (status != DefaultMessageGroup.TYPE_TIMEOUT || !hasIdleSlot())) {
+                return;
+            }
+
+            // 发送核实消息
+            sendMessage(DefaultMessageGroup.TYPE_CHECK);
+        });
+    }
+
+    /**
+     * 设置允许同时执行（在途）的调度数量
+     *
+     * @param maxInFlight 在途数量，最少为1
+     */
+    void setMaxInFlight(int maxInFlight) {
+        this.maxInFlight = Math.max(1, maxInFlight);
+    }
+
+    /**
+     * 设置调度超时的估算
+     *
+     * @param timeoutEstimator 自适应超时
+     */
+    void setTimeoutEstimator(@NonNull RttTimeoutEstimator timeoutEstimator) {
+        this.timeoutEstimator = timeoutEstimator;
+    }
+
+    /**
+     * 按事件键自适应的调度超时，可读取各事件键当前的估算
+     */
+    @NonNull
+    public RttTimeoutEstimator getTimeoutEstimator() {
+        return timeoutEstimator;
+    }
+
+    /**
+     * 设置自适应的批量大小
+     *
+     * @param batchSizer 自适应批量，为null时使用固定的批量上限
+     */
+    void setBatchSizer(@Nullable AdaptiveBatchSizer batchSizer) {
+        this.batchSizer = batchSizer;
+    }
+
+    /**
+     * 按事件键自适应的批量大小，未设置时返回null
+     */
+    @Nullable
+    public AdaptiveBatchSizer getBatchSizer() {
+        return batchSizer;
+    }
+
+    /**
+     * 调度指标，状态切换与各消息在此记录
+     */
+    @NonNull
+    public SchedulerMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * 设置状态切换的飞行记录
+     *
+     * @param flightRecorder 飞行记录器，为null时不记录
+     */
+    void setFlightRecorder(@Nullable FlightRecorder flightRecorder) {
+        this.flightRecorder = flightRecorder;
+    }
+
+    /**
+     * 状态切换的飞行记录，未开启返回null
+     */
+    @Nullable
+    public FlightRecorder getFlightRecorder() {
+        return flightRecorder;
+    }
+
+    /**
+     * 标记接下来的状态切换所关联的事件键与尝试次数，写入飞行记录
+     *
+     * @param key     事件键，与具体事件键无关（如流程失败）时为null
+     * @param attempt 第几次尝试，未知为0
+     */
+    public void markRecordKey(@Nullable String key, int attempt) {
+        this.recordKey = key;
+        this.recordAttempt = attempt;
+    }
+
+    /**
+     * 在途调度数量，可在任意线程读取
+     */
+    public int getInFlightCount() {
+        return inFlightCount;
+    }
+
+    /**
+     * 是否还有空闲的在途名额
+     */
+    public boolean hasIdleSlot() {
+        return inFlightCount < maxInFlight;
+    }
+
+    /**
+     * 是否存在在途调度
+     */
+    public boolean hasInFlight() {
+        return inFlightCount > 0;
+    }
+
+    /**
+     * 为事件创建一个新的在途调度，由流程执行真实调度时调用
+     *
+     * @param key 事件键
+     * @return InFlightCall 单次调度的执行句柄
+     */
+    public InFlightCall newCall(@NonNull String key) {
+        InFlightCall call = new InFlightCall(this, key);
+        inFlightCalls.add(call);
+        inFlightCount = inFlightCalls.size();
+        dispatchedCall = call;
+        return call;
+    }
+
+    /**
+     * 取出最近一次发起但尚未布置超时消息的调度
+     *
+     * @return InFlightCall 单次调度，不存在则返回null
+     */
+    @Nullable
+    public InFlightCall takeDispatchedCall() {
+        InFlightCall call = dispatchedCall;
+        dispatchedCall = null;
+        return call;
+    }
+
+    /**
+     * 执行阻塞任务，调度后端提供了阻塞任务执行器时离开执行线执行，否则直接执行
+     *
+     * @param task 阻塞任务
+     */
+    void executeBlocking(@NonNull Runnable task) {
+        Executor executor = backend.blockingExecutor();
+        if (executor == null) {
+            task.run();
+            return;
+        }
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException ignored) {
+            // 调度后端已退出
+        }
+    }
+
+    /**
+     * 为指定调度布置超时消息，不改变当前状态
+     *
+     * @param call        单次调度
+     * @param delayMillis 超时时间
+     */
+    public void sendTimeoutMessage(@NonNull InFlightCall call, long delayMillis) {
+        backend.sendMessageDelayed(DefaultMessageGroup.TYPE_TIMEOUT, call, delayMillis);
+    }
+
+    /**
+     * 调度超时，结束该调度并反馈失败，已结束的调度不做处理
+     *
+     * @param call 单次调度
+     * @return 是否由本次超时结束了该调度
+     */
+    public boolean timeoutCall(@NonNull InFlightCall call) {
+        if (call.timeout()) {
+            markRecordKey(call.getKey(), call.getAttempt());
+            timeoutEstimator.onTimeout(call.getKey());
+            if (batchSizer != null) {
+                batchSizer.onTimeout(call.getKey());
+            }
+            sendFailureMessage(call);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 结束调度，移除其超时消息，并释放在途名额
+     *
+     * @param call 单次调度
+     */
+    public void finishCall(@Nullable InFlightCall call) {
+        if (call == null) {
+            return;
+        }
+        backend.removeMessages(DefaultMessageGroup.TYPE_TIMEOUT, call);
+        inFlightCalls.remove(call);
+        inFlightCount = inFlightCalls.size();
+    }
+
+    /**
+     * 当前没有可发起的调度，存在在途调度时等待执行结果，否则回到默认状态
+     */
+    public void awaitInFlight() {
+        if (hasInFlight()) {
+            attachStatus(DefaultMessageGroup.TYPE_TIMEOUT);
+            return;
+        }
+        sendMessage(DefaultMessageGroup.TYPE_NORMAL);
+    }
+
+    /**
+     * 调度结束后，若流程处于等待结果或空闲状态，则继续核实，
+     * 其余状态说明流程已在流转（如延迟等待中），无需重复发送
+     */
+    public void resumeCheck() {
+        if (status == DefaultMessageGroup.TYPE_TIMEOUT
+                || status == DefaultMessageGroup.TYPE_NORMAL
+                || status == DefaultMessageGroup.TYPE_COMPLETE) {
+            sendMessage(DefaultMessageGroup.TYPE_CHECK);
+        }
+    }
+
+    /**
+     * 在指定时间后唤醒调度，用于退避中的事件键到期后重新核实，
+     * 只保留最近一次的唤醒消息，不改变当前状态
+     *
+     * @param delayMillis 延迟时间
+     */
+    public void sendRetryMessage(long delayMillis) {
+        backend.removeMessages(DefaultMessageGroup.TYPE_CHECK, RETRY_TOKEN);
+        backend.sendMessageDelayed(DefaultMessageGroup.TYPE_CHECK, RETRY_TOKEN, delayMillis);
+    }
+
+    /**
+     * 是否为退避到期的唤醒消息
+     *
+     * @param attachment 消息附件
+     */
+    public boolean isRetryMessage(@Nullable Object attachment) {
+        return attachment == RETRY_TOKEN;
+    }
+
+    /**
+     * 唤醒调度，流程恢复可用时调用，可在任意线程调用
+     * 正在延迟等待时取消等待立即核实，空闲或等待结果时继续核实；
+     * 执行失败尚未进入延迟等待时记下唤醒，进入延迟等待时立即核实，避免唤醒丢失
+     */
+    public void wakeUp() {
+        backend.post(() -> {
+            if (status == DefaultMessageGroup.TYPE_CHECK
+                    && backend.hasMessages(DefaultMessageGroup.TYPE_CHECK, null)) {
+                backend.removeMessages(DefaultMessageGroup.TYPE_CHECK, null);
+                sendMessage(DefaultMessageGroup.TYPE_CHECK);
+                return;
+            }
+            if (status == DefaultMessageGroup.TYPE_EXECUTE
+                    || status == DefaultMessageGroup.TYPE_FAILURE
+                    || status == DefaultMessageGroup.TYPE_DELAY) {
+                wakePending = true;
+                return;
+            }
+            resumeCheck();
+        });
+    }
+
+    /**
+     * 单次调度处理成功，发送附带该调度的「完成消息」
+     *
+     * @param call 单次调度
+     */
+    void sendSuccessMessage(@NonNull InFlightCall call) {
+        backend.sendMessage(DefaultMessageGroup.TYPE_COMPLETE, call);
+    }
+
+    /**
+     * 单次调度处理失败，发送附带该调度的「失败消息」
+     *
+     * @param call 单次调度
+     */
+    void sendFailureMessage(@NonNull InFlightCall call) {
+        backend.sendMessage(DefaultMessageGroup.TYPE_FAILURE, call);
+    }
+
+    /**
+     * 子调度器发送处理成功，从而发送「完成消息」
+     * 不经过在途调度，仅在单个调度时使用，建议使用{@link InFlightCall}反馈
+     */
+    @Override
+    public void sendSuccessMessage() {
+        if (status != DefaultMessageGroup.TYPE_EXECUTE
+                && status != DefaultMessageGroup.TYPE_TIMEOUT) {
+            return;
+        }
+        attachStatus(DefaultMessageGroup.TYPE_COMPLETE);
+        MessageStrategy strategy = DefaultMessageGroup.obtainByStatus(DefaultMessageGroup.TYPE_COMPLETE);
+        backend.sendMessage(strategy.getType(), null);
+
+    }
+
+    /**
+     * 子调度器发送处理失败，从而发送「失败消息」
+     * 不经过在途调度，仅在单个调度时使用，建议使用{@link InFlightCall}反馈
+     */
+    @Override
+    public void sendFailureMessage() {
+        if (status != DefaultMessageGroup.TYPE_EXECUTE
+                && status != DefaultMessageGroup.TYPE_TIMEOUT) {
+            return;
+        }
+        attachStatus(DefaultMessageGroup.TYPE_FAILURE);
+        MessageStrategy strategy = DefaultMessageGroup.obtainByStatus(DefaultMessageGroup.TYPE_FAILURE);
+        backend.sendMessage(strategy.getType(), null);
+    }
+
+    /**
+     * 移除消息，存在则移除
+     * 主要为了移除超时消息
+     *
+     * @param status 消息状态
+     */
+    public void removeMessage(int status) {
+        if (backend.hasMessages(status, null)) {
+            backend.removeMessages(status, null);
+        }
+    }
+
+    /**
+     * 附加当前状态，更新，并记录状态切换
+     *
+     * @param status 状态
+     */
+    void attachStatus(int status) {
+        FlightRecorder recorder = flightRecorder;
+        if (recorder != null) {
+            // 飞行记录与调度指标共用一次时钟读取
+            long now = System.nanoTime();
+            metrics.onTransition(this.status, status, now);
+            recorder.record(now, this.status, status, recordKey, recordAttempt);
+        } else {
+            metrics.onTransition(this.status, status);
+        }
+        if (status != DefaultMessageGroup.TYPE_FAILURE && status != DefaultMessageGroup.TYPE_DELAY) {
+            wakePending = false;
+        }
+        this.status = status;
+    }
+
+    /**
+     * 通过状态类型，发送对应消息
+     *
+     * @param status 状态
+     */
+    public void sendMessage(int status) {
+        attachStatus(status);
+        MessageStrategy strategy = DefaultMessageGroup.obtainByStatus(status);
+        backend.sendMessage(strategy.getType(), null);
+    }
+
+    /**
+     * 发送延迟消息,指定的状态按 延迟 delayMillis 发送
+     *
+     * @param status 状态
+     */
+    public void sendDelayMessage(int status, long delayMillis) {
+        if (wakePending && status == DefaultMessageGroup.TYPE_CHECK) {
+            delayMillis = 0;
+        }
+        attachStatus(status);
+        backend.sendMessageDelayed(status, null, delayMillis);
+    }
+
+    /**
+     * 执行错误处理，一般不会执行到这里，执行到，说明也差不多是出问题了
+     */
+    void handleError() {
+        MessageStrategy strategy = DefaultMessageGroup.obtainByStatus(DefaultMessageGroup.TYPE_COMPLETE);
+        backend.sendMessage(strategy.getType(), null);
+    }
+}
@@ -0,0 +1,643 @@
+package org.sheedon.uploader;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.sheedon.uploader.backend.ExecutorSchedulerBackend;
+import org.sheedon.uploader.backend.SchedulerBackend;
+import org.sheedon.uploader.backend.SchedulerRuntime;
+import org.sheedon.uploader.backoff.BackoffPolicy;
+import org.sheedon.uploader.backoff.TableBackoff;
+import org.sheedon.uploader.batch.AdaptiveBatchSizer;
+import org.sheedon.uploader.metrics.MetricsListener;
+import org.sheedon.uploader.metrics.SchedulerMetrics;
+import org.sheedon.uploader.network.NetworkState;
+import org.sheedon.uploader.process.AbstractProcess;
+import org.sheedon.uploader.process.CircuitBreakerConfig;
+import org.sheedon.uploader.process.CircuitBreakerProcess;
+import org.sheedon.uploader.process.RateLimitConfig;
+import org.sheedon.uploader.process.RateLimitProcess;
+import org.sheedon.uploader.process.ScheduleProcess;
+import org.sheedon.uploader.process.ServiceCheckProcess;
+import org.sheedon.uploader.recorder.FlightRecorder;
+import org.sheedon.uploader.timeout.RttTimeoutEstimator;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 数据上报/数据处理 执行客户端，不依赖 Android，建议单例维持。
+ * 由外界增加任务时「submitEvent()」，启动队列任务，
+ * 再借助消息发送器{@link MessageHandler} 从消息队列中取出消息策略{@link org.sheedon.uploader.message.MessageStrategy}
+ * 并发予{@link AsyncTrigger}依次执行任务。
+ * <p>
+ * 消息在调度后端{@link SchedulerBackend}上执行，默认使用单线程执行器{@link ExecutorSchedulerBackend}，
+ * 可在服务端JVM与基准测试中运行；Android 端请使用 UploadScheduleClient。
+ *
+ * @Author: sheedon
+ * @Email: sheedonsun@163.com
+ * @Date: 2021/9/25 2:16 下午
+ */
+public class ScheduleClient {
+    // 流程
+    private final AbstractProcess process;
+    // 资源链接
+    private final EventQueue queue;
+    // 消息处理器
+    private final MessageHandler handler;
+    // 异步处理器
+    private final AsyncTrigger trigger;
+
+    protected ScheduleClient(AbstractBuilder<?> builder) {
+        process = builder.process;
+        queue = builder.queue;
+        trigger = builder.trigger;
+        handler = trigger.getWorkHandler();
+        handler.setMaxInFlight(builder.maxInFlight);
+        if (builder.backoffPolicy != null) {
+            queue.setBackoffPolicy(builder.backoffPolicy);
+        }
+        queue.setSchedulingCost(builder.costType, builder.quantum);
+        queue.setDeadlineAging(builder.deadlineAging);
+        if (builder.timeoutEstimator != null) {
+            handler.setTimeoutEstimator(builder.timeoutEstimator);
+        }
+        handler.setBatchSizer(builder.batchSizer);
+        handler.setFlightRecorder(builder.flightRecorderCapacity > 0
+                ? new FlightRecorder(builder.flightRecorderCapacity) : null);
+        trigger.attach(this);
+        // 流程恢复可用时立即唤醒调度
+        process.setOnRecoveryListener(handler::wakeUp);
+
+        SchedulerMetrics metrics = handler.getMetrics();
+        metrics.registerGauge("inFlight", handler::getInFlightCount);
+        metrics.setQueueDepth(queue::getQueueDepths);
+        if (builder.metricsListener != null) {
+            metrics.setListener(builder.metricsListener, builder.metricsInterval);
+        }
+        process.setMetrics(metrics);
+    }
+
+    /**
+     * 提交事件，等待执行
+     * 业务处理客户端，主要借助与此方法，将代表自身的key（类名）和EventListener事件监听器，传递进来，
+     * 由当前模块达到符合条件后调度
+     *
+     * @param key      类名
+     * @param listener 事件监听器
+     */
+    public void submitEvent(String key, EventListener listener) {
+        submitEvent(key, listener, EventQueue.PRIORITY_NORMAL, 1);
+    }
+
+    /**
+     * 按优先级与权重提交事件，等待执行，重复提交时更新优先级与权重
+     * 紧急优先级的事件严格优先调度；普通优先级的事件之间按权重比例分配调度量
+     *
+     * @param key      类名
+     * @param listener 事件监听器
+     * @param priority 优先级
+     * @param weight   权重，需大于0
+     */
+    public void submitEvent(String key, EventListener listener, @EventQueue.Priority int priority, int weight) {
+        queue.offerEvent(key, listener, priority, weight);
+        handler.sendDelayMessage();
+    }
+
+    /**
+     * 通知事件的资源情况发生变化（如有了新的空闲资源），重新核实并唤醒调度
+     * 事件队列只在收到信号时重新核实挂起的事件，自定义的事件监听器在资源变化时需调用此方法或重新提交事件
+     *
+     * @param key 类名
+     */
+    public void signalEvent(String key) {
+        queue.signal(key);
+        handler.sendDelayMessage();
+    }
+
+    /**
+     * 当前网络类别，由网络监测经流程链更新，未提供时为{@link NetworkState#UNKNOWN}
+     */
+    @NonNull
+    public NetworkState getNetworkState() {
+        return queue.getNetworkState();
+    }
+
+    /**
+     * 由外部提供当前网络类别（如服务端JVM或自定义流程），事件队列按事件键的网络约束重新核实
+     *
+     * @param state 当前网络
+     */
+    public void updateNetworkState(@NonNull NetworkState state) {
+        queue.setNetworkState(state);
+        handler.wakeUp();
+    }
+
+    /**
+     * 移除事件，业务处理客户端不需要当前模块处理任务后，可手动解除事件绑定
+     *
+     * @param key 类名
+     */
+    public void removeEvent(String key) {
+        queue.deleteEvent(key);
+    }
+
+    /**
+     * 按事件键自适应的调度超时，用于监控各事件键当前的耗时与超时估算
+     */
+    public RttTimeoutEstimator getTimeoutEstimator() {
+        return handler.getTimeoutEstimator();
+    }
+
+    /**
+     * 按事件键自适应的批量大小，用于监控各事件键当前的批量大小与吞吐量，未开启时返回null
+     */
+    @Nullable
+    public AdaptiveBatchSizer getBatchSizer() {
+        return handler.getBatchSizer();
+    }
+
+    /**
+     * 各事件键累计的调度量与占比，用于核实优先级与权重是否生效
+     */
+    @NonNull
+    public Map<String, EventQueue.ServedStat> getServedStats() {
+        return queue.getServedStats();
+    }
+
+    /**
+     * 调度指标，可拉取快照{@link SchedulerMetrics#snapshot()}，
+     * 查看各状态的停留时间、调度成功/失败/超时次数、上传耗时、退避延迟、探测耗时与各事件键的队列深度
+     */
+    @NonNull
+    public SchedulerMetrics getMetrics() {
+        return handler.getMetrics();
+    }
+
+    /**
+     * 导出调度状态切换的飞行记录，用于还原现场调度反复超时、失败等问题，
+     * 可在任意线程调用，使用{@link org.sheedon.uploader.recorder.FlightRecordDecoder}解码
+     *
+     * @param file 导出的文件，已存在时覆盖
+     * @return 导出的记录数量，未开启飞行记录返回-1
+     */
+    public int dumpFlightRecord(@NonNull File file) throws IOException {
+        FlightRecorder recorder = handler.getFlightRecorder();
+        return recorder == null ? -1 : recorder.dump(file);
+    }
+
+    /**
+     * 消息队列
+     */
+    EventQueue getQueue() {
+        return queue;
+    }
+
+    /**
+     * 数据处理流程
+     */
+    AbstractProcess getProcess() {
+        return process;
+    }
+
+    /**
+     * 销毁
+     */
+    public void onDestroy() {
+        if (process != null) {
+            process.onDestroy();
+        }
+        if (trigger != null) {
+            trigger.onDestroy();
+        }
+        if (queue != null) {
+            queue.onDestroy();
+        }
+    }
+
+    /**
+     * 数据上报执行构造器
+     */
+    public static class Builder extends AbstractBuilder<Builder> {
+
+        /**
+         * 使用单线程执行器的调度后端
+         */
+        public Builder() {
+            this(new ExecutorSchedulerBackend());
+        }
+
+        /**
+         * 使用指定的调度后端
+         *
+         * @param backend 调度后端
+         */
+        public Builder(@NonNull SchedulerBackend backend) {
+            super(backend);
+        }
+
+        /**
+         * 接入共享调度运行时，与其他客户端共用工作线程，客户端销毁时退出运行时
+         * 创建客户端时才接入，未创建或校验失败的构造器不占用运行时
+         *
+         * @param runtime 共享调度运行时
+         */
+        public Builder(@NonNull SchedulerRuntime runtime) {
+            super(runtime);
+        }
+
+        @Override
+        protected Builder self() {
+            return this;
+        }
+
+        /**
+         * 创建数据上报执行客户端
+         *
+         * @return ScheduleClient
+         */
+        public ScheduleClient build() {
+            prepareBuild();
+            return new ScheduleClient(this);
+        }
+    }
+
+    /**
+     * 数据上报执行构造器的公共配置，各平台的构造器继承此类
+     *
+     * @param <B> 构造器类型
+     */
+    public static abstract class AbstractBuilder<B extends AbstractBuilder<B>> {
+
+        // 请求执行流程
+        private AbstractProcess process;
+        // 资源链接
+        private final EventQueue queue;
+        // 共享调度运行时，创建客户端时从中接入调度后端
+        private final SchedulerRuntime runtime;
+        // 调度后端
+        private SchedulerBackend backend;
+        // 异步处理调度器
+        private AsyncTrigger trigger;
+        // 服务器链接url
+        private String baseUrl;
+
+        private INetConnected netConnected;
+        // 允许同时执行（在途）的调度数量
+        private int maxInFlight = 1;
+        // 失败重试的退避策略
+        private BackoffPolicy backoffPolicy;
+        // 调度超时的估算
+        private RttTimeoutEstimator timeoutEstimator;
+        // 自适应的批量大小，为null时使用固定的批量上限
+        private AdaptiveBatchSizer batchSizer;
+        // 熔断默认配置，为null时不添加熔断流程
+        private CircuitBreakerConfig circuitBreakerConfig;
+        // 按事件键或服务端点单独的熔断配置
+        private final Map<String, CircuitBreakerConfig> circuitBreakerConfigs = new HashMap<>();
+        // 事件键到服务端点的映射
+        private CircuitBreakerProcess.EndpointResolver endpointResolver;
+        // 按权重调度时的额度扣除方式
+        private int costType = EventQueue.COST_ITEMS;
+        // 每份权重每轮获得的额度
+        private long quantum = 1;
+        // 截止时间调度时，没有截止时间的事件键的等待上限（毫秒）
+        private long deadlineAging = EventQueue.DEFAULT_DEADLINE_AGING;
+        // 全局限流配置
+        private RateLimitConfig rateLimitConfig;
+        // 按事件键单独的限流配置
+        private final Map<String, RateLimitConfig> rateLimitConfigs = new HashMap<>();
+        // 限流随机起始偏移的上限（毫秒）
+        private long rateLimitStartOffset;
+        // 飞行记录的容量，0表示不记录
+        private int flightRecorderCapacity = FlightRecorder.DEFAULT_CAPACITY;
+        // 指标监听器
+        private MetricsListener metricsListener;
+        // 指标监听间隔（毫秒）
+        private long metricsInterval;
+
+        protected AbstractBuilder(@NonNull SchedulerBackend backend) {
+            this.queue = new EventQueue();
+            this.runtime = null;
+            this.backend = backend;
+            this.trigger = new AsyncTrigger(backend);
+        }
+
+        /**
+         * 接入共享调度运行时，调度后端在{@link #prepareBuild()}校验通过后才接入
+         *
+         * @param runtime 共享调度运行时
+         */
+        protected AbstractBuilder(@NonNull SchedulerRuntime runtime) {
+            this.queue = new EventQueue();
+            this.runtime = runtime;
+        }
+
+        /**
+         * 当前构造器
+         */
+        protected abstract B self();
+
+        /**
+         * 调度后端，接入共享调度运行时的构造器在{@link #prepareBuild()}之前为null
+         */
+        protected SchedulerBackend getBackend() {
+            return backend;
+        }
+
+        /**
+         * 服务器基础地址，未设置时为null
+         */
+        protected String getBaseUrl() {
+            return baseUrl;
+        }
+
+        /**
+         * 添加数据处理执行的流程（责任链）
+         *
+         * @param process 执行流程策略
+         * @return Builder 构造器
+         */
+        public B process(@NonNull AbstractProcess process) {
+            this.process = process;
+            return self();
+        }
+
+        /**
+         * 添加网络连接状态
+         *
+         * @param netConnected 网络连接状态监听器
+         * @return Builder 构造器
+         */
+        public B netConnected(@NonNull INetConnected netConnected) {
+            this.netConnected = netConnected;
+            return self();
+        }
+
+        /**
+         * 添加服务器核实的链接
+         *
+         * @param baseUrl Api 基础URL
+         * @return Builder 构造器
+         */
+        public B baseUrl(@NonNull String baseUrl) {
+            if (baseUrl.trim().isEmpty()) throw new NullPointerException("baseUrl is null");
+            this.baseUrl = baseUrl;
+            return self();
+        }
+
+        /**
+         * 设置允许同时执行（在途）的调度数量，默认为1，即上一个调度反馈后才发起下一个调度
+         * 大于1时，同时发起多个调度，每个调度各自反馈结果和超时，适用于高延迟的网络
+         *
+         * @param maxInFlight 在途数量，需大于0
+         * @return Builder 构造器
+         */
+        public B maxInFlight(int maxInFlight) {
+            if (maxInFlight < 1) throw new IllegalArgumentException("maxInFlight must be greater than 0");
+            this.maxInFlight = maxInFlight;
+            return self();
+        }
+
+        /**
+         * 设置失败重试的退避策略，每个事件键各自退避，互不影响
+         * 默认使用带抖动的延迟表{@link TableBackoff#defaultBackoff()}
+         *
+         * @param backoffPolicy 退避策略
+         * @return Builder 构造器
+         */
+        public B backoffPolicy(@NonNull BackoffPolicy backoffPolicy) {
+            this.backoffPolicy = backoffPolicy;
+            return self();
+        }
+
+        /**
+         * 设置调度超时的估算，按事件键的历史耗时自适应计算每次调度的超时
+         * 默认没有样本时为30秒，限制在1秒至120秒之间，不按字节数追加
+         *
+         * @param timeoutEstimator 自适应超时
+         * @return Builder 构造器
+         */
+        public B timeoutEstimator(@NonNull RttTimeoutEstimator timeoutEstimator) {
+            this.timeoutEstimator = timeoutEstimator;
+            return self();
+        }
+
+        /**
+         * 开启自适应批量，批量调度的资源数量按各事件键的耗时加性增加、超时或失败时乘性缩小，
+         * 仍不超过{@link AbstractRealHandler#maxBatchSize()}，只对批量上限大于1的子调度器生效
+         *
+         * @param batchSizer 自适应批量
+         * @return Builder 构造器
+         */
+        public B adaptiveBatch(@NonNull AdaptiveBatchSizer batchSizer) {
+            this.batchSizer = batchSizer;
+            return self();
+        }
+
+        /**
+         * 设置普通优先级事件之间按权重调度时的额度扣除方式，默认每份权重每轮调度1次
+         * 按字节数扣除时，各事件键的上传字节数与权重成正比，额度建议不小于单次调度的字节数
+         *
+         * @param costType 按条数{@link EventQueue#COST_ITEMS}或字节数{@link EventQueue#COST_BYTES}
+         * @param quantum  每份权重每轮获得的额度，需大于0
+         * @return Builder 构造器
+         */
+        public B schedulingCost(@EventQueue.CostType int costType, long quantum) {
+            if (quantum < 1) throw new IllegalArgumentException("quantum must be greater than 0");
+            this.costType = costType;
+            this.quantum = quantum;
+            return self();
+        }
+
+        /**
+         * 有事件键提供截止时间{@link EventListener#nextDeadline()}时，事件键之间按截止时间最早优先调度，
+         * 没有截止时间的事件键视为在 上次调度（或进入通道）后 agingMillis 到期，避免一直让位而得不到调度
+         *
+         * @param agingMillis 等待上限（毫秒），需大于0，默认30秒
+         * @return Builder 构造器
+         */
+        public B deadlineAging(long agingMillis) {
+            if (agingMillis < 1) throw new IllegalArgumentException("deadlineAging must be greater than 0");
+            this.deadlineAging = agingMillis;
+            return self();
+        }
+
+        /**
+         * 开启熔断，在默认流程的「事件真实执行流程」前添加熔断流程{@link CircuitBreakerProcess}
+         *
+         * @param config 默认熔断配置
+         * @return Builder 构造器
+         */
+        public B circuitBreaker(@NonNull CircuitBreakerConfig config) {
+            this.circuitBreakerConfig = config;
+            return self();
+        }
+
+        /**
+         * 为事件键或服务端点单独配置熔断，需同时开启熔断
+         *
+         * @param name   事件键，或由{@link #endpointResolver}返回的服务端点
+         * @param config 熔断配置
+         * @return Builder 构造器
+         */
+        public B circuitBreaker(@NonNull String name, @NonNull CircuitBreakerConfig config) {
+            this.circuitBreakerConfigs.put(name, config);
+            return self();
+        }
+
+        /**
+         * 设置事件键到服务端点的映射，映射到同一服务端点的事件键共用一个熔断器
+         *
+         * @param endpointResolver 映射
+         * @return Builder 构造器
+         */
+        public B endpointResolver(@NonNull CircuitBreakerProcess.EndpointResolver endpointResolver) {
+            this.endpointResolver = endpointResolver;
+            return self();
+        }
+
+        /**
+         * 设置指标监听器，调度活跃时按间隔在调度的执行线上收到指标快照
+         * 不设置时也可通过{@link ScheduleClient#getMetrics()}随时拉取快照
+         *
+         * @param listener       指标监听器
+         * @param intervalMillis 间隔（毫秒），需大于0
+         * @return Builder 构造器
+         */
+        public B metricsListener(@NonNull MetricsListener listener, long intervalMillis) {
+            if (intervalMillis <= 0) throw new IllegalArgumentException("intervalMillis must be greater than 0");
+            this.metricsListener = listener;
+            this.metricsInterval = intervalMillis;
+            return self();
+        }
+
+        /**
+         * 设置调度状态切换飞行记录的容量，默认保留最近{@link FlightRecorder#DEFAULT_CAPACITY}次切换，
+         * 缓冲预先分配，记录不分配对象，可在生产环境常开
+         *
+         * @param capacity 保留的切换次数，向上取整为2的幂，0表示关闭
+         * @return Builder 构造器
+         */
+        public B flightRecorder(int capacity) {
+            if (capacity < 0) throw new IllegalArgumentException("capacity must not be negative");
+            this.flightRecorderCapacity = capacity;
+            return self();
+        }
+
+        /**
+         * 开启全局限流，在默认流程的「事件真实执行流程」前添加限流流程{@link RateLimitProcess}，
+         * 限制整个客户端的调度次数与上传字节数
+         *
+         * @param config 全局限流配置
+         * @return Builder 构造器
+         */
+        public B rateLimit(@NonNull RateLimitConfig config) {
+            this.rateLimitConfig = config;
+            return self();
+        }
+
+        /**
+         * 为事件键单独配置限流，与全局限流同时生效
+         *
+         * @param key    事件键
+         * @param config 限流配置
+         * @return Builder 构造器
+         */
+        public B rateLimit(@NonNull String key, @NonNull RateLimitConfig config) {
+            this.rateLimitConfigs.put(key, config);
+            return self();
+        }
+
+        /**
+         * 设置限流的随机起始偏移，客户端创建及网络、服务器恢复可用时，
+         * 在 [0, maxMillis] 内随机推迟第一次调度，避免大量设备同时上传
+         *
+         * @param maxMillis 随机偏移的上限（毫秒），0表示不偏移
+         * @return Builder 构造器
+         */
+        public B rateLimitStartOffset(long maxMillis) {
+            if (maxMillis < 0) throw new IllegalArgumentException("rateLimitStartOffset must not be negative");
+            this.rateLimitStartOffset = maxMillis;
+            return self();
+        }
+
+        /**
+         * 创建默认流程：「服务器连接流程 ServiceCheckProcess」和「事件真实执行流程 ScheduleProcess」
+         *
+         * @param baseUrl      基础服务器链接
+         * @param netConnected 网络连接状态监听器
+         * @param queue        事件队列
+         * @param workHandler  消息工作执行器
+         * @return AbstractProcess 默认流程
+         */
+        protected AbstractProcess createDefaultProcess(String baseUrl, INetConnected netConnected,
+                                                       EventQueue queue, MessageHandler workHandler) {
+            ServiceCheckProcess serviceCheckProcess = new ServiceCheckProcess(baseUrl, netConnected,
+                    backend.blockingExecutor(), backend.sharedScheduler());
+            serviceCheckProcess.setNextProcess(createScheduleProcess(queue, workHandler));
+            return serviceCheckProcess;
+        }
+
+        /**
+         * 创建默认流程的末端：依次为「限流流程」、「熔断流程」和「事件真实执行流程」，
+         * 未开启限流或熔断时不添加对应流程
+         *
+         * @param queue       事件队列
+         * @param workHandler 消息工作执行器
+         * @return AbstractProcess 流程末端
+         */
+        protected AbstractProcess createScheduleProcess(EventQueue queue, MessageHandler workHandler) {
+            AbstractProcess process = createCircuitBreakerProcess(queue, new ScheduleProcess(queue, workHandler));
+            if (rateLimitConfig == null && rateLimitConfigs.isEmpty() && rateLimitStartOffset == 0) {
+                return process;
+            }
+            RateLimitProcess rateLimitProcess = new RateLimitProcess(queue, rateLimitConfig, rateLimitStartOffset);
+            for (Map.Entry<String, RateLimitConfig> entry : rateLimitConfigs.entrySet()) {
+                rateLimitProcess.setConfig(entry.getKey(), entry.getValue());
+            }
+            rateLimitProcess.setNextProcess(process);
+            return rateLimitProcess;
+        }
+
+        private AbstractProcess createCircuitBreakerProcess(EventQueue queue, ScheduleProcess scheduleProcess) {
+            if (circuitBreakerConfig == null) {
+                return scheduleProcess;
+            }
+            CircuitBreakerProcess circuitBreakerProcess = new CircuitBreakerProcess(queue, circuitBreakerConfig);
+            for (Map.Entry<String, CircuitBreakerConfig> entry : circuitBreakerConfigs.entrySet()) {
+                circuitBreakerProcess.setConfig(entry.getKey(), entry.getValue());
+            }
+            if (endpointResolver != null) {
+                circuitBreakerProcess.setEndpointResolver(endpointResolver);
+            }
+            circuitBreakerProcess.setNextProcess(scheduleProcess);
+            return circuitBreakerProcess;
+        }
+
+        /**
+         * 创建客户端之前的准备
+         * 验证 必须添加 「自定义流程处理或url」任意一项
+         * 若 process 未自定义，则构建默认流程调度器
+         */
+        protected void prepareBuild() {
+            if (process == null && netConnected == null && (baseUrl == null || baseUrl.trim().isEmpty())) {
+                throw new NullPointerException("please add AbstractProcess or baseUrl");
+            }
+            if (circuitBreakerConfig == null && !circuitBreakerConfigs.isEmpty()) {
+                throw new IllegalStateException("please enable circuitBreaker with a default config");
+            }
+
+            // 校验通过后才接入运行时，避免计数泄漏
+            if (backend == null) {
+                backend = runtime.attach();
+                trigger = new AsyncTrigger(backend);
+            }
+            if (process == null) {
+                process = createDefaultProcess(baseUrl, netConnected, queue, trigger.getWorkHandler());
+            }
+        }
+    }
+}
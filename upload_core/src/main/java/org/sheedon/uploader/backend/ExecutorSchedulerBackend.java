@@ -0,0 +1,198 @@
+package org.sheedon.uploader.backend;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于{@link ScheduledExecutorService}的调度后端，可在服务端JVM或基准测试中运行
+ * 默认创建一个单线程的执行器；传入外部执行器时，需保证其为单线程，否则消息无法串行执行
+ *
+ * @Author: sheedon
+ * @Email: sheedonsun@163.com
+ * @Date: 2021/9/25 10:30 上午
+ */
+public class ExecutorSchedulerBackend implements SchedulerBackend {
+
+    // 执行器
+    private final ScheduledExecutorService executor;
+    // 执行器是否由当前后端创建，创建的执行器在退出时关闭
+    private final boolean ownExecutor;
+    // 等待执行的消息
+    private final List<PendingMessage> pendingMessages = new ArrayList<>();
+    // 消息回调
+    private volatile MessageCallback callback;
+    // 是否已退出
+    private volatile boolean quit;
+
+    public ExecutorSchedulerBackend() {
+        this(ExecutorSchedulerBackend.class.getName());
+    }
+
+    /**
+     * 创建一个单线程执行器的调度后端
+     *
+     * @param name 线程名称
+     */
+    public ExecutorSchedulerBackend(@NonNull String name) {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        executor.setRemoveOnCancelPolicy(true);
+        this.executor = executor;
+        this.ownExecutor = true;
+    }
+
+    /**
+     * 使用外部执行器的调度后端，退出时不关闭执行器
+     *
+     * @param executor 单线程执行器
+     */
+    public ExecutorSchedulerBackend(@NonNull ScheduledExecutorService executor) {
+        this.executor = executor;
+        this.ownExecutor = false;
+    }
+
+    @Override
+    public void attach(@NonNull MessageCallback callback) {
+        this.callback = callback;
+    }
+
+    @Override
+    public void sendMessage(int what, @Nullable Object obj) {
+        sendMessageDelayed(what, obj, 0);
+    }
+
+    @Override
+    public void sendMessageDelayed(int what, @Nullable Object obj, long delayMillis) {
+        if (quit) {
+            return;
+        }
+        PendingMessage message = new PendingMessage(what, obj);
+        synchronized (pendingMessages) {
+            pendingMessages.add(message);
+        }
+        try {
+            message.future = executor.schedule(() -> dispatch(message),
+                    Math.max(0, delayMillis), TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            synchronized (pendingMessages) {
+                pendingMessages.remove(message);
+            }
+        }
+    }
+
+    @Override
+    public void post(@NonNull Runnable runnable) {
+        if (quit) {
+            return;
+        }
+        try {
+            executor.execute(() -> run(runnable));
+        } catch (RejectedExecutionException ignored) {
+        }
+    }
+
+    @Override
+    public boolean hasMessages(int what, @Nullable Object obj) {
+        synchronized (pendingMessages) {
+            for (PendingMessage message : pendingMessages) {
+                if (message.matches(what, obj)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void removeMessages(int what, @Nullable Object obj) {
+        synchronized (pendingMessages) {
+            Iterator<PendingMessage> iterator = pendingMessages.iterator();
+            while (iterator.hasNext()) {
+                PendingMessage message = iterator.next();
+                if (message.matches(what, obj)) {
+                    iterator.remove();
+                    message.cancel();
+                }
+            }
+        }
+    }
+
+    @Override
+    public void quit() {
+        quit = true;
+        synchronized (pendingMessages) {
+            for (PendingMessage message : pendingMessages) {
+                message.cancel();
+            }
+            pendingMessages.clear();
+        }
+        if (ownExecutor) {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * 分发消息，已被移除的消息不再分发
+     */
+    private void dispatch(PendingMessage message) {
+        synchronized (pendingMessages) {
+            if (!pendingMessages.remove(message)) {
+                return;
+            }
+        }
+        MessageCallback callback = this.callback;
+        if (callback != null && !quit) {
+            run(() -> callback.handleMessage(message.what, message.obj));
+        }
+    }
+
+    /**
+     * 执行任务，异常不会中断执行线
+     */
+    private void run(Runnable runnable) {
+        try {
+            runnable.run();
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * 等待执行的消息
+     */
+    private static final class PendingMessage {
+
+        private final int what;
+        private final Object obj;
+        private volatile ScheduledFuture<?> future;
+
+        PendingMessage(int what, Object obj) {
+            this.what = what;
+            this.obj = obj;
+        }
+
+        boolean matches(int what, Object obj) {
+            return this.what == what && (obj == null || this.obj == obj);
+        }
+
+        void cancel() {
+            ScheduledFuture<?> future = this.future;
+            if (future != null) {
+                future.cancel(false);
+            }
+        }
+    }
+}
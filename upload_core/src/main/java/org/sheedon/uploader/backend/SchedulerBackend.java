@@ -0,0 +1,111 @@
+package org.sheedon.uploader.backend;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * 调度后端，为消息执行器{@link org.sheedon.uploader.MessageHandler}提供一个串行的消息队列，
+ * 所有消息与任务在同一条执行线上依次执行，调度状态机依赖这一点，无需额外加锁。
+ * 消息由「类型 what」和「附件 obj」组成，与 android.os.Handler 的语义保持一致：
+ * 移除或查询消息时，附件为null表示匹配该类型的全部消息。
+ * <p>
+ * 默认提供基于{@link java.util.concurrent.ScheduledExecutorService}的实现{@link ExecutorSchedulerBackend}，
+ * Android 端提供基于 Handler 的实现。
+ *
+ * @Author: sheedon
+ * @Email: sheedonsun@163.com
+ * @Date: 2021/9/25 10:02 上午
+ */
+public interface SchedulerBackend {
+
+    /**
+     * 绑定消息回调，消息到达时在执行线上回调
+     *
+     * @param callback 消息回调
+     */
+    void attach(@NonNull MessageCallback callback);
+
+    /**
+     * 发送消息
+     *
+     * @param what 消息类型
+     * @param obj  消息附件
+     */
+    void sendMessage(int what, @Nullable Object obj);
+
+    /**
+     * 发送延迟消息
+     *
+     * @param what        消息类型
+     * @param obj         消息附件
+     * @param delayMillis 延迟时间
+     */
+    void sendMessageDelayed(int what, @Nullable Object obj, long delayMillis);
+
+    /**
+     * 在执行线上执行任务
+     *
+     * @param runnable 任务
+     */
+    void post(@NonNull Runnable runnable);
+
+    /**
+     * 是否存在等待执行的消息
+     *
+     * @param what 消息类型
+     * @param obj  消息附件，null 匹配全部
+     */
+    boolean hasMessages(int what, @Nullable Object obj);
+
+    /**
+     * 移除等待执行的消息
+     *
+     * @param what 消息类型
+     * @param obj  消息附件，null 匹配全部
+     */
+    void removeMessages(int what, @Nullable Object obj);
+
+    /**
+     * 执行阻塞任务（真实上传、服务器探测）的执行器，任务离开执行线执行，结果仍以消息的方式回到执行线。
+     * 默认返回null，表示阻塞任务直接在执行线上执行，与原有行为一致
+     *
+     * @return 阻塞任务执行器
+     */
+    @Nullable
+    default Executor blockingExecutor() {
+        return null;
+    }
+
+    /**
+     * 多个客户端共享的定时执行器，供客户端内需要定时的流程（如服务器探测）使用，避免各自创建线程。
+     * 默认返回null，表示由流程自行创建
+     *
+     * @return 共享的定时执行器
+     */
+    @Nullable
+    default ScheduledExecutorService sharedScheduler() {
+        return null;
+    }
+
+    /**
+     * 退出，已到期的消息执行完毕后停止，不再执行延迟消息
+     */
+    void quit();
+
+    /**
+     * 消息回调
+     */
+    interface MessageCallback {
+
+        /**
+         * 处理消息
+         *
+         * @param what 消息类型
+         * @param obj  消息附件
+         */
+        void handleMessage(int what, @Nullable Object obj);
+    }
+}
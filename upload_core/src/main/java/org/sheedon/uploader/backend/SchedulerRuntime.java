@@ -0,0 +1,227 @@
+package org.sheedon.uploader.backend;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 共享调度运行时，多个调度客户端共用一组数量固定的工作线程，而不是每个客户端各自创建一条执行线。
+ * <p>
+ * 每个客户端通过{@link #attach()}得到各自的调度后端{@link SharedSchedulerBackend}，
+ * 后端内的消息依然串行执行、互不交叉，客户端之间的状态相互隔离，只是在共享的工作线程上轮流执行；
+ * 每个后端连续执行一批消息后让出线程，避免单个客户端长时间占用。
+ * <p>
+ * 真实上传与服务器探测在共享的阻塞任务线程池上执行，不占用工作线程，空闲线程超时后回收。
+ * <p>
+ * 运行时按接入的客户端计数：第一个客户端接入时启动线程，最后一个客户端退出（销毁）时关闭全部线程，
+ * 之后再有客户端接入时重新启动。
+ *
+ * @Author: sheedon
+ * @Email: sheedonsun@163.com
+ * @Date: 2021/10/8 9:00 上午
+ */
+public final class SchedulerRuntime {
+
+    // 进程内共享的默认运行时
+    private static SchedulerRuntime shared;
+
+    // 线程名称前缀
+    private final String name;
+    // 工作线程数量
+    private final int workerThreads;
+    // 阻塞任务线程数量上限
+    private final int blockingThreads;
+    // 外部提供的阻塞任务执行器
+    private final Executor externalBlockingExecutor;
+
+    // 工作线程，有客户端接入时存在
+    private ScheduledThreadPoolExecutor scheduler;
+    // 阻塞任务线程池，有客户端接入时存在
+    private ThreadPoolExecutor blockingExecutor;
+    // 接入的客户端数量
+    private int clients;
+    // 后端编号
+    private final AtomicInteger backendIds = new AtomicInteger();
+
+    private SchedulerRuntime(Builder builder) {
+        this.name = builder.name;
+        this.workerThreads = builder.workerThreads;
+        this.blockingThreads = builder.blockingThreads;
+        this.externalBlockingExecutor = builder.blockingExecutor;
+    }
+
+    /**
+     * 进程内共享的默认运行时，2条工作线程
+     */
+    @NonNull
+    public static synchronized SchedulerRuntime shared() {
+        if (shared == null) {
+            shared = new Builder().build();
+        }
+        return shared;
+    }
+
+    /**
+     * 接入一个客户端，创建其专属的调度后端，调度后端退出时自动退出运行时
+     *
+     * @return 调度后端
+     */
+    @NonNull
+    public synchronized SharedSchedulerBackend attach() {
+        if (clients == 0) {
+            start();
+        }
+        clients++;
+        return new SharedSchedulerBackend(this, scheduler,
+                externalBlockingExecutor != null ? externalBlockingExecutor : blockingExecutor,
+                name + "-" + backendIds.incrementAndGet());
+    }
+
+    /**
+     * 调度后端退出，最后一个退出时关闭线程
+     *
+     * @param backend 调度后端
+     */
+    synchronized void detach(@NonNull SharedSchedulerBackend backend) {
+        if (clients == 0) {
+            return;
+        }
+        clients--;
+        if (clients == 0) {
+            stop();
+        }
+    }
+
+    private void start() {
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(workerThreads,
+                newThreadFactory(name + "-worker"));
+        scheduler.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        scheduler.setRemoveOnCancelPolicy(true);
+        this.scheduler = scheduler;
+
+        if (externalBlockingExecutor == null) {
+            ThreadPoolExecutor blocking = new ThreadPoolExecutor(blockingThreads, blockingThreads,
+                    30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), newThreadFactory(name + "-blocking"));
+            blocking.allowCoreThreadTimeOut(true);
+            this.blockingExecutor = blocking;
+        }
+    }
+
+    private void stop() {
+        scheduler.shutdown();
+        scheduler = null;
+        if (blockingExecutor != null) {
+            blockingExecutor.shutdown();
+            blockingExecutor = null;
+        }
+    }
+
+    private static ThreadFactory newThreadFactory(String prefix) {
+        AtomicInteger ids = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + ids.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * 共享的定时执行器，用于客户端内需要定时的流程（如服务器探测），没有客户端接入时返回null
+     * 提交的任务需短小，不可阻塞
+     */
+    @Nullable
+    public synchronized ScheduledExecutorService getScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * 接入的客户端数量
+     */
+    public synchronized int getClientCount() {
+        return clients;
+    }
+
+    /**
+     * 线程是否在运行，即是否有客户端接入
+     */
+    public synchronized boolean isRunning() {
+        return scheduler != null;
+    }
+
+    /**
+     * 工作线程数量
+     */
+    public int getWorkerThreads() {
+        return workerThreads;
+    }
+
+    /**
+     * 共享调度运行时构造器
+     */
+    public static class Builder {
+
+        private String name = SchedulerRuntime.class.getSimpleName();
+        private int workerThreads = Math.min(2, Runtime.getRuntime().availableProcessors());
+        private int blockingThreads = 4;
+        private Executor blockingExecutor;
+
+        /**
+         * 线程名称前缀
+         *
+         * @param name 名称
+         * @return Builder 构造器
+         */
+        public Builder name(@NonNull String name) {
+            if (name.trim().isEmpty()) throw new IllegalArgumentException("name must not be empty");
+            this.name = name;
+            return this;
+        }
+
+        /**
+         * 执行调度状态机的工作线程数量，默认不超过2
+         *
+         * @param workerThreads 线程数量，需大于0
+         * @return Builder 构造器
+         */
+        public Builder workerThreads(int workerThreads) {
+            if (workerThreads < 1) throw new IllegalArgumentException("workerThreads must be greater than 0");
+            this.workerThreads = workerThreads;
+            return this;
+        }
+
+        /**
+         * 执行真实上传与服务器探测的线程数量上限，默认为4，空闲30秒后回收
+         *
+         * @param blockingThreads 线程数量，需大于0
+         * @return Builder 构造器
+         */
+        public Builder blockingThreads(int blockingThreads) {
+            if (blockingThreads < 1) throw new IllegalArgumentException("blockingThreads must be greater than 0");
+            this.blockingThreads = blockingThreads;
+            return this;
+        }
+
+        /**
+         * 使用外部的阻塞任务执行器，运行时不创建也不关闭阻塞任务线程池
+         *
+         * @param blockingExecutor 阻塞任务执行器
+         * @return Builder 构造器
+         */
+        public Builder blockingExecutor(@NonNull Executor blockingExecutor) {
+            this.blockingExecutor = blockingExecutor;
+            return this;
+        }
+
+        public SchedulerRuntime build() {
+            return new SchedulerRuntime(this);
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package org.sheedon.uploader.backend;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 共享调度运行时{@link SchedulerRuntime}中单个客户端的调度后端。
+ * 消息先进入后端自己的队列，再以「一次执行一批」的方式提交到共享的工作线程，
+ * 同一后端同时最多只有一个批次在执行，因此后端内的消息仍然串行执行，不同后端之间可以并行。
+ *
+ * @Author: sheedon
+ * @Email: sheedonsun@163.com
+ * @Date: 2021/10/8 9:30 上午
+ */
+public final class SharedSchedulerBackend implements SchedulerBackend {
+
+    // 每批最多执行的任务数量，执行完后让出工作线程
+    private static final int BATCH_SIZE = 32;
+
+    // 所属运行时
+    private final SchedulerRuntime runtime;
+    // 共享的工作线程
+    private final ScheduledExecutorService scheduler;
+    // 共享的阻塞任务执行器
+    private final Executor blockingExecutor;
+    // 名称，用于排查
+    private final String name;
+    // 等待执行的任务，同时作为锁
+    private final ArrayDeque<Runnable> ready = new ArrayDeque<>();
+    // 是否有批次已提交或正在执行
+    private boolean scheduled;
+    // 等待执行的消息，用于查询与移除
+    private final List<PendingMessage> pendingMessages = new ArrayList<>();
+    // 消息回调
+    private volatile MessageCallback callback;
+    // 是否已退出
+    private volatile boolean quit;
+
+    // 执行一批任务
+    private final Runnable drainTask = this::drain;
+
+    SharedSchedulerBackend(@NonNull SchedulerRuntime runtime, @NonNull ScheduledExecutorService scheduler,
+                           @Nullable Executor blockingExecutor, @NonNull String name) {
+        this.runtime = runtime;
+        this.scheduler = scheduler;
+        this.blockingExecutor = blockingExecutor;
+        this.name = name;
+    }
+
+    /**
+     * 所属的共享调度运行时
+     */
+    @NonNull
+    public SchedulerRuntime getRuntime() {
+        return runtime;
+    }
+
+    @Override
+    public void attach(@NonNull MessageCallback callback) {
+        this.callback = callback;
+    }
+
+    @Override
+    public void sendMessage(int what, @Nullable Object obj) {
+        sendMessageDelayed(what, obj, 0);
+    }
+
+    @Override
+    public void sendMessageDelayed(int what, @Nullable Object obj, long delayMillis) {
+        if (quit) {
+            return;
+        }
+        PendingMessage message = new PendingMessage(what, obj);
+        synchronized (pendingMessages) {
+            pendingMessages.add(message);
+        }
+        if (delayMillis <= 0) {
+            enqueue(() -> dispatch(message));
+            return;
+        }
+        try {
+            message.future = scheduler.schedule(() -> enqueue(() -> dispatch(message)),
+                    delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            synchronized (pendingMessages) {
+                pendingMessages.remove(message);
+            }
+        }
+    }
+
+    @Override
+    public void post(@NonNull Runnable runnable) {
+        if (!quit) {
+            enqueue(runnable);
+        }
+    }
+
+    @Override
+    public boolean hasMessages(int what, @Nullable Object obj) {
+        synchronized (pendingMessages) {
+            for (PendingMessage message : pendingMessages) {
+                if (message.matches(what, obj)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void removeMessages(int what, @Nullable Object obj) {
+        synchronized (pendingMessages) {
+            Iterator<PendingMessage> iterator = pendingMessages.iterator();
+            while (iterator.hasNext()) {
+                PendingMessage message = iterator.next();
+                if (message.matches(what, obj)) {
+                    iterator.remove();
+                    message.cancel();
+                }
+            }
+        }
+    }
+
+    @Nullable
+    @Override
+    public Executor blockingExecutor() {
+        return blockingExecutor;
+    }
+
+    @Nullable
+    @Override
+    public ScheduledExecutorService sharedScheduler() {
+        return quit ? null : scheduler;
+    }
+
+    /**
+     * 退出，取消等待中的消息，并退出共享运行时，最后一个退出的后端关闭运行时的线程
+     */
+    @Override
+    public void quit() {
+        if (quit) {
+            return;
+        }
+        quit = true;
+        synchronized (pendingMessages) {
+            for (PendingMessage message : pendingMessages) {
+                message.cancel();
+            }
+            pendingMessages.clear();
+        }
+        synchronized (ready) {
+            ready.clear();
+        }
+        runtime.detach(this);
+    }
+
+    /**
+     * 任务进入后端队列，没有批次在执行时提交一个批次
+     */
+    private void enqueue(Runnable task) {
+        synchronized (ready) {
+            if (quit) {
+                return;
+            }
+            ready.addLast(task);
+            if (scheduled) {
+                return;
+            }
+            scheduled = true;
+        }
+        submitDrain();
+    }
+
+    private void submitDrain() {
+        try {
+            scheduler.execute(drainTask);
+        } catch (RejectedExecutionException e) {
+            synchronized (ready) {
+                scheduled = false;
+                ready.clear();
+            }
+        }
+    }
+
+    /**
+     * 执行一批任务，仍有剩余时重新提交，让其他后端有机会执行
+     */
+    private void drain() {
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            Runnable task;
+            synchronized (ready) {
+                task = ready.pollFirst();
+                if (task == null) {
+                    scheduled = false;
+                    return;
+                }
+            }
+            run(task);
+        }
+        synchronized (ready) {
+            if (ready.isEmpty()) {
+                scheduled = false;
+                return;
+            }
+        }
+        submitDrain();
+    }
+
+    /**
+     * 分发消息，已被移除的消息不再分发
+     */
+    private void dispatch(PendingMessage message) {
+        synchronized (pendingMessages) {
+            if (!pendingMessages.remove(message)) {
+                return;
+            }
+        }
+        MessageCallback callback = this.callback;
+        if (callback != null && !quit) {
+            callback.handleMessage(message.what, message.obj);
+        }
+    }
+
+    /**
+     * 执行任务，异常不会中断工作线程
+     */
+    private static void run(Runnable runnable) {
+        try {
+            runnable.run();
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "SharedSchedulerBackend{" + name + '}';
+    }
+
+    /**
+     * 等待执行的消息
+     */
+    private static final class PendingMessage {
+
+        private final int what;
+        private final Object obj;
+        private volatile ScheduledFuture<?> future;
+
+        PendingMessage(int what, Object obj) {
+            this.what = what;
+            this.obj = obj;
+        }
+
+        boolean matches(int what, Object obj) {
+            return this.what == what && (obj == null || this.obj == obj);
+        }
+
+        void cancel() {
+            ScheduledFuture<?> future = this.future;
+            if (future != null) {
+                future.cancel(false);
+            }
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package org.sheedon.uploader.backend;
+
+import androidx.annotation.NonNull;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 虚拟线程调度后端，状态机仍在单线程执行线上串行执行，
+ * 每次真实上传与服务器探测各自在一个虚拟线程上执行，
+ * 业务在{@code handleRealEvent}中可以直接阻塞，在途数量可以放大到数千而无需同等数量的平台线程。
+ * <p>
+ * 虚拟线程需要 JDK 21 及以上，当前库以 Java 8 编译，通过反射获取
+ * {@code Executors.newVirtualThreadPerTaskExecutor()}；运行环境不支持时退化为缓存线程池。
+ *
+ * @Author: sheedon
+ * @Email: sheedonsun@163.com
+ * @Date: 2021/9/26 10:12 上午
+ */
+public class VirtualThreadSchedulerBackend extends ExecutorSchedulerBackend {
+
+    // 阻塞任务执行器
+    private final ExecutorService blockingExecutor;
+    // 是否使用虚拟线程
+    private final boolean virtual;
+
+    public VirtualThreadSchedulerBackend() {
+        this(VirtualThreadSchedulerBackend.class.getName());
+    }
+
+    /**
+     * 创建虚拟线程调度后端
+     *
+     * @param name 执行线程名称，阻塞任务线程以此为前缀
+     */
+    public VirtualThreadSchedulerBackend(@NonNull String name) {
+        super(name);
+        ExecutorService executor = newVirtualThreadExecutor();
+        this.virtual = executor != null;
+        this.blockingExecutor = executor != null ? executor : newCachedExecutor(name);
+    }
+
+    /**
+     * 运行环境是否支持虚拟线程，不支持时阻塞任务运行在缓存线程池上
+     */
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    @NonNull
+    @Override
+    public Executor blockingExecutor() {
+        return blockingExecutor;
+    }
+
+    /**
+     * 退出，不再接收新的阻塞任务，正在执行的任务执行完毕后结束
+     */
+    @Override
+    public void quit() {
+        super.quit();
+        blockingExecutor.shutdown();
+    }
+
+    /**
+     * 反射创建每个任务一个虚拟线程的执行器
+     *
+     * @return 执行器，不支持虚拟线程时返回null
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 创建守护线程的缓存线程池
+     *
+     * @param name 线程名称前缀
+     */
+    private static ExecutorService newCachedExecutor(String name) {
+        AtomicInteger index = new AtomicInteger();
+        return Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, name + "-blocking-" + index.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
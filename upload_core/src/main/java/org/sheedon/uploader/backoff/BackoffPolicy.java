@@ -0,0 +1,25 @@
+package org.sheedon.uploader.backoff;
+
+/**
+ * 退避策略，调度失败后计算下一次重试前需要等待的时间
+ * 每个事件键（EventListener 的 key）各自记录连续失败次数，互不影响，
+ * 由{@link BackoffTracker}维护状态，策略本身无状态，可被多个客户端共享。
+ * <p>
+ * 默认提供：指数退避{@link ExponentialBackoff}、去相关抖动{@link DecorrelatedJitterBackoff}
+ * 和自定义延迟表{@link TableBackoff}。
+ *
+ * @Author: sheedon
+ * @Email: sheedonsun@163.com
+ * @Date: 2021/9/27 9:40 上午
+ */
+public interface BackoffPolicy {
+
+    /**
+     * 计算下一次重试的延迟时间
+     *
+     * @param attempt       连续失败次数，从1开始
+     * @param previousDelay 上一次的延迟时间，首次失败为0
+     * @return 延迟时间（毫秒）
+     */
+    long nextDelay(int attempt, long previousDelay);
+}
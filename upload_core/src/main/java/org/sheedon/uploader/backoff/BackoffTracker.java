@@ -0,0 +1,152 @@
+package org.sheedon.uploader.backoff;
+
+import androidx.annotation.NonNull;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按事件键记录退避状态，一个事件键连续失败只会推迟该事件键自身的重试，
+ * 不影响其他事件键的调度节奏。
+ * 与具体事件无关的失败（如网络或服务器不可用）记录在{@link #GLOBAL_KEY}下。
+ *
+ * @Author: sheedon
+ * @Email: sheedonsun@163.com
+ * @Date: 2021/9/27 10:30 上午
+ */
+public final class BackoffTracker {
+
+    // 全局退避的键，事件键不允许为空字符串，故不会冲突
+    public static final String GLOBAL_KEY = "";
+
+    // 退避策略
+    private volatile BackoffPolicy policy;
+    // 事件键对应的退避状态
+    private final Map<String, State> states = new ConcurrentHashMap<>();
+
+    public BackoffTracker(@NonNull BackoffPolicy policy) {
+        this.policy = policy;
+    }
+
+    /**
+     * 设置退避策略，已有的退避状态保持不变
+     *
+     * @param policy 退避策略
+     */
+    public void setPolicy(@NonNull BackoffPolicy policy) {
+        this.policy = policy;
+    }
+
+    /**
+     * 记录一次失败，计算并返回该事件键需要等待的时间
+     *
+     * @param key 事件键
+     * @return 延迟时间（毫秒）
+     */
+    public long onFailure(@NonNull String key) {
+        State state = states.get(key);
+        if (state == null) {
+            state = new State();
+            states.put(key, state);
+        }
+        state.attempt++;
+        state.delay = Math.max(0, policy.nextDelay(state.attempt, state.delay));
+        state.retryAt = now() + state.delay;
+        return state.delay;
+    }
+
+    /**
+     * 记录一次成功，清空该事件键的退避状态
+     *
+     * @param key 事件键
+     */
+    public void onSuccess(@NonNull String key) {
+        states.remove(key);
+    }
+
+    /**
+     * 事件键当前是否处于退避等待中
+     *
+     * @param key 事件键
+     */
+    public boolean isBackingOff(@NonNull String key) {
+        return remaining(key) > 0;
+    }
+
+    /**
+     * 事件键距离可以重试还需等待的时间
+     *
+     * @param key 事件键
+     * @return 剩余时间（毫秒），不在退避中返回0
+     */
+    public long remaining(@NonNull String key) {
+        State state = states.get(key);
+        if (state == null) {
+            return 0;
+        }
+        return Math.max(0, state.retryAt - now());
+    }
+
+    /**
+     * 事件键连续失败的次数
+     *
+     * @param key 事件键
+     */
+    public int getAttempt(@NonNull String key) {
+        State state = states.get(key);
+        return state == null ? 0 : state.attempt;
+    }
+
+    /**
+     * 所有事件键（不含全局）中，最早可以重试的剩余时间
+     *
+     * @return 剩余时间（毫秒），没有事件键在退避中返回0
+     */
+    public long nextRetryDelay() {
+        long now = now();
+        long min = Long.MAX_VALUE;
+        for (Map.Entry<String, State> entry : states.entrySet()) {
+            if (GLOBAL_KEY.equals(entry.getKey())) {
+                continue;
+            }
+            long remaining = entry.getValue().retryAt - now;
+            if (remaining > 0 && remaining < min) {
+                min = remaining;
+            }
+        }
+        return min == Long.MAX_VALUE ? 0 : min;
+    }
+
+    /**
+     * 移除事件键的退避状态
+     *
+     * @param key 事件键
+     */
+    public void remove(@NonNull String key) {
+        states.remove(key);
+    }
+
+    /**
+     * 清空全部退避状态
+     */
+    public void clear() {
+        states.clear();
+    }
+
+    private static long now() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+    }
+
+    /**
+     * 单个事件键的退避状态
+     */
+    private static final class State {
+        // 连续失败次数
+        int attempt;
+        // 上一次的延迟时间
+        long delay;
+        // 可以重试的时间
+        long retryAt;
+    }
+}
@@ -0,0 +1,41 @@
+package org.sheedon.uploader.backoff;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 去相关抖动退避，延迟 = min(最大延迟, random(基础延迟, 上一次延迟 * 3))，
+ * 每次延迟依赖上一次的随机结果，不同设备的重试时间会逐渐错开
+ *
+ * @Author: sheedon
+ * @Email: sheedonsun@163.com
+ * @Date: 2021/9/27 10:05 上午
+ */
+public class DecorrelatedJitterBackoff implements BackoffPolicy {
+
+    // 基础延迟
+    private final long baseMillis;
+    // 最大延迟
+    private final long maxMillis;
+
+    /**
+     * 去相关抖动退避
+     *
+     * @param baseMillis 基础延迟，需大于0
+     * @param maxMillis  最大延迟，不小于基础延迟
+     */
+    public DecorrelatedJitterBackoff(long baseMillis, long maxMillis) {
+        if (baseMillis <= 0) throw new IllegalArgumentException("baseMillis must be greater than 0");
+        if (maxMillis < baseMillis) throw new IllegalArgumentException("maxMillis must not be less than baseMillis");
+        this.baseMillis = baseMillis;
+        this.maxMillis = maxMillis;
+    }
+
+    @Override
+    public long nextDelay(int attempt, long previousDelay) {
+        long upper = Math.max(baseMillis, Math.min(maxMillis, previousDelay * 3));
+        if (upper <= baseMillis) {
+            return baseMillis;
+        }
+        return ThreadLocalRandom.current().nextLong(baseMillis, upper + 1);
+    }
+}
@@ -0,0 +1,63 @@
+package org.sheedon.uploader.backoff;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 指数退避，延迟 = min(最大延迟, 基础延迟 * 倍数^(失败次数 - 1))，
+ * 再按抖动比例随机缩短，避免大量设备在同一时刻重试
+ *
+ * @Author: sheedon
+ * @Email: sheedonsun@163.com
+ * @Date: 2021/9/27 9:52 上午
+ */
+public class ExponentialBackoff implements BackoffPolicy {
+
+    // 基础延迟
+    private final long baseMillis;
+    // 最大延迟
+    private final long maxMillis;
+    // 倍数
+    private final double multiplier;
+    // 抖动比例，0 ~ 1，延迟在 [delay * (1 - jitter), delay] 之间随机
+    private final double jitter;
+
+    /**
+     * 倍数为2，抖动比例为0.5的指数退避
+     *
+     * @param baseMillis 基础延迟
+     * @param maxMillis  最大延迟
+     */
+    public ExponentialBackoff(long baseMillis, long maxMillis) {
+        this(baseMillis, maxMillis, 2, 0.5);
+    }
+
+    /**
+     * 指数退避
+     *
+     * @param baseMillis 基础延迟，需大于0
+     * @param maxMillis  最大延迟，不小于基础延迟
+     * @param multiplier 倍数，不小于1
+     * @param jitter     抖动比例，0 ~ 1，为0时不抖动，为1时为完全抖动
+     */
+    public ExponentialBackoff(long baseMillis, long maxMillis, double multiplier, double jitter) {
+        if (baseMillis <= 0) throw new IllegalArgumentException("baseMillis must be greater than 0");
+        if (maxMillis < baseMillis) throw new IllegalArgumentException("maxMillis must not be less than baseMillis");
+        if (multiplier < 1) throw new IllegalArgumentException("multiplier must not be less than 1");
+        if (jitter < 0 || jitter > 1) throw new IllegalArgumentException("jitter must be between 0 and 1");
+        this.baseMillis = baseMillis;
+        this.maxMillis = maxMillis;
+        this.multiplier = multiplier;
+        this.jitter = jitter;
+    }
+
+    @Override
+    public long nextDelay(int attempt, long previousDelay) {
+        double delay = baseMillis * Math.pow(multiplier, Math.max(0, attempt - 1));
+        long capped = delay >= maxMillis ? maxMillis : (long) delay;
+        if (jitter == 0) {
+            return capped;
+        }
+        long spread = (long) (capped * jitter);
+        return capped - ThreadLocalRandom.current().nextLong(spread + 1);
+    }
+}
@@ -0,0 +1,68 @@
+package org.sheedon.uploader.backoff;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 自定义延迟表退避，第N次失败取延迟表中第N项，超出后一直使用最后一项，
+ * 可按抖动比例随机缩短延迟
+ *
+ * @Author: sheedon
+ * @Email: sheedonsun@163.com
+ * @Date: 2021/9/27 10:16 上午
+ */
+public class TableBackoff implements BackoffPolicy {
+
+    // 默认延迟表，按「斐波那列基数」递增
+    private static final long[] DEFAULT_TABLE = new long[]{5 * 1000, 5 * 1000, 10 * 1000,
+            15 * 1000, 25 * 1000, 40 * 1000,
+            75 * 1000, 105 * 1000, 170 * 1000};
+
+    // 延迟表
+    private final long[] table;
+    // 抖动比例，0 ~ 1
+    private final double jitter;
+
+    /**
+     * 默认延迟表，抖动比例为0.2
+     */
+    public static TableBackoff defaultBackoff() {
+        return new TableBackoff(DEFAULT_TABLE, 0.2);
+    }
+
+    /**
+     * 不抖动的延迟表退避
+     *
+     * @param table 延迟表
+     */
+    public TableBackoff(@NonNull long... table) {
+        this(table, 0);
+    }
+
+    /**
+     * 延迟表退避
+     *
+     * @param table  延迟表，不能为空
+     * @param jitter 抖动比例，0 ~ 1，延迟在 [delay * (1 - jitter), delay] 之间随机
+     */
+    public TableBackoff(@NonNull long[] table, double jitter) {
+        if (table.length == 0) throw new IllegalArgumentException("table is empty");
+        if (jitter < 0 || jitter > 1) throw new IllegalArgumentException("jitter must be between 0 and 1");
+        for (long delay : table) {
+            if (delay < 0) throw new IllegalArgumentException("delay must not be negative");
+        }
+        this.table = table.clone();
+        this.jitter = jitter;
+    }
+
+    @Override
+    public long nextDelay(int attempt, long previousDelay) {
+        long delay = table[Math.min(Math.max(0, attempt - 1), table.length - 1)];
+        if (jitter == 0) {
+            return delay;
+        }
+        long spread = (long) (delay * jitter);
+        return delay - ThreadLocalRandom.current().nextLong(spread + 1);
+    }
+}
@@ -0,0 +1,237 @@
+package org.sheedon.uploader.batch;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按事件键自适应的批量大小，参照 TCP 拥塞窗口的加性增、乘性减（AIMD）：
+ * 批量调度成功且耗时不超过目标耗时，并且本次批量已取满当前大小时，批量大小加上增量；
+ * 调度超时或失败时，批量大小乘以缩减系数；成功但耗时超过目标时保持不变。
+ * 批量大小限制在 [最小批量, 最大批量] 之间，实际取出的数量还受{@code AbstractRealHandler#maxBatchSize()}限制。
+ * <p>
+ * 目标耗时为0时，取该事件键当前调度超时的一半，使批量在弱网下自动收缩，不触发调度超时。
+ * 每次成功调度同时以「成功条数 / 耗时」平滑估算该事件键的吞吐量。
+ * <p>
+ * 样本更新在执行线上进行，估算结果为不可变对象，可在其他线程读取用于监控。
+ *
+ * @Author: sheedon
+ * @Email: sheedonsun@163.com
+ * @Date: 2021/10/10 9:30 上午
+ */
+public class AdaptiveBatchSizer {
+
+    // 吞吐量的平滑系数
+    private static final double THROUGHPUT_GAIN = 0.25;
+
+    // 没有样本时的批量大小
+    private final int initialBatchSize;
+    // 最小批量
+    private final int minBatchSize;
+    // 最大批量
+    private final int maxBatchSize;
+    // 目标耗时（毫秒），0表示取调度超时的一半
+    private final long targetLatency;
+    // 每次增加的数量
+    private final double additiveIncrease;
+    // 超时或失败时的缩减系数
+    private final double decreaseFactor;
+    // 事件键对应的估算
+    private final Map<String, Estimate> estimates = new ConcurrentHashMap<>();
+
+    /**
+     * 自适应批量，每次增加1条，超时或失败时减半
+     *
+     * @param initialBatchSize 没有样本时的批量大小
+     * @param maxBatchSize     最大批量
+     * @param targetLatency    目标耗时（毫秒），0表示取调度超时的一半
+     */
+    public AdaptiveBatchSizer(int initialBatchSize, int maxBatchSize, long targetLatency) {
+        this(initialBatchSize, 1, maxBatchSize, targetLatency, 1, 0.5);
+    }
+
+    /**
+     * 自适应批量
+     *
+     * @param initialBatchSize 没有样本时的批量大小，在 [最小批量, 最大批量] 之间
+     * @param minBatchSize     最小批量，需大于0
+     * @param maxBatchSize     最大批量，不小于最小批量
+     * @param targetLatency    目标耗时（毫秒），0表示取调度超时的一半
+     * @param additiveIncrease 每次增加的数量，需大于0
+     * @param decreaseFactor   超时或失败时的缩减系数，在 (0, 1) 之间
+     */
+    public AdaptiveBatchSizer(int initialBatchSize, int minBatchSize, int maxBatchSize, long targetLatency,
+                              double additiveIncrease, double decreaseFactor) {
+        if (minBatchSize < 1) throw new IllegalArgumentException("minBatchSize must be greater than 0");
+        if (maxBatchSize < minBatchSize) throw new IllegalArgumentException("maxBatchSize must not be less than minBatchSize");
+        if (initialBatchSize < minBatchSize || initialBatchSize > maxBatchSize)
+            throw new IllegalArgumentException("initialBatchSize must be between minBatchSize and maxBatchSize");
+        if (targetLatency < 0) throw new IllegalArgumentException("targetLatency must not be negative");
+        if (!(additiveIncrease > 0)) throw new IllegalArgumentException("additiveIncrease must be greater than 0");
+        if (!(decreaseFactor > 0 && decreaseFactor < 1))
+            throw new IllegalArgumentException("decreaseFactor must be between 0 and 1");
+        this.initialBatchSize = initialBatchSize;
+        this.minBatchSize = minBatchSize;
+        this.maxBatchSize = maxBatchSize;
+        this.targetLatency = targetLatency;
+        this.additiveIncrease = additiveIncrease;
+        this.decreaseFactor = decreaseFactor;
+    }
+
+    /**
+     * 事件键当前的批量大小
+     *
+     * @param key 事件键
+     * @return 批量大小
+     */
+    public int batchSizeFor(@NonNull String key) {
+        Estimate estimate = estimates.get(key);
+        return estimate == null ? initialBatchSize : estimate.getBatchSize();
+    }
+
+    /**
+     * 记录一次成功的批量调度
+     *
+     * @param key           事件键
+     * @param records       成功的条数
+     * @param elapsedMillis 耗时（毫秒）
+     * @param timeoutMillis 该事件键当前的调度超时，目标耗时为0时取其一半
+     */
+    public void onSuccess(@NonNull String key, int records, long elapsedMillis, long timeoutMillis) {
+        Estimate old = estimateOf(key);
+        double sample = records * 1000.0 / Math.max(1, elapsedMillis);
+        double throughput = old.samples == 0 ? sample
+                : (1 - THROUGHPUT_GAIN) * old.throughput + THROUGHPUT_GAIN * sample;
+
+        double window = old.window;
+        long target = targetLatency > 0 ? targetLatency : timeoutMillis / 2;
+        // 只有取满当前大小时才增加，资源不足时不代表可以承受更大的批量
+        if (elapsedMillis <= target && records >= old.getBatchSize()) {
+            window = Math.min(maxBatchSize, window + additiveIncrease);
+        }
+        estimates.put(key, new Estimate(window, throughput, elapsedMillis,
+                old.samples + 1, old.timeouts, old.failures));
+    }
+
+    /**
+     * 记录一次调度超时，批量大小按缩减系数缩小
+     *
+     * @param key 事件键
+     */
+    public void onTimeout(@NonNull String key) {
+        Estimate old = estimateOf(key);
+        estimates.put(key, new Estimate(decrease(old.window), old.throughput, old.lastLatency,
+                old.samples, old.timeouts + 1, old.failures));
+    }
+
+    /**
+     * 记录一次调度失败，批量大小按缩减系数缩小
+     *
+     * @param key 事件键
+     */
+    public void onFailure(@NonNull String key) {
+        Estimate old = estimateOf(key);
+        estimates.put(key, new Estimate(decrease(old.window), old.throughput, old.lastLatency,
+                old.samples, old.timeouts, old.failures + 1));
+    }
+
+    /**
+     * 事件键当前的估算
+     *
+     * @param key 事件键
+     * @return 估算，没有记录则返回null
+     */
+    @Nullable
+    public Estimate getEstimate(@NonNull String key) {
+        return estimates.get(key);
+    }
+
+    /**
+     * 所有事件键当前的估算
+     */
+    @NonNull
+    public Map<String, Estimate> getEstimates() {
+        return Collections.unmodifiableMap(new HashMap<>(estimates));
+    }
+
+    /**
+     * 移除事件键的估算
+     *
+     * @param key 事件键
+     */
+    public void remove(@NonNull String key) {
+        estimates.remove(key);
+    }
+
+    private Estimate estimateOf(String key) {
+        Estimate estimate = estimates.get(key);
+        return estimate != null ? estimate : new Estimate(initialBatchSize, 0, 0, 0, 0, 0);
+    }
+
+    private double decrease(double window) {
+        return Math.max(minBatchSize, window * decreaseFactor);
+    }
+
+    /**
+     * 单个事件键的批量估算，不可变
+     */
+    public static final class Estimate {
+        // 批量窗口，取整后为批量大小
+        private final double window;
+        // 平滑吞吐量（条/秒）
+        private final double throughput;
+        // 最近一次成功调度的耗时
+        private final long lastLatency;
+        // 成功样本数量
+        private final long samples;
+        // 超时次数
+        private final long timeouts;
+        // 失败次数
+        private final long failures;
+
+        Estimate(double window, double throughput, long lastLatency,
+                 long samples, long timeouts, long failures) {
+            this.window = window;
+            this.throughput = throughput;
+            this.lastLatency = lastLatency;
+            this.samples = samples;
+            this.timeouts = timeouts;
+            this.failures = failures;
+        }
+
+        public int getBatchSize() {
+            return (int) window;
+        }
+
+        public double getThroughput() {
+            return throughput;
+        }
+
+        public long getLastLatency() {
+            return lastLatency;
+        }
+
+        public long getSamples() {
+            return samples;
+        }
+
+        public long getTimeouts() {
+            return timeouts;
+        }
+
+        public long getFailures() {
+            return failures;
+        }
+
+        @Override
+        public String toString() {
+            return "Estimate{batchSize=" + getBatchSize() + ", throughput=" + (long) throughput
+                    + ", lastLatency=" + lastLatency + ", samples=" + samples
+                    + ", timeouts=" + timeouts + ", failures=" + failures + '}';
+        }
+    }
+}
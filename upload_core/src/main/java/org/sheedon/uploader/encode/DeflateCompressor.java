@@ -0,0 +1,449 @@
+package org.sheedon.uploader.encode;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.zip.Adler32;
+import java.util.zip.Deflater;
+
+/**
+ * Deflate 压缩，输出 zlib 格式，可使用预置字典（见{@link DictionaryTrainer}）提升小内容的压缩比。
+ * <p>
+ * 自适应压缩等级：在 1、3、6、9 四个等级中，按实测的压缩耗时（纳秒/字节）与压缩比，
+ * 以及上传反馈的网络耗时（纳秒/上传字节，见{@link #onSent(EncodedPayload, long)}），
+ * 选择「压缩耗时 + 压缩比 * 网络耗时」最小的等级：网络越慢越倾向高压缩比，网络越快越倾向低耗时。
+ * 每隔一定次数尝试一次相邻等级，以更新其测量值。没有网络耗时样本时使用初始等级。
+ * <p>
+ * Deflater 按需创建并复用，可在多个线程上同时压缩。
+ *
+ * @Author: sheedon
+ * @Email: sheedonsun@163.com
+ * @Date: 2021/10/2 11:00 上午
+ */
+public class DeflateCompressor {
+
+    // 自适应选择的压缩等级
+    static final int[] LEVELS = {1, 3, 6, 9};
+    // 尝试相邻等级的间隔次数
+    private static final int EXPLORE_INTERVAL = 16;
+    // 平滑系数
+    private static final double ALPHA = 0.2;
+    // 复用的 Deflater 数量上限
+    private static final int MAX_POOLED = 4;
+
+    // 预置字典
+    private final byte[] dictionary;
+    // 预置字典的 Adler-32 校验值
+    private final int dictionaryId;
+    // 低于该字节数不压缩
+    private final int minCompressBytes;
+    // 是否自适应压缩等级
+    private final boolean adaptive;
+    // 不自适应时固定的压缩等级
+    private final int fixedLevel;
+    // 复用的 Deflater
+    private final ArrayDeque<Deflater> pool = new ArrayDeque<>();
+
+    // 当前等级的下标
+    private int levelIndex;
+    // 各等级的压缩耗时（纳秒/字节），0表示未测量
+    private final double[] costNanosPerByte = new double[LEVELS.length];
+    // 各等级的压缩比，0表示未测量
+    private final double[] ratios = new double[LEVELS.length];
+    // 网络耗时（纳秒/上传字节），0表示未测量
+    private double networkNanosPerByte;
+    // 距离上一次尝试相邻等级的次数
+    private int sinceExplore;
+    // 下一次尝试的方向
+    private boolean exploreUp = true;
+
+    // 统计：调度次数
+    private long batches;
+    // 统计：压缩的调度次数
+    private long compressedBatches;
+    // 统计：压缩前字节数
+    private long rawBytes;
+    // 统计：上传字节数
+    private long sentBytes;
+
+    private DeflateCompressor(Builder builder) {
+        this.dictionary = builder.dictionary;
+        this.minCompressBytes = builder.minCompressBytes;
+        this.adaptive = builder.adaptive;
+        this.fixedLevel = builder.level;
+        this.levelIndex = indexOfLevel(builder.level);
+        if (dictionary != null) {
+            Adler32 adler32 = new Adler32();
+            adler32.update(dictionary, 0, dictionary.length);
+            this.dictionaryId = (int) adler32.getValue();
+        } else {
+            this.dictionaryId = 0;
+        }
+    }
+
+    /**
+     * 压缩一次调度的内容，低于最小字节数或压缩后没有变小时不压缩
+     *
+     * @param raw         编码后的内容
+     * @param sourceCount 包含的资源数量
+     * @return 上传内容
+     */
+    @NonNull
+    public EncodedPayload compress(@NonNull byte[] raw, int sourceCount) {
+        if (raw.length < minCompressBytes) {
+            record(raw.length, raw.length, false);
+            return identity(raw, sourceCount);
+        }
+
+        int level = selectLevel();
+        long start = System.nanoTime();
+        byte[] compressed = deflate(raw, level);
+        long nanos = System.nanoTime() - start;
+        onCompressed(level, raw.length, compressed.length, nanos);
+
+        if (compressed.length >= raw.length) {
+            record(raw.length, raw.length, false);
+            return identity(raw, sourceCount);
+        }
+        record(raw.length, compressed.length, true);
+        return new EncodedPayload(compressed, raw.length, sourceCount, EncodedPayload.ENCODING_DEFLATE,
+                level, dictionaryId, nanos);
+    }
+
+    private static EncodedPayload identity(byte[] raw, int sourceCount) {
+        return new EncodedPayload(raw, raw.length, sourceCount, EncodedPayload.ENCODING_IDENTITY, 0, 0, 0);
+    }
+
+    private byte[] deflate(byte[] raw, int level) {
+        Deflater deflater = acquire();
+        try {
+            deflater.setLevel(level);
+            if (dictionary != null) {
+                deflater.setDictionary(dictionary);
+            }
+            deflater.setInput(raw);
+            deflater.finish();
+            byte[] buffer = new byte[Math.max(64, raw.length / 2)];
+            int length = 0;
+            while (!deflater.finished()) {
+                if (length == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                }
+                length += deflater.deflate(buffer, length, buffer.length - length);
+            }
+            return Arrays.copyOf(buffer, length);
+        } finally {
+            release(deflater);
+        }
+    }
+
+    private Deflater acquire() {
+        synchronized (pool) {
+            Deflater deflater = pool.pollFirst();
+            if (deflater != null) {
+                return deflater;
+            }
+        }
+        return new Deflater();
+    }
+
+    private void release(Deflater deflater) {
+        deflater.reset();
+        synchronized (pool) {
+            if (pool.size() < MAX_POOLED) {
+                pool.addLast(deflater);
+                return;
+            }
+        }
+        deflater.end();
+    }
+
+    /**
+     * 本次压缩使用的等级，每隔一定次数尝试一次相邻等级
+     */
+    private synchronized int selectLevel() {
+        if (!adaptive) {
+            return fixedLevel;
+        }
+        if (networkNanosPerByte == 0) {
+            return LEVELS[levelIndex];
+        }
+        if (++sinceExplore < EXPLORE_INTERVAL) {
+            return LEVELS[levelIndex];
+        }
+        sinceExplore = 0;
+        int next = levelIndex + (exploreUp ? 1 : -1);
+        if (next < 0 || next >= LEVELS.length) {
+            exploreUp = !exploreUp;
+            next = levelIndex + (exploreUp ? 1 : -1);
+        }
+        exploreUp = !exploreUp;
+        return LEVELS[next];
+    }
+
+    /**
+     * 记录压缩的测量值，重新选择等级
+     */
+    private synchronized void onCompressed(int level, int rawLength, int compressedLength, long nanos) {
+        int index = indexOfLevel(level);
+        costNanosPerByte[index] = smooth(costNanosPerByte[index], (double) nanos / rawLength);
+        ratios[index] = smooth(ratios[index], (double) compressedLength / rawLength);
+        chooseLevel();
+    }
+
+    /**
+     * 上传完成后反馈网络耗时，用于自适应压缩等级
+     *
+     * @param payload      上传内容
+     * @param elapsedNanos 上传耗时（纳秒），包含网络往返的延迟
+     */
+    public synchronized void onSent(@NonNull EncodedPayload payload, long elapsedNanos) {
+        if (payload.getLength() == 0 || elapsedNanos <= 0) {
+            return;
+        }
+        networkNanosPerByte = smooth(networkNanosPerByte, (double) elapsedNanos / payload.getLength());
+        chooseLevel();
+    }
+
+    /**
+     * 按当前的测量值重新选择等级
+     */
+    private void chooseLevel() {
+        if (!adaptive) {
+            return;
+        }
+        levelIndex = chooseLevel(costNanosPerByte, ratios, networkNanosPerByte, levelIndex);
+    }
+
+    /**
+     * 选择「压缩耗时 + 压缩比 * 网络耗时」最小的已测量等级，耗时相同时取较低的等级
+     *
+     * @param costNanosPerByte    各等级的压缩耗时（纳秒/字节），与{@link #LEVELS}对应
+     * @param ratios              各等级的压缩比，0表示未测量
+     * @param networkNanosPerByte 网络耗时（纳秒/上传字节），0表示未测量
+     * @param current             当前等级的下标
+     * @return 选择的等级下标，网络耗时或各等级均未测量时不变
+     */
+    static int chooseLevel(double[] costNanosPerByte, double[] ratios, double networkNanosPerByte, int current) {
+        if (networkNanosPerByte == 0) {
+            return current;
+        }
+        int chosen = current;
+        double best = Double.MAX_VALUE;
+        for (int index = 0; index < LEVELS.length; index++) {
+            if (ratios[index] == 0) {
+                continue;
+            }
+            double cost = costNanosPerByte[index] + ratios[index] * networkNanosPerByte;
+            if (cost < best) {
+                best = cost;
+                chosen = index;
+            }
+        }
+        return chosen;
+    }
+
+    private synchronized void record(int rawLength, int sentLength, boolean compressed) {
+        batches++;
+        if (compressed) {
+            compressedBatches++;
+        }
+        rawBytes += rawLength;
+        sentBytes += sentLength;
+    }
+
+    private static double smooth(double previous, double sample) {
+        return previous == 0 ? sample : previous + ALPHA * (sample - previous);
+    }
+
+    private static int indexOfLevel(int level) {
+        int index = 0;
+        for (int i = 0; i < LEVELS.length; i++) {
+            if (LEVELS[i] <= level) {
+                index = i;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * 预置字典，未使用时返回null
+     */
+    @Nullable
+    public byte[] getDictionary() {
+        return dictionary == null ? null : dictionary.clone();
+    }
+
+    /**
+     * 预置字典的 Adler-32 校验值，与 zlib 头部的字典标识一致，未使用时为0
+     */
+    public int getDictionaryId() {
+        return dictionaryId;
+    }
+
+    /**
+     * 当前的压缩等级
+     */
+    public synchronized int getLevel() {
+        return adaptive ? LEVELS[levelIndex] : fixedLevel;
+    }
+
+    /**
+     * 累计的压缩统计
+     */
+    @NonNull
+    public synchronized Stat getStat() {
+        return new Stat(batches, compressedBatches, rawBytes, sentBytes, getLevel(), networkNanosPerByte);
+    }
+
+    /**
+     * 释放复用的 Deflater
+     */
+    public void release() {
+        synchronized (pool) {
+            for (Deflater deflater : pool) {
+                deflater.end();
+            }
+            pool.clear();
+        }
+    }
+
+    /**
+     * 累计的压缩统计，不可变
+     */
+    public static final class Stat {
+        // 调度次数
+        private final long batches;
+        // 压缩的调度次数
+        private final long compressedBatches;
+        // 压缩前字节数
+        private final long rawBytes;
+        // 上传字节数
+        private final long sentBytes;
+        // 当前的压缩等级
+        private final int level;
+        // 网络耗时（纳秒/上传字节）
+        private final double networkNanosPerByte;
+
+        Stat(long batches, long compressedBatches, long rawBytes, long sentBytes,
+             int level, double networkNanosPerByte) {
+            this.batches = batches;
+            this.compressedBatches = compressedBatches;
+            this.rawBytes = rawBytes;
+            this.sentBytes = sentBytes;
+            this.level = level;
+            this.networkNanosPerByte = networkNanosPerByte;
+        }
+
+        public long getBatches() {
+            return batches;
+        }
+
+        public long getCompressedBatches() {
+            return compressedBatches;
+        }
+
+        public long getRawBytes() {
+            return rawBytes;
+        }
+
+        public long getSentBytes() {
+            return sentBytes;
+        }
+
+        /**
+         * 节省的上传字节数
+         */
+        public long getSavedBytes() {
+            return rawBytes - sentBytes;
+        }
+
+        /**
+         * 压缩比，上传字节数 / 压缩前字节数
+         */
+        public float getRatio() {
+            return rawBytes == 0 ? 1 : (float) sentBytes / rawBytes;
+        }
+
+        public int getLevel() {
+            return level;
+        }
+
+        public double getNetworkNanosPerByte() {
+            return networkNanosPerByte;
+        }
+
+        @Override
+        public String toString() {
+            return "Stat{batches=" + batches + ", compressedBatches=" + compressedBatches
+                    + ", rawBytes=" + rawBytes + ", sentBytes=" + sentBytes + ", ratio=" + getRatio()
+                    + ", level=" + level + '}';
+        }
+    }
+
+    /**
+     * Deflate 压缩构造器
+     */
+    public static class Builder {
+
+        private byte[] dictionary;
+        private int minCompressBytes = 256;
+        private boolean adaptive = true;
+        private int level = 6;
+
+        /**
+         * 预置字典，服务端解压时需要相同的字典
+         *
+         * @param dictionary 字典，可由{@link DictionaryTrainer#train(java.util.List, int)}从样本生成
+         * @return Builder 构造器
+         */
+        public Builder dictionary(@NonNull byte[] dictionary) {
+            if (dictionary.length == 0) throw new IllegalArgumentException("dictionary is empty");
+            this.dictionary = dictionary.clone();
+            return this;
+        }
+
+        /**
+         * 低于该字节数的内容不压缩，默认256
+         *
+         * @param minCompressBytes 最小字节数，不小于0
+         * @return Builder 构造器
+         */
+        public Builder minCompressBytes(int minCompressBytes) {
+            if (minCompressBytes < 0) throw new IllegalArgumentException("minCompressBytes must not be negative");
+            this.minCompressBytes = minCompressBytes;
+            return this;
+        }
+
+        /**
+         * 固定压缩等级，不再自适应
+         *
+         * @param level 1 ~ 9
+         * @return Builder 构造器
+         */
+        public Builder level(int level) {
+            if (level < 1 || level > 9) throw new IllegalArgumentException("level must be in [1, 9]");
+            this.level = level;
+            this.adaptive = false;
+            return this;
+        }
+
+        /**
+         * 自适应压缩等级，默认开启，初始等级为6，在{@link #level(int)}之后开启时，
+         * 按 1、3、6、9 取不高于该值的等级作为初始等级
+         *
+         * @param adaptive 是否自适应
+         * @return Builder 构造器
+         */
+        public Builder adaptive(boolean adaptive) {
+            this.adaptive = adaptive;
+            return this;
+        }
+
+        public DeflateCompressor build() {
+            return new DeflateCompressor(this);
+        }
+    }
+}
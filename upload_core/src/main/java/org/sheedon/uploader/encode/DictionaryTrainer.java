@@ -0,0 +1,131 @@
+package org.sheedon.uploader.encode;
+
+import androidx.annotation.NonNull;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 从样本内容生成 Deflate 预置字典
+ * 统计 8 字节片段在多少个样本中出现，将样本按固定长度切段，
+ * 以段内片段的出现次数之和为得分，按得分从高到低选取不重复的段，直到达到字典大小；
+ * 字典按得分从低到高排列，得分最高的段离压缩内容最近，引用距离最短。
+ * 适合结构相同的小内容（如 JSON 上报），字典需与服务端保持一致。
+ *
+ * @Author: sheedon
+ * @Email: sheedonsun@163.com
+ * @Date: 2021/10/2 2:30 下午
+ */
+public final class DictionaryTrainer {
+
+    // 统计的片段长度
+    private static final int GRAM = 8;
+    // 切段长度
+    private static final int SEGMENT = 64;
+    // Deflate 引用距离上限，字典超过部分无效
+    public static final int MAX_DICTIONARY_SIZE = 32 * 1024;
+
+    private DictionaryTrainer() {
+    }
+
+    /**
+     * 从样本生成字典
+     *
+     * @param samples 样本内容，建议不少于数十个
+     * @param maxSize 字典大小上限，不超过{@link #MAX_DICTIONARY_SIZE}
+     * @return 字典，样本中没有重复出现的内容时为空数组
+     */
+    @NonNull
+    public static byte[] train(@NonNull List<byte[]> samples, int maxSize) {
+        if (maxSize < 1 || maxSize > MAX_DICTIONARY_SIZE) {
+            throw new IllegalArgumentException("maxSize must be in [1, " + MAX_DICTIONARY_SIZE + "]");
+        }
+
+        // 片段出现在多少个样本中
+        Map<Long, Integer> frequencies = new HashMap<>();
+        Set<Long> seen = new HashSet<>();
+        for (byte[] sample : samples) {
+            seen.clear();
+            for (int i = 0; i + GRAM <= sample.length; i++) {
+                long gram = gramAt(sample, i);
+                if (seen.add(gram)) {
+                    frequencies.merge(gram, 1, Integer::sum);
+                }
+            }
+        }
+
+        // 切段并计算得分，只计出现在多个样本中的片段
+        List<Segment> segments = new ArrayList<>();
+        for (byte[] sample : samples) {
+            for (int start = 0; start < sample.length; start += SEGMENT) {
+                int end = Math.min(sample.length, start + SEGMENT);
+                long score = 0;
+                for (int i = start; i + GRAM <= end; i++) {
+                    int frequency = frequencies.get(gramAt(sample, i));
+                    if (frequency > 1) {
+                        score += frequency;
+                    }
+                }
+                if (score > 0) {
+                    segments.add(new Segment(sample, start, end, score));
+                }
+            }
+        }
+        segments.sort((first, second) -> Long.compare(second.score, first.score));
+
+        // 选取不重复的段
+        List<Segment> selected = new ArrayList<>();
+        Set<String> contents = new HashSet<>();
+        int size = 0;
+        for (Segment segment : segments) {
+            int length = segment.end - segment.start;
+            if (size + length > maxSize) {
+                continue;
+            }
+            String content = new String(segment.sample, segment.start, length, StandardCharsets.ISO_8859_1);
+            if (!contents.add(content)) {
+                continue;
+            }
+            selected.add(segment);
+            size += length;
+            if (size == maxSize) {
+                break;
+            }
+        }
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream(size);
+        for (int i = selected.size() - 1; i >= 0; i--) {
+            Segment segment = selected.get(i);
+            output.write(segment.sample, segment.start, segment.end - segment.start);
+        }
+        return output.toByteArray();
+    }
+
+    private static long gramAt(byte[] sample, int offset) {
+        long gram = 0;
+        for (int i = 0; i < GRAM; i++) {
+            gram = (gram << 8) | (sample[offset + i] & 0xFF);
+        }
+        return gram;
+    }
+
+    private static final class Segment {
+        final byte[] sample;
+        final int start;
+        final int end;
+        final long score;
+
+        Segment(byte[] sample, int start, int end, long score) {
+            this.sample = sample;
+            this.start = start;
+            this.end = end;
+            this.score = score;
+        }
+    }
+}
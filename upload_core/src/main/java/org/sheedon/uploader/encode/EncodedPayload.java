@@ -0,0 +1,97 @@
+package org.sheedon.uploader.encode;
+
+import androidx.annotation.NonNull;
+
+/**
+ * 编码压缩后的上传内容
+ * 压缩时为 zlib 格式（HTTP Content-Encoding: deflate），使用预置字典时服务端需持有相同的字典，
+ * 可按{@link #getDictionaryId()}区分字典版本
+ *
+ * @Author: sheedon
+ * @Email: sheedonsun@163.com
+ * @Date: 2021/10/2 10:40 上午
+ */
+public final class EncodedPayload {
+
+    // 不压缩
+    public static final String ENCODING_IDENTITY = "identity";
+    // Deflate（zlib 格式）压缩
+    public static final String ENCODING_DEFLATE = "deflate";
+
+    // 上传内容
+    private final byte[] data;
+    // 压缩前的字节数
+    private final int rawLength;
+    // 包含的资源数量
+    private final int sourceCount;
+    // 内容编码
+    private final String encoding;
+    // 压缩等级，不压缩时为0
+    private final int level;
+    // 预置字典的 Adler-32 校验值，未使用字典时为0
+    private final int dictionaryId;
+    // 压缩耗时（纳秒）
+    private final long compressNanos;
+
+    EncodedPayload(byte[] data, int rawLength, int sourceCount, String encoding,
+                   int level, int dictionaryId, long compressNanos) {
+        this.data = data;
+        this.rawLength = rawLength;
+        this.sourceCount = sourceCount;
+        this.encoding = encoding;
+        this.level = level;
+        this.dictionaryId = dictionaryId;
+        this.compressNanos = compressNanos;
+    }
+
+    /**
+     * 上传内容，调用方不应修改
+     */
+    @NonNull
+    public byte[] getData() {
+        return data;
+    }
+
+    public int getLength() {
+        return data.length;
+    }
+
+    public int getRawLength() {
+        return rawLength;
+    }
+
+    public int getSourceCount() {
+        return sourceCount;
+    }
+
+    /**
+     * 内容编码，{@link #ENCODING_DEFLATE}或{@link #ENCODING_IDENTITY}，可直接作为 Content-Encoding
+     */
+    @NonNull
+    public String getEncoding() {
+        return encoding;
+    }
+
+    public boolean isCompressed() {
+        return ENCODING_DEFLATE.equals(encoding);
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public int getDictionaryId() {
+        return dictionaryId;
+    }
+
+    public long getCompressNanos() {
+        return compressNanos;
+    }
+
+    /**
+     * 压缩比，上传字节数 / 压缩前字节数
+     */
+    public float getRatio() {
+        return rawLength == 0 ? 1 : (float) data.length / rawLength;
+    }
+}
@@ -0,0 +1,121 @@
+package org.sheedon.uploader.encode;
+
+import org.sheedon.uploader.AbstractRealHandler;
+import org.sheedon.uploader.BatchResultCenter;
+import org.sheedon.uploader.MessageHandleCenter;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 编码压缩的基础处理逻辑，位于真实上传之前：
+ * 每次调度的资源经编码器{@link SourceEncoder}序列化为一段内容，再由{@link DeflateCompressor}压缩，
+ * 子类只需上传压缩后的内容{@link EncodedPayload}（按其内容编码设置 Content-Encoding）。
+ * 一次调度的内容整体上传，开启批量调度时不支持按下标反馈结果。
+ * 上传成功后反馈上传耗时，用于自适应压缩等级；累计的上传字节数与压缩比见{@link #getCompressionStat()}。
+ *
+ * @param <Source> 资源类型
+ * @Author: sheedon
+ * @Email: sheedonsun@163.com
+ * @Date: 2021/10/2 4:10 下午
+ */
+public abstract class EncodingRealHandler<Source> extends AbstractRealHandler<Source> {
+
+    // 资源编码器
+    private final SourceEncoder<Source> encoder;
+    // 压缩
+    private final DeflateCompressor compressor;
+
+    public EncodingRealHandler() {
+        super();
+        encoder = loadSourceEncoder();
+        compressor = loadCompressor();
+    }
+
+    /**
+     * 加载资源编码器
+     *
+     * @return SourceEncoder 资源编码器
+     */
+    protected abstract SourceEncoder<Source> loadSourceEncoder();
+
+    /**
+     * 加载压缩，可重写以使用预置字典或固定压缩等级
+     *
+     * @return DeflateCompressor 默认为自适应压缩等级、无字典
+     */
+    protected DeflateCompressor loadCompressor() {
+        return new DeflateCompressor.Builder().build();
+    }
+
+    /**
+     * 上传编码压缩后的内容
+     *
+     * @param payload 上传内容
+     * @param center  消息执行处理中心
+     */
+    protected abstract void handleEncodedEvent(EncodedPayload payload, MessageHandleCenter center);
+
+    @Override
+    protected final void handleRealEvent(Source source, MessageHandleCenter center) {
+        dispatchEncoded(Collections.singletonList(source), center);
+    }
+
+    @Override
+    protected final void handleRealBatch(List<Source> sources, BatchResultCenter center) {
+        dispatchEncoded(sources, center);
+    }
+
+    /**
+     * 编码并压缩本次调度的资源，交由子类上传
+     */
+    private void dispatchEncoded(List<Source> sources, MessageHandleCenter center) {
+        byte[] raw = sources.size() == 1 && maxBatchSize() <= 1
+                ? encoder.encode(sources.get(0))
+                : encoder.encodeBatch(sources);
+        EncodedPayload payload = compressor.compress(raw, sources.size());
+        handleEncodedEvent(payload, new SentCenter(payload, center));
+    }
+
+    /**
+     * 累计的压缩统计：上传字节数、压缩比与当前压缩等级
+     */
+    public DeflateCompressor.Stat getCompressionStat() {
+        return compressor.getStat();
+    }
+
+    /**
+     * 销毁，释放复用的 Deflater
+     */
+    @Override
+    public void destroy() {
+        super.destroy();
+        compressor.release();
+    }
+
+    /**
+     * 上传成功时反馈上传耗时
+     */
+    private final class SentCenter implements MessageHandleCenter {
+
+        private final EncodedPayload payload;
+        private final MessageHandleCenter center;
+        private final long startNanos = System.nanoTime();
+
+        SentCenter(EncodedPayload payload, MessageHandleCenter center) {
+            this.payload = payload;
+            this.center = center;
+        }
+
+        @Override
+        public void sendSuccessMessage() {
+            compressor.onSent(payload, System.nanoTime() - startNanos);
+            center.sendSuccessMessage();
+        }
+
+        @Override
+        public void sendFailureMessage() {
+            center.sendFailureMessage();
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package org.sheedon.uploader.encode;
+
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+
+/**
+ * 资源编码器，将资源序列化为上传的字节内容，用于编码压缩流程{@link EncodingRealHandler}
+ *
+ * @param <Source> 资源类型
+ * @Author: sheedon
+ * @Email: sheedonsun@163.com
+ * @Date: 2021/10/2 10:20 上午
+ */
+public interface SourceEncoder<Source> {
+
+    /**
+     * 编码单个资源
+     *
+     * @param source 资源
+     * @return 编码后的内容
+     */
+    byte[] encode(Source source);
+
+    /**
+     * 编码一次调度的全部资源，默认按「4字节长度（大端） + 内容」依次拼接，
+     * 服务端需要其他格式（如 JSON 数组）时重写
+     *
+     * @param sources 本次调度的资源
+     * @return 编码后的内容
+     */
+    default byte[] encodeBatch(List<Source> sources) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        for (Source source : sources) {
+            byte[] payload = encode(source);
+            int length = payload.length;
+            output.write(length >>> 24);
+            output.write(length >>> 16);
+            output.write(length >>> 8);
+            output.write(length);
+            output.write(payload, 0, length);
+        }
+        return output.toByteArray();
+    }
+}
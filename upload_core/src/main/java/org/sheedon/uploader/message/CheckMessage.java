@@ -0,0 +1,82 @@
+package org.sheedon.uploader.message;
+
+import org.sheedon.uploader.EventQueue;
+import org.sheedon.uploader.MessageHandler;
+
+/**
+ * 核实消息，判断是否有存在调度事件，
+ * 若存在且有空闲的在途名额，则执行{@link ExecuteMessage}消息，执行事件
+ * 否则，存在在途调度时等待执行结果，不存在则回到{@link NormalMessage} 初始状态，
+ * 若有事件键处于退避中或被过滤，则在最早到期时唤醒重新核实
+ *
+ * @Author: sheedon
+ * @Email: sheedonsun@163.com
+ * @Date: 2021/9/12 11:42 上午
+ */
+class CheckMessage implements MessageStrategy {
+
+    /**
+     * CheckMessage 对应的消息类型，用于创建消息
+     *
+     * @return 消息类型
+     */
+    @Override
+    public int getType() {
+        return DefaultMessageGroup.TYPE_CHECK;
+    }
+
+    /**
+     * 退避到期的唤醒消息，仅在空闲或等待结果时继续核实，
+     * 其余状态说明流程已在流转，无需重复核实
+     *
+     * @param callback   给消息处理需要提供的行为
+     * @param attachment 消息附件
+     */
+    @Override
+    public void handleEvent(OnMessageBehavior callback, Object attachment) {
+        if (callback != null && callback.loadMessageHandler().isRetryMessage(attachment)) {
+            callback.loadMessageHandler().resumeCheck();
+            return;
+        }
+        handleEvent(callback);
+    }
+
+    /**
+     * 核实是否存在事件，存在则执行，不存在，回到初始状态
+     *
+     * @param callback 给消息处理需要提供的行为
+     */
+    @Override
+    public void handleEvent(OnMessageBehavior callback) {
+        if (callback == null)
+            return;
+
+        EventQueue queue = callback.loadEventQueue();
+
+        MessageHandler handler = callback.loadMessageHandler();
+
+        // 核实是否存在事件，以及是否还能发起调度
+        // 不能，则等待在途调度结果或回到初始状态
+        if (!handler.hasIdleSlot()) {
+            handler.awaitInFlight();
+            return;
+        }
+        // 流程未就绪（如首次探测中），等待就绪后唤醒，不视为失败
+        if (!callback.loadAbstractProcess().isReady()) {
+            handler.awaitInFlight();
+            return;
+        }
+        if (!queue.hasEvent()) {
+            // 存在退避中或被过滤的事件，到期后唤醒重新核实
+            long retryDelay = queue.nextReadyDelay();
+            if (retryDelay > 0) {
+                handler.sendRetryMessage(retryDelay);
+            }
+            handler.awaitInFlight();
+            return;
+        }
+
+        // 存在则执行
+        handler.sendMessage(DefaultMessageGroup.TYPE_EXECUTE);
+    }
+}
@@ -0,0 +1,78 @@
+package org.sheedon.uploader.message;
+
+import org.sheedon.uploader.InFlightCall;
+import org.sheedon.uploader.MessageHandler;
+import org.sheedon.uploader.backoff.BackoffTracker;
+import org.sheedon.uploader.batch.AdaptiveBatchSizer;
+
+/**
+ * 执行完成消息，结束对应的在途调度并移除其超时{@link TimeOutMessage}
+ * 并且执行核实操作{@link CheckMessage}
+ *
+ * @Author: sheedon
+ * @Email: sheedonsun@163.com
+ * @Date: 2021/9/12 11:42 上午
+ */
+class CompleteMessage implements MessageStrategy {
+
+    /**
+     * CompleteMessage 对应的消息类型，用于创建消息
+     *
+     * @return 消息类型
+     */
+    @Override
+    public int getType() {
+        return DefaultMessageGroup.TYPE_COMPLETE;
+    }
+
+    /**
+     * 执行完成消息，不携带调度
+     *
+     * @param callback 给消息处理需要提供的行为
+     */
+    @Override
+    public void handleEvent(OnMessageBehavior callback) {
+        handleEvent(callback, null);
+    }
+
+    /**
+     * 执行完成消息，结束调度并移除其超时消息，并且将流程过渡到 核实消息上
+     *
+     * @param callback   给消息处理需要提供的行为
+     * @param attachment 完成的调度
+     */
+    @Override
+    public void handleEvent(OnMessageBehavior callback, Object attachment) {
+        if (callback == null) {
+            return;
+        }
+
+        // 结束调度，移除超时消息
+        MessageHandler handler = callback.loadMessageHandler();
+        BackoffTracker backoff = callback.loadEventQueue().getBackoff();
+        if (attachment instanceof InFlightCall) {
+            InFlightCall call = (InFlightCall) attachment;
+            handler.finishCall(call);
+            handler.markRecordKey(call.getKey(), call.getAttempt());
+            // 该事件键释放了执行中的资源，重新核实
+            callback.loadEventQueue().signal(call.getKey());
+            backoff.onSuccess(call.getKey());
+            // 记录耗时样本，更新该事件键的自适应超时
+            long elapsedMillis = call.getElapsedMillis();
+            handler.getTimeoutEstimator().onSample(call.getKey(), elapsedMillis);
+            // 按耗时调整该事件键的批量大小
+            AdaptiveBatchSizer batchSizer = handler.getBatchSizer();
+            if (batchSizer != null && call.getRecordCount() > 0) {
+                batchSizer.onSuccess(call.getKey(), call.getRecordCount(), elapsedMillis,
+                        handler.getTimeoutEstimator().timeoutFor(call.getKey(), call.getPayloadBytes()));
+            }
+            handler.getMetrics().onSucceeded(elapsedMillis);
+            callback.loadAbstractProcess().onResult(call.getKey(), true);
+        }
+        // 重置延迟指标
+        backoff.onSuccess(BackoffTracker.GLOBAL_KEY);
+
+        // 发送核实消息
+        handler.resumeCheck();
+    }
+}
@@ -1,7 +1,5 @@
 package org.sheedon.uploader.message;
 
-import android.util.SparseArray;
-
 import androidx.annotation.IntDef;
 
 
@@ -45,25 +43,33 @@ public final class DefaultMessageGroup {
     // 销毁状态
     public static final int TYPE_DESTROY = 7;
 
-    // 超时时间
+    // 超时时间，事件键没有耗时样本时使用
     public static final int TIMEOUT = 30000;
+    // 自适应超时的下限
+    public static final int MIN_TIMEOUT = 1000;
+    // 自适应超时的上限
+    public static final int MAX_TIMEOUT = 120000;
 
     @IntDef({TYPE_NORMAL, TYPE_CHECK, TYPE_EXECUTE, TYPE_COMPLETE, TYPE_FAILURE, TYPE_DELAY, TYPE_TIMEOUT, TYPE_DESTROY})
     @Retention(RetentionPolicy.SOURCE)
     public @interface StatusType {
     }
 
-    private final static SparseArray<MessageStrategy> sparseArray = new SparseArray<MessageStrategy>() {
-        {
-            this.put(TYPE_NORMAL, new NormalMessage());
-            this.put(TYPE_CHECK, new CheckMessage());
-            this.put(TYPE_EXECUTE, new ExecuteMessage());
-            this.put(TYPE_COMPLETE, new CompleteMessage());
-            this.put(TYPE_FAILURE, new FailureMessage());
-            this.put(TYPE_DELAY, new DelayMessage());
-            this.put(TYPE_TIMEOUT, new TimeOutMessage());
-            this.put(TYPE_DESTROY, new DestroyMessage());
-        }
+    // 按类型排列的状态名称
+    private final static String[] names = new String[]{
+            "normal", "check", "execute", "complete", "failure", "delay", "timeout", "destroy"
+    };
+
+    // 按类型排列的消息策略
+    private final static MessageStrategy[] strategies = new MessageStrategy[]{
+            new NormalMessage(),
+            new CheckMessage(),
+            new ExecuteMessage(),
+            new CompleteMessage(),
+            new FailureMessage(),
+            new DelayMessage(),
+            new TimeOutMessage(),
+            new DestroyMessage()
     };
 
 
@@ -74,7 +80,23 @@ public final class DefaultMessageGroup {
      * @return MessageStrategy 消息策略
      */
     public static MessageStrategy obtainByStatus(@StatusType int status) {
-        return sparseArray.get(status);
+        if (status < 0 || status >= strategies.length) {
+            return null;
+        }
+        return strategies[status];
+    }
+
+    /**
+     * 状态名称，用于日志与指标输出
+     *
+     * @param status 消息类型
+     * @return 状态名称，未知类型返回 "unknown(类型)"
+     */
+    public static String nameOf(int status) {
+        if (status < 0 || status >= names.length) {
+            return "unknown(" + status + ")";
+        }
+        return names[status];
     }
 
 }
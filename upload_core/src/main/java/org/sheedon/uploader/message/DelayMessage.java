@@ -0,0 +1,44 @@
+package org.sheedon.uploader.message;
+
+import org.sheedon.uploader.MessageHandler;
+import org.sheedon.uploader.backoff.BackoffTracker;
+
+/**
+ * 延迟消息，发生在流程执行失败后调用，按全局退避状态延迟处理
+ * 退避策略由{@link org.sheedon.uploader.backoff.BackoffPolicy}决定，连续失败时延迟依次增加，
+ * 任意调度成功后重置
+ *
+ * @Author: sheedon
+ * @Email: sheedonsun@163.com
+ * @Date: 2021/9/12 11:42 上午
+ */
+class DelayMessage implements MessageStrategy {
+
+    /**
+     * DelayMessage 对应的消息类型，用于创建消息
+     *
+     * @return 消息类型
+     */
+    @Override
+    public int getType() {
+        return DefaultMessageGroup.TYPE_DELAY;
+    }
+
+    /**
+     * 错误消息执行到达此处，记录一次全局失败，按退避策略延迟后再次核实
+     *
+     * @param callback 给消息处理需要提供的行为
+     */
+    @Override
+    public void handleEvent(OnMessageBehavior callback) {
+        if (callback == null) {
+            return;
+        }
+
+        MessageHandler handler = callback.loadMessageHandler();
+        long delayTime = callback.loadEventQueue().getBackoff().onFailure(BackoffTracker.GLOBAL_KEY);
+        handler.getMetrics().onProcessFailed(delayTime);
+        handler.markRecordKey(null, callback.loadEventQueue().getBackoff().getAttempt(BackoffTracker.GLOBAL_KEY));
+        handler.sendDelayMessage(DefaultMessageGroup.TYPE_CHECK, delayTime);
+    }
+}
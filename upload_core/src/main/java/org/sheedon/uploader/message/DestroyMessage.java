@@ -1,7 +1,5 @@
 package org.sheedon.uploader.message;
 
-import android.os.Message;
-
 /**
  * 销毁消息，暂时不执行特殊操作，代表当前状态也是结束
  *
@@ -12,15 +10,13 @@ import android.os.Message;
 class DestroyMessage implements MessageStrategy {
 
     /**
-     * 从全局池中返回一个新的 DestroyMessage类型 的消息实例。 允许我们在许多情况下避免分配新对象
+     * DestroyMessage 对应的消息类型，用于创建消息
      *
-     * @return Message 消息
+     * @return 消息类型
      */
     @Override
-    public Message obtainMessage() {
-        Message message = Message.obtain();
-        message.what = DefaultMessageGroup.TYPE_DESTROY;
-        return message;
+    public int getType() {
+        return DefaultMessageGroup.TYPE_DESTROY;
     }
 
     /**
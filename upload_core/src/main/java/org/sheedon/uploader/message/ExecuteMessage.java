@@ -0,0 +1,88 @@
+package org.sheedon.uploader.message;
+
+import org.sheedon.uploader.EventQueue;
+import org.sheedon.uploader.InFlightCall;
+import org.sheedon.uploader.MessageHandler;
+import org.sheedon.uploader.process.AbstractProcess;
+
+/**
+ * 执行消息，调度AbstractProcess来执行操作，在在途名额内依次发起多个调度
+ * 若调度失败，则返回{@link FailureMessage}
+ * 否则，为每个调度启动各自的超时消息{@link TimeOutMessage}防止处理没有反馈，
+ * 超时时间按事件键的历史耗时自适应计算，
+ * 每次调度后按条数或字节数扣除事件键的调度额度，并记录到调度指标
+ *
+ * @Author: sheedon
+ * @Email: sheedonsun@163.com
+ * @Date: 2021/9/12 11:42 上午
+ */
+class ExecuteMessage implements MessageStrategy {
+
+    /**
+     * ExecuteMessage 对应的消息类型，用于创建消息
+     *
+     * @return 消息类型
+     */
+    @Override
+    public int getType() {
+        return DefaultMessageGroup.TYPE_EXECUTE;
+    }
+
+    /**
+     * 执行到「执行消息」后，在在途名额内循环拿到事件key并执行，
+     * 一个都拿不到且没有在途调度，则执行错误，发送错误消息
+     * 执行任务失败则发送错误消息，否则为该次调度发送超时消息，防止操作不反馈
+     *
+     * @param callback 给消息处理需要提供的行为
+     */
+    @Override
+    public void handleEvent(OnMessageBehavior callback) {
+        if (callback == null) {
+            return;
+        }
+
+        EventQueue queue = callback.loadEventQueue();
+        MessageHandler handler = callback.loadMessageHandler();
+        AbstractProcess process = callback.loadAbstractProcess();
+
+        int dispatched = 0;
+        while (handler.hasIdleSlot()) {
+            // 拿到事件key，拿不到则结束本轮调度
+            String eventName = queue.pollEvent();
+            if (eventName == null || eventName.trim().isEmpty()) {
+                break;
+            }
+
+            // 执行任务，执行失败则发送错误消息
+            boolean execute = process.execute();
+            if (!execute) {
+                handler.sendMessage(DefaultMessageGroup.TYPE_FAILURE);
+                return;
+            }
+
+            // 发送超时消息，防止操作不反馈
+            InFlightCall call = handler.takeDispatchedCall();
+            if (call != null) {
+                call.setAttempt(queue.getBackoff().getAttempt(call.getKey()) + 1);
+                handler.markRecordKey(call.getKey(), call.getAttempt());
+                long timeout = handler.getTimeoutEstimator().timeoutFor(call.getKey(), call.getPayloadBytes());
+                handler.sendTimeoutMessage(call, timeout);
+                queue.onDispatched(call.getKey(), call.getPayloadBytes());
+                handler.getMetrics().onDispatched(call.getPayloadBytes());
+            } else {
+                handler.markRecordKey(eventName, queue.getBackoff().getAttempt(eventName) + 1);
+                queue.onDispatched(eventName, 0);
+                handler.getMetrics().onDispatched(0);
+            }
+            dispatched++;
+        }
+
+        if (dispatched == 0 && !handler.hasInFlight()) {
+            handler.sendMessage(DefaultMessageGroup.TYPE_FAILURE);
+            return;
+        }
+
+        // 等待在途调度的执行结果
+        handler.awaitInFlight();
+    }
+}
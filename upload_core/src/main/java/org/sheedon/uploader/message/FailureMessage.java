@@ -0,0 +1,76 @@
+package org.sheedon.uploader.message;
+
+import org.sheedon.uploader.InFlightCall;
+import org.sheedon.uploader.MessageHandler;
+import org.sheedon.uploader.batch.AdaptiveBatchSizer;
+
+/**
+ * 错误消息，调度失败后执行
+ * 单次调度失败：结束对应的在途调度，仅该事件键进入退避，其他事件键继续调度
+ * 流程失败（如网络、服务器不可用）：执行延迟消息{@link DelayMessage}，延迟期间不再发起新的调度
+ *
+ * @Author: sheedon
+ * @Email: sheedonsun@163.com
+ * @Date: 2021/9/12 11:42 上午
+ */
+class FailureMessage implements MessageStrategy {
+
+    /**
+     * FailureMessage 对应的消息类型，用于创建消息
+     *
+     * @return 消息类型
+     */
+    @Override
+    public int getType() {
+        return DefaultMessageGroup.TYPE_FAILURE;
+    }
+
+    /**
+     * 执行到错误消息后，发送延迟消息，等待指定事件后，再次尝试操作任务
+     *
+     * @param callback 给消息处理需要提供的行为
+     */
+    @Override
+    public void handleEvent(OnMessageBehavior callback) {
+        handleEvent(callback, null);
+    }
+
+    /**
+     * 单次调度失败时按事件键退避，
+     * 流程失败时移除正在等待的核实/执行消息，统一进入延迟等待
+     *
+     * @param callback   给消息处理需要提供的行为
+     * @param attachment 失败的调度
+     */
+    @Override
+    public void handleEvent(OnMessageBehavior callback, Object attachment) {
+        if (callback == null) {
+            return;
+        }
+
+        MessageHandler handler = callback.loadMessageHandler();
+        if (attachment instanceof InFlightCall) {
+            // 结束调度，该事件键进入退避，其余事件键继续核实
+            InFlightCall call = (InFlightCall) attachment;
+            handler.finishCall(call);
+            handler.markRecordKey(call.getKey(), call.getAttempt());
+            callback.loadEventQueue().signal(call.getKey());
+            long backoffMillis = callback.loadEventQueue().getBackoff().onFailure(call.getKey());
+            handler.getMetrics().onFailed(backoffMillis);
+            // 超时已在超时消息中缩小批量
+            AdaptiveBatchSizer batchSizer = handler.getBatchSizer();
+            if (batchSizer != null && !call.isTimedOut()) {
+                batchSizer.onFailure(call.getKey());
+            }
+            callback.loadAbstractProcess().onResult(call.getKey(), false);
+            handler.resumeCheck();
+            return;
+        }
+
+        handler.markRecordKey(null, 0);
+        handler.removeMessage(DefaultMessageGroup.TYPE_CHECK);
+        handler.removeMessage(DefaultMessageGroup.TYPE_EXECUTE);
+        handler.removeMessage(DefaultMessageGroup.TYPE_DELAY);
+        handler.sendMessage(DefaultMessageGroup.TYPE_DELAY);
+    }
+}
@@ -1,7 +1,5 @@
 package org.sheedon.uploader.message;
 
-import android.os.Message;
-
 import org.sheedon.uploader.EventQueue;
 import org.sheedon.uploader.MessageHandler;
 import org.sheedon.uploader.process.AbstractProcess;
@@ -19,15 +17,27 @@ public interface MessageStrategy {
 
 
     /**
-     * @return 获取一个新消息
+     * @return 消息类型，用于创建一个新消息
      */
-    Message obtainMessage();
+    @DefaultMessageGroup.StatusType
+    int getType();
 
     /**
      * 执行一个事件
      */
     void handleEvent(OnMessageBehavior callback);
 
+    /**
+     * 执行一个携带附件的事件，附件一般为单次调度{@link org.sheedon.uploader.InFlightCall}，
+     * 默认忽略附件
+     *
+     * @param callback   给消息处理需要提供的行为
+     * @param attachment 消息附件
+     */
+    default void handleEvent(OnMessageBehavior callback, Object attachment) {
+        handleEvent(callback);
+    }
+
     /**
      * 给消息处理需要提供的行为
      * 消息处理器，事件队列，流程处理器
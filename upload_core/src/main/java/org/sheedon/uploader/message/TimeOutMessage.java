@@ -0,0 +1,56 @@
+package org.sheedon.uploader.message;
+
+import org.sheedon.uploader.InFlightCall;
+import org.sheedon.uploader.MessageHandler;
+
+
+/**
+ * 超时消息，每个在途调度各自布置，到达这里，则将对应调度直接反馈到失败
+ *
+ * @Author: sheedon
+ * @Email: sheedonsun@163.com
+ * @Date: 2021/9/12 11:42 上午
+ */
+class TimeOutMessage implements MessageStrategy {
+
+    /**
+     * TimeOutMessage 对应的消息类型，用于创建消息
+     *
+     * @return 消息类型
+     */
+    @Override
+    public int getType() {
+        return DefaultMessageGroup.TYPE_TIMEOUT;
+    }
+
+    /**
+     * 发送 「错误消息」
+     *
+     * @param callback 给消息处理需要提供的行为
+     */
+    @Override
+    public void handleEvent(OnMessageBehavior callback) {
+        handleEvent(callback, null);
+    }
+
+    /**
+     * 对应调度超时，发送 「错误消息」，已结束的调度忽略
+     *
+     * @param callback   给消息处理需要提供的行为
+     * @param attachment 超时的调度
+     */
+    @Override
+    public void handleEvent(OnMessageBehavior callback, Object attachment) {
+        if (callback == null)
+            return;
+
+        MessageHandler handler = callback.loadMessageHandler();
+        if (attachment instanceof InFlightCall) {
+            if (handler.timeoutCall((InFlightCall) attachment)) {
+                handler.getMetrics().onTimedOut();
+            }
+            return;
+        }
+        handler.sendMessage(DefaultMessageGroup.TYPE_FAILURE);
+    }
+}
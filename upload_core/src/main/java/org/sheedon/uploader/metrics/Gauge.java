@@ -0,0 +1,16 @@
+package org.sheedon.uploader.metrics;
+
+/**
+ * 瞬时值，在生成快照时读取，如在途调度数量
+ *
+ * @Author: sheedon
+ * @Email: sheedonsun@163.com
+ * @Date: 2021/10/5 9:10 上午
+ */
+public interface Gauge {
+
+    /**
+     * 当前值
+     */
+    long getValue();
+}
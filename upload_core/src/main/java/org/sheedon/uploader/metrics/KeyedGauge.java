@@ -0,0 +1,21 @@
+package org.sheedon.uploader.metrics;
+
+import androidx.annotation.NonNull;
+
+import java.util.Map;
+
+/**
+ * 按事件键的瞬时值，在生成快照时读取，如各事件键的待处理资源数量
+ *
+ * @Author: sheedon
+ * @Email: sheedonsun@163.com
+ * @Date: 2021/10/5 9:10 上午
+ */
+public interface KeyedGauge {
+
+    /**
+     * 各事件键的当前值
+     */
+    @NonNull
+    Map<String, Long> getValues();
+}
@@ -0,0 +1,191 @@
+package org.sheedon.uploader.metrics;
+
+import androidx.annotation.NonNull;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 固定分桶的耗时直方图，记录时只按上界定位分桶并累加，不分配对象，
+ * 分桶的上界固定，百分位按所在分桶的上界估算
+ *
+ * @Author: sheedon
+ * @Email: sheedonsun@163.com
+ * @Date: 2021/10/5 9:30 上午
+ */
+public final class LatencyHistogram {
+
+    // 默认分桶上界（毫秒），超出最后一个上界的计入溢出桶
+    public static final long[] DEFAULT_BOUNDS = {
+            1, 2, 5, 10, 20, 50, 100, 200, 500,
+            1000, 2000, 5000, 10000, 20000, 60000, 120000
+    };
+
+    // 分桶上界，包含
+    private final long[] bounds;
+    // 各分桶的数量，最后一个为溢出桶
+    private final AtomicLongArray counts;
+    // 总和
+    private final AtomicLong sum = new AtomicLong();
+    // 最大值
+    private final AtomicLong max = new AtomicLong();
+
+    public LatencyHistogram() {
+        this(DEFAULT_BOUNDS);
+    }
+
+    /**
+     * 耗时直方图
+     *
+     * @param bounds 递增的分桶上界
+     */
+    public LatencyHistogram(@NonNull long[] bounds) {
+        if (bounds.length == 0) throw new IllegalArgumentException("bounds must not be empty");
+        for (int i = 1; i < bounds.length; i++) {
+            if (bounds[i] <= bounds[i - 1]) throw new IllegalArgumentException("bounds must be increasing");
+        }
+        this.bounds = bounds.clone();
+        this.counts = new AtomicLongArray(bounds.length + 1);
+    }
+
+    /**
+     * 记录一个耗时
+     *
+     * @param value 耗时，负数按0记录
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        counts.incrementAndGet(indexOf(value));
+        sum.addAndGet(value);
+        long current;
+        while (value > (current = max.get())) {
+            if (max.compareAndSet(current, value)) {
+                break;
+            }
+        }
+    }
+
+    private int indexOf(long value) {
+        int low = 0;
+        int high = bounds.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (bounds[mid] < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * 清零
+     */
+    public void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+        sum.set(0);
+        max.set(0);
+    }
+
+    /**
+     * 当前分布的快照
+     */
+    @NonNull
+    public Snapshot snapshot() {
+        long[] values = new long[counts.length()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = counts.get(i);
+        }
+        return new Snapshot(bounds, values, sum.get(), max.get());
+    }
+
+    /**
+     * 直方图快照
+     */
+    public static final class Snapshot {
+        // 分桶上界
+        private final long[] bounds;
+        // 各分桶的数量，最后一个为溢出桶
+        private final long[] counts;
+        // 总数
+        private final long count;
+        // 总和
+        private final long sum;
+        // 最大值
+        private final long max;
+
+        Snapshot(long[] bounds, long[] counts, long sum, long max) {
+            this.bounds = bounds;
+            this.counts = counts;
+            long count = 0;
+            for (long value : counts) {
+                count += value;
+            }
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        public long[] getBounds() {
+            return bounds.clone();
+        }
+
+        public long[] getCounts() {
+            return counts.clone();
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getSum() {
+            return sum;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        public double getMean() {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+
+        /**
+         * 百分位的估算值，取所在分桶的上界，落在溢出桶时取最大值
+         *
+         * @param quantile 百分位，0~1
+         */
+        public long getPercentile(double quantile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(Math.max(0, Math.min(1, quantile)) * count);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank && seen > 0) {
+                    return i < bounds.length ? Math.min(bounds[i], max) : max;
+                }
+            }
+            return max;
+        }
+
+        @Override
+        public String toString() {
+            return "Histogram{" +
+                    "count=" + count +
+                    ", mean=" + getMean() +
+                    ", p50=" + getPercentile(0.5) +
+                    ", p99=" + getPercentile(0.99) +
+                    ", max=" + max +
+                    ", counts=" + Arrays.toString(counts) +
+                    '}';
+        }
+    }
+}
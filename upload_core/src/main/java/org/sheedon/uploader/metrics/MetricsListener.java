@@ -0,0 +1,20 @@
+package org.sheedon.uploader.metrics;
+
+import androidx.annotation.NonNull;
+
+/**
+ * 指标监听器，调度活跃时按设置的间隔收到指标快照，在调度的执行线上回调，不宜做耗时操作
+ *
+ * @Author: sheedon
+ * @Email: sheedonsun@163.com
+ * @Date: 2021/10/5 9:20 上午
+ */
+public interface MetricsListener {
+
+    /**
+     * 收到指标快照
+     *
+     * @param snapshot 指标快照
+     */
+    void onSnapshot(@NonNull MetricsSnapshot snapshot);
+}
@@ -0,0 +1,197 @@
+package org.sheedon.uploader.metrics;
+
+import androidx.annotation.NonNull;
+
+import org.sheedon.uploader.message.DefaultMessageGroup;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * 调度指标的快照，不可变
+ *
+ * @Author: sheedon
+ * @Email: sheedonsun@163.com
+ * @Date: 2021/10/5 10:00 上午
+ */
+public final class MetricsSnapshot {
+
+    // 快照时的状态
+    private final int state;
+    // 各状态的进入次数
+    private final long[] stateEntries;
+    // 各状态的停留时间（毫秒）
+    private final long[] stateMillis;
+    private final long dispatched;
+    private final long dispatchedBytes;
+    private final long succeeded;
+    private final long failed;
+    private final long timedOut;
+    private final long expired;
+    private final long processFailures;
+    private final long probes;
+    private final long probeFailures;
+    private final LatencyHistogram.Snapshot uploadLatency;
+    private final LatencyHistogram.Snapshot backoffDelay;
+    private final LatencyHistogram.Snapshot probeLatency;
+    // 注册的瞬时值
+    private final Map<String, Long> gauges;
+    // 各事件键的待处理数量
+    private final Map<String, Long> queueDepths;
+
+    MetricsSnapshot(int state, long[] stateEntries, long[] stateMillis,
+                    long dispatched, long dispatchedBytes, long succeeded, long failed, long timedOut,
+                    long expired, long processFailures, long probes, long probeFailures,
+                    LatencyHistogram.Snapshot uploadLatency, LatencyHistogram.Snapshot backoffDelay,
+                    LatencyHistogram.Snapshot probeLatency,
+                    Map<String, Long> gauges, Map<String, Long> queueDepths) {
+        this.state = state;
+        this.stateEntries = stateEntries;
+        this.stateMillis = stateMillis;
+        this.dispatched = dispatched;
+        this.dispatchedBytes = dispatchedBytes;
+        this.succeeded = succeeded;
+        this.failed = failed;
+        this.timedOut = timedOut;
+        this.expired = expired;
+        this.processFailures = processFailures;
+        this.probes = probes;
+        this.probeFailures = probeFailures;
+        this.uploadLatency = uploadLatency;
+        this.backoffDelay = backoffDelay;
+        this.probeLatency = probeLatency;
+        this.gauges = Collections.unmodifiableMap(gauges);
+        this.queueDepths = Collections.unmodifiableMap(queueDepths);
+    }
+
+    /**
+     * 快照时的调度状态
+     */
+    @DefaultMessageGroup.StatusType
+    public int getState() {
+        return state;
+    }
+
+    /**
+     * 状态的进入次数
+     *
+     * @param state 状态
+     */
+    public long getStateEntries(@DefaultMessageGroup.StatusType int state) {
+        return state >= 0 && state < stateEntries.length ? stateEntries[state] : 0;
+    }
+
+    /**
+     * 状态的累计停留时间（毫秒），只统计空闲、核实（含退避等待）与等待结果状态，其余状态为0
+     *
+     * @param state 状态
+     */
+    public long getStateMillis(@DefaultMessageGroup.StatusType int state) {
+        return state >= 0 && state < stateMillis.length ? stateMillis[state] : 0;
+    }
+
+    public long getDispatched() {
+        return dispatched;
+    }
+
+    public long getDispatchedBytes() {
+        return dispatchedBytes;
+    }
+
+    public long getSucceeded() {
+        return succeeded;
+    }
+
+    /**
+     * 失败的调度，包含超时
+     */
+    public long getFailed() {
+        return failed;
+    }
+
+    public long getTimedOut() {
+        return timedOut;
+    }
+
+    /**
+     * 超时占发起调度的比例
+     */
+    public float getTimeoutRate() {
+        return dispatched == 0 ? 0 : (float) timedOut / dispatched;
+    }
+
+    /**
+     * 超过截止时间、未调度即丢弃的资源数量
+     */
+    public long getExpired() {
+        return expired;
+    }
+
+    public long getProcessFailures() {
+        return processFailures;
+    }
+
+    public long getProbes() {
+        return probes;
+    }
+
+    public long getProbeFailures() {
+        return probeFailures;
+    }
+
+    @NonNull
+    public LatencyHistogram.Snapshot getUploadLatency() {
+        return uploadLatency;
+    }
+
+    @NonNull
+    public LatencyHistogram.Snapshot getBackoffDelay() {
+        return backoffDelay;
+    }
+
+    @NonNull
+    public LatencyHistogram.Snapshot getProbeLatency() {
+        return probeLatency;
+    }
+
+    @NonNull
+    public Map<String, Long> getGauges() {
+        return gauges;
+    }
+
+    @NonNull
+    public Map<String, Long> getQueueDepths() {
+        return queueDepths;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder states = new StringBuilder();
+        for (int i = 0; i < stateEntries.length; i++) {
+            if (states.length() > 0) {
+                states.append(", ");
+            }
+            states.append(DefaultMessageGroup.nameOf(i)).append('=').append(stateEntries[i])
+                    .append('/').append(stateMillis[i]).append("ms");
+        }
+        return "MetricsSnapshot{" +
+                "state=" + DefaultMessageGroup.nameOf(state) +
+                ", states={" + states + '}' +
+                ", dispatched=" + dispatched +
+                ", dispatchedBytes=" + dispatchedBytes +
+                ", succeeded=" + succeeded +
+                ", failed=" + failed +
+                ", timedOut=" + timedOut +
+                ", timeoutRate=" + getTimeoutRate() +
+                ", expired=" + expired +
+                ", processFailures=" + processFailures +
+                ", probes=" + probes +
+                ", probeFailures=" + probeFailures +
+                ", uploadLatency=" + uploadLatency +
+                ", backoffDelay=" + backoffDelay +
+                ", probeLatency=" + probeLatency +
+                ", gauges=" + gauges +
+                ", queueDepths=" + queueDepths +
+                '}';
+    }
+}
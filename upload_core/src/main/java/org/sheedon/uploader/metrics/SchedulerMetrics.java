@@ -0,0 +1,301 @@
+package org.sheedon.uploader.metrics;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.sheedon.uploader.message.DefaultMessageGroup;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 调度指标，记录调度状态机各状态的停留时间与进入次数、调度的成功/失败/超时次数、
+ * 上传耗时、退避延迟与服务器探测耗时，以及注册的瞬时值（在途数量、各事件键的待处理数量）。
+ * <p>
+ * 记录端只做分段计数与固定分桶累加，不加锁、不分配对象；
+ * 状态切换只发生在调度的执行线上，单线程写入，使用有序写而不是原子累加；
+ * 停留时间只统计会等待的状态（空闲、核实含退避等待、等待结果），只有离开这些状态时才读取时钟，
+ * 其余状态在同一条消息内结束，只统计进入次数，其耗时计入之后的计时状态；
+ * 通过{@link #snapshot()}拉取快照，或设置{@link MetricsListener}在调度活跃时按间隔收到快照。
+ *
+ * @Author: sheedon
+ * @Email: sheedonsun@163.com
+ * @Date: 2021/10/5 10:00 上午
+ */
+public final class SchedulerMetrics {
+
+    // 状态数量，与 DefaultMessageGroup 的状态一致
+    static final int STATE_COUNT = DefaultMessageGroup.TYPE_DESTROY + 1;
+    // 统计停留时间的状态
+    private static final int TIMED_STATES = 1 << DefaultMessageGroup.TYPE_NORMAL
+            | 1 << DefaultMessageGroup.TYPE_CHECK
+            | 1 << DefaultMessageGroup.TYPE_TIMEOUT;
+
+    // 各状态的进入次数，只在调度的执行线上写入
+    private final AtomicLongArray stateEntries = new AtomicLongArray(STATE_COUNT);
+    // 各状态的停留时间（纳秒），只在调度的执行线上写入
+    private final AtomicLongArray stateNanos = new AtomicLongArray(STATE_COUNT);
+    // 当前状态，只在调度的执行线上写入
+    private final AtomicInteger state = new AtomicInteger(DefaultMessageGroup.TYPE_NORMAL);
+    // 进入当前计时状态的时间，只在调度的执行线上写入
+    private final AtomicLong enteredAt = new AtomicLong(System.nanoTime());
+
+    // 发起的调度
+    private final StripedCounter dispatched = new StripedCounter();
+    // 发起调度的字节数
+    private final StripedCounter dispatchedBytes = new StripedCounter();
+    // 成功的调度
+    private final StripedCounter succeeded = new StripedCounter();
+    // 失败的调度，包含超时
+    private final StripedCounter failed = new StripedCounter();
+    // 超时的调度
+    private final StripedCounter timedOut = new StripedCounter();
+    // 过期丢弃的资源
+    private final StripedCounter expired = new StripedCounter();
+    // 流程失败（网络、服务器不可用等）
+    private final StripedCounter processFailures = new StripedCounter();
+    // 服务器探测次数
+    private final StripedCounter probes = new StripedCounter();
+    // 服务器探测失败次数
+    private final StripedCounter probeFailures = new StripedCounter();
+
+    // 上传耗时（毫秒）
+    private final LatencyHistogram uploadLatency = new LatencyHistogram();
+    // 退避延迟（毫秒）
+    private final LatencyHistogram backoffDelay = new LatencyHistogram();
+    // 服务器探测耗时（毫秒）
+    private final LatencyHistogram probeLatency = new LatencyHistogram();
+
+    // 注册的瞬时值
+    private final Map<String, Gauge> gauges = new ConcurrentHashMap<>();
+    // 各事件键的待处理数量
+    private volatile KeyedGauge queueDepth;
+
+    // 指标监听器
+    private volatile MetricsListener listener;
+    // 监听间隔（纳秒）
+    private volatile long reportIntervalNanos;
+    // 下一次回调监听器的时间
+    private volatile long nextReportAt;
+
+    /**
+     * 调度状态切换，下一个状态累计进入次数，离开计时状态时累计停留时间，
+     * 只在离开计时状态时读取时钟，设置了监听器且到达间隔时回调快照，在调度的执行线上调用
+     *
+     * @param previous 上一个状态
+     * @param next     下一个状态
+     */
+    public void onTransition(int previous, int next) {
+        if (isTimed(previous)) {
+            onTransition(previous, next, System.nanoTime());
+            return;
+        }
+        state.lazySet(next);
+        countEntry(next);
+    }
+
+    /**
+     * 调度状态切换，使用调用方已读取的时间，与其他记录共用一次时钟读取
+     *
+     * @param previous 上一个状态
+     * @param next     下一个状态
+     * @param now      切换时间（System.nanoTime()）
+     */
+    public void onTransition(int previous, int next, long now) {
+        state.lazySet(next);
+        countEntry(next);
+        if (!isTimed(previous)) {
+            return;
+        }
+        long entered = enteredAt.get();
+        enteredAt.lazySet(now);
+        stateNanos.lazySet(previous, stateNanos.get(previous) + now - entered);
+
+        MetricsListener listener = this.listener;
+        if (listener != null && now - nextReportAt >= 0) {
+            nextReportAt = now + reportIntervalNanos;
+            listener.onSnapshot(snapshot());
+        }
+    }
+
+    private void countEntry(int next) {
+        if (next >= 0 && next < STATE_COUNT) {
+            stateEntries.lazySet(next, stateEntries.get(next) + 1);
+        }
+    }
+
+    /**
+     * 是否统计该状态的停留时间
+     */
+    private static boolean isTimed(int state) {
+        return state >= 0 && state < STATE_COUNT && (TIMED_STATES & 1 << state) != 0;
+    }
+
+    /**
+     * 发起一次调度
+     *
+     * @param payloadBytes 调度的字节数，未知为0
+     */
+    public void onDispatched(long payloadBytes) {
+        dispatched.increment();
+        if (payloadBytes > 0) {
+            dispatchedBytes.add(payloadBytes);
+        }
+    }
+
+    /**
+     * 调度成功
+     *
+     * @param elapsedMillis 上传耗时
+     */
+    public void onSucceeded(long elapsedMillis) {
+        succeeded.increment();
+        uploadLatency.record(elapsedMillis);
+    }
+
+    /**
+     * 调度失败，超时也会经过此处
+     *
+     * @param backoffMillis 该事件键的退避延迟
+     */
+    public void onFailed(long backoffMillis) {
+        failed.increment();
+        backoffDelay.record(backoffMillis);
+    }
+
+    /**
+     * 调度超时
+     */
+    public void onTimedOut() {
+        timedOut.increment();
+    }
+
+    /**
+     * 资源超过截止时间，未调度即丢弃
+     *
+     * @param count 丢弃的数量
+     */
+    public void onExpired(int count) {
+        expired.add(count);
+    }
+
+    /**
+     * 流程失败（网络、服务器不可用等），整体进入延迟
+     *
+     * @param backoffMillis 全局的退避延迟
+     */
+    public void onProcessFailed(long backoffMillis) {
+        processFailures.increment();
+        backoffDelay.record(backoffMillis);
+    }
+
+    /**
+     * 服务器探测结束
+     *
+     * @param elapsedNanos 探测耗时
+     * @param connected    是否可以连接
+     */
+    public void onProbe(long elapsedNanos, boolean connected) {
+        probes.increment();
+        if (!connected) {
+            probeFailures.increment();
+        }
+        probeLatency.record(TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+    }
+
+    /**
+     * 注册瞬时值，同名覆盖
+     *
+     * @param name  名称
+     * @param gauge 瞬时值
+     */
+    public void registerGauge(@NonNull String name, @NonNull Gauge gauge) {
+        gauges.put(name, gauge);
+    }
+
+    /**
+     * 设置各事件键的待处理数量
+     *
+     * @param queueDepth 按事件键的瞬时值
+     */
+    public void setQueueDepth(@Nullable KeyedGauge queueDepth) {
+        this.queueDepth = queueDepth;
+    }
+
+    /**
+     * 设置指标监听器，调度活跃时每隔 intervalMillis 在状态切换时回调一次快照
+     *
+     * @param listener       指标监听器，为null时取消
+     * @param intervalMillis 间隔，需大于0
+     */
+    public void setListener(@Nullable MetricsListener listener, long intervalMillis) {
+        if (intervalMillis <= 0) throw new IllegalArgumentException("intervalMillis must be greater than 0");
+        this.reportIntervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+        this.nextReportAt = System.nanoTime() + reportIntervalNanos;
+        this.listener = listener;
+    }
+
+    /**
+     * 拉取当前指标的快照，当前状态的停留时间计算到此刻
+     */
+    @NonNull
+    public MetricsSnapshot snapshot() {
+        long now = System.nanoTime();
+        int state = this.state.get();
+        long entered = enteredAt.get();
+
+        long[] entries = new long[STATE_COUNT];
+        long[] millis = new long[STATE_COUNT];
+        for (int i = 0; i < STATE_COUNT; i++) {
+            entries[i] = stateEntries.get(i);
+            long nanos = stateNanos.get(i);
+            if (i == state && isTimed(state)) {
+                nanos += Math.max(0, now - entered);
+            }
+            millis[i] = TimeUnit.NANOSECONDS.toMillis(nanos);
+        }
+
+        Map<String, Long> gaugeValues = new HashMap<>();
+        for (Map.Entry<String, Gauge> entry : gauges.entrySet()) {
+            gaugeValues.put(entry.getKey(), entry.getValue().getValue());
+        }
+        KeyedGauge queueDepth = this.queueDepth;
+        Map<String, Long> depths = queueDepth == null
+                ? Collections.<String, Long>emptyMap() : new HashMap<>(queueDepth.getValues());
+
+        return new MetricsSnapshot(state, entries, millis,
+                dispatched.sum(), dispatchedBytes.sum(), succeeded.sum(), failed.sum(), timedOut.sum(),
+                expired.sum(), processFailures.sum(), probes.sum(), probeFailures.sum(),
+                uploadLatency.snapshot(), backoffDelay.snapshot(), probeLatency.snapshot(),
+                gaugeValues, depths);
+    }
+
+    /**
+     * 清零所有计数与直方图，不影响注册的瞬时值
+     */
+    public void reset() {
+        for (int i = 0; i < STATE_COUNT; i++) {
+            stateEntries.set(i, 0);
+            stateNanos.set(i, 0);
+        }
+        enteredAt.set(System.nanoTime());
+        dispatched.reset();
+        dispatchedBytes.reset();
+        succeeded.reset();
+        failed.reset();
+        timedOut.reset();
+        expired.reset();
+        processFailures.reset();
+        probes.reset();
+        probeFailures.reset();
+        uploadLatency.reset();
+        backoffDelay.reset();
+        probeLatency.reset();
+    }
+}
@@ -0,0 +1,73 @@
+package org.sheedon.uploader.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 分段计数器，多线程同时累加时按线程分散到不同的槽位，避免争用同一个缓存行，
+ * 读取时汇总所有槽位，适用于写多读少的计数（Android 低版本没有 LongAdder）
+ *
+ * @Author: sheedon
+ * @Email: sheedonsun@163.com
+ * @Date: 2021/10/5 9:00 上午
+ */
+public final class StripedCounter {
+
+    // 每个槽位占用的 long 数量，填充到 64 字节，避免伪共享
+    private static final int PADDING = 8;
+    // 槽位数量，为2的幂
+    private static final int STRIPES = stripes();
+
+    // 槽位，每 PADDING 个元素使用第一个
+    private final AtomicLongArray cells = new AtomicLongArray(STRIPES * PADDING);
+
+    private static int stripes() {
+        int processors = Runtime.getRuntime().availableProcessors();
+        int stripes = 1;
+        while (stripes < processors * 2 && stripes < 64) {
+            stripes <<= 1;
+        }
+        return stripes;
+    }
+
+    /**
+     * 加1
+     */
+    public void increment() {
+        add(1);
+    }
+
+    /**
+     * 累加
+     *
+     * @param value 数值
+     */
+    public void add(long value) {
+        cells.getAndAdd(index(), value);
+    }
+
+    private static int index() {
+        long id = Thread.currentThread().getId();
+        int hash = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+        return ((hash >>> 16) & (STRIPES - 1)) * PADDING;
+    }
+
+    /**
+     * 汇总所有槽位，并发累加时为近似值
+     */
+    public long sum() {
+        long sum = 0;
+        for (int i = 0; i < STRIPES; i++) {
+            sum += cells.get(i * PADDING);
+        }
+        return sum;
+    }
+
+    /**
+     * 清零
+     */
+    public void reset() {
+        for (int i = 0; i < STRIPES; i++) {
+            cells.set(i * PADDING, 0);
+        }
+    }
+}
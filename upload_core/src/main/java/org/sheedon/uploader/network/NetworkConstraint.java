@@ -0,0 +1,117 @@
+package org.sheedon.uploader.network;
+
+/**
+ * 事件键的网络约束，当前网络{@link NetworkState}满足约束时事件键才会被调度，
+ * 例如大文件只在不计费的网络上传，小而紧急的数据不设约束，在移动网络上也立即上传。
+ * <p>
+ * 网络类别未知时视为满足；带宽未知时不核实带宽，只核实是否计费。
+ *
+ * @Author: sheedon
+ * @Email: sheedonsun@163.com
+ * @Date: 2021/10/9 9:20 上午
+ */
+public final class NetworkConstraint {
+
+    // 是否要求不计费的网络
+    private final boolean unmetered;
+    // 最低下行带宽（kbps），0表示不限制
+    private final int minDownstreamKbps;
+    // 最低上行带宽（kbps），0表示不限制
+    private final int minUpstreamKbps;
+
+    private NetworkConstraint(Builder builder) {
+        this.unmetered = builder.unmetered;
+        this.minDownstreamKbps = builder.minDownstreamKbps;
+        this.minUpstreamKbps = builder.minUpstreamKbps;
+    }
+
+    /**
+     * 当前网络是否满足约束
+     *
+     * @param state 当前网络
+     * @return 是否满足
+     */
+    public boolean isSatisfiedBy(NetworkState state) {
+        if (!state.isKnown()) {
+            return true;
+        }
+        if (!state.isConnected()) {
+            return false;
+        }
+        if (unmetered && state.isMetered()) {
+            return false;
+        }
+        return satisfies(state.getDownstreamKbps(), minDownstreamKbps)
+                && satisfies(state.getUpstreamKbps(), minUpstreamKbps);
+    }
+
+    private static boolean satisfies(int kbps, int minKbps) {
+        return minKbps == 0 || kbps == NetworkState.BANDWIDTH_UNKNOWN || kbps >= minKbps;
+    }
+
+    public boolean isUnmeteredRequired() {
+        return unmetered;
+    }
+
+    public int getMinDownstreamKbps() {
+        return minDownstreamKbps;
+    }
+
+    public int getMinUpstreamKbps() {
+        return minUpstreamKbps;
+    }
+
+    @Override
+    public String toString() {
+        return "NetworkConstraint{unmetered=" + unmetered + ", minDownstreamKbps=" + minDownstreamKbps
+                + ", minUpstreamKbps=" + minUpstreamKbps + '}';
+    }
+
+    /**
+     * 网络约束构造器
+     */
+    public static class Builder {
+
+        private boolean unmetered;
+        private int minDownstreamKbps;
+        private int minUpstreamKbps;
+
+        /**
+         * 只在不计费的网络（如 Wi-Fi、以太网）上调度
+         *
+         * @return Builder 构造器
+         */
+        public Builder requireUnmetered() {
+            this.unmetered = true;
+            return this;
+        }
+
+        /**
+         * 最低下行带宽，网络未提供带宽估算时不核实
+         *
+         * @param kbps 带宽（kbps），不可小于0
+         * @return Builder 构造器
+         */
+        public Builder minDownstreamKbps(int kbps) {
+            if (kbps < 0) throw new IllegalArgumentException("minDownstreamKbps must not be negative");
+            this.minDownstreamKbps = kbps;
+            return this;
+        }
+
+        /**
+         * 最低上行带宽，网络未提供带宽估算时不核实
+         *
+         * @param kbps 带宽（kbps），不可小于0
+         * @return Builder 构造器
+         */
+        public Builder minUpstreamKbps(int kbps) {
+            if (kbps < 0) throw new IllegalArgumentException("minUpstreamKbps must not be negative");
+            this.minUpstreamKbps = kbps;
+            return this;
+        }
+
+        public NetworkConstraint build() {
+            return new NetworkConstraint(this);
+        }
+    }
+}
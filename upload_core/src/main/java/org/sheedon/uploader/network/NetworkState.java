@@ -0,0 +1,115 @@
+package org.sheedon.uploader.network;
+
+/**
+ * 当前网络的类别：是否连接、是否按流量计费，以及估算的下行/上行带宽。
+ * 由平台的网络监测（如 Android 的 NetworkCapabilities）提供，经流程链传递给事件队列，
+ * 事件队列据此只调度网络约束{@link NetworkConstraint}满足的事件键。
+ * <p>
+ * 无法得知网络类别时为{@link #UNKNOWN}，此时不限制任何事件键。
+ *
+ * @Author: sheedon
+ * @Email: sheedonsun@163.com
+ * @Date: 2021/10/9 9:00 上午
+ */
+public final class NetworkState {
+
+    // 带宽未知
+    public static final int BANDWIDTH_UNKNOWN = 0;
+
+    // 网络类别未知，不限制
+    public static final NetworkState UNKNOWN = new NetworkState(false, true, false,
+            BANDWIDTH_UNKNOWN, BANDWIDTH_UNKNOWN);
+    // 没有可用网络
+    public static final NetworkState DISCONNECTED = new NetworkState(true, false, true,
+            BANDWIDTH_UNKNOWN, BANDWIDTH_UNKNOWN);
+
+    // 是否由网络监测提供
+    private final boolean known;
+    // 是否连接
+    private final boolean connected;
+    // 是否按流量计费
+    private final boolean metered;
+    // 估算的下行带宽（kbps），未知为0
+    private final int downstreamKbps;
+    // 估算的上行带宽（kbps），未知为0
+    private final int upstreamKbps;
+
+    /**
+     * 已连接的网络
+     *
+     * @param metered        是否按流量计费
+     * @param downstreamKbps 估算的下行带宽（kbps），未知为0
+     * @param upstreamKbps   估算的上行带宽（kbps），未知为0
+     */
+    public NetworkState(boolean metered, int downstreamKbps, int upstreamKbps) {
+        this(true, true, metered, downstreamKbps, upstreamKbps);
+    }
+
+    private NetworkState(boolean known, boolean connected, boolean metered, int downstreamKbps, int upstreamKbps) {
+        this.known = known;
+        this.connected = connected;
+        this.metered = metered;
+        this.downstreamKbps = Math.max(BANDWIDTH_UNKNOWN, downstreamKbps);
+        this.upstreamKbps = Math.max(BANDWIDTH_UNKNOWN, upstreamKbps);
+    }
+
+    /**
+     * 是否由网络监测提供，未知时不限制任何事件键
+     */
+    public boolean isKnown() {
+        return known;
+    }
+
+    public boolean isConnected() {
+        return connected;
+    }
+
+    /**
+     * 是否按流量计费，如移动网络、热点
+     */
+    public boolean isMetered() {
+        return metered;
+    }
+
+    /**
+     * 估算的下行带宽（kbps），未知为{@link #BANDWIDTH_UNKNOWN}
+     */
+    public int getDownstreamKbps() {
+        return downstreamKbps;
+    }
+
+    /**
+     * 估算的上行带宽（kbps），未知为{@link #BANDWIDTH_UNKNOWN}
+     */
+    public int getUpstreamKbps() {
+        return upstreamKbps;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof NetworkState)) return false;
+        NetworkState that = (NetworkState) o;
+        return known == that.known && connected == that.connected && metered == that.metered
+                && downstreamKbps == that.downstreamKbps && upstreamKbps == that.upstreamKbps;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = (known ? 1 : 0);
+        result = 31 * result + (connected ? 1 : 0);
+        result = 31 * result + (metered ? 1 : 0);
+        result = 31 * result + downstreamKbps;
+        result = 31 * result + upstreamKbps;
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        if (!known) {
+            return "NetworkState{unknown}";
+        }
+        return "NetworkState{connected=" + connected + ", metered=" + metered
+                + ", downstreamKbps=" + downstreamKbps + ", upstreamKbps=" + upstreamKbps + '}';
+    }
+}
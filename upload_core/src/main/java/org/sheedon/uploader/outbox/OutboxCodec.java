@@ -0,0 +1,28 @@
+package org.sheedon.uploader.outbox;
+
+/**
+ * 发件箱资源编解码器，资源写入发件箱前编码，读出后解码
+ *
+ * @param <Source> 资源类型
+ * @Author: sheedon
+ * @Email: sheedonsun@163.com
+ * @Date: 2021/9/21 9:42 上午
+ */
+public interface OutboxCodec<Source> {
+
+    /**
+     * 编码
+     *
+     * @param source 资源
+     * @return 编码后的内容
+     */
+    byte[] encode(Source source);
+
+    /**
+     * 解码
+     *
+     * @param payload 编码后的内容
+     * @return 资源
+     */
+    Source decode(byte[] payload);
+}
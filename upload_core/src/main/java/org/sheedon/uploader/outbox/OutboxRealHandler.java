@@ -0,0 +1,122 @@
+package org.sheedon.uploader.outbox;
+
+import androidx.annotation.Nullable;
+
+import org.sheedon.uploader.AbstractRealHandler;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 以发件箱{@link OutboxStore}为资源的基础处理逻辑，无需自行实现取资源，
+ * 生产者通过{@link #offer(Object)}写入发件箱，按页读出未确认的记录并解码后调度，
+ * 资源处理完成移除后确认对应记录，进程被杀后重启也不会重复上传已确认的记录。
+ * 发件箱的打开与关闭由调用方负责。
+ *
+ * @param <Source> 资源类型
+ * @Author: sheedon
+ * @Email: sheedonsun@163.com
+ * @Date: 2021/9/21 2:05 下午
+ */
+public abstract class OutboxRealHandler<Source> extends AbstractRealHandler<Source> {
+
+    // 默认每页数量
+    private static final int DEFAULT_PAGE_SIZE = 100;
+
+    // 发件箱
+    private final OutboxStore store;
+    // 编解码器
+    private final OutboxCodec<Source> codec;
+    // 缓存中的资源与其记录偏移量，按引用区分
+    private final Map<Source, Long> offsets = new IdentityHashMap<>();
+
+    public OutboxRealHandler() {
+        super();
+        store = loadOutboxStore();
+        codec = loadOutboxCodec();
+    }
+
+    /**
+     * 加载发件箱
+     *
+     * @return OutboxStore 发件箱
+     */
+    protected abstract OutboxStore loadOutboxStore();
+
+    /**
+     * 加载资源编解码器
+     *
+     * @return OutboxCodec 编解码器
+     */
+    protected abstract OutboxCodec<Source> loadOutboxCodec();
+
+    /**
+     * 写入资源到发件箱，并通知有新数据
+     *
+     * @param source 资源
+     */
+    public void offer(Source source) throws IOException {
+        store.append(codec.encode(source));
+        notifyNewSource();
+    }
+
+    /**
+     * 按页读出未确认的记录，下一页游标为最后一条记录之后的偏移量
+     */
+    @Override
+    protected void loadPage(@Nullable Object cursor, int limit, OnPageCallback<Source> callback) {
+        long fromOffset = cursor instanceof Long ? (Long) cursor : 0;
+        List<OutboxRecord> records = store.read(fromOffset, limit);
+
+        List<Source> page = new ArrayList<>(records.size());
+        synchronized (offsets) {
+            for (OutboxRecord record : records) {
+                Source source = codec.decode(record.getPayload());
+                offsets.put(source, record.getOffset());
+                page.add(source);
+            }
+        }
+
+        Object nextCursor = null;
+        if (!records.isEmpty() && records.size() >= limit) {
+            nextCursor = records.get(records.size() - 1).getNextOffset();
+        }
+        callback.attachPage(page, nextCursor);
+    }
+
+    /**
+     * 发件箱始终分页读取
+     */
+    @Override
+    protected int pageSize() {
+        return DEFAULT_PAGE_SIZE;
+    }
+
+    /**
+     * 资源移除后确认对应记录
+     */
+    @Override
+    protected void onSourceRemoved(Source source) {
+        Long offset;
+        synchronized (offsets) {
+            offset = offsets.remove(source);
+        }
+        if (offset != null) {
+            store.ack(offset);
+        }
+    }
+
+    /**
+     * 销毁，不关闭发件箱
+     */
+    @Override
+    public void destroy() {
+        super.destroy();
+        synchronized (offsets) {
+            offsets.clear();
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package org.sheedon.uploader.outbox;
+
+/**
+ * 发件箱中的一条记录，由偏移量定位，确认（ack）时使用该偏移量
+ *
+ * @Author: sheedon
+ * @Email: sheedonsun@163.com
+ * @Date: 2021/9/21 9:40 上午
+ */
+public final class OutboxRecord {
+
+    // 记录偏移量
+    private final long offset;
+    // 下一条记录的偏移量
+    private final long nextOffset;
+    // 记录内容
+    private final byte[] payload;
+
+    OutboxRecord(long offset, long nextOffset, byte[] payload) {
+        this.offset = offset;
+        this.nextOffset = nextOffset;
+        this.payload = payload;
+    }
+
+    /**
+     * 记录偏移量
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * 下一条记录的偏移量，用于继续读取
+     */
+    public long getNextOffset() {
+        return nextOffset;
+    }
+
+    /**
+     * 记录内容
+     */
+    public byte[] getPayload() {
+        return payload;
+    }
+}
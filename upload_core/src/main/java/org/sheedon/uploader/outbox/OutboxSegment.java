@@ -0,0 +1,239 @@
+package org.sheedon.uploader.outbox;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * 发件箱的段文件，整个文件映射到内存中，记录依次追加
+ * 记录格式：记录长度(4) + 内容校验(4) + 确认标记(1) + 内容
+ * 记录长度最后写入，进程在写入过程中被杀时，该记录长度为0，恢复时视为未写入
+ *
+ * @Author: sheedon
+ * @Email: sheedonsun@163.com
+ * @Date: 2021/9/21 9:50 上午
+ */
+final class OutboxSegment {
+
+    // 记录头长度
+    static final int HEADER_SIZE = 9;
+    // 内容校验位置
+    private static final int CRC_POSITION = 4;
+    // 确认标记位置
+    private static final int ACK_POSITION = 8;
+    // 已确认
+    private static final byte ACKED = 1;
+
+    // 段文件
+    private final File file;
+    // 段起始偏移量
+    private final long baseOffset;
+    // 段容量
+    private final int capacity;
+    // 文件通道
+    private final FileChannel channel;
+    // 映射内存
+    private final MappedByteBuffer buffer;
+    // 写入位置
+    private int writePosition;
+    // 未确认的记录数
+    private int pendingCount;
+
+    private OutboxSegment(File file, long baseOffset, int capacity,
+                          FileChannel channel, MappedByteBuffer buffer) {
+        this.file = file;
+        this.baseOffset = baseOffset;
+        this.capacity = capacity;
+        this.channel = channel;
+        this.buffer = buffer;
+    }
+
+    /**
+     * 打开段文件，不存在则按容量创建，存在则按文件长度映射并恢复写入位置
+     *
+     * @param file       段文件
+     * @param baseOffset 段起始偏移量
+     * @param capacity   新建时的容量
+     * @return OutboxSegment 段
+     */
+    static OutboxSegment open(File file, long baseOffset, int capacity) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            long length = randomAccessFile.length();
+            if (length == 0) {
+                randomAccessFile.setLength(capacity);
+                length = capacity;
+            }
+            if (length > Integer.MAX_VALUE) {
+                throw new IOException("segment too large: " + file);
+            }
+            FileChannel channel = randomAccessFile.getChannel();
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+            OutboxSegment segment = new OutboxSegment(file, baseOffset, (int) length, channel, buffer);
+            segment.recover();
+            return segment;
+        } catch (IOException e) {
+            randomAccessFile.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 恢复写入位置与未确认数量，遇到未写完或校验失败的记录即停止，
+     * 并清空之后的内容，防止后续追加后旧数据被误认为有效记录
+     */
+    private void recover() {
+        int position = 0;
+        while (position + HEADER_SIZE <= capacity) {
+            int size = buffer.getInt(position);
+            if (size < HEADER_SIZE || position + size > capacity) {
+                break;
+            }
+            byte[] payload = readPayload(position, size);
+            if (crc(payload) != buffer.getInt(position + CRC_POSITION)) {
+                break;
+            }
+            if (buffer.get(position + ACK_POSITION) != ACKED) {
+                pendingCount++;
+            }
+            position += size;
+        }
+        writePosition = position;
+
+        for (int index = position; index < capacity; index++) {
+            if (buffer.get(index) != 0) {
+                buffer.put(index, (byte) 0);
+            }
+        }
+    }
+
+    /**
+     * 剩余可写入的字节数
+     */
+    int remaining() {
+        return capacity - writePosition;
+    }
+
+    /**
+     * 追加记录，先写入内容，最后写入记录长度
+     *
+     * @param payload 记录内容
+     * @return 记录偏移量
+     */
+    long append(byte[] payload) {
+        int position = writePosition;
+        int size = HEADER_SIZE + payload.length;
+
+        ByteBuffer duplicate = buffer.duplicate();
+        duplicate.position(position + HEADER_SIZE);
+        duplicate.put(payload);
+        buffer.putInt(position + CRC_POSITION, crc(payload));
+        buffer.put(position + ACK_POSITION, (byte) 0);
+        buffer.putInt(position, size);
+
+        writePosition += size;
+        pendingCount++;
+        return baseOffset + position;
+    }
+
+    /**
+     * 从指定偏移量开始，读取未确认的记录
+     *
+     * @param fromOffset 起始偏移量
+     * @param limit      最多读取数量
+     * @param records    读取结果
+     */
+    void read(long fromOffset, int limit, List<OutboxRecord> records) {
+        int position = (int) Math.max(0, fromOffset - baseOffset);
+        while (position < writePosition && records.size() < limit) {
+            int size = buffer.getInt(position);
+            if (buffer.get(position + ACK_POSITION) != ACKED) {
+                records.add(new OutboxRecord(baseOffset + position,
+                        baseOffset + position + size, readPayload(position, size)));
+            }
+            position += size;
+        }
+    }
+
+    /**
+     * 确认记录
+     *
+     * @param offset 记录偏移量
+     * @return 是否由本次确认
+     */
+    boolean ack(long offset) {
+        long position = offset - baseOffset;
+        if (position < 0 || position >= writePosition) {
+            return false;
+        }
+        int index = (int) position;
+        if (buffer.getInt(index) < HEADER_SIZE || buffer.get(index + ACK_POSITION) == ACKED) {
+            return false;
+        }
+        buffer.put(index + ACK_POSITION, ACKED);
+        pendingCount--;
+        return true;
+    }
+
+    /**
+     * 读取记录内容
+     */
+    private byte[] readPayload(int position, int size) {
+        byte[] payload = new byte[size - HEADER_SIZE];
+        ByteBuffer duplicate = buffer.duplicate();
+        duplicate.position(position + HEADER_SIZE);
+        duplicate.get(payload);
+        return payload;
+    }
+
+    /**
+     * 内容校验值
+     */
+    private static int crc(byte[] payload) {
+        CRC32 crc32 = new CRC32();
+        crc32.update(payload, 0, payload.length);
+        return (int) crc32.getValue();
+    }
+
+    File getFile() {
+        return file;
+    }
+
+    long getBaseOffset() {
+        return baseOffset;
+    }
+
+    int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * 下一个段的起始偏移量
+     */
+    long getEndOffset() {
+        return baseOffset + capacity;
+    }
+
+    int getPendingCount() {
+        return pendingCount;
+    }
+
+    /**
+     * 将映射内存写入磁盘
+     */
+    void sync() {
+        buffer.force();
+    }
+
+    /**
+     * 关闭文件通道
+     */
+    void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,271 @@
+package org.sheedon.uploader.outbox;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 发件箱，只追加的持久化记录存储，由多个内存映射的段文件组成
+ * 生产者追加编码后的记录，得到记录偏移量；调度上传成功后按偏移量确认（ack）记录；
+ * 段内记录全部确认后，该段文件被回收（最后一个段除外，继续用于追加）。
+ * 进程被杀后重新打开，已确认的记录不会再次读出，避免重复上传。
+ * <p>
+ * 仅依赖 java.nio，可在普通JVM中运行
+ *
+ * @Author: sheedon
+ * @Email: sheedonsun@163.com
+ * @Date: 2021/9/21 10:16 上午
+ */
+public final class OutboxStore implements Closeable {
+
+    // 默认段大小
+    public static final int DEFAULT_SEGMENT_SIZE = 1024 * 1024;
+    // 段文件后缀
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    // 存储目录
+    private final File directory;
+    // 段大小
+    private final int segmentSize;
+    // 段，按起始偏移量排序
+    private final TreeMap<Long, OutboxSegment> segments = new TreeMap<>();
+    // 当前追加的段
+    private OutboxSegment tail;
+    // 是否已关闭
+    private boolean closed;
+
+    private OutboxStore(File directory, int segmentSize) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * 按默认段大小打开发件箱
+     *
+     * @param directory 存储目录
+     * @return OutboxStore 发件箱
+     */
+    public static OutboxStore open(File directory) throws IOException {
+        return open(directory, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * 打开发件箱，目录中已有段文件则恢复
+     *
+     * @param directory   存储目录
+     * @param segmentSize 段大小
+     * @return OutboxStore 发件箱
+     */
+    public static OutboxStore open(File directory, int segmentSize) throws IOException {
+        if (segmentSize <= OutboxSegment.HEADER_SIZE) {
+            throw new IllegalArgumentException("segmentSize is too small");
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("cannot create directory: " + directory);
+        }
+
+        OutboxStore store = new OutboxStore(directory, segmentSize);
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                long baseOffset = parseBaseOffset(file.getName());
+                if (baseOffset < 0) {
+                    continue;
+                }
+                store.segments.put(baseOffset, OutboxSegment.open(file, baseOffset, segmentSize));
+            }
+        }
+
+        if (store.segments.isEmpty()) {
+            store.tail = store.createSegment(0, segmentSize);
+        } else {
+            store.tail = store.segments.lastEntry().getValue();
+            store.compact();
+        }
+        return store;
+    }
+
+    /**
+     * 追加记录，当前段空间不足时新建段，超过段大小的记录独占一个段
+     *
+     * @param payload 编码后的记录内容
+     * @return 记录偏移量
+     */
+    public synchronized long append(byte[] payload) throws IOException {
+        ensureOpen();
+        int size = OutboxSegment.HEADER_SIZE + payload.length;
+        if (tail.remaining() < size) {
+            OutboxSegment previous = tail;
+            tail = createSegment(previous.getEndOffset(), Math.max(segmentSize, size));
+            if (previous.getPendingCount() == 0) {
+                deleteSegment(previous);
+            }
+        }
+        return tail.append(payload);
+    }
+
+    /**
+     * 从指定偏移量开始读取未确认的记录
+     *
+     * @param fromOffset 起始偏移量，小于最早的段时从最早的段开始
+     * @param limit      最多读取数量
+     * @return 未确认的记录
+     */
+    public synchronized List<OutboxRecord> read(long fromOffset, int limit) {
+        ensureOpenUnchecked();
+        List<OutboxRecord> records = new ArrayList<>();
+        Long startKey = segments.floorKey(fromOffset);
+        if (startKey == null) {
+            startKey = segments.firstKey();
+        }
+        for (OutboxSegment segment : segments.tailMap(startKey, true).values()) {
+            if (records.size() >= limit) {
+                break;
+            }
+            segment.read(fromOffset, limit, records);
+        }
+        return records;
+    }
+
+    /**
+     * 确认记录，确认后不再读出，所在段全部确认后回收
+     *
+     * @param offset 记录偏移量
+     * @return 是否由本次确认
+     */
+    public synchronized boolean ack(long offset) {
+        ensureOpenUnchecked();
+        Map.Entry<Long, OutboxSegment> entry = segments.floorEntry(offset);
+        if (entry == null) {
+            return false;
+        }
+        OutboxSegment segment = entry.getValue();
+        if (!segment.ack(offset)) {
+            return false;
+        }
+        if (segment != tail && segment.getPendingCount() == 0) {
+            deleteSegment(segment);
+        }
+        return true;
+    }
+
+    /**
+     * 未确认的记录数量
+     */
+    public synchronized long pendingCount() {
+        long count = 0;
+        for (OutboxSegment segment : segments.values()) {
+            count += segment.getPendingCount();
+        }
+        return count;
+    }
+
+    /**
+     * 段文件数量
+     */
+    public synchronized int segmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * 回收全部确认的段（最后一个段除外）
+     *
+     * @return 回收的段数量
+     */
+    public synchronized int compact() {
+        int count = 0;
+        for (OutboxSegment segment : new ArrayList<>(segments.values())) {
+            if (segment != tail && segment.getPendingCount() == 0) {
+                deleteSegment(segment);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 将映射内存写入磁盘，进程被杀不会丢失已追加的记录，断电前需调用此方法
+     */
+    public synchronized void sync() {
+        if (closed) {
+            return;
+        }
+        for (OutboxSegment segment : segments.values()) {
+            segment.sync();
+        }
+    }
+
+    /**
+     * 关闭
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (OutboxSegment segment : segments.values()) {
+            segment.sync();
+            segment.close();
+        }
+        segments.clear();
+    }
+
+    /**
+     * 新建段
+     */
+    private OutboxSegment createSegment(long baseOffset, int capacity) throws IOException {
+        File file = new File(directory, String.format(Locale.ROOT, "%020d%s", baseOffset, SEGMENT_SUFFIX));
+        OutboxSegment segment = OutboxSegment.open(file, baseOffset, capacity);
+        segments.put(baseOffset, segment);
+        return segment;
+    }
+
+    /**
+     * 删除段
+     */
+    private void deleteSegment(OutboxSegment segment) {
+        segments.remove(segment.getBaseOffset());
+        try {
+            segment.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        if (!segment.getFile().delete()) {
+            segment.getFile().deleteOnExit();
+        }
+    }
+
+    /**
+     * 通过文件名解析段起始偏移量
+     *
+     * @return 起始偏移量，非段文件返回-1
+     */
+    private static long parseBaseOffset(String name) {
+        if (!name.endsWith(SEGMENT_SUFFIX)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("outbox is closed");
+        }
+    }
+
+    private void ensureOpenUnchecked() {
+        if (closed) {
+            throw new IllegalStateException("outbox is closed");
+        }
+    }
+}
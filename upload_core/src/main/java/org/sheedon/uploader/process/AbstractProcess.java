@@ -0,0 +1,138 @@
+package org.sheedon.uploader.process;
+
+import org.sheedon.uploader.metrics.SchedulerMetrics;
+import org.sheedon.uploader.network.NetworkState;
+
+/**
+ * 抽象流程，链式调用，依次执行当前任务后，在调度执行下一个任务
+ *
+ * @Author: sheedon
+ * @Email: sheedonsun@163.com
+ * @Date: 2021/9/11 11:22 下午
+ */
+public abstract class AbstractProcess {
+
+    // 需要调度的下一个流程
+    protected AbstractProcess nextProcess;
+    // 流程恢复可用的监听器
+    private volatile OnRecoveryListener recoveryListener;
+    // 调度指标，由调度客户端绑定，未绑定时为null
+    protected volatile SchedulerMetrics metrics;
+
+    /**
+     * 执行下一个流程
+     *
+     * @param nextProcess 下一个流程
+     */
+    public void setNextProcess(AbstractProcess nextProcess) {
+        this.nextProcess = nextProcess;
+        if (nextProcess != null && recoveryListener != null) {
+            nextProcess.setOnRecoveryListener(recoveryListener);
+        }
+        if (nextProcess != null && metrics != null) {
+            nextProcess.setMetrics(metrics);
+        }
+    }
+
+    /**
+     * 设置调度指标，并传递给后续流程，由调度客户端绑定，用于记录流程内的指标（如服务器探测耗时）
+     *
+     * @param metrics 调度指标
+     */
+    public void setMetrics(SchedulerMetrics metrics) {
+        this.metrics = metrics;
+        if (nextProcess != null) {
+            nextProcess.setMetrics(metrics);
+        }
+    }
+
+    /**
+     * 设置流程恢复可用的监听器，并传递给后续流程，由调度客户端绑定，用于立即唤醒调度
+     *
+     * @param listener 恢复监听器
+     */
+    public void setOnRecoveryListener(OnRecoveryListener listener) {
+        this.recoveryListener = listener;
+        if (nextProcess != null) {
+            nextProcess.setOnRecoveryListener(listener);
+        }
+    }
+
+    /**
+     * 通知流程已从不可用恢复为可用（如网络重新连接、服务器恢复响应），
+     * 先告知后续流程，再唤醒调度，调度无需等待延迟结束，立即重新核实
+     */
+    protected void notifyRecovered() {
+        if (nextProcess != null) {
+            nextProcess.onRecovered();
+        }
+        OnRecoveryListener listener = recoveryListener;
+        if (listener != null) {
+            listener.onRecovered();
+        }
+    }
+
+    /**
+     * 上游流程已从不可用恢复为可用，默认传递给后续流程
+     * 需要在恢复时调整行为的流程（如限流的随机起始偏移）可重写
+     */
+    public void onRecovered() {
+        if (nextProcess != null) {
+            nextProcess.onRecovered();
+        }
+    }
+
+    /**
+     * 网络类别发生变化（计费、带宽），默认传递给后续流程，
+     * 由「事件真实执行流程」交给事件队列，按事件键的网络约束重新核实
+     *
+     * @param state 当前网络
+     */
+    public void onNetworkChanged(NetworkState state) {
+        if (nextProcess != null) {
+            nextProcess.onNetworkChanged(state);
+        }
+    }
+
+    /**
+     * 流程是否已就绪，在核实事件时调用，默认询问后续流程
+     * 未就绪（如首次探测尚未完成）时不发起调度，也不视为失败，就绪后由{@link #notifyRecovered()}唤醒调度
+     */
+    public boolean isReady() {
+        return nextProcess == null || nextProcess.isReady();
+    }
+
+    /**
+     * 执行任务，并且返回当前执行是否成功
+     */
+    public abstract boolean execute();
+
+    /**
+     * 单次调度的结果反馈，在调度的执行线上调用，默认传递给后续流程
+     * 需要根据上传结果调整行为的流程（如熔断）可重写
+     *
+     * @param key     事件键
+     * @param success 是否成功，超时视为失败
+     */
+    public void onResult(String key, boolean success) {
+        if (nextProcess != null) {
+            nextProcess.onResult(key, success);
+        }
+    }
+
+    /**
+     * 销毁
+     */
+    public abstract void onDestroy();
+
+    /**
+     * 流程恢复可用的监听器
+     */
+    public interface OnRecoveryListener {
+
+        /**
+         * 流程已恢复可用
+         */
+        void onRecovered();
+    }
+}
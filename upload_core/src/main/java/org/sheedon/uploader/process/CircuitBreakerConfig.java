@@ -0,0 +1,137 @@
+package org.sheedon.uploader.process;
+
+/**
+ * 熔断配置，用于{@link CircuitBreakerProcess}
+ * 按最近 windowSize 次调度结果统计失败率，至少 minimumCalls 次后失败率达到阈值则熔断（打开），
+ * 打开 openDurationMillis 后进入半开，放行 halfOpenProbes 次试探调度，全部成功则关闭，任一失败重新打开。
+ *
+ * @Author: sheedon
+ * @Email: sheedonsun@163.com
+ * @Date: 2021/9/29 10:30 上午
+ */
+public final class CircuitBreakerConfig {
+
+    // 滑动窗口大小（调度次数）
+    private final int windowSize;
+    // 计算失败率所需的最少调度次数
+    private final int minimumCalls;
+    // 失败率阈值，0 ~ 1
+    private final float failureRateThreshold;
+    // 打开状态持续时间
+    private final long openDurationMillis;
+    // 半开状态允许的试探调度次数
+    private final int halfOpenProbes;
+
+    private CircuitBreakerConfig(Builder builder) {
+        this.windowSize = builder.windowSize;
+        this.minimumCalls = Math.min(builder.minimumCalls, builder.windowSize);
+        this.failureRateThreshold = builder.failureRateThreshold;
+        this.openDurationMillis = builder.openDurationMillis;
+        this.halfOpenProbes = builder.halfOpenProbes;
+    }
+
+    /**
+     * 默认配置：窗口20次，至少10次，失败率50%，打开30秒，半开试探2次
+     */
+    public static CircuitBreakerConfig defaultConfig() {
+        return new Builder().build();
+    }
+
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    public int getMinimumCalls() {
+        return minimumCalls;
+    }
+
+    public float getFailureRateThreshold() {
+        return failureRateThreshold;
+    }
+
+    public long getOpenDurationMillis() {
+        return openDurationMillis;
+    }
+
+    public int getHalfOpenProbes() {
+        return halfOpenProbes;
+    }
+
+    /**
+     * 熔断配置构造器
+     */
+    public static class Builder {
+
+        private int windowSize = 20;
+        private int minimumCalls = 10;
+        private float failureRateThreshold = 0.5f;
+        private long openDurationMillis = 30000;
+        private int halfOpenProbes = 2;
+
+        /**
+         * 滑动窗口大小
+         *
+         * @param windowSize 最近调度次数，需大于0
+         * @return Builder 构造器
+         */
+        public Builder windowSize(int windowSize) {
+            if (windowSize < 1) throw new IllegalArgumentException("windowSize must be greater than 0");
+            this.windowSize = windowSize;
+            return this;
+        }
+
+        /**
+         * 计算失败率所需的最少调度次数，不超过窗口大小
+         *
+         * @param minimumCalls 最少调度次数，需大于0
+         * @return Builder 构造器
+         */
+        public Builder minimumCalls(int minimumCalls) {
+            if (minimumCalls < 1) throw new IllegalArgumentException("minimumCalls must be greater than 0");
+            this.minimumCalls = minimumCalls;
+            return this;
+        }
+
+        /**
+         * 失败率阈值
+         *
+         * @param failureRateThreshold 0 ~ 1，失败率不低于该值时打开
+         * @return Builder 构造器
+         */
+        public Builder failureRateThreshold(float failureRateThreshold) {
+            if (failureRateThreshold <= 0 || failureRateThreshold > 1) {
+                throw new IllegalArgumentException("failureRateThreshold must be in (0, 1]");
+            }
+            this.failureRateThreshold = failureRateThreshold;
+            return this;
+        }
+
+        /**
+         * 打开状态持续时间
+         *
+         * @param openDurationMillis 持续时间，需大于0
+         * @return Builder 构造器
+         */
+        public Builder openDuration(long openDurationMillis) {
+            if (openDurationMillis <= 0) throw new IllegalArgumentException("openDuration must be greater than 0");
+            this.openDurationMillis = openDurationMillis;
+            return this;
+        }
+
+        /**
+         * 半开状态允许的试探调度次数
+         *
+         * @param halfOpenProbes 试探次数，需大于0
+         * @return Builder 构造器
+         */
+        public Builder halfOpenProbes(int halfOpenProbes) {
+            if (halfOpenProbes < 1) throw new IllegalArgumentException("halfOpenProbes must be greater than 0");
+            this.halfOpenProbes = halfOpenProbes;
+            return this;
+        }
+
+        public CircuitBreakerConfig build() {
+            return new CircuitBreakerConfig(this);
+        }
+    }
+}
@@ -0,0 +1,367 @@
+package org.sheedon.uploader.process;
+
+import androidx.annotation.IntDef;
+import androidx.annotation.NonNull;
+
+import org.sheedon.uploader.EventFilter;
+import org.sheedon.uploader.EventQueue;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 熔断流程，位于「事件真实执行流程 ScheduleProcess」之前，按最近的上传结果决定是否放行调度。
+ * 三种状态：
+ * 关闭 - 正常放行，按滑动窗口统计失败率，达到阈值后打开；
+ * 打开 - 不再放行，持续一段时间后进入半开；
+ * 半开 - 放行有限次数的试探调度，全部成功则关闭，任一失败重新打开。
+ * <p>
+ * 熔断按「熔断名」区分，默认为事件键，可通过{@link EndpointResolver}将多个事件键归并到同一服务端点；
+ * 每个熔断名可单独配置，未配置的使用默认配置。
+ * 熔断注册为事件队列的准入过滤{@link EventFilter}，打开的事件键在取出事件时即被跳过，
+ * 不会引起全局的失败延迟，打开到期后唤醒调度进行试探。
+ *
+ * @Author: sheedon
+ * @Email: sheedonsun@163.com
+ * @Date: 2021/9/29 11:00 上午
+ */
+public class CircuitBreakerProcess extends AbstractProcess implements EventFilter {
+
+    // 关闭，正常放行
+    public static final int STATE_CLOSED = 0;
+    // 打开，不放行
+    public static final int STATE_OPEN = 1;
+    // 半开，放行有限次数的试探调度
+    public static final int STATE_HALF_OPEN = 2;
+
+    @IntDef({STATE_CLOSED, STATE_OPEN, STATE_HALF_OPEN})
+    @Retention(RetentionPolicy.SOURCE)
+    public @interface State {
+    }
+
+    // 事件队列
+    private final EventQueue queue;
+    // 默认配置
+    private final CircuitBreakerConfig defaultConfig;
+    // 按熔断名单独配置
+    private final Map<String, CircuitBreakerConfig> configs = new ConcurrentHashMap<>();
+    // 熔断名对应的熔断器
+    private final ConcurrentHashMap<String, Circuit> circuits = new ConcurrentHashMap<>();
+    // 事件键到服务端点的映射
+    private volatile EndpointResolver endpointResolver;
+    // 时钟
+    private final Clock clock;
+
+    /**
+     * 熔断流程，并注册为事件队列的准入过滤
+     *
+     * @param queue         事件队列
+     * @param defaultConfig 默认配置
+     */
+    public CircuitBreakerProcess(@NonNull EventQueue queue, @NonNull CircuitBreakerConfig defaultConfig) {
+        this(queue, defaultConfig, Clock.SYSTEM);
+    }
+
+    CircuitBreakerProcess(@NonNull EventQueue queue, @NonNull CircuitBreakerConfig defaultConfig,
+                          @NonNull Clock clock) {
+        this.queue = queue;
+        this.defaultConfig = defaultConfig;
+        this.clock = clock;
+        queue.addEventFilter(this);
+    }
+
+    /**
+     * 为事件键或服务端点单独配置，需在调度开始前设置
+     *
+     * @param name   事件键，或由{@link EndpointResolver}返回的服务端点
+     * @param config 熔断配置
+     */
+    public void setConfig(@NonNull String name, @NonNull CircuitBreakerConfig config) {
+        configs.put(name, config);
+        circuits.remove(name);
+    }
+
+    /**
+     * 设置事件键到服务端点的映射，映射到同一服务端点的事件键共用一个熔断器
+     *
+     * @param endpointResolver 映射
+     */
+    public void setEndpointResolver(EndpointResolver endpointResolver) {
+        this.endpointResolver = endpointResolver;
+        circuits.clear();
+    }
+
+    /**
+     * 执行任务，当前事件键不放行时直接返回失败
+     * 正常情况下不放行的事件键已在事件队列中跳过，这里仅作兜底
+     * 后续流程没有发起调度时不会有结果反馈，归还占用的试探名额
+     */
+    @Override
+    public boolean execute() {
+        String key = queue.getCurrentKey();
+        if (key == null) {
+            return false;
+        }
+        Circuit circuit = circuitOf(key);
+        if (!circuit.tryAcquire(now())) {
+            return false;
+        }
+
+        if (nextProcess != null && nextProcess.execute()) {
+            return true;
+        }
+        circuit.release();
+        return false;
+    }
+
+    /**
+     * 记录上传结果
+     */
+    @Override
+    public void onResult(String key, boolean success) {
+        if (key != null) {
+            circuitOf(key).onResult(success, now());
+        }
+        super.onResult(key, success);
+    }
+
+    @Override
+    public boolean accept(@NonNull String key) {
+        return circuitOf(key).canAcquire(now());
+    }
+
+    @Override
+    public long acceptDelay(@NonNull String key) {
+        return circuitOf(key).remainingOpen(now());
+    }
+
+    @Override
+    public long nextAcceptDelay() {
+        long now = now();
+        long min = 0;
+        for (Circuit circuit : circuits.values()) {
+            long remaining = circuit.remainingOpen(now);
+            if (remaining > 0 && (min == 0 || remaining < min)) {
+                min = remaining;
+            }
+        }
+        return min;
+    }
+
+    /**
+     * 事件键当前的熔断状态
+     *
+     * @param key 事件键
+     */
+    @State
+    public int getState(@NonNull String key) {
+        return circuitOf(key).state(now());
+    }
+
+    /**
+     * 事件键当前窗口内的失败率，调度次数不足时返回-1
+     *
+     * @param key 事件键
+     */
+    public float getFailureRate(@NonNull String key) {
+        return circuitOf(key).failureRate();
+    }
+
+    /**
+     * 获取事件键所属的熔断器
+     */
+    private Circuit circuitOf(String key) {
+        EndpointResolver resolver = endpointResolver;
+        String name = resolver == null ? key : resolver.endpointOf(key);
+        if (name == null) {
+            name = key;
+        }
+        Circuit circuit = circuits.get(name);
+        if (circuit == null) {
+            CircuitBreakerConfig config = configs.get(name);
+            circuit = new Circuit(config != null ? config : defaultConfig);
+            Circuit previous = circuits.putIfAbsent(name, circuit);
+            if (previous != null) {
+                circuit = previous;
+            }
+        }
+        return circuit;
+    }
+
+    private long now() {
+        return TimeUnit.NANOSECONDS.toMillis(clock.nanoTime());
+    }
+
+    /**
+     * 销毁
+     */
+    @Override
+    public void onDestroy() {
+        queue.removeEventFilter(this);
+        circuits.clear();
+        if (nextProcess != null) {
+            nextProcess.onDestroy();
+        }
+    }
+
+    /**
+     * 事件键到服务端点的映射
+     */
+    public interface EndpointResolver {
+
+        /**
+         * 事件键所属的服务端点
+         *
+         * @param key 事件键
+         * @return 服务端点，返回null时按事件键区分
+         */
+        String endpointOf(@NonNull String key);
+    }
+
+    /**
+     * 单个熔断器，按次数的滑动窗口统计失败率
+     */
+    private static final class Circuit {
+
+        private final CircuitBreakerConfig config;
+        // 最近调度结果的环形窗口，true为失败
+        private final boolean[] window;
+        // 窗口内的调度次数
+        private int count;
+        // 下一次写入的位置
+        private int index;
+        // 窗口内的失败次数
+        private int failures;
+        // 状态
+        private int state = STATE_CLOSED;
+        // 打开的时间
+        private long openedAt;
+        // 半开状态已放行的试探次数
+        private int probesIssued;
+        // 半开状态试探成功的次数
+        private int probesSucceeded;
+
+        Circuit(CircuitBreakerConfig config) {
+            this.config = config;
+            this.window = new boolean[config.getWindowSize()];
+        }
+
+        /**
+         * 当前状态，打开到期后转为半开
+         */
+        synchronized int state(long now) {
+            if (state == STATE_OPEN && now - openedAt >= config.getOpenDurationMillis()) {
+                state = STATE_HALF_OPEN;
+                probesIssued = 0;
+                probesSucceeded = 0;
+            }
+            return state;
+        }
+
+        /**
+         * 是否可以放行，不占用试探名额
+         */
+        synchronized boolean canAcquire(long now) {
+            int state = state(now);
+            return state == STATE_CLOSED
+                    || (state == STATE_HALF_OPEN && probesIssued < config.getHalfOpenProbes());
+        }
+
+        /**
+         * 放行一次调度，半开状态占用一个试探名额
+         */
+        synchronized boolean tryAcquire(long now) {
+            if (!canAcquire(now)) {
+                return false;
+            }
+            if (state == STATE_HALF_OPEN) {
+                probesIssued++;
+            }
+            return true;
+        }
+
+        /**
+         * 归还未发起调度的试探名额
+         */
+        synchronized void release() {
+            if (state == STATE_HALF_OPEN && probesIssued > 0) {
+                probesIssued--;
+            }
+        }
+
+        /**
+         * 记录调度结果
+         */
+        synchronized void onResult(boolean success, long now) {
+            int state = state(now);
+            if (state == STATE_HALF_OPEN) {
+                if (!success) {
+                    open(now);
+                } else if (++probesSucceeded >= config.getHalfOpenProbes()) {
+                    close();
+                }
+                return;
+            }
+            if (state == STATE_OPEN) {
+                // 打开前发起的调度迟到的结果，不计入窗口
+                return;
+            }
+
+            record(!success);
+            float rate = failureRate();
+            if (rate >= 0 && rate >= config.getFailureRateThreshold()) {
+                open(now);
+            }
+        }
+
+        /**
+         * 窗口内的失败率，调度次数不足时返回-1
+         */
+        synchronized float failureRate() {
+            if (count < config.getMinimumCalls()) {
+                return -1;
+            }
+            return (float) failures / count;
+        }
+
+        /**
+         * 打开剩余的时间
+         */
+        synchronized long remainingOpen(long now) {
+            if (state != STATE_OPEN) {
+                return 0;
+            }
+            return Math.max(0, openedAt + config.getOpenDurationMillis() - now);
+        }
+
+        private void record(boolean failure) {
+            if (count == window.length) {
+                if (window[index]) {
+                    failures--;
+                }
+            } else {
+                count++;
+            }
+            window[index] = failure;
+            if (failure) {
+                failures++;
+            }
+            index = (index + 1) % window.length;
+        }
+
+        private void open(long now) {
+            state = STATE_OPEN;
+            openedAt = now;
+        }
+
+        private void close() {
+            state = STATE_CLOSED;
+            count = 0;
+            index = 0;
+            failures = 0;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package org.sheedon.uploader.process;
+
+/**
+ * 流程内使用的单调时钟，默认为{@link System#nanoTime()}，测试时替换为固定的时间
+ *
+ * @Author: sheedon
+ * @Email: sheedonsun@163.com
+ * @Date: 2021/10/13 10:00 上午
+ */
+interface Clock {
+
+    // 系统时钟
+    Clock SYSTEM = System::nanoTime;
+
+    /**
+     * 当前时间（纳秒），只用于计算时间差
+     */
+    long nanoTime();
+}
@@ -0,0 +1,111 @@
+package org.sheedon.uploader.process;
+
+/**
+ * 限流配置，用于{@link RateLimitProcess}
+ * 按令牌桶限制调度次数（次/秒）与上传字节数（字节/秒），两者可单独或同时配置，
+ * 桶容量决定允许的突发量，默认为1秒的量。
+ *
+ * @Author: sheedon
+ * @Email: sheedonsun@163.com
+ * @Date: 2021/10/4 10:00 上午
+ */
+public final class RateLimitConfig {
+
+    // 每秒调度次数，0表示不限制
+    private final double requestsPerSecond;
+    // 调度次数的桶容量
+    private final double requestBurst;
+    // 每秒上传字节数，0表示不限制
+    private final long bytesPerSecond;
+    // 上传字节数的桶容量
+    private final long byteBurst;
+
+    private RateLimitConfig(Builder builder) {
+        this.requestsPerSecond = builder.requestsPerSecond;
+        this.requestBurst = builder.requestBurst > 0 ? builder.requestBurst : Math.max(1, builder.requestsPerSecond);
+        this.bytesPerSecond = builder.bytesPerSecond;
+        this.byteBurst = builder.byteBurst > 0 ? builder.byteBurst : builder.bytesPerSecond;
+    }
+
+    public double getRequestsPerSecond() {
+        return requestsPerSecond;
+    }
+
+    public double getRequestBurst() {
+        return requestBurst;
+    }
+
+    public long getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    public long getByteBurst() {
+        return byteBurst;
+    }
+
+    /**
+     * 限流配置构造器
+     */
+    public static class Builder {
+
+        private double requestsPerSecond;
+        private double requestBurst;
+        private long bytesPerSecond;
+        private long byteBurst;
+
+        /**
+         * 限制每秒调度次数
+         *
+         * @param requestsPerSecond 每秒调度次数，需大于0，可小于1（如0.2即每5秒一次）
+         * @return Builder 构造器
+         */
+        public Builder requestsPerSecond(double requestsPerSecond) {
+            if (requestsPerSecond <= 0) throw new IllegalArgumentException("requestsPerSecond must be greater than 0");
+            this.requestsPerSecond = requestsPerSecond;
+            return this;
+        }
+
+        /**
+         * 调度次数允许的突发量
+         *
+         * @param requestBurst 桶容量，不小于1，默认为1秒的调度次数
+         * @return Builder 构造器
+         */
+        public Builder requestBurst(double requestBurst) {
+            if (requestBurst < 1) throw new IllegalArgumentException("requestBurst must not be less than 1");
+            this.requestBurst = requestBurst;
+            return this;
+        }
+
+        /**
+         * 限制每秒上传字节数，按调度的字节数扣除，允许单次调度超出余量，超出部分等待补充后才能再次调度
+         *
+         * @param bytesPerSecond 每秒上传字节数，需大于0
+         * @return Builder 构造器
+         */
+        public Builder bytesPerSecond(long bytesPerSecond) {
+            if (bytesPerSecond <= 0) throw new IllegalArgumentException("bytesPerSecond must be greater than 0");
+            this.bytesPerSecond = bytesPerSecond;
+            return this;
+        }
+
+        /**
+         * 上传字节数允许的突发量
+         *
+         * @param byteBurst 桶容量，需大于0，默认为1秒的字节数
+         * @return Builder 构造器
+         */
+        public Builder byteBurst(long byteBurst) {
+            if (byteBurst <= 0) throw new IllegalArgumentException("byteBurst must be greater than 0");
+            this.byteBurst = byteBurst;
+            return this;
+        }
+
+        public RateLimitConfig build() {
+            if (requestsPerSecond == 0 && bytesPerSecond == 0) {
+                throw new IllegalStateException("please set requestsPerSecond or bytesPerSecond");
+            }
+            return new RateLimitConfig(this);
+        }
+    }
+}
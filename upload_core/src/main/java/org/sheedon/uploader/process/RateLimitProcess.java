@@ -0,0 +1,241 @@
+package org.sheedon.uploader.process;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.sheedon.uploader.EventFilter;
+import org.sheedon.uploader.EventQueue;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 限流流程，位于「事件真实执行流程 ScheduleProcess」之前，按令牌桶限制调度次数与上传字节数，
+ * 可配置整个客户端的全局限制，以及按事件键单独的限制，两者同时满足才放行。
+ * <p>
+ * 限流注册为事件队列的准入过滤{@link EventFilter}：令牌不足的事件键在取出事件时跳过，
+ * 并按令牌补充到位的准确时间挂起与唤醒调度，无需轮询；每次调度发起后按调度次数与字节数扣除令牌。
+ * <p>
+ * 随机起始偏移：流程创建时，以及上游流程恢复可用（如网络重新连接）时，
+ * 在 [0, 起始偏移] 内随机推迟第一次放行，避免大量设备同时恢复后一起上传。
+ *
+ * @Author: sheedon
+ * @Email: sheedonsun@163.com
+ * @Date: 2021/10/4 11:00 上午
+ */
+public class RateLimitProcess extends AbstractProcess implements EventFilter {
+
+    // 事件队列
+    private final EventQueue queue;
+    // 全局的令牌桶
+    private final Limiter global;
+    // 按事件键单独的配置
+    private final Map<String, RateLimitConfig> configs = new ConcurrentHashMap<>();
+    // 事件键对应的令牌桶
+    private final ConcurrentHashMap<String, Limiter> limiters = new ConcurrentHashMap<>();
+    // 随机起始偏移的上限
+    private final long startOffsetMillis;
+    // 在此之前不放行（纳秒）
+    private volatile long notBefore;
+    // 时钟
+    private final Clock clock;
+
+    /**
+     * 限流流程，并注册为事件队列的准入过滤
+     *
+     * @param queue             事件队列
+     * @param globalConfig      全局限制，为null时只按事件键限制
+     * @param startOffsetMillis 随机起始偏移的上限，0表示不偏移
+     */
+    public RateLimitProcess(@NonNull EventQueue queue, @Nullable RateLimitConfig globalConfig, long startOffsetMillis) {
+        this(queue, globalConfig, startOffsetMillis, Clock.SYSTEM);
+    }
+
+    RateLimitProcess(@NonNull EventQueue queue, @Nullable RateLimitConfig globalConfig, long startOffsetMillis,
+                     @NonNull Clock clock) {
+        if (startOffsetMillis < 0) throw new IllegalArgumentException("startOffset must not be negative");
+        this.queue = queue;
+        this.startOffsetMillis = startOffsetMillis;
+        this.clock = clock;
+        long now = clock.nanoTime();
+        this.global = globalConfig == null ? null : new Limiter(globalConfig, now);
+        applyStartOffset(now);
+        queue.addEventFilter(this);
+    }
+
+    /**
+     * 为事件键单独配置限制，需在调度开始前设置
+     *
+     * @param key    事件键
+     * @param config 限流配置
+     */
+    public void setConfig(@NonNull String key, @NonNull RateLimitConfig config) {
+        configs.put(key, config);
+        limiters.remove(key);
+    }
+
+    /**
+     * 在 [0, 起始偏移] 内随机推迟下一次放行
+     */
+    private void applyStartOffset(long now) {
+        if (startOffsetMillis > 0) {
+            notBefore = now + TimeUnit.MILLISECONDS.toNanos(
+                    ThreadLocalRandom.current().nextLong(startOffsetMillis + 1));
+        }
+    }
+
+    /**
+     * 执行任务，令牌不足的事件键已在事件队列中跳过
+     */
+    @Override
+    public boolean execute() {
+        if (nextProcess != null) {
+            return nextProcess.execute();
+        }
+        return false;
+    }
+
+    /**
+     * 上游流程恢复可用，重新随机推迟第一次放行
+     */
+    @Override
+    public void onRecovered() {
+        applyStartOffset(clock.nanoTime());
+        super.onRecovered();
+    }
+
+    @Override
+    public boolean accept(@NonNull String key) {
+        return acceptDelay(key) == 0;
+    }
+
+    @Override
+    public long acceptDelay(@NonNull String key) {
+        long now = clock.nanoTime();
+        long nanos = Math.max(0, notBefore - now);
+        if (global != null) {
+            nanos = Math.max(nanos, global.nanosUntilReady(now));
+        }
+        Limiter limiter = limiterOf(key, now);
+        if (limiter != null) {
+            nanos = Math.max(nanos, limiter.nanosUntilReady(now));
+        }
+        return toMillis(nanos);
+    }
+
+    /**
+     * 全局限制的剩余时间，按事件键的限制由{@link #acceptDelay(String)}按事件键挂起
+     */
+    @Override
+    public long nextAcceptDelay() {
+        long now = clock.nanoTime();
+        long nanos = Math.max(0, notBefore - now);
+        if (global != null) {
+            nanos = Math.max(nanos, global.nanosUntilReady(now));
+        }
+        return toMillis(nanos);
+    }
+
+    /**
+     * 调度发起后扣除令牌
+     */
+    @Override
+    public void onDispatched(@NonNull String key, long payloadBytes) {
+        long now = clock.nanoTime();
+        if (global != null) {
+            global.consume(payloadBytes, now);
+        }
+        Limiter limiter = limiterOf(key, now);
+        if (limiter != null) {
+            limiter.consume(payloadBytes, now);
+        }
+    }
+
+    /**
+     * 事件键当前可用的调度次数令牌，未单独配置时返回全局的令牌，均未配置返回-1
+     *
+     * @param key 事件键
+     */
+    public double getAvailableRequests(@NonNull String key) {
+        long now = clock.nanoTime();
+        Limiter limiter = limiterOf(key, now);
+        if (limiter == null) {
+            limiter = global;
+        }
+        return limiter == null || limiter.requests == null ? -1 : limiter.requests.available(now);
+    }
+
+    private Limiter limiterOf(String key, long now) {
+        Limiter limiter = limiters.get(key);
+        if (limiter == null) {
+            RateLimitConfig config = configs.get(key);
+            if (config == null) {
+                return null;
+            }
+            limiter = new Limiter(config, now);
+            Limiter previous = limiters.putIfAbsent(key, limiter);
+            if (previous != null) {
+                limiter = previous;
+            }
+        }
+        return limiter;
+    }
+
+    private static long toMillis(long nanos) {
+        return nanos <= 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(nanos + 999_999);
+    }
+
+    /**
+     * 销毁
+     */
+    @Override
+    public void onDestroy() {
+        queue.removeEventFilter(this);
+        limiters.clear();
+        if (nextProcess != null) {
+            nextProcess.onDestroy();
+        }
+    }
+
+    /**
+     * 一组令牌桶：调度次数与上传字节数
+     */
+    private static final class Limiter {
+        // 调度次数，未限制时为null
+        final TokenBucket requests;
+        // 上传字节数，未限制时为null
+        final TokenBucket bytes;
+
+        Limiter(RateLimitConfig config, long now) {
+            requests = config.getRequestsPerSecond() > 0
+                    ? new TokenBucket(config.getRequestsPerSecond(), config.getRequestBurst(), now) : null;
+            bytes = config.getBytesPerSecond() > 0
+                    ? new TokenBucket(config.getBytesPerSecond(), config.getByteBurst(), now) : null;
+        }
+
+        /**
+         * 至少一次调度令牌，且字节数没有透支的剩余时间
+         */
+        long nanosUntilReady(long now) {
+            long nanos = 0;
+            if (requests != null) {
+                nanos = requests.nanosUntil(1, now);
+            }
+            if (bytes != null) {
+                nanos = Math.max(nanos, bytes.nanosUntil(0, now));
+            }
+            return nanos;
+        }
+
+        void consume(long payloadBytes, long now) {
+            if (requests != null) {
+                requests.consume(1, now);
+            }
+            if (bytes != null) {
+                bytes.consume(Math.max(0, payloadBytes), now);
+            }
+        }
+    }
+}
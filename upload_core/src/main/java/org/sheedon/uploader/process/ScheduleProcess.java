@@ -2,11 +2,13 @@ package org.sheedon.uploader.process;
 
 import org.sheedon.uploader.EventListener;
 import org.sheedon.uploader.EventQueue;
+import org.sheedon.uploader.InFlightCall;
 import org.sheedon.uploader.MessageHandler;
+import org.sheedon.uploader.network.NetworkState;
 
 /**
  * 执行真实业务的调度流程，拿到EventQueue中的事件监听器EventListener，
- * 调用执行动作handleEvent，发起真实处理。
+ * 为本次调度创建在途调度{@link InFlightCall}，调用执行动作handleEvent，发起真实处理。
  *
  * @Author: sheedon
  * @Email: sheedonsun@163.com
@@ -33,13 +35,27 @@ public class ScheduleProcess extends AbstractProcess {
     @Override
     public boolean execute() {
         EventListener listener = queue.getEventListenerByKey();
-        if (listener == null) {
+        String key = queue.getCurrentKey();
+        if (listener == null || key == null) {
             return false;
         }
-        listener.handleEvent(workHandler);
+        InFlightCall call = workHandler.newCall(key);
+        listener.handleEvent(call);
         return true;
     }
 
+    /**
+     * 网络类别发生变化，更新事件队列的当前网络，并唤醒调度核实等待网络的事件键
+     *
+     * @param state 当前网络
+     */
+    @Override
+    public void onNetworkChanged(NetworkState state) {
+        queue.setNetworkState(state);
+        workHandler.wakeUp();
+        super.onNetworkChanged(state);
+    }
+
     /**
      * 销毁
      */
@@ -0,0 +1,271 @@
+package org.sheedon.uploader.process;
+
+import org.sheedon.uploader.INetConnected;
+import org.sheedon.uploader.metrics.SchedulerMetrics;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 服务器连接检测流程，通过发起一个连接服务器请求，通过code == 200 来判断网络是否连接成功
+ * 为执行真实调度的上一步
+ * <p>
+ * 探测由后台健康监测执行，不阻塞调度的执行线：
+ * execute() 只读取缓存的健康状态，可以连接时超过 INTERVAL 在后台重新探测；
+ * 无法连接时后台每隔 3 * INTERVAL 重新探测，恢复连接后通知{@link OnRecoveryListener}立即唤醒调度。
+ * 首次探测完成前流程未就绪，调度不发起也不进入失败延迟，探测可以连接时立即唤醒。
+ *
+ * @Author: sheedon
+ * @Email: sheedonsun@163.com
+ * @Date: 2021/9/12 12:47 下午
+ */
+public class ServiceCheckProcess extends AbstractProcess {
+
+    // 健康状态：未知
+    private static final int HEALTH_UNKNOWN = 0;
+    // 健康状态：可以连接
+    private static final int HEALTH_CONNECTED = 1;
+    // 健康状态：无法连接
+    private static final int HEALTH_DISCONNECTED = 2;
+
+    // 服务器地址
+    private final String baseUrl;
+    // 上一次探测时间
+    private volatile long lastHandleTime;
+    // 间隔时间
+    private static final int INTERVAL = 10000;
+    // 缓存的健康状态
+    private volatile int health = HEALTH_UNKNOWN;
+
+    private final INetConnected netConnected;
+    // 健康监测，用于安排下一次探测，未指定探测执行器时也在其上执行探测
+    private final ScheduledExecutorService monitor;
+    // 健康监测是否由本流程创建，共享的健康监测在销毁时不关闭
+    private final boolean ownMonitor;
+    // 已安排的下一次探测
+    private volatile ScheduledFuture<?> nextProbe;
+    // 探测执行器
+    private final Executor probeExecutor;
+    // 是否正在探测
+    private final AtomicBoolean probing = new AtomicBoolean(false);
+    // 是否已销毁
+    private volatile boolean destroyed;
+
+    public ServiceCheckProcess(String baseUrl, INetConnected netConnected) {
+        this(baseUrl, netConnected, null);
+    }
+
+    /**
+     * 服务器连接检测流程
+     *
+     * @param baseUrl       服务器地址
+     * @param netConnected  网络连接状态监听器，存在时优先使用
+     * @param probeExecutor 探测执行器，为null时在健康监测线程上探测
+     */
+    public ServiceCheckProcess(String baseUrl, INetConnected netConnected, Executor probeExecutor) {
+        this(baseUrl, netConnected, probeExecutor, null);
+    }
+
+    /**
+     * 服务器连接检测流程
+     *
+     * @param baseUrl       服务器地址
+     * @param netConnected  网络连接状态监听器，存在时优先使用
+     * @param probeExecutor 探测执行器，为null时在健康监测线程上探测
+     * @param monitor       共享的健康监测（如共享调度运行时的工作线程），为null时创建自己的健康监测线程
+     */
+    public ServiceCheckProcess(String baseUrl, INetConnected netConnected, Executor probeExecutor,
+                               ScheduledExecutorService monitor) {
+        if (netConnected != null) {
+            this.netConnected = netConnected;
+            this.baseUrl = null;
+        } else if (baseUrl.endsWith("/")) {
+            this.baseUrl = baseUrl;
+            this.netConnected = null;
+        } else {
+            this.baseUrl = baseUrl + "/";
+            this.netConnected = null;
+        }
+
+        this.ownMonitor = monitor == null;
+        if (monitor == null) {
+            ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+                Thread thread = new Thread(runnable, ServiceCheckProcess.class.getName());
+                thread.setDaemon(true);
+                return thread;
+            });
+            executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+            monitor = executor;
+        }
+        this.monitor = monitor;
+        this.probeExecutor = probeExecutor != null ? probeExecutor : monitor;
+    }
+
+    /**
+     * 健康状态未知时发起首次探测，探测完成前未就绪
+     */
+    @Override
+    public boolean isReady() {
+        if (health == HEALTH_UNKNOWN) {
+            requestProbe();
+            return false;
+        }
+        return super.isReady();
+    }
+
+    /**
+     * 执行任务，核实是否可以连接上服务器
+     *
+     * @return 是否执行成功
+     */
+    @Override
+    public boolean execute() {
+        if (!checkServiceConnection()) {
+            return false;
+        }
+
+        if (nextProcess != null) {
+            return nextProcess.execute();
+        }
+        return false;
+    }
+
+    /**
+     * 核实网络连接情况，只读取缓存的健康状态，不阻塞
+     * 连接成功的情况下，10秒内只检测一次，超过后沿用该结果并在后台重新探测；
+     * 状态未知时发起首次探测，无法连接时由后台定时探测
+     */
+    private boolean checkServiceConnection() {
+        int health = this.health;
+        if (health == HEALTH_CONNECTED) {
+            if (now() - lastHandleTime > INTERVAL) {
+                requestProbe();
+            }
+            return true;
+        }
+
+        if (health == HEALTH_UNKNOWN) {
+            requestProbe();
+        }
+        return false;
+    }
+
+    /**
+     * 发起一次后台探测，正在探测时忽略
+     */
+    private void requestProbe() {
+        if (destroyed || !probing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            probeExecutor.execute(this::probe);
+        } catch (RejectedExecutionException e) {
+            probing.set(false);
+        }
+    }
+
+    /**
+     * 探测并发布健康状态，从不可用恢复为可用时通知唤醒调度，
+     * 无法连接时安排下一次探测
+     */
+    private void probe() {
+        long start = System.nanoTime();
+        boolean connected;
+        try {
+            connected = checkConnected();
+        } catch (RuntimeException e) {
+            connected = false;
+        }
+        SchedulerMetrics metrics = this.metrics;
+        if (metrics != null) {
+            metrics.onProbe(System.nanoTime() - start, connected);
+        }
+        int previous = health;
+        health = connected ? HEALTH_CONNECTED : HEALTH_DISCONNECTED;
+        lastHandleTime = now();
+        probing.set(false);
+
+        if (destroyed) {
+            return;
+        }
+        if (!connected) {
+            try {
+                nextProbe = monitor.schedule(this::requestProbe, 3 * INTERVAL, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException ignored) {
+            }
+        } else if (previous != HEALTH_CONNECTED) {
+            notifyRecovered();
+        }
+    }
+
+    /**
+     * 当前缓存的健康状态是否可以连接
+     */
+    public boolean isConnected() {
+        return health == HEALTH_CONNECTED;
+    }
+
+    private boolean checkConnected() {
+        if (netConnected == null) {
+            return connByNetService(baseUrl);
+        }
+        return netConnected.isConnected();
+    }
+
+    private static long now() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+    }
+
+    /**
+     * 判断是否连接到服务器，通过指定url的超时3秒连接，code为200表示可以连上服务器
+     *
+     * @return boolean 是否可以连上服务器
+     */
+    private static boolean connByNetService(String urlString) {
+        URL url;
+        HttpURLConnection conn = null;
+        boolean isConnect = false;
+        try {
+            url = new URL(urlString);
+            conn = (HttpURLConnection) url.openConnection();
+            conn.setConnectTimeout(1000 * 3);
+            conn.setReadTimeout(1000 * 10);
+            conn.setRequestMethod("GET");
+            int s = conn.getResponseCode();
+            isConnect = s < 500;
+        } catch (IOException ignored) {
+        } finally {
+            if (conn != null) {
+                conn.disconnect();
+            }
+        }
+        return isConnect;
+    }
+
+    /**
+     * 销毁
+     */
+    @Override
+    public void onDestroy() {
+        destroyed = true;
+        if (ownMonitor) {
+            monitor.shutdownNow();
+        } else {
+            ScheduledFuture<?> nextProbe = this.nextProbe;
+            if (nextProbe != null) {
+                nextProbe.cancel(false);
+            }
+        }
+        if (nextProcess != null) {
+            nextProcess.onDestroy();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package org.sheedon.uploader.process;
+
+/**
+ * 令牌桶，按时间连续补充令牌，补充量不超过桶容量
+ * 允许扣除后余量为负（透支），透支的部分需等待补充，用于事先无法得知大小的字节数限制
+ *
+ * @Author: sheedon
+ * @Email: sheedonsun@163.com
+ * @Date: 2021/10/4 10:30 上午
+ */
+final class TokenBucket {
+
+    // 每纳秒补充的令牌
+    private final double tokensPerNano;
+    // 桶容量
+    private final double capacity;
+    // 当前令牌
+    private double tokens;
+    // 上一次补充的时间
+    private long refilledAt;
+
+    /**
+     * 令牌桶，初始为满
+     *
+     * @param tokensPerSecond 每秒补充的令牌
+     * @param capacity        桶容量
+     * @param now             当前时间（纳秒）
+     */
+    TokenBucket(double tokensPerSecond, double capacity, long now) {
+        this.tokensPerNano = tokensPerSecond / 1_000_000_000d;
+        this.capacity = capacity;
+        this.tokens = capacity;
+        this.refilledAt = now;
+    }
+
+    private void refill(long now) {
+        if (now > refilledAt) {
+            tokens = Math.min(capacity, tokens + (now - refilledAt) * tokensPerNano);
+            refilledAt = now;
+        }
+    }
+
+    /**
+     * 令牌达到所需数量的剩余时间
+     *
+     * @param required 所需令牌
+     * @param now      当前时间（纳秒）
+     * @return 剩余时间（纳秒），已满足返回0
+     */
+    synchronized long nanosUntil(double required, long now) {
+        refill(now);
+        if (tokens >= required) {
+            return 0;
+        }
+        return (long) Math.ceil((required - tokens) / tokensPerNano);
+    }
+
+    /**
+     * 扣除令牌，允许透支
+     *
+     * @param amount 令牌数量
+     * @param now    当前时间（纳秒）
+     */
+    synchronized void consume(double amount, long now) {
+        refill(now);
+        tokens -= amount;
+    }
+
+    /**
+     * 当前令牌
+     */
+    synchronized double available(long now) {
+        refill(now);
+        return tokens;
+    }
+}
@@ -0,0 +1,181 @@
+package org.sheedon.uploader.recorder;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.sheedon.uploader.message.DefaultMessageGroup;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 飞行记录的解码器，将{@link FlightRecorder}导出的二进制文件还原为按时间排列的状态切换记录，
+ * 记录时间按导出时的系统时间换算为墙上时间。
+ * 可直接运行：java org.sheedon.uploader.recorder.FlightRecordDecoder 文件 ...
+ *
+ * @Author: sheedon
+ * @Email: sheedonsun@163.com
+ * @Date: 2021/10/7 9:30 上午
+ */
+public final class FlightRecordDecoder {
+
+    private FlightRecordDecoder() {
+    }
+
+    /**
+     * 解码文件
+     *
+     * @param file 导出的文件
+     * @return 解码后的记录
+     */
+    @NonNull
+    public static List<Record> decode(@NonNull File file) throws IOException {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            return decode(in);
+        }
+    }
+
+    /**
+     * 解码输入流，不关闭输入流
+     *
+     * @param in 输入流
+     * @return 解码后的记录，按时间排列
+     */
+    @NonNull
+    public static List<Record> decode(@NonNull InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != FlightRecorder.MAGIC) {
+            throw new IOException("not a flight record");
+        }
+        short version = data.readShort();
+        if (version != FlightRecorder.VERSION) {
+            throw new IOException("unsupported flight record version " + version);
+        }
+        long dumpMillis = data.readLong();
+        long dumpNanos = data.readLong();
+        int keyCount = data.readInt();
+        if (keyCount < 0) throw new IOException("corrupted flight record");
+        String[] keys = new String[keyCount];
+        for (int i = 0; i < keyCount; i++) {
+            keys[i] = data.readUTF();
+        }
+
+        int count = data.readInt();
+        if (count < 0) throw new IOException("corrupted flight record");
+        List<Record> records = new ArrayList<>(count);
+        long nanos = data.readLong();
+        for (int i = 0; i < count; i++) {
+            long zigzag = readVarLong(data);
+            nanos += (zigzag >>> 1) ^ -(zigzag & 1);
+            int from = data.readByte();
+            int to = data.readByte();
+            long keyId = readVarLong(data) - 1;
+            int attempt = (int) readVarLong(data);
+            String key = keyId >= 0 && keyId < keys.length ? keys[(int) keyId] : null;
+            long wallMillis = dumpMillis - (dumpNanos - nanos) / 1_000_000L;
+            records.add(new Record(wallMillis, nanos, from, to, key, attempt));
+        }
+        return Collections.unmodifiableList(records);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("malformed varint");
+    }
+
+    /**
+     * 打印文件中的记录
+     *
+     * @param args 导出的文件
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("usage: FlightRecordDecoder <file>...");
+            return;
+        }
+        for (String path : args) {
+            for (Record record : decode(new File(path))) {
+                System.out.println(record);
+            }
+        }
+    }
+
+    /**
+     * 一次状态切换
+     */
+    public static final class Record {
+        // 墙上时间（毫秒）
+        private final long wallMillis;
+        // System.nanoTime()
+        private final long nanos;
+        // 切换前状态
+        private final int from;
+        // 切换后状态
+        private final int to;
+        // 事件键
+        private final String key;
+        // 尝试次数
+        private final int attempt;
+
+        Record(long wallMillis, long nanos, int from, int to, String key, int attempt) {
+            this.wallMillis = wallMillis;
+            this.nanos = nanos;
+            this.from = from;
+            this.to = to;
+            this.key = key;
+            this.attempt = attempt;
+        }
+
+        public long getWallMillis() {
+            return wallMillis;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        @DefaultMessageGroup.StatusType
+        public int getFrom() {
+            return from;
+        }
+
+        @DefaultMessageGroup.StatusType
+        public int getTo() {
+            return to;
+        }
+
+        @Nullable
+        public String getKey() {
+            return key;
+        }
+
+        public int getAttempt() {
+            return attempt;
+        }
+
+        @Override
+        public String toString() {
+            String time = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS", Locale.US).format(new Date(wallMillis));
+            return time + ' ' + DefaultMessageGroup.nameOf(from) + " -> " + DefaultMessageGroup.nameOf(to)
+                    + (key == null ? "" : " key=" + key)
+                    + (attempt == 0 ? "" : " attempt=" + attempt);
+        }
+    }
+}
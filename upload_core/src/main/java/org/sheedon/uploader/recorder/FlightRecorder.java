@@ -0,0 +1,236 @@
+package org.sheedon.uploader.recorder;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 调度状态机的飞行记录器，按固定容量的环形缓冲记录每一次状态切换：
+ * 时间、切换前状态、切换后状态、事件键编号与该事件键的第几次尝试，写满后覆盖最早的记录。
+ * <p>
+ * 缓冲在创建时按容量预先分配，记录时只写入基本类型数组，不分配对象（事件键第一次出现时登记编号除外），
+ * 只在调度的执行线上写入；可在任意线程随时导出为紧凑的二进制文件，
+ * 导出过程中被覆盖的记录会被丢弃，由{@link FlightRecordDecoder}解码。
+ * <p>
+ * 文件格式（大端）：
+ * <pre>
+ * int    魔数 0x55465231（"UFR1"）
+ * short  版本
+ * long   导出时的系统时间（毫秒）
+ * long   导出时的 System.nanoTime()
+ * int    事件键数量，随后每个事件键为 UTF 字符串，下标即编号
+ * int    记录数量
+ * long   第一条记录的 System.nanoTime()
+ * 每条记录：varint 与上一条的时间差（纳秒，zigzag），byte 切换前状态，byte 切换后状态，
+ *          varint 事件键编号 + 1（0 表示无），varint 尝试次数
+ * </pre>
+ *
+ * @Author: sheedon
+ * @Email: sheedonsun@163.com
+ * @Date: 2021/10/7 9:00 上午
+ */
+public final class FlightRecorder {
+
+    // 魔数 "UFR1"
+    static final int MAGIC = 0x55465231;
+    // 文件版本
+    static final short VERSION = 1;
+    // 默认容量
+    public static final int DEFAULT_CAPACITY = 1024;
+    // 最小容量
+    private static final int MIN_CAPACITY = 16;
+    // 最多登记的事件键，超出后记录为无事件键
+    private static final int MAX_KEYS = 4096;
+
+    // 容量掩码，容量为2的幂
+    private final int mask;
+    // 切换时间（System.nanoTime()）
+    private final long[] timestamps;
+    // 切换前状态
+    private final byte[] fromStates;
+    // 切换后状态
+    private final byte[] toStates;
+    // 事件键编号，-1 表示无
+    private final int[] keyIds;
+    // 尝试次数
+    private final int[] attempts;
+    // 已写入的记录总数，写完一条后有序发布
+    private final AtomicLong sequence = new AtomicLong();
+
+    // 事件键 -> 编号
+    private final ConcurrentHashMap<String, Integer> keyIdByName = new ConcurrentHashMap<>();
+    // 编号 -> 事件键
+    private final List<String> keyNames = new ArrayList<>();
+
+    public FlightRecorder() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * 飞行记录器
+     *
+     * @param capacity 最多保留的记录数量，向上取整为2的幂，不小于16
+     */
+    public FlightRecorder(int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("capacity must be greater than 0");
+        int size = MIN_CAPACITY;
+        while (size < capacity && size < (1 << 30)) {
+            size <<= 1;
+        }
+        mask = size - 1;
+        timestamps = new long[size];
+        fromStates = new byte[size];
+        toStates = new byte[size];
+        keyIds = new int[size];
+        attempts = new int[size];
+    }
+
+    /**
+     * 记录一次状态切换，在调度的执行线上调用
+     *
+     * @param nanos   切换时间（System.nanoTime()）
+     * @param from    切换前状态
+     * @param to      切换后状态
+     * @param key     相关的事件键，没有为null
+     * @param attempt 该事件键的第几次尝试，未知为0
+     */
+    public void record(long nanos, int from, int to, @Nullable String key, int attempt) {
+        long seq = sequence.get();
+        int index = (int) seq & mask;
+        timestamps[index] = nanos;
+        fromStates[index] = (byte) from;
+        toStates[index] = (byte) to;
+        keyIds[index] = key == null ? -1 : keyIdOf(key);
+        attempts[index] = attempt;
+        sequence.lazySet(seq + 1);
+    }
+
+    /**
+     * 事件键的编号，第一次出现时登记
+     *
+     * @param key 事件键
+     * @return 编号，超出登记上限返回-1
+     */
+    public int keyIdOf(@NonNull String key) {
+        Integer id = keyIdByName.get(key);
+        if (id != null) {
+            return id;
+        }
+        synchronized (keyNames) {
+            id = keyIdByName.get(key);
+            if (id != null) {
+                return id;
+            }
+            if (keyNames.size() >= MAX_KEYS) {
+                return -1;
+            }
+            id = keyNames.size();
+            keyNames.add(key);
+            keyIdByName.put(key, id);
+            return id;
+        }
+    }
+
+    /**
+     * 最多保留的记录数量
+     */
+    public int getCapacity() {
+        return mask + 1;
+    }
+
+    /**
+     * 累计记录的状态切换数量，包含已被覆盖的
+     */
+    public long getRecordedCount() {
+        return sequence.get();
+    }
+
+    /**
+     * 导出到文件，覆盖已存在的文件
+     *
+     * @param file 文件
+     * @return 导出的记录数量
+     */
+    public int dump(@NonNull File file) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+            return dump(out);
+        }
+    }
+
+    /**
+     * 导出当前保留的记录，可在任意线程调用，不关闭输出流
+     *
+     * @param out 输出流
+     * @return 导出的记录数量
+     */
+    public int dump(@NonNull OutputStream out) throws IOException {
+        int capacity = mask + 1;
+        long end = sequence.get();
+        long start = Math.max(0, end - capacity);
+        int count = (int) (end - start);
+        long[] copyTimestamps = new long[count];
+        byte[] copyFrom = new byte[count];
+        byte[] copyTo = new byte[count];
+        int[] copyKeyIds = new int[count];
+        int[] copyAttempts = new int[count];
+        for (int i = 0; i < count; i++) {
+            int index = (int) (start + i) & mask;
+            copyTimestamps[i] = timestamps[index];
+            copyFrom[i] = fromStates[index];
+            copyTo[i] = toStates[index];
+            copyKeyIds[i] = keyIds[index];
+            copyAttempts[i] = attempts[index];
+        }
+        // 复制期间写入线可能已覆盖最早的记录（包括正在写入的一条），丢弃这部分
+        long after = sequence.get();
+        int skip = (int) Math.max(0, Math.min(count, after - capacity + 1 - start));
+
+        String[] keys;
+        synchronized (keyNames) {
+            keys = keyNames.toArray(new String[0]);
+        }
+
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeShort(VERSION);
+        data.writeLong(System.currentTimeMillis());
+        data.writeLong(System.nanoTime());
+        data.writeInt(keys.length);
+        for (String key : keys) {
+            data.writeUTF(key);
+        }
+        int written = count - skip;
+        data.writeInt(written);
+        long previous = written > 0 ? copyTimestamps[skip] : 0;
+        data.writeLong(previous);
+        for (int i = skip; i < count; i++) {
+            long delta = copyTimestamps[i] - previous;
+            previous = copyTimestamps[i];
+            writeVarLong(data, (delta << 1) ^ (delta >> 63));
+            data.writeByte(copyFrom[i]);
+            data.writeByte(copyTo[i]);
+            writeVarLong(data, copyKeyIds[i] + 1L);
+            writeVarLong(data, Math.max(0, copyAttempts[i]));
+        }
+        data.flush();
+        return written;
+    }
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+}
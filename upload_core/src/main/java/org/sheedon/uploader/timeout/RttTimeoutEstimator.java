@@ -0,0 +1,215 @@
+package org.sheedon.uploader.timeout;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按事件键自适应的调度超时，参照 TCP 重传超时（RFC 6298）的计算方式：
+ * 以每次成功调度的耗时为样本，平滑往返时间 SRTT 与其偏差 RTTVAR，
+ * 超时 = SRTT + 4 * RTTVAR，再按本次调度的字节数追加传输时间，最后限制在 [最小超时, 最大超时] 之间。
+ * 调度超时后该事件键的超时翻倍，直到下一次成功的样本。
+ * <p>
+ * 样本更新在执行线上进行，估算结果为不可变对象，可在其他线程读取用于监控。
+ *
+ * @Author: sheedon
+ * @Email: sheedonsun@163.com
+ * @Date: 2021/9/28 9:30 上午
+ */
+public class RttTimeoutEstimator {
+
+    // 偏差的倍数
+    private static final int K = 4;
+    // 超时翻倍的最大次数
+    private static final int MAX_BACKOFF_SHIFT = 6;
+
+    // 没有样本时的超时
+    private final long initialTimeout;
+    // 最小超时
+    private final long minTimeout;
+    // 最大超时
+    private final long maxTimeout;
+    // 计算传输时间时假设的最低吞吐量（字节/秒），0表示不按字节数追加
+    private final long minBytesPerSecond;
+    // 事件键对应的估算
+    private final Map<String, Estimate> estimates = new ConcurrentHashMap<>();
+
+    /**
+     * 不按字节数追加传输时间的自适应超时
+     *
+     * @param initialTimeout 没有样本时的超时
+     * @param minTimeout     最小超时
+     * @param maxTimeout     最大超时
+     */
+    public RttTimeoutEstimator(long initialTimeout, long minTimeout, long maxTimeout) {
+        this(initialTimeout, minTimeout, maxTimeout, 0);
+    }
+
+    /**
+     * 自适应超时
+     *
+     * @param initialTimeout    没有样本时的超时
+     * @param minTimeout        最小超时，需大于0
+     * @param maxTimeout        最大超时，不小于最小超时
+     * @param minBytesPerSecond 假设的最低吞吐量（字节/秒），大于0时按本次调度的字节数追加传输时间
+     */
+    public RttTimeoutEstimator(long initialTimeout, long minTimeout, long maxTimeout, long minBytesPerSecond) {
+        if (minTimeout <= 0) throw new IllegalArgumentException("minTimeout must be greater than 0");
+        if (maxTimeout < minTimeout) throw new IllegalArgumentException("maxTimeout must not be less than minTimeout");
+        if (minBytesPerSecond < 0) throw new IllegalArgumentException("minBytesPerSecond must not be negative");
+        this.initialTimeout = initialTimeout;
+        this.minTimeout = minTimeout;
+        this.maxTimeout = maxTimeout;
+        this.minBytesPerSecond = minBytesPerSecond;
+    }
+
+    /**
+     * 计算本次调度的超时
+     *
+     * @param key          事件键
+     * @param payloadBytes 本次调度的字节数，未知为0
+     * @return 超时时间（毫秒）
+     */
+    public long timeoutFor(@NonNull String key, long payloadBytes) {
+        Estimate estimate = estimates.get(key);
+        long timeout = estimate == null ? initialTimeout : estimate.timeout;
+        if (minBytesPerSecond > 0 && payloadBytes > 0) {
+            timeout += payloadBytes * 1000 / minBytesPerSecond;
+        }
+        return clamp(timeout);
+    }
+
+    /**
+     * 记录一次成功调度的耗时
+     *
+     * @param key       事件键
+     * @param rttMillis 耗时（毫秒）
+     */
+    public void onSample(@NonNull String key, long rttMillis) {
+        long rtt = Math.max(0, rttMillis);
+        Estimate old = estimates.get(key);
+        double srtt;
+        double rttvar;
+        if (old == null || old.samples == 0) {
+            srtt = rtt;
+            rttvar = rtt / 2.0;
+        } else {
+            rttvar = 0.75 * old.rttvar + 0.25 * Math.abs(old.srtt - rtt);
+            srtt = 0.875 * old.srtt + 0.125 * rtt;
+        }
+        long samples = old == null ? 1 : old.samples + 1;
+        long timeouts = old == null ? 0 : old.timeouts;
+        long timeout = clamp((long) Math.ceil(srtt + Math.max(1, K * rttvar)));
+        estimates.put(key, new Estimate(srtt, rttvar, timeout, timeout, samples, timeouts, 0));
+    }
+
+    /**
+     * 记录一次调度超时，该事件键的超时翻倍
+     *
+     * @param key 事件键
+     */
+    public void onTimeout(@NonNull String key) {
+        Estimate old = estimates.get(key);
+        if (old == null) {
+            long timeout = clamp(initialTimeout);
+            old = new Estimate(0, 0, timeout, timeout, 0, 0, 0);
+        }
+        int shift = Math.min(MAX_BACKOFF_SHIFT, old.backoffShift + 1);
+        long timeout = clamp(old.baseTimeout << shift);
+        estimates.put(key, new Estimate(old.srtt, old.rttvar, old.baseTimeout, timeout,
+                old.samples, old.timeouts + 1, shift));
+    }
+
+    /**
+     * 事件键当前的估算
+     *
+     * @param key 事件键
+     * @return 估算，没有记录则返回null
+     */
+    @Nullable
+    public Estimate getEstimate(@NonNull String key) {
+        return estimates.get(key);
+    }
+
+    /**
+     * 所有事件键当前的估算
+     */
+    @NonNull
+    public Map<String, Estimate> getEstimates() {
+        return Collections.unmodifiableMap(new HashMap<>(estimates));
+    }
+
+    /**
+     * 移除事件键的估算
+     *
+     * @param key 事件键
+     */
+    public void remove(@NonNull String key) {
+        estimates.remove(key);
+    }
+
+    private long clamp(long timeout) {
+        return Math.max(minTimeout, Math.min(maxTimeout, timeout));
+    }
+
+    /**
+     * 单个事件键的超时估算，不可变
+     */
+    public static final class Estimate {
+        // 平滑往返时间
+        private final double srtt;
+        // 往返时间偏差
+        private final double rttvar;
+        // 按样本计算的超时，不含超时翻倍
+        private final long baseTimeout;
+        // 当前超时，不含字节数追加的传输时间
+        private final long timeout;
+        // 样本数量
+        private final long samples;
+        // 超时次数
+        private final long timeouts;
+        // 超时翻倍次数，下一次成功样本后清零
+        private final int backoffShift;
+
+        Estimate(double srtt, double rttvar, long baseTimeout, long timeout,
+                 long samples, long timeouts, int backoffShift) {
+            this.srtt = srtt;
+            this.rttvar = rttvar;
+            this.baseTimeout = baseTimeout;
+            this.timeout = timeout;
+            this.samples = samples;
+            this.timeouts = timeouts;
+            this.backoffShift = backoffShift;
+        }
+
+        public double getSrtt() {
+            return srtt;
+        }
+
+        public double getRttvar() {
+            return rttvar;
+        }
+
+        public long getTimeout() {
+            return timeout;
+        }
+
+        public long getSamples() {
+            return samples;
+        }
+
+        public long getTimeouts() {
+            return timeouts;
+        }
+
+        @Override
+        public String toString() {
+            return "Estimate{srtt=" + (long) srtt + ", rttvar=" + (long) rttvar
+                    + ", timeout=" + timeout + ", samples=" + samples + ", timeouts=" + timeouts + '}';
+        }
+    }
+}
@@ -0,0 +1,369 @@
+package org.sheedon.uploader;
+
+import androidx.annotation.NonNull;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.sheedon.uploader.backend.DirectSchedulerBackend;
+import org.sheedon.uploader.backend.SchedulerBackend;
+import org.sheedon.uploader.message.DefaultMessageGroup;
+import org.sheedon.uploader.process.AbstractProcess;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 子调度器的资源缓存在不启动线程的调度后端上逐条核实：超时后的迟到结果、并行调度各自超时、按下标反馈的批量结果、
+ * 分页加载的低水位预取、合并资源的移除回调、
+ * 大量资源同时过期
+ */
+public class AbstractRealHandlerTest {
+
+    private DirectSchedulerBackend backend;
+    private ScheduleClient client;
+
+    @Before
+    public void setUp() {
+        setUpClient(1);
+    }
+
+    /**
+     * 失败后立即可重试，退避等待由 fireDelayed 触发
+     */
+    private void setUpClient(int maxInFlight) {
+        backend = new DirectSchedulerBackend();
+        client = new DirectClientBuilder(backend)
+                .backoffPolicy((attempt, previousDelay) -> 0)
+                .maxInFlight(maxInFlight)
+                .build();
+    }
+
+    @Test
+    public void lateSuccessDoesNotRemoveRedispatchedSource() {
+        RecordingHandler handler = new RecordingHandler("a", "b");
+        handler.startUp();
+        backend.drain();
+        assertEquals(Arrays.asList("a"), handler.dispatched);
+
+        // 超时结束第一次调度，退避到期后同一资源在新的调度中重新取出
+        for (int i = 0; i < 5 && handler.dispatched.size() < 2; i++) {
+            backend.fireDelayed();
+        }
+        assertEquals(Arrays.asList("a", "a"), handler.dispatched);
+
+        // 已超时的调度迟到的成功不移除新调度中的资源
+        handler.centers.get(0).sendSuccessMessage();
+        backend.drain();
+        assertTrue(handler.removed.isEmpty());
+        assertEquals(2, handler.dispatched.size());
+
+        handler.centers.get(1).sendSuccessMessage();
+        backend.drain();
+        assertEquals(Arrays.asList("a"), handler.removed);
+        assertEquals(Arrays.asList("a", "a", "b"), handler.dispatched);
+
+        handler.centers.get(2).sendSuccessMessage();
+        backend.drain();
+        assertEquals(Arrays.asList("a", "b"), handler.removed);
+    }
+
+    @Test
+    public void parallelCallsTimeOutIndependently() {
+        setUpClient(3);
+        RecordingHandler handler = new RecordingHandler("a", "b", "c", "d");
+        handler.startUp();
+        backend.drain();
+
+        // 三个不同的资源同时调度，各自持有超时消息
+        assertEquals(Arrays.asList("a", "b", "c"), handler.dispatched);
+        List<Object> calls = backend.delayedObjects(DefaultMessageGroup.TYPE_TIMEOUT);
+        assertEquals(3, calls.size());
+        assertEquals(3, new HashSet<>(calls).size());
+        InFlightCall callA = (InFlightCall) calls.get(0);
+        InFlightCall callB = (InFlightCall) calls.get(1);
+        InFlightCall callC = (InFlightCall) calls.get(2);
+
+        // 第四个资源等待空闲的在途名额
+        backend.drain();
+        assertEquals(3, handler.dispatched.size());
+        handler.centers.get(0).sendSuccessMessage();
+        backend.drain();
+        assertTrue(callA.isFinished());
+        assertFalse(backend.hasMessages(DefaultMessageGroup.TYPE_TIMEOUT, callA));
+        assertEquals(Arrays.asList("a", "b", "c", "d"), handler.dispatched);
+
+        // 其中一个调度超时，不结束也不影响其余调度
+        backend.fireDelayed(DefaultMessageGroup.TYPE_TIMEOUT, callB);
+        assertTrue(callB.isTimedOut());
+        assertFalse(callC.isFinished());
+        assertTrue(backend.hasMessages(DefaultMessageGroup.TYPE_TIMEOUT, callC));
+        assertEquals(Arrays.asList("a"), handler.removed);
+
+        handler.centers.get(2).sendSuccessMessage();
+        backend.drain();
+        assertTrue(callC.isFinished());
+        assertFalse(callC.isTimedOut());
+        assertEquals(Arrays.asList("a", "c"), handler.removed);
+    }
+
+    @Test
+    public void batchResultsApplyByIndex() {
+        RecordingHandler handler = new RecordingHandler("a", "b", "c", "d");
+        handler.batchSize = 3;
+        handler.startUp();
+        backend.drain();
+        assertEquals(Arrays.asList(Arrays.asList("a", "b", "c")), handler.batches);
+
+        BatchResultCenter center = handler.batchCenters.get(0);
+        center.sendSuccessMessage(0);
+        center.sendFailureMessage(1);
+        // 重复反馈与越界的下标被忽略
+        center.sendSuccessMessage(1);
+        center.sendSuccessMessage(3);
+        assertTrue(handler.removed.isEmpty());
+        center.sendSuccessMessage(2);
+        backend.drain();
+
+        // 成功的资源移除，失败的资源恢复空闲，与剩余资源一起进入下一次批量
+        assertEquals(Arrays.asList("a", "c"), handler.removed);
+        assertEquals(2, handler.batches.size());
+        assertEquals(Arrays.asList("b", "d"), handler.batches.get(1));
+
+        handler.batchCenters.get(1).sendSuccessMessage();
+        backend.drain();
+        assertEquals(Arrays.asList("a", "c", "b", "d"), handler.removed);
+        assertEquals(2, handler.batches.size());
+    }
+
+    @Test
+    public void pageRefillsAtLowWatermark() {
+        RecordingHandler handler = new RecordingHandler("s0", "s1", "s2", "s3", "s4", "s5", "s6", "s7", "s8", "s9");
+        handler.pageSize = 4;
+        handler.startUp();
+        backend.drain();
+        // 第一页4条，高于低水位2，不预取
+        assertEquals(Arrays.asList((Object) null), handler.cursors);
+        assertEquals(Arrays.asList("s0"), handler.dispatched);
+
+        handler.centers.get(0).sendSuccessMessage();
+        backend.drain();
+        assertEquals(1, handler.cursors.size());
+
+        // 剩余2条，到达低水位，取下一页
+        handler.centers.get(1).sendSuccessMessage();
+        backend.drain();
+        assertEquals(Arrays.asList(null, 4), handler.cursors);
+        assertEquals(Arrays.asList("s0", "s1", "s2"), handler.dispatched);
+
+        for (int i = 2; i < 10; i++) {
+            handler.centers.get(i).sendSuccessMessage();
+            backend.drain();
+        }
+        // 最后一页没有下一页，缓存清空后从头取，已全部移除
+        assertEquals(Arrays.asList(null, 4, 8, null), handler.cursors);
+        assertEquals(handler.pending, handler.removed);
+        assertEquals(10, handler.dispatched.size());
+    }
+
+    @Test
+    public void coalescedSourcesAreRemovedOnce() {
+        RecordingHandler handler = new RecordingHandler("x:1", "y:1", "x:2", "x:3");
+        handler.coalesce = true;
+        handler.startUp();
+        backend.drain();
+        assertEquals(Arrays.asList("x:1+2+3"), handler.dispatched);
+        assertEquals(4, handler.getCoalesceStat().getOffered());
+        assertEquals(2, handler.getCoalesceStat().getCoalesced());
+
+        // 失败后合并结果恢复空闲，不回调移除
+        handler.centers.get(0).sendFailureMessage();
+        backend.drain();
+        for (int i = 0; i < 5 && handler.dispatched.size() < 2; i++) {
+            backend.fireDelayed();
+        }
+        assertTrue(handler.removed.isEmpty());
+        assertEquals(2, handler.dispatched.size());
+
+        // 合并结果只是中间对象，不回调移除，被合并的资源各回调一次
+        handler.centers.get(1).sendSuccessMessage();
+        handler.centers.get(1).sendSuccessMessage();
+        backend.drain();
+        assertEquals(Arrays.asList("x:1", "x:2", "x:3"), sorted(handler.removed));
+
+        handler.centers.get(2).sendSuccessMessage();
+        backend.drain();
+        assertEquals(Arrays.asList("x:1+2+3", "x:1+2+3", "y:1"), handler.dispatched);
+        assertEquals(Arrays.asList("x:1", "x:2", "x:3", "y:1"), sorted(handler.removed));
+    }
+
+    @Test(timeout = 5000)
+    public void massExpiryCompactsCacheInOnePass() {
+        int count = 100_000;
+        RecordingHandler handler = new RecordingHandler();
+        for (int i = 0; i < count; i++) {
+            handler.pending.add("old:" + i);
+            handler.pending.add("live:" + i);
+        }
+        handler.expiring = true;
+        handler.startUp();
+        backend.drain();
+
+        // 过期的资源一次移除，未过期的资源保持顺序
+        assertEquals(count, handler.removed.size());
+        assertEquals("old:0", handler.removed.get(0));
+        assertEquals("old:" + (count - 1), handler.removed.get(count - 1));
+        assertEquals(count, client.getMetrics().snapshot().getExpired());
+        assertEquals(Arrays.asList("live:0"), handler.dispatched);
+
+        handler.centers.get(0).sendSuccessMessage();
+        backend.drain();
+        assertEquals(Arrays.asList("live:0", "live:1"), handler.dispatched);
+        assertEquals("live:0", handler.removed.get(count));
+    }
+
+    private static List<String> sorted(List<String> values) {
+        List<String> copy = new ArrayList<>(values);
+        Collections.sort(copy);
+        return copy;
+    }
+
+    /**
+     * 记录调度与移除的子调度器，调度的结果由测试反馈
+     */
+    private class RecordingHandler extends AbstractRealHandler<String> {
+        // 待加载的资源
+        final List<String> pending = new ArrayList<>();
+        // 调度的资源
+        final List<String> dispatched = new ArrayList<>();
+        // 每次调度的消息执行
+        final List<MessageHandleCenter> centers = new ArrayList<>();
+        // 批量调度的资源
+        final List<List<String>> batches = new ArrayList<>();
+        // 每次批量调度的结果反馈
+        final List<BatchResultCenter> batchCenters = new ArrayList<>();
+        // 移除回调的资源
+        final List<String> removed = new ArrayList<>();
+        // 单次调度的资源数量上限
+        int batchSize = 1;
+        // 分页加载的每页数量，0为一次性加载
+        int pageSize;
+        // 分页加载的游标
+        final List<Object> cursors = new ArrayList<>();
+        // 是否按冒号前的前缀合并资源
+        boolean coalesce;
+        // 前缀为 old 的资源是否已过期，其余资源一小时后过期
+        boolean expiring;
+
+        RecordingHandler(String... sources) {
+            pending.addAll(Arrays.asList(sources));
+        }
+
+        @Override
+        protected ScheduleClient loadScheduleClient() {
+            return client;
+        }
+
+        @Override
+        protected void loadSource(OnSourceCallback<String> callback) {
+            List<String> sources = new ArrayList<>(pending);
+            pending.clear();
+            callback.attachSource(sources);
+        }
+
+        /**
+         * 游标为待加载资源中的下标，已移除的资源不再取出，模拟按主键分页的数据库
+         */
+        @Override
+        protected void loadPage(Object cursor, int limit, OnPageCallback<String> callback) {
+            cursors.add(cursor);
+            List<String> page = new ArrayList<>();
+            int index = cursor == null ? 0 : (Integer) cursor;
+            for (; index < pending.size() && page.size() < limit; index++) {
+                if (!removed.contains(pending.get(index))) {
+                    page.add(pending.get(index));
+                }
+            }
+            callback.attachPage(page, index < pending.size() ? index : null);
+        }
+
+        @Override
+        protected int pageSize() {
+            return pageSize;
+        }
+
+        @Override
+        protected void handleRealEvent(String source, MessageHandleCenter center) {
+            dispatched.add(source);
+            centers.add(center);
+        }
+
+        @Override
+        protected void handleRealBatch(List<String> sources, BatchResultCenter center) {
+            batches.add(new ArrayList<>(sources));
+            batchCenters.add(center);
+        }
+
+        @Override
+        protected int maxBatchSize() {
+            return batchSize;
+        }
+
+        @Override
+        protected Object coalesceKey(String source) {
+            return coalesce ? source.substring(0, source.indexOf(':')) : null;
+        }
+
+        /**
+         * 合并为新的对象，如 x:1 与 x:2 合并为 x:1+2
+         */
+        @Override
+        protected String mergeSource(String older, String newer) {
+            return older + "+" + newer.substring(newer.indexOf(':') + 1);
+        }
+
+        @Override
+        protected long deadline(String source) {
+            if (!expiring) {
+                return EventListener.NO_DEADLINE;
+            }
+            return source.startsWith("old") ? 1 : System.currentTimeMillis() + 3_600_000;
+        }
+
+        @Override
+        protected void onSourceRemoved(String source) {
+            removed.add(source);
+        }
+    }
+
+    /**
+     * 省略服务器核实流程的客户端构造器
+     */
+    private static final class DirectClientBuilder extends ScheduleClient.AbstractBuilder<DirectClientBuilder> {
+
+        DirectClientBuilder(@NonNull SchedulerBackend backend) {
+            super(backend);
+            netConnected(() -> true);
+        }
+
+        @Override
+        protected DirectClientBuilder self() {
+            return this;
+        }
+
+        @Override
+        protected AbstractProcess createDefaultProcess(String baseUrl, INetConnected netConnected,
+                                                       EventQueue queue, MessageHandler workHandler) {
+            return createScheduleProcess(queue, workHandler);
+        }
+
+        ScheduleClient build() {
+            prepareBuild();
+            return new ScheduleClient(this);
+        }
+    }
+}
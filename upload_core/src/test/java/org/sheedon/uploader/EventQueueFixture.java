@@ -0,0 +1,30 @@
+package org.sheedon.uploader;
+
+/**
+ * 供其他包的测试向事件队列添加始终有空闲资源的事件
+ */
+public final class EventQueueFixture {
+
+    private EventQueueFixture() {
+    }
+
+    /**
+     * 添加普通优先级的事件，其监听器始终有空闲资源，调度时直接反馈成功
+     *
+     * @param queue 事件队列
+     * @param key   事件键
+     */
+    public static void offer(EventQueue queue, String key) {
+        queue.offerEvent(key, new EventListener() {
+            @Override
+            public boolean hasSource() {
+                return true;
+            }
+
+            @Override
+            public void handleEvent(MessageHandleCenter center) {
+                center.sendSuccessMessage();
+            }
+        });
+    }
+}
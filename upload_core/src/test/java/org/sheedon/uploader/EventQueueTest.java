@@ -0,0 +1,269 @@
+package org.sheedon.uploader;
+
+import androidx.annotation.NonNull;
+
+import org.junit.Test;
+import org.sheedon.uploader.network.NetworkConstraint;
+import org.sheedon.uploader.network.NetworkState;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * 紧急通道严格优先，普通通道按权重分配调度量，挂起的事件收到信号后才重新核实，
+ * 存在截止时间时按截止时间最早优先，网络约束不满足的事件键等待网络变化，
+ * 收到信号的退避事件从挂起堆中移除
+ */
+public class EventQueueTest {
+
+    @Test
+    public void weightsShareDispatchesProportionally() {
+        EventQueue queue = new EventQueue();
+        queue.offerEvent("a", new FixedListener(), EventQueue.PRIORITY_NORMAL, 1);
+        queue.offerEvent("b", new FixedListener(), EventQueue.PRIORITY_NORMAL, 3);
+
+        Map<String, Integer> counts = dispatch(queue, 400, 0);
+        assertEquals(100, (int) counts.get("a"));
+        assertEquals(300, (int) counts.get("b"));
+        assertEquals(0.75f, queue.getServedStats().get("b").getItemShare(), 0.001f);
+    }
+
+    @Test
+    public void urgentIsServedFirst() {
+        EventQueue queue = new EventQueue();
+        FixedListener urgent = new FixedListener();
+        queue.offerEvent("a", new FixedListener(), EventQueue.PRIORITY_NORMAL, 10);
+        queue.offerEvent("u", urgent, EventQueue.PRIORITY_URGENT, 1);
+
+        assertEquals("u", queue.pollEvent());
+        queue.onDispatched("u", 0);
+        assertEquals("u", queue.pollEvent());
+
+        urgent.hasSource = false;
+        assertEquals("a", queue.pollEvent());
+        assertFalse(queue.getServedStats().containsKey("a"));
+    }
+
+    @Test
+    public void bytesCostChargesPayloadSize() {
+        EventQueue queue = new EventQueue();
+        queue.setSchedulingCost(EventQueue.COST_BYTES, 1000);
+        queue.offerEvent("small", new FixedListener(), EventQueue.PRIORITY_NORMAL, 1);
+        queue.offerEvent("large", new FixedListener(), EventQueue.PRIORITY_NORMAL, 1);
+
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < 1100; i++) {
+            String key = queue.pollEvent();
+            queue.onDispatched(key, key.equals("small") ? 100 : 1000);
+            counts.merge(key, 1, Integer::sum);
+        }
+        // 字节数大致相等，条数约为 10:1
+        assertEquals(1000, counts.get("small"), 10);
+        assertEquals(100, counts.get("large"), 1);
+    }
+
+    @Test(timeout = 5000)
+    public void largeByteDebtIsRepaidWithoutRepolling() {
+        EventQueue queue = new EventQueue();
+        queue.setSchedulingCost(EventQueue.COST_BYTES, 1);
+        FixedListener large = new FixedListener();
+        FixedListener small = new FixedListener();
+        queue.offerEvent("large", large, EventQueue.PRIORITY_NORMAL, 1);
+        queue.offerEvent("small", small, EventQueue.PRIORITY_NORMAL, 1);
+
+        assertEquals("large", queue.pollEvent());
+        queue.onDispatched("large", 100_000_000);
+        assertEquals("small", queue.pollEvent());
+        queue.onDispatched("small", 10);
+
+        // 欠下的额度较少者先调度，每次选取只核实常数次
+        large.checks = 0;
+        small.checks = 0;
+        assertEquals("small", queue.pollEvent());
+        queue.onDispatched("small", 10);
+        assertTrue(large.checks + small.checks < 10);
+
+        small.hasSource = false;
+        large.checks = 0;
+        assertEquals("large", queue.pollEvent());
+        assertTrue(large.checks < 10);
+    }
+
+    @Test
+    public void deletedKeyIsNoLongerPolled() {
+        EventQueue queue = new EventQueue();
+        queue.offerEvent("a", new FixedListener());
+        assertTrue(queue.hasEvent());
+
+        queue.deleteEvent("a");
+        assertFalse(queue.hasEvent());
+        assertNull(queue.pollEvent());
+    }
+
+    @Test
+    public void busyKeyIsParkedUntilSignaled() {
+        EventQueue queue = new EventQueue();
+        FixedListener listener = new FixedListener();
+        queue.offerEvent("a", listener);
+
+        listener.idle = false;
+        assertFalse(queue.hasEvent());
+
+        // 挂起后不再询问监听器，需要信号才重新核实
+        listener.idle = true;
+        assertFalse(queue.hasEvent());
+        queue.signal("a");
+        assertEquals("a", queue.pollEvent());
+    }
+
+    @Test
+    public void signaledDelayedKeysLeaveTheHeapInAnyOrder() {
+        EventQueue queue = new EventQueue();
+        Set<String> accepted = new HashSet<>();
+        queue.addEventFilter(new EventFilter() {
+            @Override
+            public boolean accept(@NonNull String key) {
+                return accepted.contains(key);
+            }
+
+            @Override
+            public long nextAcceptDelay() {
+                return 0;
+            }
+
+            @Override
+            public long acceptDelay(@NonNull String key) {
+                return (Integer.parseInt(key.substring(1)) + 1) * 1000L;
+            }
+        });
+        int count = 100;
+        for (int i = 0; i < count; i++) {
+            queue.offerEvent("k" + i, new FixedListener());
+        }
+        assertFalse(queue.hasEvent());
+
+        // 从堆的中间与末尾移除，剩余事件仍按到期时间排列
+        for (int i = count - 1; i > 0; i -= 2) {
+            accepted.add("k" + i);
+            queue.signal("k" + i);
+        }
+        assertTrue(queue.hasEvent());
+        for (int i = 0; i < count; i += 2) {
+            long delay = queue.nextReadyDelay();
+            assertTrue(delay <= (i + 1) * 1000L && delay > (i + 1) * 1000L - 500);
+            accepted.add("k" + i);
+            queue.signal("k" + i);
+            assertTrue(queue.hasEvent());
+        }
+        assertEquals(0, queue.nextReadyDelay());
+    }
+
+    @Test
+    public void earliestDeadlineIsServedFirst() throws InterruptedException {
+        EventQueue queue = new EventQueue();
+        long now = System.currentTimeMillis();
+        FixedListener late = new FixedListener();
+        late.deadline = now + 5_000;
+        FixedListener early = new FixedListener();
+        early.deadline = now + 1_000;
+        queue.offerEvent("late", late, EventQueue.PRIORITY_NORMAL, 5);
+        queue.offerEvent("undated", new FixedListener(), EventQueue.PRIORITY_NORMAL, 5);
+        queue.offerEvent("early", early, EventQueue.PRIORITY_NORMAL, 1);
+
+        // 首次取出时尚未得知截止时间，按轮询取出，之后按截止时间
+        queue.onDispatched(queue.pollEvent(), 0);
+        assertEquals(3, dispatch(queue, 3, 0).get("early").intValue());
+
+        early.deadline = EventListener.NO_DEADLINE;
+        assertEquals("late", queue.pollEvent());
+
+        // 没有截止时间的事件键等待超过上限后不再让位
+        queue.setDeadlineAging(1);
+        assertEquals("undated", queue.pollEvent());
+        Thread.sleep(2);
+        queue.onDispatched("undated", 0);
+        assertEquals("early", queue.pollEvent());
+
+        // 不再有截止时间时回到按权重轮询
+        late.deadline = EventListener.NO_DEADLINE;
+        Map<String, Integer> counts = dispatch(queue, 110, 0);
+        assertEquals(3, counts.size());
+    }
+
+    @Test
+    public void networkConstraintWaitsForMatchingNetwork() {
+        EventQueue queue = new EventQueue();
+        FixedListener bulk = new FixedListener();
+        bulk.constraint = new NetworkConstraint.Builder().requireUnmetered().minUpstreamKbps(1000).build();
+        queue.offerEvent("bulk", bulk, EventQueue.PRIORITY_URGENT, 1);
+        queue.offerEvent("ping", new FixedListener());
+
+        // 网络类别未知时不限制
+        assertEquals("bulk", queue.pollEvent());
+
+        queue.setNetworkState(new NetworkState(true, 20_000, 5_000));
+        assertEquals("ping", queue.pollEvent());
+        assertEquals("ping", queue.pollEvent());
+
+        // 不计费但带宽不足
+        queue.setNetworkState(new NetworkState(false, 2_000, 500));
+        assertEquals("ping", queue.pollEvent());
+
+        // 带宽未知时只核实是否计费
+        queue.setNetworkState(new NetworkState(false, NetworkState.BANDWIDTH_UNKNOWN, NetworkState.BANDWIDTH_UNKNOWN));
+        assertEquals("bulk", queue.pollEvent());
+
+        queue.setNetworkState(NetworkState.DISCONNECTED);
+        assertEquals("ping", queue.pollEvent());
+    }
+
+    private static Map<String, Integer> dispatch(EventQueue queue, int times, long bytes) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < times; i++) {
+            String key = queue.pollEvent();
+            assertNotNull(key);
+            queue.onDispatched(key, bytes);
+            counts.merge(key, 1, Integer::sum);
+        }
+        return counts;
+    }
+
+    private static final class FixedListener implements EventListener {
+        boolean hasSource = true;
+        boolean idle = true;
+        long deadline = NO_DEADLINE;
+        NetworkConstraint constraint;
+        // 核实次数
+        int checks;
+
+        @Override
+        public boolean hasSource() {
+            return hasSource;
+        }
+
+        @Override
+        public boolean hasIdleSource() {
+            checks++;
+            return hasSource && idle;
+        }
+
+        @Override
+        public long nextDeadline() {
+            return deadline;
+        }
+
+        @Override
+        public NetworkConstraint networkConstraint() {
+            return constraint;
+        }
+
+        @Override
+        public void handleEvent(MessageHandleCenter center) {
+
+        }
+    }
+}
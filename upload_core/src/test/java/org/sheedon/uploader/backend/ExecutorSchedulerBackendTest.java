@@ -0,0 +1,151 @@
+package org.sheedon.uploader.backend;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * 按类型与对象移除消息（包括与发送的竞争），零延迟消息按序执行，退出丢弃延迟消息，回调异常不中断执行线
+ */
+public class ExecutorSchedulerBackendTest {
+
+    private static final int WHAT = 1;
+
+    // 收到的消息附带对象
+    private final List<Object> received = Collections.synchronizedList(new ArrayList<>());
+    private ExecutorSchedulerBackend backend;
+    private ScheduledThreadPoolExecutor executor;
+
+    @After
+    public void tearDown() {
+        if (backend != null) {
+            backend.quit();
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void removeMessagesCancelsOnlyMatchingMessage() throws InterruptedException {
+        backend = new ExecutorSchedulerBackend();
+        CountDownLatch done = new CountDownLatch(1);
+        Object keep = new Object();
+        Object drop = new Object();
+        backend.attach((what, obj) -> {
+            received.add(obj);
+            if (what == 2) {
+                done.countDown();
+            }
+        });
+
+        backend.sendMessageDelayed(WHAT, keep, 100);
+        backend.sendMessageDelayed(WHAT, drop, 100);
+        backend.removeMessages(WHAT, drop);
+        assertTrue(backend.hasMessages(WHAT, keep));
+        assertFalse(backend.hasMessages(WHAT, drop));
+
+        backend.sendMessageDelayed(2, null, 300);
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList(keep, null), received);
+    }
+
+    @Test
+    public void removeBeforeFutureIsAssignedStillCancels() throws InterruptedException {
+        Object drop = new Object();
+        Object keep = new Object();
+        CountDownLatch done = new CountDownLatch(1);
+        // 在消息已记录、future 尚未赋值时移除，模拟其他线程的竞争
+        executor = new ScheduledThreadPoolExecutor(1) {
+            @Override
+            public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+                if (backend.hasMessages(WHAT, drop)) {
+                    backend.removeMessages(WHAT, drop);
+                }
+                return super.schedule(command, delay, unit);
+            }
+        };
+        backend = new ExecutorSchedulerBackend(executor);
+        backend.attach((what, obj) -> {
+            received.add(obj);
+            if (obj == keep) {
+                done.countDown();
+            }
+        });
+
+        backend.sendMessage(WHAT, drop);
+        backend.sendMessage(WHAT, keep);
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(Collections.singletonList(keep), received);
+        assertFalse(backend.hasMessages(WHAT, null));
+    }
+
+    @Test
+    public void zeroDelayMessagesRunInOrder() throws InterruptedException {
+        backend = new ExecutorSchedulerBackend();
+        int count = 5000;
+        CountDownLatch done = new CountDownLatch(1);
+        backend.attach((what, obj) -> {
+            received.add(obj);
+            if ((Integer) obj == count - 1) {
+                done.countDown();
+            }
+        });
+
+        for (int i = 0; i < count; i++) {
+            backend.sendMessage(WHAT, i);
+        }
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(count, received.size());
+        for (int i = 0; i < count; i++) {
+            assertEquals(i, received.get(i));
+        }
+    }
+
+    @Test
+    public void quitDropsDelayedMessages() throws InterruptedException {
+        backend = new ExecutorSchedulerBackend();
+        backend.attach((what, obj) -> received.add(obj));
+
+        backend.sendMessageDelayed(WHAT, "late", 100);
+        backend.quit();
+        assertFalse(backend.hasMessages(WHAT, null));
+
+        // 退出后不再接收消息
+        backend.sendMessage(WHAT, "after");
+        Thread.sleep(300);
+        assertTrue(received.isEmpty());
+    }
+
+    @Test
+    public void callbackExceptionKeepsExecutionThread() throws InterruptedException {
+        backend = new ExecutorSchedulerBackend();
+        CountDownLatch done = new CountDownLatch(2);
+        backend.attach((what, obj) -> {
+            if ("boom".equals(obj)) {
+                throw new IllegalStateException("boom");
+            }
+            received.add(obj);
+            done.countDown();
+        });
+
+        backend.sendMessage(WHAT, "boom");
+        backend.sendMessage(WHAT, "next");
+        backend.post(() -> {
+            throw new IllegalStateException("post");
+        });
+        backend.post(done::countDown);
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(Collections.singletonList("next"), received);
+    }
+}
@@ -0,0 +1,115 @@
+package org.sheedon.uploader.backend;
+
+import org.junit.Test;
+import org.sheedon.uploader.ScheduleClient;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * 多个后端共用工作线程时各自串行、按序执行，最后一个后端退出时关闭线程
+ */
+public class SchedulerRuntimeTest {
+
+    @Test
+    public void backendsRunSeriallyOnSharedWorkers() throws InterruptedException {
+        SchedulerRuntime runtime = new SchedulerRuntime.Builder().workerThreads(4).build();
+        int clients = 8;
+        int messages = 2000;
+        CountDownLatch done = new CountDownLatch(clients);
+        AtomicInteger overlaps = new AtomicInteger();
+        List<List<Integer>> received = new ArrayList<>();
+
+        for (int c = 0; c < clients; c++) {
+            SchedulerBackend backend = runtime.attach();
+            List<Integer> values = new ArrayList<>();
+            received.add(values);
+            AtomicInteger running = new AtomicInteger();
+            backend.attach((what, obj) -> {
+                if (running.incrementAndGet() != 1) {
+                    overlaps.incrementAndGet();
+                }
+                values.add(what);
+                running.decrementAndGet();
+                if (what == messages - 1) {
+                    done.countDown();
+                }
+            });
+            for (int i = 0; i < messages; i++) {
+                backend.sendMessage(i, null);
+            }
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(0, overlaps.get());
+        for (List<Integer> values : received) {
+            assertEquals(messages, values.size());
+            for (int i = 0; i < messages; i++) {
+                assertEquals(i, (int) values.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void shutsDownWhenLastBackendQuits() throws InterruptedException {
+        SchedulerRuntime runtime = new SchedulerRuntime.Builder().workerThreads(1).build();
+        assertFalse(runtime.isRunning());
+
+        SchedulerBackend first = runtime.attach();
+        SchedulerBackend second = runtime.attach();
+        assertTrue(runtime.isRunning());
+        assertEquals(2, runtime.getClientCount());
+
+        CountDownLatch delayed = new CountDownLatch(1);
+        second.attach((what, obj) -> delayed.countDown());
+        second.sendMessageDelayed(1, null, 20);
+        assertTrue(second.hasMessages(1, null));
+        first.quit();
+        first.quit();
+        assertEquals(1, runtime.getClientCount());
+        assertTrue(delayed.await(5, TimeUnit.SECONDS));
+
+        second.quit();
+        assertEquals(0, runtime.getClientCount());
+        assertFalse(runtime.isRunning());
+        assertNull(second.sharedScheduler());
+
+        // 再次接入时重新启动
+        SchedulerBackend third = runtime.attach();
+        CountDownLatch executed = new CountDownLatch(1);
+        third.post(executed::countDown);
+        assertTrue(executed.await(5, TimeUnit.SECONDS));
+        third.quit();
+        assertFalse(runtime.isRunning());
+    }
+
+    @Test
+    public void clientAttachesOnlyWhenBuilt() {
+        SchedulerRuntime runtime = new SchedulerRuntime.Builder().workerThreads(1).build();
+        ScheduleClient.Builder unused = new ScheduleClient.Builder(runtime);
+        assertEquals(0, runtime.getClientCount());
+
+        // 校验失败的构造器不接入运行时
+        try {
+            unused.build();
+            fail();
+        } catch (NullPointerException expected) {
+        }
+        assertEquals(0, runtime.getClientCount());
+        assertFalse(runtime.isRunning());
+
+        ScheduleClient client = new ScheduleClient.Builder(runtime)
+                .netConnected(() -> true)
+                .baseUrl("http://127.0.0.1:1/")
+                .build();
+        assertEquals(1, runtime.getClientCount());
+        client.onDestroy();
+        assertEquals(0, runtime.getClientCount());
+        assertFalse(runtime.isRunning());
+    }
+}
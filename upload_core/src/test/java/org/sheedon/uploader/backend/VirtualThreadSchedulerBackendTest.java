@@ -0,0 +1,201 @@
+package org.sheedon.uploader.backend;
+
+import org.junit.After;
+import org.junit.Test;
+import org.sheedon.uploader.AbstractRealHandler;
+import org.sheedon.uploader.MessageHandleCenter;
+import org.sheedon.uploader.ScheduleClient;
+import org.sheedon.uploader.timeout.RttTimeoutEstimator;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * 真实上传与服务器探测离开执行线运行，阻塞的上传不延误超时与核实，退出后不再接收阻塞任务
+ */
+public class VirtualThreadSchedulerBackendTest {
+
+    private static final String NAME = "virtual-backend-test";
+
+    private final VirtualThreadSchedulerBackend backend = new VirtualThreadSchedulerBackend(NAME);
+    // 放行阻塞中的上传
+    private final CountDownLatch release = new CountDownLatch(1);
+    private ScheduleClient client;
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        if (client != null) {
+            client.onDestroy();
+        }
+        backend.quit();
+    }
+
+    @Test
+    public void blockingWorkRunsOffExecutionThread() throws Exception {
+        AtomicReference<Thread> executionThread = new AtomicReference<>();
+        AtomicReference<Thread> probeThread = new AtomicReference<>();
+        CountDownLatch probed = new CountDownLatch(1);
+        backend.post(() -> executionThread.set(Thread.currentThread()));
+        client = new ScheduleClient.Builder(backend)
+                .netConnected(() -> {
+                    probeThread.set(Thread.currentThread());
+                    probed.countDown();
+                    return true;
+                })
+                .build();
+        BlockingHandler handler = new BlockingHandler("a");
+        handler.blocking = false;
+        handler.startUp();
+
+        assertTrue(probed.await(5, TimeUnit.SECONDS));
+        assertTrue(handler.started.await(5, TimeUnit.SECONDS));
+        Thread uploadThread = handler.threads.get(0);
+        assertNotNull(executionThread.get());
+        assertNotSame(executionThread.get(), uploadThread);
+        assertNotSame(executionThread.get(), probeThread.get());
+
+        // JDK 21 及以上运行在虚拟线程上，否则运行在缓存线程池上
+        assertEquals(backend.isVirtual(), isVirtual(uploadThread));
+        assertEquals(backend.isVirtual(), isVirtual(probeThread.get()));
+        if (!backend.isVirtual()) {
+            assertTrue(uploadThread.getName().startsWith(NAME + "-blocking-"));
+            assertTrue(probeThread.get().getName().startsWith(NAME + "-blocking-"));
+        }
+    }
+
+    @Test
+    public void blockingUploadDoesNotDelayTimeoutOrCheck() throws Exception {
+        client = new ScheduleClient.Builder(backend)
+                .netConnected(() -> true)
+                .maxInFlight(2)
+                .timeoutEstimator(new RttTimeoutEstimator(100, 100, 100))
+                .build();
+        BlockingHandler handler = new BlockingHandler("a", "b");
+        handler.startUp();
+
+        // 第一个上传阻塞时，核实照常取出第二个资源
+        assertTrue(handler.started.await(5, TimeUnit.SECONDS));
+        synchronized (handler) {
+            assertTrue(handler.sources.containsAll(Arrays.asList("a", "b")));
+        }
+
+        // 上传仍在阻塞，超时照常触发
+        long deadline = System.currentTimeMillis() + 5000;
+        while (client.getMetrics().snapshot().getTimedOut() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(client.getMetrics().snapshot().getTimedOut() >= 2);
+        assertEquals(1, release.getCount());
+    }
+
+    @Test
+    public void quitRejectsNewTasksAndKeepsInFlightFailure() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(1);
+        AtomicBoolean interrupted = new AtomicBoolean();
+        AtomicBoolean failed = new AtomicBoolean();
+        MessageHandleCenter center = new MessageHandleCenter() {
+            @Override
+            public void sendSuccessMessage() {
+            }
+
+            @Override
+            public void sendFailureMessage() {
+                failed.set(true);
+            }
+        };
+        backend.blockingExecutor().execute(() -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                interrupted.set(true);
+            }
+            center.sendFailureMessage();
+            finished.countDown();
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        backend.quit();
+        try {
+            backend.blockingExecutor().execute(() -> fail("rejected after quit"));
+            fail("expected RejectedExecutionException");
+        } catch (RejectedExecutionException ignored) {
+        }
+
+        // 已在执行的调度不被中断，失败照常反馈
+        release.countDown();
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+        assertFalse(interrupted.get());
+        assertTrue(failed.get());
+    }
+
+    private static boolean isVirtual(Thread thread) throws Exception {
+        try {
+            Method method = Thread.class.getMethod("isVirtual");
+            return (Boolean) method.invoke(thread);
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 上传阻塞直到测试放行，之后反馈失败
+     */
+    private class BlockingHandler extends AbstractRealHandler<String> {
+        // 待加载的资源
+        private final List<String> pending;
+        // 开始上传的资源
+        final List<String> sources = new ArrayList<>();
+        // 上传所在的线程
+        final List<Thread> threads = new ArrayList<>();
+        // 全部资源都已开始上传
+        final CountDownLatch started;
+        // 是否阻塞上传
+        volatile boolean blocking = true;
+
+        BlockingHandler(String... sources) {
+            this.pending = Arrays.asList(sources);
+            this.started = new CountDownLatch(sources.length);
+        }
+
+        @Override
+        protected ScheduleClient loadScheduleClient() {
+            return client;
+        }
+
+        @Override
+        protected void loadSource(OnSourceCallback<String> callback) {
+            callback.attachSource(new ArrayList<>(pending));
+        }
+
+        @Override
+        protected void handleRealEvent(String source, MessageHandleCenter center) {
+            synchronized (this) {
+                sources.add(source);
+                threads.add(Thread.currentThread());
+            }
+            started.countDown();
+            if (!blocking) {
+                center.sendSuccessMessage();
+                return;
+            }
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            center.sendFailureMessage();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package org.sheedon.uploader.backoff;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * 按事件键退避与各退避策略的取值范围
+ */
+public class BackoffTrackerTest {
+
+    @Test
+    public void failureOnlyDelaysItsOwnKey() {
+        BackoffTracker tracker = new BackoffTracker(new TableBackoff(1000, 2000));
+
+        assertEquals(1000, tracker.onFailure("a"));
+        assertEquals(2000, tracker.onFailure("a"));
+        assertEquals(2000, tracker.onFailure("a"));
+        assertEquals(3, tracker.getAttempt("a"));
+        assertTrue(tracker.isBackingOff("a"));
+        assertFalse(tracker.isBackingOff("b"));
+        assertTrue(tracker.nextRetryDelay() > 0);
+
+        tracker.onFailure(BackoffTracker.GLOBAL_KEY);
+        tracker.onSuccess("a");
+        assertFalse(tracker.isBackingOff("a"));
+        assertEquals(0, tracker.nextRetryDelay());
+        assertTrue(tracker.isBackingOff(BackoffTracker.GLOBAL_KEY));
+    }
+
+    @Test
+    public void exponentialIsCappedAndJittered() {
+        ExponentialBackoff policy = new ExponentialBackoff(100, 1000, 2, 0.5);
+        for (int attempt = 1; attempt <= 20; attempt++) {
+            long expected = Math.min(1000, 100L << Math.min(attempt - 1, 10));
+            long delay = policy.nextDelay(attempt, 0);
+            assertTrue(delay <= expected);
+            assertTrue(delay >= expected / 2);
+        }
+    }
+
+    @Test
+    public void decorrelatedJitterStaysWithinBounds() {
+        DecorrelatedJitterBackoff policy = new DecorrelatedJitterBackoff(100, 5000);
+        long delay = 0;
+        for (int attempt = 1; attempt <= 50; attempt++) {
+            long next = policy.nextDelay(attempt, delay);
+            assertTrue(next >= 100);
+            assertTrue(next <= Math.min(5000, Math.max(100, delay * 3)));
+            delay = next;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package org.sheedon.uploader.batch;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * 自适应批量的加性增加、乘性缩小、目标耗时与吞吐量估算
+ */
+public class AdaptiveBatchSizerTest {
+
+    @Test
+    public void growsAdditivelyUnderTargetLatency() {
+        AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(4, 10, 1000);
+        assertEquals(4, sizer.batchSizeFor("a"));
+
+        sizer.onSuccess("a", 4, 200, 30000);
+        assertEquals(5, sizer.batchSizeFor("a"));
+        // 资源不足未取满时不增加
+        sizer.onSuccess("a", 2, 200, 30000);
+        assertEquals(5, sizer.batchSizeFor("a"));
+        // 超过目标耗时保持不变
+        sizer.onSuccess("a", 5, 1500, 30000);
+        assertEquals(5, sizer.batchSizeFor("a"));
+
+        for (int i = 0; i < 20; i++) {
+            sizer.onSuccess("a", 10, 200, 30000);
+        }
+        assertEquals(10, sizer.batchSizeFor("a"));
+        assertEquals(4, sizer.batchSizeFor("b"));
+    }
+
+    @Test
+    public void shrinksMultiplicativelyOnTimeoutAndFailure() {
+        AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(16, 64, 1000);
+        sizer.onTimeout("a");
+        assertEquals(8, sizer.batchSizeFor("a"));
+        sizer.onFailure("a");
+        assertEquals(4, sizer.batchSizeFor("a"));
+        for (int i = 0; i < 10; i++) {
+            sizer.onTimeout("a");
+        }
+        assertEquals(1, sizer.batchSizeFor("a"));
+
+        AdaptiveBatchSizer.Estimate estimate = sizer.getEstimate("a");
+        assertEquals(11, estimate.getTimeouts());
+        assertEquals(1, estimate.getFailures());
+    }
+
+    @Test
+    public void targetFollowsTimeoutAndEstimatesThroughput() {
+        AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(10, 100, 0);
+        // 目标为调度超时的一半
+        sizer.onSuccess("a", 10, 600, 1000);
+        assertEquals(10, sizer.batchSizeFor("a"));
+        sizer.onSuccess("a", 10, 400, 1000);
+        assertEquals(11, sizer.batchSizeFor("a"));
+
+        AdaptiveBatchSizer.Estimate estimate = sizer.getEstimate("a");
+        // 10 / 0.6s = 16.7，之后 0.75 * 16.7 + 0.25 * 25 = 18.75
+        assertEquals(18.75, estimate.getThroughput(), 0.01);
+        assertEquals(2, estimate.getSamples());
+        assertEquals(400, estimate.getLastLatency());
+    }
+}
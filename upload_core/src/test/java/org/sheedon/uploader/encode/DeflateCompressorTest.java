@@ -0,0 +1,109 @@
+package org.sheedon.uploader.encode;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import static org.junit.Assert.*;
+
+/**
+ * 压缩内容可还原，预置字典提升小内容压缩比，压缩等级随网络耗时调整
+ */
+public class DeflateCompressorTest {
+
+    @Test
+    public void dictionaryImprovesSmallPayloads() throws DataFormatException {
+        List<byte[]> samples = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            samples.add(record(i));
+        }
+        byte[] dictionary = DictionaryTrainer.train(samples, 4096);
+        assertTrue(dictionary.length > 0);
+
+        DeflateCompressor plain = new DeflateCompressor.Builder().minCompressBytes(0).level(6).build();
+        DeflateCompressor trained = new DeflateCompressor.Builder().minCompressBytes(0).level(6)
+                .dictionary(dictionary).build();
+
+        byte[] raw = record(1000);
+        EncodedPayload withoutDictionary = plain.compress(raw, 1);
+        EncodedPayload withDictionary = trained.compress(raw, 1);
+        assertTrue(withDictionary.isCompressed());
+        assertEquals(trained.getDictionaryId(), withDictionary.getDictionaryId());
+        assertTrue(withDictionary.getLength() < withoutDictionary.getLength());
+
+        assertArrayEquals(raw, inflate(withDictionary.getData(), dictionary));
+        assertEquals(withDictionary.getLength(), trained.getStat().getSentBytes());
+    }
+
+    @Test
+    public void smallOrIncompressiblePayloadIsSentAsIs() {
+        DeflateCompressor compressor = new DeflateCompressor.Builder().build();
+        byte[] raw = "tiny".getBytes(StandardCharsets.UTF_8);
+
+        EncodedPayload payload = compressor.compress(raw, 1);
+        assertFalse(payload.isCompressed());
+        assertEquals(EncodedPayload.ENCODING_IDENTITY, payload.getEncoding());
+        assertSame(raw, payload.getData());
+        assertEquals(1, compressor.getStat().getRatio(), 0);
+    }
+
+    @Test
+    public void levelFollowsNetworkSpeed() {
+        // 等级 1、3、6、9 的压缩耗时（纳秒/字节）与压缩比，6 与 9 压缩比相同
+        double[] costs = {2, 5, 12, 40};
+        double[] ratios = {0.30, 0.25, 0.20, 0.20};
+
+        // 慢速网络：网络耗时占主导，压缩比相同时取耗时较低的 6
+        assertEquals(6, levelOf(DeflateCompressor.chooseLevel(costs, ratios, 1000, 0)));
+        // 中速网络
+        assertEquals(3, levelOf(DeflateCompressor.chooseLevel(costs, ratios, 100, 0)));
+        // 极快网络：压缩耗时占主导，倾向低等级
+        assertEquals(1, levelOf(DeflateCompressor.chooseLevel(costs, ratios, 1, 3)));
+        // 未测量的等级不参与选择
+        assertEquals(6, levelOf(DeflateCompressor.chooseLevel(costs, new double[]{0, 0, 0.2, 0.2}, 1, 0)));
+        // 网络耗时未测量时保持当前等级
+        assertEquals(9, levelOf(DeflateCompressor.chooseLevel(costs, ratios, 0, 3)));
+
+        // 没有网络反馈前保持初始等级
+        DeflateCompressor compressor = new DeflateCompressor.Builder().minCompressBytes(0).build();
+        compressor.compress(batch(), 100);
+        assertEquals(6, compressor.getLevel());
+    }
+
+    private static int levelOf(int index) {
+        return DeflateCompressor.LEVELS[index];
+    }
+
+    private static byte[] record(int id) {
+        String json = "{\"deviceId\":\"device-" + (id % 7) + "\",\"recordId\":" + id
+                + ",\"type\":\"temperature\",\"unit\":\"celsius\",\"value\":" + (id * 37 % 100)
+                + ",\"status\":\"normal\",\"timestamp\":" + (1633150000000L + id) + "}";
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] batch() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            builder.append(new String(record(i), StandardCharsets.UTF_8));
+        }
+        return builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] inflate(byte[] data, byte[] dictionary) throws DataFormatException {
+        Inflater inflater = new Inflater();
+        inflater.setInput(data);
+        byte[] buffer = new byte[4096];
+        int length = inflater.inflate(buffer);
+        if (length == 0 && inflater.needsDictionary()) {
+            inflater.setDictionary(dictionary);
+            length = inflater.inflate(buffer);
+        }
+        inflater.end();
+        return Arrays.copyOf(buffer, length);
+    }
+}
@@ -0,0 +1,87 @@
+package org.sheedon.uploader.metrics;
+
+import org.junit.Test;
+import org.sheedon.uploader.message.DefaultMessageGroup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 分段计数在多线程下不丢失，直方图按固定分桶估算百分位，状态切换累计停留时间与进入次数
+ */
+public class SchedulerMetricsTest {
+
+    @Test
+    public void stripedCounterSumsAcrossThreads() throws InterruptedException {
+        StripedCounter counter = new StripedCounter();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Thread thread = new Thread(() -> {
+                for (int j = 0; j < 100_000; j++) {
+                    counter.increment();
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(800_000, counter.sum());
+        counter.reset();
+        assertEquals(0, counter.sum());
+    }
+
+    @Test
+    public void histogramEstimatesPercentilesByBucket() {
+        LatencyHistogram histogram = new LatencyHistogram(new long[]{10, 100, 1000});
+        for (int i = 1; i <= 90; i++) {
+            histogram.record(5);
+        }
+        for (int i = 1; i <= 10; i++) {
+            histogram.record(500);
+        }
+        histogram.record(5000);
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(101, snapshot.getCount());
+        assertArrayEquals(new long[]{90, 0, 10, 1}, snapshot.getCounts());
+        assertEquals(10, snapshot.getPercentile(0.5));
+        assertEquals(1000, snapshot.getPercentile(0.95));
+        assertEquals(5000, snapshot.getPercentile(1));
+        assertEquals(5000, snapshot.getMax());
+    }
+
+    @Test
+    public void transitionsAccumulateStateTimeAndNotifyListener() throws InterruptedException {
+        SchedulerMetrics metrics = new SchedulerMetrics();
+        List<MetricsSnapshot> reported = Collections.synchronizedList(new ArrayList<>());
+        metrics.setListener(reported::add, 10);
+        metrics.registerGauge("inFlight", () -> 3);
+
+        metrics.onTransition(DefaultMessageGroup.TYPE_NORMAL, DefaultMessageGroup.TYPE_CHECK);
+        Thread.sleep(30);
+        metrics.onTransition(DefaultMessageGroup.TYPE_CHECK, DefaultMessageGroup.TYPE_EXECUTE);
+        metrics.onTransition(DefaultMessageGroup.TYPE_EXECUTE, DefaultMessageGroup.TYPE_TIMEOUT);
+        metrics.onDispatched(100);
+        metrics.onDispatched(100);
+        metrics.onTimedOut();
+        metrics.onFailed(2000);
+
+        MetricsSnapshot snapshot = metrics.snapshot();
+        assertEquals(DefaultMessageGroup.TYPE_TIMEOUT, snapshot.getState());
+        assertEquals(1, snapshot.getStateEntries(DefaultMessageGroup.TYPE_EXECUTE));
+        assertTrue(snapshot.getStateMillis(DefaultMessageGroup.TYPE_CHECK) >= 30);
+        // 执行状态在同一条消息内结束，不单独计时
+        assertEquals(0, snapshot.getStateMillis(DefaultMessageGroup.TYPE_EXECUTE));
+        assertEquals(200, snapshot.getDispatchedBytes());
+        assertEquals(0.5f, snapshot.getTimeoutRate(), 0.0001f);
+        assertEquals(2000, snapshot.getBackoffDelay().getMax());
+        assertEquals(3L, (long) snapshot.getGauges().get("inFlight"));
+        // 间隔内只回调一次
+        assertEquals(1, reported.size());
+    }
+}
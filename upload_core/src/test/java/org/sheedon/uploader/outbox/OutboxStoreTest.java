@@ -0,0 +1,118 @@
+package org.sheedon.uploader.outbox;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 发件箱在普通JVM上的读写、确认、回收与重启恢复
+ */
+public class OutboxStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void appendReadAndAck() throws Exception {
+        try (OutboxStore store = OutboxStore.open(folder.getRoot())) {
+            long first = store.append(bytes("a"));
+            long second = store.append(bytes("b"));
+            store.append(bytes("c"));
+
+            List<OutboxRecord> records = store.read(0, 10);
+            assertEquals(3, records.size());
+            assertEquals(first, records.get(0).getOffset());
+            assertEquals(second, records.get(0).getNextOffset());
+            assertEquals("b", text(records.get(1)));
+
+            assertTrue(store.ack(second));
+            assertFalse(store.ack(second));
+            records = store.read(0, 10);
+            assertEquals(2, records.size());
+            assertEquals("c", text(records.get(1)));
+            assertEquals(2, store.pendingCount());
+
+            records = store.read(records.get(0).getNextOffset(), 10);
+            assertEquals(1, records.size());
+            assertEquals("c", text(records.get(0)));
+        }
+    }
+
+    @Test
+    public void reopenSkipsAckedRecords() throws Exception {
+        File directory = folder.getRoot();
+        OutboxStore store = OutboxStore.open(directory);
+        long first = store.append(bytes("a"));
+        store.append(bytes("b"));
+        store.ack(first);
+        // 不关闭，模拟进程被杀
+
+        try (OutboxStore reopened = OutboxStore.open(directory)) {
+            List<OutboxRecord> records = reopened.read(0, 10);
+            assertEquals(1, records.size());
+            assertEquals("b", text(records.get(0)));
+
+            reopened.append(bytes("c"));
+            assertEquals(2, reopened.read(0, 10).size());
+        }
+        store.close();
+    }
+
+    @Test
+    public void tornRecordIsDroppedOnRecovery() throws Exception {
+        File directory = folder.getRoot();
+        long second;
+        try (OutboxStore store = OutboxStore.open(directory)) {
+            store.append(bytes("a"));
+            second = store.append(bytes("broken"));
+        }
+
+        // 破坏第二条记录的内容
+        File segment = directory.listFiles()[0];
+        try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+            file.seek(second + 10);
+            file.write('X');
+        }
+
+        try (OutboxStore store = OutboxStore.open(directory)) {
+            List<OutboxRecord> records = store.read(0, 10);
+            assertEquals(1, records.size());
+            assertEquals("a", text(records.get(0)));
+            assertEquals(second, store.append(bytes("c")));
+        }
+    }
+
+    @Test
+    public void fullyAckedSegmentsAreReclaimed() throws Exception {
+        try (OutboxStore store = OutboxStore.open(folder.getRoot(), 64)) {
+            long[] offsets = new long[20];
+            for (int index = 0; index < offsets.length; index++) {
+                offsets[index] = store.append(bytes("record-" + index));
+            }
+            assertTrue(store.segmentCount() > 1);
+
+            for (long offset : offsets) {
+                store.ack(offset);
+            }
+            assertEquals(0, store.pendingCount());
+            assertEquals(1, store.segmentCount());
+            assertEquals(1, folder.getRoot().listFiles().length);
+            assertTrue(store.read(0, 10).isEmpty());
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String text(OutboxRecord record) {
+        return new String(record.getPayload(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,159 @@
+package org.sheedon.uploader.process;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.sheedon.uploader.EventQueue;
+import org.sheedon.uploader.EventQueueFixture;
+
+import static org.junit.Assert.*;
+
+/**
+ * 熔断在固定时钟下按失败率打开、到期半开、试探结果决定关闭或重新打开，服务端点共用熔断器
+ */
+public class CircuitBreakerProcessTest {
+
+    private static final long MILLIS = 1_000_000L;
+
+    private final EventQueue queue = new EventQueue();
+    // 当前时间（纳秒）
+    private long now;
+    // 后续流程是否发起调度
+    private boolean dispatch = true;
+    private int dispatched;
+    private CircuitBreakerProcess process;
+
+    @Before
+    public void setUp() {
+        CircuitBreakerConfig config = new CircuitBreakerConfig.Builder()
+                .windowSize(4)
+                .minimumCalls(4)
+                .failureRateThreshold(0.5f)
+                .openDuration(1000)
+                .halfOpenProbes(2)
+                .build();
+        process = new CircuitBreakerProcess(queue, config, () -> now);
+        process.setNextProcess(new AbstractProcess() {
+            @Override
+            public boolean execute() {
+                if (dispatch) {
+                    dispatched++;
+                }
+                return dispatch;
+            }
+
+            @Override
+            public void onDestroy() {
+            }
+        });
+    }
+
+    @Test
+    public void opensAtThresholdAndHalfOpensAfterDuration() {
+        process.onResult("a", true);
+        process.onResult("a", true);
+        process.onResult("a", false);
+        // 调度次数不足，不计算失败率
+        assertEquals(-1, process.getFailureRate("a"), 0);
+        assertEquals(CircuitBreakerProcess.STATE_CLOSED, process.getState("a"));
+
+        process.onResult("a", false);
+        assertEquals(0.5f, process.getFailureRate("a"), 0);
+        assertEquals(CircuitBreakerProcess.STATE_OPEN, process.getState("a"));
+        assertFalse(process.accept("a"));
+        assertEquals(1000, process.acceptDelay("a"));
+
+        now += 400 * MILLIS;
+        assertEquals(600, process.acceptDelay("a"));
+        assertEquals(600, process.nextAcceptDelay());
+        assertTrue(process.accept("b"));
+
+        now += 600 * MILLIS;
+        assertEquals(CircuitBreakerProcess.STATE_HALF_OPEN, process.getState("a"));
+        assertTrue(process.accept("a"));
+        assertEquals(0, process.acceptDelay("a"));
+    }
+
+    @Test
+    public void probesCloseOnSuccessAndReopenOnFailure() {
+        open("a");
+        now += 1000 * MILLIS;
+        select("a");
+        assertTrue(process.execute());
+        assertTrue(process.execute());
+        // 试探名额用完
+        assertFalse(process.accept("a"));
+        assertFalse(process.execute());
+        assertEquals(2, dispatched);
+
+        process.onResult("a", true);
+        assertEquals(CircuitBreakerProcess.STATE_HALF_OPEN, process.getState("a"));
+        process.onResult("a", true);
+        assertEquals(CircuitBreakerProcess.STATE_CLOSED, process.getState("a"));
+        // 关闭后重新统计
+        assertEquals(-1, process.getFailureRate("a"), 0);
+
+        open("a");
+        now += 1000 * MILLIS;
+        assertTrue(process.execute());
+        process.onResult("a", false);
+        assertEquals(CircuitBreakerProcess.STATE_OPEN, process.getState("a"));
+        assertEquals(1000, process.acceptDelay("a"));
+    }
+
+    @Test
+    public void probeIsReturnedWhenNotDispatched() {
+        open("a");
+        now += 1000 * MILLIS;
+        select("a");
+        dispatch = false;
+        for (int i = 0; i < 5; i++) {
+            assertFalse(process.execute());
+        }
+        assertTrue(process.accept("a"));
+
+        dispatch = true;
+        assertTrue(process.execute());
+        assertTrue(process.execute());
+        assertEquals(2, dispatched);
+    }
+
+    @Test
+    public void endpointResolverSharesCircuit() {
+        process.setEndpointResolver(key -> key.startsWith("upload.") ? "api" : null);
+        process.setConfig("api", new CircuitBreakerConfig.Builder()
+                .windowSize(2)
+                .minimumCalls(2)
+                .openDuration(500)
+                .build());
+
+        process.onResult("upload.a", false);
+        process.onResult("upload.b", false);
+        assertEquals(CircuitBreakerProcess.STATE_OPEN, process.getState("upload.a"));
+        assertEquals(CircuitBreakerProcess.STATE_OPEN, process.getState("upload.b"));
+        assertEquals(500, process.acceptDelay("upload.b"));
+
+        // 未映射的事件键各自使用默认配置
+        process.onResult("other", false);
+        process.onResult("other", false);
+        assertEquals(CircuitBreakerProcess.STATE_CLOSED, process.getState("other"));
+        assertTrue(process.accept("other"));
+    }
+
+    /**
+     * 连续失败打开事件键的熔断
+     */
+    private void open(String key) {
+        for (int i = 0; i < 4; i++) {
+            process.onResult(key, false);
+        }
+        assertEquals(CircuitBreakerProcess.STATE_OPEN, process.getState(key));
+    }
+
+    /**
+     * 将事件键设为事件队列当前取出的事件
+     */
+    private void select(String key) {
+        EventQueueFixture.offer(queue, key);
+        assertEquals(key, queue.pollEvent());
+    }
+}
@@ -0,0 +1,73 @@
+package org.sheedon.uploader.process;
+
+import org.junit.Test;
+import org.sheedon.uploader.EventQueue;
+
+import static org.junit.Assert.*;
+
+/**
+ * 令牌不足时按补充到位的准确时间挂起，按事件键的限制互不影响，字节数允许透支
+ */
+public class RateLimitProcessTest {
+
+    private static final long MILLIS = 1_000_000L;
+
+    // 当前时间（纳秒）
+    private long now;
+
+    @Test
+    public void bucketReportsExactRefillTime() {
+        TokenBucket bucket = new TokenBucket(2, 2, 0);
+        bucket.consume(2, 0);
+        // 每秒2个令牌，补充1个需要500毫秒
+        assertEquals(500_000_000L, bucket.nanosUntil(1, 0));
+        assertEquals(0, bucket.nanosUntil(1, 500_000_000L));
+        // 补充不超过桶容量
+        assertEquals(2, bucket.available(10_000_000_000L), 0.0001);
+    }
+
+    @Test
+    public void keyLimitDoesNotAffectOtherKeys() {
+        EventQueue queue = new EventQueue();
+        RateLimitProcess process = new RateLimitProcess(queue, null, 0, () -> now);
+        process.setConfig("slow", new RateLimitConfig.Builder().requestsPerSecond(0.5).build());
+
+        assertTrue(process.accept("slow"));
+        process.onDispatched("slow", 0);
+        assertEquals(2000, process.acceptDelay("slow"));
+        assertFalse(process.accept("slow"));
+
+        for (int i = 0; i < 100; i++) {
+            assertTrue(process.accept("fast"));
+            process.onDispatched("fast", 0);
+        }
+        assertEquals(0, process.nextAcceptDelay());
+
+        now += 1500 * MILLIS;
+        assertEquals(500, process.acceptDelay("slow"));
+        now += 500 * MILLIS;
+        assertTrue(process.accept("slow"));
+        process.onDestroy();
+    }
+
+    @Test
+    public void bytesMayOverdraftOnce() {
+        EventQueue queue = new EventQueue();
+        RateLimitConfig config = new RateLimitConfig.Builder().bytesPerSecond(1000).build();
+        RateLimitProcess process = new RateLimitProcess(queue, config, 0, () -> now);
+
+        assertTrue(process.accept("a"));
+        process.onDispatched("a", 3000);
+        // 透支2000字节，2秒后才能再次调度，全局限制对所有事件键生效
+        assertEquals(2000, process.acceptDelay("b"));
+        assertEquals(2000, process.nextAcceptDelay());
+
+        now += 1999 * MILLIS;
+        assertFalse(process.accept("a"));
+        assertEquals(1, process.acceptDelay("a"));
+        now += MILLIS;
+        assertTrue(process.accept("b"));
+        assertEquals(0, process.nextAcceptDelay());
+        process.onDestroy();
+    }
+}
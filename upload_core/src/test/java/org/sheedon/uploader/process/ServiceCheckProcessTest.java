@@ -0,0 +1,84 @@
+package org.sheedon.uploader.process;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 服务器核实在首次探测完成前未就绪而不失败，探测可以连接时唤醒调度
+ */
+public class ServiceCheckProcessTest {
+
+    // 等待执行的探测
+    private final List<Runnable> probes = new ArrayList<>();
+    // 探测结果
+    private boolean connected = true;
+    private int recovered;
+    private int executed;
+    private ServiceCheckProcess process;
+
+    @After
+    public void tearDown() {
+        if (process != null) {
+            process.onDestroy();
+        }
+    }
+
+    @Test
+    public void notReadyUntilFirstProbe() {
+        process = newProcess();
+        assertFalse(process.isReady());
+        assertFalse(process.isReady());
+        // 首次探测只发起一次
+        assertEquals(1, probes.size());
+
+        runProbes();
+        assertEquals(1, recovered);
+        assertTrue(process.isReady());
+        assertTrue(process.execute());
+        assertEquals(1, executed);
+    }
+
+    @Test
+    public void failedFirstProbeFallsBackToFailure() {
+        connected = false;
+        process = newProcess();
+        assertFalse(process.isReady());
+
+        runProbes();
+        assertEquals(0, recovered);
+        // 已确认无法连接，交由执行失败进入延迟
+        assertTrue(process.isReady());
+        assertFalse(process.execute());
+        assertEquals(0, executed);
+    }
+
+    private ServiceCheckProcess newProcess() {
+        ServiceCheckProcess process = new ServiceCheckProcess(null, () -> connected, probes::add);
+        process.setNextProcess(new AbstractProcess() {
+            @Override
+            public boolean execute() {
+                executed++;
+                return true;
+            }
+
+            @Override
+            public void onDestroy() {
+            }
+        });
+        process.setOnRecoveryListener(() -> recovered++);
+        return process;
+    }
+
+    private void runProbes() {
+        List<Runnable> pending = new ArrayList<>(probes);
+        probes.clear();
+        for (Runnable probe : pending) {
+            probe.run();
+        }
+    }
+}
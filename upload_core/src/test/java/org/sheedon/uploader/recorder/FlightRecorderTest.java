@@ -0,0 +1,65 @@
+package org.sheedon.uploader.recorder;
+
+import org.junit.Test;
+import org.sheedon.uploader.message.DefaultMessageGroup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 环形缓冲只保留最近的记录，导出后可完整解码，记录时不分配对象
+ */
+public class FlightRecorderTest {
+
+    @Test
+    public void dumpKeepsLatestRecordsAndDecodes() throws IOException {
+        FlightRecorder recorder = new FlightRecorder(16);
+        long start = System.nanoTime();
+        for (int i = 0; i < 40; i++) {
+            recorder.record(start + i * 1000L, DefaultMessageGroup.TYPE_EXECUTE, DefaultMessageGroup.TYPE_TIMEOUT,
+                    i % 2 == 0 ? "a" : null, i);
+        }
+        assertEquals(40, recorder.getRecordedCount());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int written = recorder.dump(out);
+        List<FlightRecordDecoder.Record> records = FlightRecordDecoder.decode(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(written, records.size());
+        // 写满后最早的一条可能正被覆盖，导出时丢弃
+        assertEquals(15, written);
+
+        FlightRecordDecoder.Record last = records.get(records.size() - 1);
+        assertEquals(39, last.getAttempt());
+        assertNull(last.getKey());
+        assertEquals(DefaultMessageGroup.TYPE_TIMEOUT, last.getTo());
+        assertEquals("a", records.get(records.size() - 2).getKey());
+        assertEquals(1000, last.getNanos() - records.get(records.size() - 2).getNanos());
+        // 每条记录只占几个字节
+        assertTrue(out.size() < 64 + written * 8);
+    }
+
+    @Test
+    public void recordDoesNotAllocate() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            return;
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        FlightRecorder recorder = new FlightRecorder(1024);
+        recorder.keyIdOf("key");
+        long id = Thread.currentThread().getId();
+
+        long before = threads.getThreadAllocatedBytes(id);
+        for (int i = 0; i < 100_000; i++) {
+            recorder.record(i, i & 7, (i + 1) & 7, "key", i);
+        }
+        long allocated = threads.getThreadAllocatedBytes(id) - before;
+        assertTrue("allocated " + allocated + " bytes", allocated < 1024);
+    }
+}
@@ -0,0 +1,53 @@
+package org.sheedon.uploader.timeout;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * 自适应超时的平滑、翻倍、字节数追加与上下限
+ */
+public class RttTimeoutEstimatorTest {
+
+    @Test
+    public void followsSamplesWithinBounds() {
+        RttTimeoutEstimator estimator = new RttTimeoutEstimator(30000, 500, 60000);
+        assertEquals(30000, estimator.timeoutFor("a", 0));
+
+        for (int i = 0; i < 50; i++) {
+            estimator.onSample("a", 100);
+        }
+        // 耗时稳定时收敛到下限
+        assertEquals(500, estimator.timeoutFor("a", 0));
+        assertEquals(30000, estimator.timeoutFor("b", 0));
+
+        estimator.onSample("c", 4000);
+        // SRTT = 4000, RTTVAR = 2000
+        assertEquals(12000, estimator.timeoutFor("c", 0));
+        assertEquals(1, estimator.getEstimate("c").getSamples());
+    }
+
+    @Test
+    public void timeoutDoublesUntilNextSample() {
+        RttTimeoutEstimator estimator = new RttTimeoutEstimator(30000, 500, 60000);
+        estimator.onSample("a", 1000);
+        assertEquals(3000, estimator.timeoutFor("a", 0));
+
+        estimator.onTimeout("a");
+        assertEquals(6000, estimator.timeoutFor("a", 0));
+        estimator.onTimeout("a");
+        assertEquals(12000, estimator.timeoutFor("a", 0));
+        assertEquals(2, estimator.getEstimate("a").getTimeouts());
+
+        estimator.onSample("a", 1000);
+        assertTrue(estimator.timeoutFor("a", 0) < 6000);
+    }
+
+    @Test
+    public void addsTransferTimeForLargePayloads() {
+        RttTimeoutEstimator estimator = new RttTimeoutEstimator(1000, 500, 60000, 10 * 1024);
+        assertEquals(1000, estimator.timeoutFor("a", 0));
+        assertEquals(11000, estimator.timeoutFor("a", 100 * 1024));
+        assertEquals(60000, estimator.timeoutFor("a", 1024 * 1024));
+    }
+}
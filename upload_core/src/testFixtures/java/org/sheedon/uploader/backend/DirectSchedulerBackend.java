@@ -0,0 +1,207 @@
+package org.sheedon.uploader.backend;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * 不启动线程的调度后端，用于基准测试与单元测试，消息在调用{@link #drain()}的线程上依次执行，
+ * 延迟消息（超时、退避等待）只保存不触发，需要时通过{@link #fireDelayed()}立即执行，调度过程可完全由调用方控制。
+ * 消息对象复用，后端自身不产生分配，GC 分析中的分配均来自调度器。
+ * 仅以 test fixtures 提供给单元测试与基准测试模块，不随库发布。
+ *
+ * @Author: sheedon
+ * @Email: sheedonsun@163.com
+ * @Date: 2021/10/6 9:00 上午
+ */
+public final class DirectSchedulerBackend implements SchedulerBackend {
+
+    // 等待执行的消息
+    private final ArrayDeque<PendingMessage> pending = new ArrayDeque<>();
+    // 延迟消息
+    private final List<PendingMessage> delayed = new ArrayList<>();
+    // 可复用的消息
+    private final ArrayDeque<PendingMessage> pool = new ArrayDeque<>();
+    // 消息回调
+    private MessageCallback callback;
+    // 是否已退出
+    private boolean quit;
+
+    @Override
+    public void attach(@NonNull MessageCallback callback) {
+        this.callback = callback;
+    }
+
+    @Override
+    public void sendMessage(int what, @Nullable Object obj) {
+        if (!quit) {
+            pending.addLast(obtain(what, obj, null));
+        }
+    }
+
+    @Override
+    public void sendMessageDelayed(int what, @Nullable Object obj, long delayMillis) {
+        if (quit) {
+            return;
+        }
+        if (delayMillis <= 0) {
+            sendMessage(what, obj);
+            return;
+        }
+        delayed.add(obtain(what, obj, null));
+    }
+
+    @Override
+    public void post(@NonNull Runnable runnable) {
+        if (!quit) {
+            pending.addLast(obtain(0, null, runnable));
+        }
+    }
+
+    @Override
+    public boolean hasMessages(int what, @Nullable Object obj) {
+        return contains(pending, what, obj) || contains(delayed, what, obj);
+    }
+
+    @Override
+    public void removeMessages(int what, @Nullable Object obj) {
+        remove(pending, what, obj);
+        remove(delayed, what, obj);
+    }
+
+    @Override
+    public void quit() {
+        quit = true;
+        pending.clear();
+        delayed.clear();
+    }
+
+    /**
+     * 依次执行等待中的消息，直到没有消息
+     *
+     * @return 执行的消息数量
+     */
+    public int drain() {
+        int count = 0;
+        PendingMessage message;
+        while ((message = pending.pollFirst()) != null) {
+            int what = message.what;
+            Object obj = message.obj;
+            Runnable runnable = message.runnable;
+            recycle(message);
+            if (runnable != null) {
+                runnable.run();
+            } else if (callback != null) {
+                callback.handleMessage(what, obj);
+            }
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * 立即执行全部延迟消息
+     *
+     * @return 执行的消息数量
+     */
+    public int fireDelayed() {
+        for (PendingMessage message : delayed) {
+            pending.addLast(message);
+        }
+        delayed.clear();
+        return drain();
+    }
+
+    /**
+     * 立即执行匹配的延迟消息，如只让其中一个调度超时
+     *
+     * @param what 消息类型
+     * @param obj  附带对象，为null时匹配该类型的全部消息
+     * @return 执行的消息数量
+     */
+    public int fireDelayed(int what, @Nullable Object obj) {
+        Iterator<PendingMessage> iterator = delayed.iterator();
+        while (iterator.hasNext()) {
+            PendingMessage message = iterator.next();
+            if (message.matches(what, obj)) {
+                iterator.remove();
+                pending.addLast(message);
+            }
+        }
+        return drain();
+    }
+
+    /**
+     * 指定类型的延迟消息附带的对象，按发送顺序排列
+     *
+     * @param what 消息类型
+     */
+    @NonNull
+    public List<Object> delayedObjects(int what) {
+        List<Object> objects = new ArrayList<>();
+        for (PendingMessage message : delayed) {
+            if (message.matches(what, null)) {
+                objects.add(message.obj);
+            }
+        }
+        return objects;
+    }
+
+    /**
+     * 等待中的延迟消息数量
+     */
+    public int delayedCount() {
+        return delayed.size();
+    }
+
+    private PendingMessage obtain(int what, Object obj, Runnable runnable) {
+        PendingMessage message = pool.pollFirst();
+        if (message == null) {
+            message = new PendingMessage();
+        }
+        message.what = what;
+        message.obj = obj;
+        message.runnable = runnable;
+        return message;
+    }
+
+    private void recycle(PendingMessage message) {
+        message.obj = null;
+        message.runnable = null;
+        pool.addLast(message);
+    }
+
+    private static boolean contains(Iterable<PendingMessage> messages, int what, Object obj) {
+        for (PendingMessage message : messages) {
+            if (message.matches(what, obj)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void remove(Iterable<PendingMessage> messages, int what, Object obj) {
+        Iterator<PendingMessage> iterator = messages.iterator();
+        while (iterator.hasNext()) {
+            PendingMessage message = iterator.next();
+            if (message.matches(what, obj)) {
+                iterator.remove();
+                recycle(message);
+            }
+        }
+    }
+
+    private static final class PendingMessage {
+        int what;
+        Object obj;
+        Runnable runnable;
+
+        boolean matches(int what, Object obj) {
+            return runnable == null && this.what == what && (obj == null || this.obj == obj);
+        }
+    }
+}
@@ -3,9 +3,13 @@ package org.sheedon.uploader;
 import android.content.Context;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
+import org.sheedon.uploader.backend.HandlerSchedulerBackend;
+import org.sheedon.uploader.backend.SchedulerRuntime;
 import org.sheedon.uploader.process.AbstractProcess;
 import org.sheedon.uploader.process.DefaultProcess;
+import org.sheedon.uploader.transport.UploadTransport;
 
 /**
  * 数据上报/数据处理 执行客户端，建议单例维持。
@@ -17,138 +21,108 @@ import org.sheedon.uploader.process.DefaultProcess;
  * 这两者只是生产各种消息策略，将任务如永动机般轮询。
  * 真实启动任务由{@link AbstractProcess}，当前主要为了上报离线记录，故采用的策略为「网络」+「服务器」+「真实调度提交任务」，
  * 可自定义实现。
+ * <p>
+ * 调度核心见{@link ScheduleClient}，当前类为 Android 端实现，消息在 HandlerThread 上执行；
+ * 同一进程内有多个客户端时，可接入共享调度运行时{@link SchedulerRuntime}共用工作线程。
+ * 设置了 baseUrl 时提供内置的上传传输层{@link #getTransport()}，子调度器可直接用于上传资源。
  *
  * @Author: sheedon
  * @Email: sheedonsun@163.com
  * @Date: 2021/9/11 11:19 下午
  */
-public class UploadScheduleClient {
-    // 流程
-    private final AbstractProcess process;
-    // 资源链接
-    private final EventQueue queue;
-    // 消息处理器
-    private final MessageHandler handler;
-    // 异步处理器
-    private final AsyncTrigger trigger;
-
-    private UploadScheduleClient(Builder builder) {
-        process = builder.process;
-        queue = builder.queue;
-        trigger = builder.trigger;
-        handler = trigger.getWorkHandler();
-        trigger.attach(this);
-    }
+public class UploadScheduleClient extends ScheduleClient {
 
-    /**
-     * 提交事件，等待执行
-     * 业务处理客户端，主要借助与此方法，将代表自身的key（类名）和EventListener事件监听器，传递进来，
-     * 由当前模块达到符合条件后调度
-     *
-     * @param key      类名
-     * @param listener 事件监听器
-     */
-    public void submitEvent(String key, EventListener listener) {
-        queue.offerEvent(key, listener);
-        handler.sendDelayMessage();
-    }
+    // 上传传输层
+    private final UploadTransport transport;
+    // 传输层是否由客户端创建，销毁时关闭
+    private final boolean ownTransport;
 
-    /**
-     * 移除事件，业务处理客户端不需要当前模块处理任务后，可手动解除事件绑定
-     *
-     * @param key 类名
-     */
-    public void removeEvent(String key) {
-        queue.deleteEvent(key);
-    }
-
-    /**
-     * 消息队列
-     */
-    EventQueue getQueue() {
-        return queue;
+    private UploadScheduleClient(Builder builder) {
+        super(builder);
+        if (builder.transport != null) {
+            transport = builder.transport;
+            ownTransport = false;
+        } else if (builder.getBaseUrl() != null) {
+            transport = new UploadTransport.Builder(builder.getBaseUrl()).build();
+            ownTransport = true;
+        } else {
+            transport = null;
+            ownTransport = false;
+        }
     }
 
     /**
-     * 数据处理流程
+     * 上传传输层，向 baseUrl 上传资源，连接保持复用；未设置 baseUrl 与传输层时返回null
      */
-    AbstractProcess getProcess() {
-        return process;
+    @Nullable
+    public UploadTransport getTransport() {
+        return transport;
     }
 
     /**
-     * 销毁
+     * 销毁，并关闭由客户端创建的传输层
      */
+    @Override
     public void onDestroy() {
-        if (process != null) {
-            process.onDestroy();
-        }
-        if (trigger != null) {
-            trigger.onDestroy();
-        }
-        if (queue != null) {
-            queue.onDestroy();
+        super.onDestroy();
+        if (ownTransport) {
+            transport.shutdown();
         }
     }
 
     /**
      * 数据上报执行构造器
      */
-    public static class Builder {
+    public static class Builder extends ScheduleClient.AbstractBuilder<Builder> {
 
         private final Context context;
-        // 请求执行流程
-        private AbstractProcess process;
-        // 资源链接
-        private final EventQueue queue;
-        // 异步处理调度器
-        private final AsyncTrigger trigger;
-        // 服务器链接url
-        private String baseUrl;
-
-        private INetConnected netConnected;
+        // 上传传输层，为null时按 baseUrl 创建
+        private UploadTransport transport;
 
         public Builder(Context context) {
+            super(new HandlerSchedulerBackend(AsyncTrigger.class.getName()));
             this.context = context;
-            queue = new EventQueue();
-            trigger = new AsyncTrigger();
         }
 
         /**
-         * 添加数据处理执行的流程（责任链）
+         * 接入共享调度运行时，与其他客户端共用工作线程，不再单独创建 HandlerThread，
+         * 客户端销毁时退出运行时，创建客户端时才接入
          *
-         * @param process 执行流程策略
-         * @return Builder 构造器
+         * @param context 上下文
+         * @param runtime 共享调度运行时
          */
-        public Builder process(@NonNull AbstractProcess process) {
-            this.process = process;
+        public Builder(Context context, SchedulerRuntime runtime) {
+            super(runtime);
+            this.context = context;
+        }
+
+        @Override
+        protected Builder self() {
             return this;
         }
 
         /**
-         * 添加网络连接状态
+         * 使用外部配置的上传传输层（如连接上限、鉴权请求头），多个客户端可共用，客户端销毁时不关闭
+         * 未设置时按 baseUrl 以默认配置创建
          *
-         * @param netConnected 网络连接状态监听器
+         * @param transport 上传传输层
          * @return Builder 构造器
          */
-        public Builder netConnected(@NonNull INetConnected netConnected) {
-            this.netConnected = netConnected;
+        public Builder transport(@NonNull UploadTransport transport) {
+            this.transport = transport;
             return this;
         }
 
         /**
-         * 添加服务器核实的链接
-         *
-         * @param baseUrl Api 基础URL
-         * @return Builder 构造器
+         * 默认流程在服务器核实前增加「网络核实流程」
          */
-        public Builder baseUrl(@NonNull String baseUrl) {
-            if (baseUrl.trim().isEmpty()) throw new NullPointerException("baseUrl is null");
-            this.baseUrl = baseUrl;
-            return this;
+        @Override
+        protected AbstractProcess createDefaultProcess(String baseUrl, INetConnected netConnected,
+                                                       EventQueue queue, MessageHandler workHandler) {
+            return new DefaultProcess(context, baseUrl, netConnected, createScheduleProcess(queue, workHandler),
+                    getBackend());
         }
 
-
         /**
          * 创建数据上报执行客户端
          * 验证 必须添加 「自定义流程处理或url」任意一项
@@ -157,15 +131,7 @@ public class UploadScheduleClient {
          * @return UploadScheduleClient
          */
         public UploadScheduleClient build() {
-
-            if (process == null && netConnected == null && (baseUrl == null || baseUrl.trim().isEmpty())) {
-                throw new NullPointerException("please add AbstractProcess or baseUrl");
-            }
-
-            if (process == null) {
-                process = new DefaultProcess(context, baseUrl, netConnected, queue, trigger.getWorkHandler());
-            }
-
+            prepareBuild();
             return new UploadScheduleClient(this);
         }
     }
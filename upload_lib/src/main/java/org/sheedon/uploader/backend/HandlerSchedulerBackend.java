@@ -0,0 +1,89 @@
+package org.sheedon.uploader.backend;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * 基于 Android {@link Handler} 的调度后端，
+ * 消息直接进入 Looper 的消息队列，与原有的 HandlerThread 执行方式一致
+ *
+ * @Author: sheedon
+ * @Email: sheedonsun@163.com
+ * @Date: 2021/9/25 11:20 上午
+ */
+public class HandlerSchedulerBackend implements SchedulerBackend {
+
+    // 处理线程，由当前后端创建时才存在
+    private final HandlerThread triggerThread;
+    // 消息所在的Looper
+    private final Looper looper;
+    // 绑定回调后创建的Handler
+    private Handler handler;
+
+    /**
+     * 创建一个 HandlerThread 用于执行消息Loop
+     *
+     * @param name HandlerThread 添加的名称
+     */
+    public HandlerSchedulerBackend(@NonNull String name) {
+        triggerThread = new HandlerThread(name);
+        triggerThread.start();
+        looper = triggerThread.getLooper();
+    }
+
+    /**
+     * 使用已有的Looper，退出时不退出该Looper
+     *
+     * @param looper 异步线程Looper
+     */
+    public HandlerSchedulerBackend(@NonNull Looper looper) {
+        this.triggerThread = null;
+        this.looper = looper;
+    }
+
+    @Override
+    public void attach(@NonNull MessageCallback callback) {
+        handler = new Handler(looper, msg -> {
+            callback.handleMessage(msg.what, msg.obj);
+            return true;
+        });
+    }
+
+    @Override
+    public void sendMessage(int what, @Nullable Object obj) {
+        handler.sendMessage(handler.obtainMessage(what, obj));
+    }
+
+    @Override
+    public void sendMessageDelayed(int what, @Nullable Object obj, long delayMillis) {
+        handler.sendMessageDelayed(handler.obtainMessage(what, obj), delayMillis);
+    }
+
+    @Override
+    public void post(@NonNull Runnable runnable) {
+        handler.post(runnable);
+    }
+
+    @Override
+    public boolean hasMessages(int what, @Nullable Object obj) {
+        return handler.hasMessages(what, obj);
+    }
+
+    @Override
+    public void removeMessages(int what, @Nullable Object obj) {
+        handler.removeMessages(what, obj);
+    }
+
+    @Override
+    public void quit() {
+        if (triggerThread != null) {
+            triggerThread.quitSafely();
+        } else if (handler != null) {
+            handler.removeCallbacksAndMessages(null);
+        }
+    }
+}
@@ -5,6 +5,9 @@ import android.content.Context;
 import org.sheedon.uploader.EventQueue;
 import org.sheedon.uploader.INetConnected;
 import org.sheedon.uploader.MessageHandler;
+import org.sheedon.uploader.backend.SchedulerBackend;
+import org.sheedon.uploader.metrics.SchedulerMetrics;
+import org.sheedon.uploader.network.NetworkState;
 
 /**
  * 默认流程处理者，捆绑并且依次调用「网络核实流程 NetCheckProcess」、「服务器连接流程 ServiceCheckProcess」
@@ -28,13 +31,94 @@ public class DefaultProcess extends AbstractProcess {
      * @param workHandler 消息工作执行器
      */
     public DefaultProcess(Context context, String baseUrl, INetConnected netConnected, EventQueue queue, MessageHandler workHandler) {
-        process = new NetCheckProcess(context);
-        ServiceCheckProcess serviceCheckProcess = new ServiceCheckProcess(baseUrl, netConnected);
-        ScheduleProcess scheduleProcess = new ScheduleProcess(queue, workHandler);
+        this(context, baseUrl, netConnected, new ScheduleProcess(queue, workHandler));
+    }
+
+    /**
+     * 默认流程调度器，指定服务器核实之后的流程，如「熔断流程」+「事件真实执行流程」
+     *
+     * @param context         上下文
+     * @param baseUrl         基础服务器链接
+     * @param netConnected    网络连接状态监听器
+     * @param scheduleProcess 服务器核实之后的流程
+     */
+    public DefaultProcess(Context context, String baseUrl, INetConnected netConnected, AbstractProcess scheduleProcess) {
+        this(context, baseUrl, netConnected, scheduleProcess, null);
+    }
 
+    /**
+     * 默认流程调度器，服务器探测使用调度后端提供的阻塞任务执行器与共享的定时执行器
+     *
+     * @param context         上下文
+     * @param baseUrl         基础服务器链接
+     * @param netConnected    网络连接状态监听器
+     * @param scheduleProcess 服务器核实之后的流程
+     * @param backend         调度后端，为null时服务器探测自行创建线程
+     */
+    public DefaultProcess(Context context, String baseUrl, INetConnected netConnected,
+                          AbstractProcess scheduleProcess, SchedulerBackend backend) {
+        process = new NetCheckProcess(context);
+        ServiceCheckProcess serviceCheckProcess = backend == null
+                ? new ServiceCheckProcess(baseUrl, netConnected)
+                : new ServiceCheckProcess(baseUrl, netConnected, backend.blockingExecutor(), backend.sharedScheduler());
 
-        process.setNextProcess(serviceCheckProcess);
+        // 先连接末端，网络核实流程绑定后续流程时同步的网络类别才能到达事件队列
         serviceCheckProcess.setNextProcess(scheduleProcess);
+        process.setNextProcess(serviceCheckProcess);
+    }
+
+    /**
+     * 恢复监听器绑定到内部的流程链上
+     *
+     * @param listener 恢复监听器
+     */
+    @Override
+    public void setOnRecoveryListener(OnRecoveryListener listener) {
+        super.setOnRecoveryListener(listener);
+        process.setOnRecoveryListener(listener);
+    }
+
+    /**
+     * 调度指标绑定到内部的流程链上
+     *
+     * @param metrics 调度指标
+     */
+    @Override
+    public void setMetrics(SchedulerMetrics metrics) {
+        super.setMetrics(metrics);
+        process.setMetrics(metrics);
+    }
+
+    /**
+     * 恢复可用传递给内部的流程链
+     */
+    @Override
+    public void onRecovered() {
+        process.onRecovered();
+    }
+
+    /**
+     * 网络类别变化传递给内部的流程链
+     */
+    @Override
+    public void onNetworkChanged(NetworkState state) {
+        process.onNetworkChanged(state);
+    }
+
+    /**
+     * 调度结果传递给内部的流程链
+     */
+    @Override
+    public void onResult(String key, boolean success) {
+        process.onResult(key, success);
+    }
+
+    /**
+     * 就绪状态询问内部的流程链
+     */
+    @Override
+    public boolean isReady() {
+        return process.isReady();
     }
 
     /**
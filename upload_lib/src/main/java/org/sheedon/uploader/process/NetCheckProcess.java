@@ -1,34 +1,39 @@
 package org.sheedon.uploader.process;
 
 import android.content.Context;
-import android.net.ConnectivityManager;
-import android.net.Network;
-import android.net.NetworkRequest;
+
+import org.sheedon.uploader.network.NetworkState;
 
 /**
  * 网络检测流程，主要核实当前是否网络是否连接成功，
- * 为验证是否连接上服务的上一步
+ * 为验证是否连接上服务的上一步。
+ * 网络状态由进程内共享的{@link NetworkMonitor}监测，多个客户端只注册一个网络回调；
+ * 网络类别（计费、带宽）变化时经流程链传递给事件队列，按事件键的网络约束调度。
  *
  * @Author: sheedon
  * @Email: sheedonsun@163.com
  * @Date: 2021/9/12 12:45 下午
  */
-final class NetCheckProcess extends AbstractProcess {
+final class NetCheckProcess extends AbstractProcess implements NetworkMonitor.Listener {
 
-    // 网络更改反馈的通知
-    private final ConnectivityManager.NetworkCallback networkCallback;
-    // 回答有关网络连接状态的查询的类。
-    private final ConnectivityManager connectivityManager;
-    // 是否可用
-    private boolean available;
+    // 共享的网络状态监测
+    private final NetworkMonitor monitor;
 
     NetCheckProcess(Context context) {
-        this.networkCallback = new NetworkCallbackImpl();
-        NetworkRequest.Builder builder = new NetworkRequest.Builder();
-        connectivityManager = (ConnectivityManager) context.getApplicationContext()
-                .getSystemService(Context.CONNECTIVITY_SERVICE);
-        connectivityManager.registerNetworkCallback(builder.build(), networkCallback);
+        monitor = NetworkMonitor.register(context, this);
+    }
 
+    /**
+     * 绑定后续流程时同步当前网络类别
+     *
+     * @param nextProcess 下一个流程
+     */
+    @Override
+    public void setNextProcess(AbstractProcess nextProcess) {
+        super.setNextProcess(nextProcess);
+        if (nextProcess != null) {
+            nextProcess.onNetworkChanged(monitor.getState());
+        }
     }
 
     /**
@@ -36,7 +41,7 @@ final class NetCheckProcess extends AbstractProcess {
      */
     @Override
     public boolean execute() {
-        if (!available) {
+        if (!monitor.isAvailable()) {
             return false;
         }
         if (nextProcess != null) {
@@ -46,36 +51,21 @@ final class NetCheckProcess extends AbstractProcess {
     }
 
     /**
-     * 消息反馈处理
+     * 网络恢复，唤醒调度
      */
-    private class NetworkCallbackImpl extends ConnectivityManager.NetworkCallback {
-        /**
-         * 网络可用
-         */
-        @Override
-        public void onAvailable(Network network) {
-            super.onAvailable(network);
-            available = true;
-        }
-
-        /**
-         * 当框架出现网络硬丢失或正常故障结束时调用。
-         * 不可用
-         */
-        @Override
-        public void onLost(Network network) {
-            super.onLost(network);
-            available = false;
-        }
+    @Override
+    public void onNetworkRecovered() {
+        notifyRecovered();
+    }
 
-        /**
-         * 不可用
-         */
-        @Override
-        public void onUnavailable() {
-            super.onUnavailable();
-            available = false;
-        }
+    /**
+     * 网络类别变化，传递给后续流程
+     *
+     * @param state 当前网络
+     */
+    @Override
+    public void onNetworkChanged(NetworkState state) {
+        super.onNetworkChanged(state);
     }
 
     /**
@@ -83,7 +73,7 @@ final class NetCheckProcess extends AbstractProcess {
      */
     @Override
     public void onDestroy() {
-        connectivityManager.unregisterNetworkCallback(networkCallback);
+        monitor.unregister(this);
         if (nextProcess != null) {
             nextProcess.onDestroy();
         }
@@ -0,0 +1,229 @@
+package org.sheedon.uploader.process;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.net.NetworkRequest;
+
+import org.sheedon.uploader.network.NetworkState;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 进程内共享的网络状态监测，多个客户端的「网络核实流程」共用一个网络回调，
+ * 第一个监听者加入时注册，最后一个监听者移除时注销。
+ * <p>
+ * 按可用网络及其能力（NetworkCapabilities）汇总当前网络类别{@link NetworkState}：
+ * 存在不计费的网络时取不计费的网络，否则取计费的网络，同类中取上行带宽较高者；
+ * 其中一个网络断开不会误判为全部不可用。
+ *
+ * @Author: sheedon
+ * @Email: sheedonsun@163.com
+ * @Date: 2021/10/8 10:00 上午
+ */
+final class NetworkMonitor {
+
+    // 进程内唯一实例
+    private static NetworkMonitor instance;
+
+    // 回答有关网络连接状态的查询的类。
+    private final ConnectivityManager connectivityManager;
+    // 网络更改反馈的通知
+    private final ConnectivityManager.NetworkCallback networkCallback = new NetworkCallbackImpl();
+    // 监听者
+    private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+    // 当前可用的网络及其类别，由回调线程写入
+    private final Map<Network, NetworkState> networks = new HashMap<>();
+    // 汇总后的当前网络
+    private volatile NetworkState state = NetworkState.DISCONNECTED;
+
+    private NetworkMonitor(Context context) {
+        connectivityManager = (ConnectivityManager) context.getApplicationContext()
+                .getSystemService(Context.CONNECTIVITY_SERVICE);
+    }
+
+    /**
+     * 加入监听，第一个监听者加入时注册网络回调
+     *
+     * @param context  上下文
+     * @param listener 网络变化的监听者
+     * @return 网络状态监测
+     */
+    static synchronized NetworkMonitor register(Context context, Listener listener) {
+        if (instance == null) {
+            instance = new NetworkMonitor(context);
+        }
+        NetworkMonitor monitor = instance;
+        monitor.listeners.add(listener);
+        if (monitor.listeners.size() == 1) {
+            NetworkRequest.Builder builder = new NetworkRequest.Builder();
+            monitor.connectivityManager.registerNetworkCallback(builder.build(), monitor.networkCallback);
+        }
+        return monitor;
+    }
+
+    /**
+     * 移除监听，最后一个监听者移除时注销网络回调
+     *
+     * @param listener 网络变化的监听者
+     */
+    void unregister(Listener listener) {
+        synchronized (NetworkMonitor.class) {
+            if (!listeners.remove(listener) || !listeners.isEmpty()) {
+                return;
+            }
+            connectivityManager.unregisterNetworkCallback(networkCallback);
+            synchronized (networks) {
+                networks.clear();
+                state = NetworkState.DISCONNECTED;
+            }
+            instance = null;
+        }
+    }
+
+    /**
+     * 是否有可用的网络
+     */
+    boolean isAvailable() {
+        return state.isConnected();
+    }
+
+    /**
+     * 当前网络类别
+     */
+    NetworkState getState() {
+        return state;
+    }
+
+    /**
+     * 网络能力转换为网络类别
+     */
+    private static NetworkState toState(NetworkCapabilities capabilities) {
+        if (capabilities == null) {
+            // 能力未知时按计费处理，等待能力回调
+            return new NetworkState(true, NetworkState.BANDWIDTH_UNKNOWN, NetworkState.BANDWIDTH_UNKNOWN);
+        }
+        return new NetworkState(!capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_NOT_METERED),
+                capabilities.getLinkDownstreamBandwidthKbps(), capabilities.getLinkUpstreamBandwidthKbps());
+    }
+
+    /**
+     * 更新网络，汇总后的网络类别变化时通知监听者，从无可用网络恢复时另外通知恢复
+     *
+     * @param network 网络
+     * @param current 网络类别，null表示网络已断开
+     */
+    private void update(Network network, NetworkState current) {
+        NetworkState previous;
+        NetworkState next;
+        synchronized (networks) {
+            if (current == null) {
+                networks.remove(network);
+            } else {
+                networks.put(network, current);
+            }
+            previous = state;
+            next = summarize();
+            state = next;
+        }
+        if (next.equals(previous)) {
+            return;
+        }
+        for (Listener listener : listeners) {
+            listener.onNetworkChanged(next);
+        }
+        if (next.isConnected() && !previous.isConnected()) {
+            for (Listener listener : listeners) {
+                listener.onNetworkRecovered();
+            }
+        }
+    }
+
+    /**
+     * 汇总可用网络，优先不计费的网络，同类中取上行带宽较高者，需持有网络集合的锁
+     */
+    private NetworkState summarize() {
+        NetworkState best = null;
+        for (NetworkState candidate : networks.values()) {
+            if (best == null
+                    || (best.isMetered() && !candidate.isMetered())
+                    || (best.isMetered() == candidate.isMetered()
+                    && candidate.getUpstreamKbps() > best.getUpstreamKbps())) {
+                best = candidate;
+            }
+        }
+        return best == null ? NetworkState.DISCONNECTED : best;
+    }
+
+    /**
+     * 网络变化的监听者
+     */
+    interface Listener {
+        /**
+         * 从无可用网络恢复为有可用网络
+         */
+        void onNetworkRecovered();
+
+        /**
+         * 当前网络类别发生变化（连接、计费、带宽）
+         *
+         * @param state 当前网络
+         */
+        void onNetworkChanged(NetworkState state);
+    }
+
+    /**
+     * 消息反馈处理
+     */
+    private class NetworkCallbackImpl extends ConnectivityManager.NetworkCallback {
+        /**
+         * 网络可用，能力在随后的能力回调中更新
+         */
+        @Override
+        public void onAvailable(Network network) {
+            super.onAvailable(network);
+            update(network, toState(connectivityManager.getNetworkCapabilities(network)));
+        }
+
+        /**
+         * 网络能力变化（计费、带宽）
+         */
+        @Override
+        public void onCapabilitiesChanged(Network network, NetworkCapabilities capabilities) {
+            super.onCapabilitiesChanged(network, capabilities);
+            update(network, toState(capabilities));
+        }
+
+        /**
+         * 当框架出现网络硬丢失或正常故障结束时调用。
+         * 全部网络丢失时不可用
+         */
+        @Override
+        public void onLost(Network network) {
+            super.onLost(network);
+            update(network, null);
+        }
+
+        /**
+         * 不可用
+         */
+        @Override
+        public void onUnavailable() {
+            super.onUnavailable();
+            NetworkState previous;
+            synchronized (networks) {
+                networks.clear();
+                previous = state;
+                state = NetworkState.DISCONNECTED;
+            }
+            if (previous.isConnected()) {
+                for (Listener listener : listeners) {
+                    listener.onNetworkChanged(NetworkState.DISCONNECTED);
+                }
+            }
+        }
+    }
+}
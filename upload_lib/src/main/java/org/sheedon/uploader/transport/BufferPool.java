@@ -0,0 +1,86 @@
+package org.sheedon.uploader.transport;
+
+import androidx.annotation.NonNull;
+
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.util.ArrayDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 发送文件时使用的缓冲区池，缓冲区总量固定，用尽时等待归还，
+ * 使同时进行的文件上传占用的内存不超过上限，与文件大小与并发数量无关
+ *
+ * @Author: sheedon
+ * @Email: sheedonsun@163.com
+ * @Date: 2021/10/12 9:30 上午
+ */
+final class BufferPool {
+
+    // 单个缓冲区的默认大小
+    static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    // 单个缓冲区大小
+    private final int bufferSize;
+    // 可用的缓冲区名额
+    private final Semaphore permits;
+    // 已分配、空闲的缓冲区
+    private final ArrayDeque<byte[]> free = new ArrayDeque<>();
+    // 已分配的字节数
+    private long allocatedBytes;
+
+    /**
+     * @param totalBytes 缓冲区总量，不足一个默认缓冲区时只有一个该大小的缓冲区
+     */
+    BufferPool(long totalBytes) {
+        this.bufferSize = (int) Math.max(1, Math.min(DEFAULT_BUFFER_SIZE, totalBytes));
+        this.permits = new Semaphore((int) Math.max(1, totalBytes / bufferSize), true);
+    }
+
+    /**
+     * 取出缓冲区，用尽时最多等待 waitMillis
+     *
+     * @param waitMillis 等待时长
+     * @return 缓冲区，使用后需{@link #release(byte[])}
+     * @throws InterruptedIOException 等待超时或被中断
+     */
+    @NonNull
+    byte[] acquire(long waitMillis) throws InterruptedIOException {
+        try {
+            if (!permits.tryAcquire(waitMillis, TimeUnit.MILLISECONDS)) {
+                throw new SocketTimeoutException("no file buffer available");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for file buffer");
+        }
+        synchronized (free) {
+            byte[] buffer = free.pollFirst();
+            if (buffer != null) {
+                return buffer;
+            }
+            allocatedBytes += bufferSize;
+        }
+        return new byte[bufferSize];
+    }
+
+    /**
+     * 归还缓冲区
+     */
+    void release(@NonNull byte[] buffer) {
+        synchronized (free) {
+            free.addFirst(buffer);
+        }
+        permits.release();
+    }
+
+    /**
+     * 已分配的缓冲区字节数，不超过缓冲区总量
+     */
+    long getAllocatedBytes() {
+        synchronized (free) {
+            return allocatedBytes;
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package org.sheedon.uploader.transport;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import java.io.IOException;
+import java.net.ProtocolException;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * 可断点续传的分块上传，用于大文件资源，失败或超时后调度重试时从最后一个被服务端确认的块继续，而不是整个文件重发。
+ * <p>
+ * 协议：文件按固定大小分块，每块一个请求（默认 PUT），请求头携带
+ * {@link #HEADER_UPLOAD_ID}（上传标识）、{@link #HEADER_UPLOAD_OFFSET}（本块起始偏移量）与
+ * {@link #HEADER_UPLOAD_LENGTH}（总长度）；服务端写入后以 2xx 响应，并在{@link #HEADER_UPLOAD_OFFSET}中返回已确认的偏移量。
+ * 偏移量与服务端记录不一致时服务端返回 409，同样携带其已确认的偏移量，客户端以服务端为准继续，
+ * 因此确认响应丢失（服务端已写入但客户端未收到）时不会重复发送，也不会产生空洞。
+ * 确认的偏移量等于总长度且响应成功时上传完成；空文件发送一个空块。
+ * <p>
+ * 每次确认后偏移量写入{@link UploadOffsetStore}，进程重启后同一上传标识从记录的位置继续。
+ * 上传标识需能区分文件内容，如 路径+长度+修改时间，同一标识在进程内同时只允许一个上传，重复调用直接返回可重试的失败，
+ * 以免调度超时后的重试与仍在进行的上传交错。
+ * <p>
+ * 在{@link org.sheedon.uploader.AbstractRealHandler#handleRealEvent}中调用，并将结果反馈给调度：
+ * <pre>
+ * uploader.upload(id, "files", new FileSource(file, "application/octet-stream"), null).deliverTo(center);
+ * </pre>
+ * 单个块的连接或可重试的失败在本次调用内立即重发，连续超过{@link Builder#maxChunkRetries(int)}次没有进展时返回结果，
+ * 由调度按退避策略重试。
+ *
+ * @Author: sheedon
+ * @Email: sheedonsun@163.com
+ * @Date: 2021/10/12 3:00 下午
+ */
+public final class ChunkedUploader {
+
+    // 上传标识请求头
+    public static final String HEADER_UPLOAD_ID = "Upload-Id";
+    // 偏移量请求头，请求中为本块起始位置，响应中为服务端已确认的位置
+    public static final String HEADER_UPLOAD_OFFSET = "Upload-Offset";
+    // 总长度请求头
+    public static final String HEADER_UPLOAD_LENGTH = "Upload-Length";
+    // 默认块大小
+    public static final long DEFAULT_CHUNK_SIZE = 1024 * 1024;
+    // 偏移量不一致的响应码
+    private static final int STATUS_CONFLICT = 409;
+
+    // 传输层
+    private final UploadTransport transport;
+    // 本地进度存储
+    private final UploadOffsetStore store;
+    // 块大小
+    private final long chunkSize;
+    // 没有进展时的连续重发次数上限
+    private final int maxChunkRetries;
+    // 请求方法
+    private final String method;
+    // 进行中的上传标识
+    private final Set<String> active = new HashSet<>();
+
+    private ChunkedUploader(Builder builder) {
+        this.transport = builder.transport;
+        this.store = builder.store;
+        this.chunkSize = builder.chunkSize;
+        this.maxChunkRetries = builder.maxChunkRetries;
+        this.method = builder.method;
+    }
+
+    /**
+     * 上传文件资源，从本地记录的偏移量开始
+     *
+     * @param uploadId 上传标识
+     * @param path     路径，相对于传输层的 baseUrl 解析
+     * @param source   文件资源
+     * @param progress 整体进度，已确认的部分计入已发送，可为null
+     * @return 上传结果，完成时为最后一个块的成功响应
+     */
+    @WorkerThread
+    @NonNull
+    public UploadResult upload(@NonNull String uploadId, @NonNull String path, @NonNull FileSource source,
+                               @Nullable ProgressListener progress) {
+        synchronized (active) {
+            if (!active.add(uploadId)) {
+                return UploadResult.failure(new IOException("upload already in progress: " + uploadId), 0);
+            }
+        }
+        try {
+            return uploadChunks(uploadId, path, source, progress);
+        } finally {
+            synchronized (active) {
+                active.remove(uploadId);
+            }
+        }
+    }
+
+    private UploadResult uploadChunks(String uploadId, String path, FileSource source, ProgressListener progress) {
+        long startNanos = System.nanoTime();
+        long total = source.contentLength();
+        long offset = store.offsetOf(uploadId, total);
+        // 连续没有进展的次数
+        int attempts = 0;
+        while (true) {
+            long length = Math.min(chunkSize, total - offset);
+            UploadResult result = transport.execute(new UploadRequest.Builder()
+                    .method(method)
+                    .path(path)
+                    .header(HEADER_UPLOAD_ID, uploadId)
+                    .header(HEADER_UPLOAD_OFFSET, String.valueOf(offset))
+                    .header(HEADER_UPLOAD_LENGTH, String.valueOf(total))
+                    .body(source.slice(source.getOffset() + offset, length))
+                    .progress(progress != null ? new ChunkProgress(progress, offset, total) : null)
+                    .build());
+
+            long acknowledged = acknowledgedOffset(result, total);
+            if (acknowledged < 0) {
+                if (result.isSuccessful()) {
+                    return UploadResult.failure(new ProtocolException("missing or invalid " + HEADER_UPLOAD_OFFSET),
+                            UploadResult.OUTCOME_PERMANENT, elapsedMillis(startNanos));
+                }
+                if (!result.isRetryable() || ++attempts > maxChunkRetries) {
+                    return result;
+                }
+                continue;
+            }
+
+            boolean advanced = acknowledged > offset;
+            if (acknowledged != offset) {
+                offset = acknowledged;
+                try {
+                    store.save(uploadId, offset, total);
+                } catch (IOException e) {
+                    return UploadResult.failure(e, elapsedMillis(startNanos));
+                }
+            }
+            if (offset == total && result.isSuccessful()) {
+                store.remove(uploadId);
+                return result;
+            }
+            if (advanced) {
+                attempts = 0;
+            } else if (++attempts > maxChunkRetries) {
+                return UploadResult.failure(new ProtocolException("no progress at offset " + offset),
+                        elapsedMillis(startNanos));
+            }
+        }
+    }
+
+    /**
+     * 本地记录的已确认偏移量
+     *
+     * @param uploadId 上传标识
+     * @param length   上传总长度
+     * @return 偏移量，没有记录返回0
+     */
+    public long getAcknowledgedOffset(@NonNull String uploadId, long length) {
+        return store.offsetOf(uploadId, length);
+    }
+
+    /**
+     * 放弃上传，删除本地记录，下次从头上传
+     *
+     * @param uploadId 上传标识
+     */
+    public void discard(@NonNull String uploadId) {
+        store.remove(uploadId);
+    }
+
+    /**
+     * 响应中服务端已确认的偏移量，只有成功或 409 响应中的偏移量有效
+     *
+     * @return 偏移量，无效返回-1
+     */
+    private static long acknowledgedOffset(UploadResult result, long total) {
+        if (!result.isSuccessful() && result.getStatusCode() != STATUS_CONFLICT) {
+            return -1;
+        }
+        String value = result.getHeader(HEADER_UPLOAD_OFFSET);
+        if (value == null) {
+            return -1;
+        }
+        try {
+            long offset = Long.parseLong(value.trim());
+            return offset >= 0 && offset <= total ? offset : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    /**
+     * 将单个块的进度换算为整体进度
+     */
+    private static final class ChunkProgress implements ProgressListener {
+        private final ProgressListener listener;
+        private final long base;
+        private final long total;
+
+        ChunkProgress(ProgressListener listener, long base, long total) {
+            this.listener = listener;
+            this.base = base;
+            this.total = total;
+        }
+
+        @Override
+        public void onProgress(long bytesSent, long totalBytes) {
+            listener.onProgress(base + bytesSent, total);
+        }
+    }
+
+    /**
+     * 分块上传构造器
+     */
+    public static class Builder {
+
+        private final UploadTransport transport;
+        private final UploadOffsetStore store;
+        private long chunkSize = DEFAULT_CHUNK_SIZE;
+        private int maxChunkRetries = 2;
+        private String method = "PUT";
+
+        /**
+         * @param transport 传输层
+         * @param store     本地进度存储
+         */
+        public Builder(@NonNull UploadTransport transport, @NonNull UploadOffsetStore store) {
+            this.transport = transport;
+            this.store = store;
+        }
+
+        /**
+         * 块大小，默认1MB，失败时最多重发一个块
+         *
+         * @param chunkSize 块大小（字节）
+         * @return Builder 构造器
+         */
+        public Builder chunkSize(long chunkSize) {
+            if (chunkSize <= 0) throw new IllegalArgumentException("chunkSize must be positive");
+            this.chunkSize = chunkSize;
+            return this;
+        }
+
+        /**
+         * 没有进展时在本次调用内的连续重发次数，默认2次，超过后返回结果交由调度重试
+         *
+         * @param maxChunkRetries 重发次数
+         * @return Builder 构造器
+         */
+        public Builder maxChunkRetries(int maxChunkRetries) {
+            if (maxChunkRetries < 0) throw new IllegalArgumentException("maxChunkRetries must not be negative");
+            this.maxChunkRetries = maxChunkRetries;
+            return this;
+        }
+
+        /**
+         * 块请求的方法，默认为 PUT
+         *
+         * @param method 请求方法
+         * @return Builder 构造器
+         */
+        public Builder method(@NonNull String method) {
+            if (method.trim().isEmpty()) throw new IllegalArgumentException("method must not be empty");
+            this.method = method.trim().toUpperCase();
+            return this;
+        }
+
+        public ChunkedUploader build() {
+            return new ChunkedUploader(this);
+        }
+    }
+}
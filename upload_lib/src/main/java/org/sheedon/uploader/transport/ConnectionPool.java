@@ -0,0 +1,217 @@
+package org.sheedon.uploader.transport;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.SSLSocketFactory;
+
+/**
+ * 按服务端（协议、主机、端口）划分的 HTTP 连接池。
+ * 每个服务端同时使用的连接数量不超过上限，超出时等待归还；优先复用最近归还的空闲连接，
+ * 空闲超过保活时长（或服务端 Keep-Alive 指定的时长）的连接在取出与归还时关闭。
+ * 空闲连接只会被持有名额的请求取出，因此同一服务端打开的连接总数也不超过上限。
+ *
+ * @Author: sheedon
+ * @Email: sheedonsun@163.com
+ * @Date: 2021/10/11 10:30 上午
+ */
+final class ConnectionPool {
+
+    // 每个服务端的连接上限
+    private final int maxConnectionsPerHost;
+    // 空闲连接的保活时长（毫秒）
+    private final long keepAliveMillis;
+    private final int connectTimeout;
+    private final int readTimeout;
+    private final SSLSocketFactory sslSocketFactory;
+    private final HostnameVerifier hostnameVerifier;
+    // 发送文件时使用的缓冲区池
+    private final BufferPool buffers;
+    // 等待连接名额与缓冲区的时长
+    private final long waitMillis;
+    // 各服务端的名额与空闲连接
+    private final Map<HttpConnection.Address, Host> hosts = new HashMap<>();
+    // 新建的连接数量
+    private final AtomicLong created = new AtomicLong();
+    // 复用的次数
+    private final AtomicLong reused = new AtomicLong();
+    // 是否已关闭
+    private volatile boolean shutdown;
+
+    ConnectionPool(int maxConnectionsPerHost, long keepAliveMillis, int connectTimeout, int readTimeout,
+                   @NonNull SSLSocketFactory sslSocketFactory, @NonNull HostnameVerifier hostnameVerifier,
+                   @NonNull BufferPool buffers, long waitMillis) {
+        this.maxConnectionsPerHost = maxConnectionsPerHost;
+        this.keepAliveMillis = keepAliveMillis;
+        this.connectTimeout = connectTimeout;
+        this.readTimeout = readTimeout;
+        this.sslSocketFactory = sslSocketFactory;
+        this.hostnameVerifier = hostnameVerifier;
+        this.buffers = buffers;
+        this.waitMillis = waitMillis;
+    }
+
+    /**
+     * 取出连接，优先复用空闲连接，没有名额时最多等待 waitMillis
+     *
+     * @param address 服务端
+     * @return 连接，使用后需{@link #release(HttpConnection)}
+     * @throws IOException 等待超时、被中断或建立连接失败
+     */
+    @NonNull
+    HttpConnection acquire(@NonNull HttpConnection.Address address) throws IOException {
+        if (shutdown) {
+            throw new IOException("transport is shut down");
+        }
+        Host host = hostOf(address);
+        try {
+            if (!host.permits.tryAcquire(waitMillis, TimeUnit.MILLISECONDS)) {
+                throw new SocketTimeoutException("no connection available for " + address);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for " + address);
+        }
+
+        long now = System.currentTimeMillis();
+        while (true) {
+            HttpConnection connection;
+            synchronized (host) {
+                connection = host.idle.pollFirst();
+            }
+            if (connection == null) {
+                break;
+            }
+            if (!isExpired(connection, now) && connection.isHealthy()) {
+                reused.incrementAndGet();
+                return connection;
+            }
+            connection.close();
+        }
+
+        try {
+            HttpConnection connection = HttpConnection.connect(address, connectTimeout, readTimeout,
+                    sslSocketFactory, hostnameVerifier, buffers, waitMillis);
+            created.incrementAndGet();
+            return connection;
+        } catch (IOException | RuntimeException e) {
+            host.permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * 归还连接，可复用的连接放回空闲队列，否则关闭
+     *
+     * @param connection 连接
+     */
+    void release(@NonNull HttpConnection connection) {
+        Host host = hostOf(connection.getAddress());
+        long now = System.currentTimeMillis();
+        List<HttpConnection> expired = new ArrayList<>();
+        synchronized (host) {
+            if (connection.isReusable() && !shutdown) {
+                connection.idleSince = now;
+                host.idle.addFirst(connection);
+            } else {
+                expired.add(connection);
+            }
+            Iterator<HttpConnection> iterator = host.idle.iterator();
+            while (iterator.hasNext()) {
+                HttpConnection idle = iterator.next();
+                if (isExpired(idle, now)) {
+                    iterator.remove();
+                    expired.add(idle);
+                }
+            }
+        }
+        host.permits.release();
+        for (HttpConnection close : expired) {
+            close.close();
+        }
+    }
+
+    private boolean isExpired(HttpConnection connection, long now) {
+        long keepAlive = Math.min(keepAliveMillis, connection.serverKeepAlive);
+        return now - connection.idleSince >= keepAlive;
+    }
+
+    private synchronized Host hostOf(HttpConnection.Address address) {
+        Host host = hosts.get(address);
+        if (host == null) {
+            host = new Host(maxConnectionsPerHost);
+            hosts.put(address, host);
+        }
+        return host;
+    }
+
+    /**
+     * 关闭全部空闲连接，正在使用的连接归还时关闭
+     */
+    void shutdown() {
+        shutdown = true;
+        evictAll();
+    }
+
+    /**
+     * 关闭全部空闲连接
+     */
+    void evictAll() {
+        List<HttpConnection> closing = new ArrayList<>();
+        synchronized (this) {
+            for (Host host : hosts.values()) {
+                synchronized (host) {
+                    closing.addAll(host.idle);
+                    host.idle.clear();
+                }
+            }
+        }
+        for (HttpConnection connection : closing) {
+            connection.close();
+        }
+    }
+
+    long getCreatedCount() {
+        return created.get();
+    }
+
+    long getReusedCount() {
+        return reused.get();
+    }
+
+    synchronized int getIdleCount() {
+        int count = 0;
+        for (Host host : hosts.values()) {
+            synchronized (host) {
+                count += host.idle.size();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 单个服务端的连接名额与空闲连接
+     */
+    private static final class Host {
+        final Semaphore permits;
+        // 空闲连接，最近归还的在前
+        final ArrayDeque<HttpConnection> idle = new ArrayDeque<>();
+
+        Host(int maxConnections) {
+            this.permits = new Semaphore(maxConnections, true);
+        }
+    }
+}
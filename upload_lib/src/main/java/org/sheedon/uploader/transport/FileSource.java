@@ -0,0 +1,171 @@
+package org.sheedon.uploader.transport;
+
+import androidx.annotation.NonNull;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * 以磁盘文件（或文件中的一段）为内容的请求体，如日志、图片，可直接作为子调度器的资源类型。
+ * <p>
+ * 由{@link UploadTransport}发送时不经过 Java 堆：明文连接上通过{@link FileChannel#transferTo}直接从文件写入套接字
+ * （Linux/Android 上为 sendfile，由内核完成拷贝）；https 连接需要在用户态加密，
+ * 改为分段读入传输层的缓冲区后写出，缓冲区总量受{@link UploadTransport.Builder#fileBufferMemory(long)}限制。
+ * 两种方式占用的内存都与文件大小无关。
+ * <p>
+ * 长度在创建时确定，发送时文件变短视为失败，文件变长时只发送创建时的长度。
+ *
+ * @Author: sheedon
+ * @Email: sheedonsun@163.com
+ * @Date: 2021/10/12 9:10 上午
+ */
+public final class FileSource extends RequestBody {
+
+    // 每段直接传输的字节数，每段结束后回调进度
+    static final long TRANSFER_SLICE = 256 * 1024;
+
+    // 文件
+    private final File file;
+    // 内容类型
+    private final String contentType;
+    // 起始位置
+    private final long offset;
+    // 长度
+    private final long length;
+
+    /**
+     * 整个文件
+     *
+     * @param file        文件
+     * @param contentType 内容类型
+     */
+    public FileSource(@NonNull File file, @NonNull String contentType) {
+        this(file, contentType, 0, file.length());
+    }
+
+    /**
+     * 文件中的一段
+     *
+     * @param file        文件
+     * @param contentType 内容类型
+     * @param offset      起始位置，不小于0
+     * @param length      长度，不小于0
+     */
+    public FileSource(@NonNull File file, @NonNull String contentType, long offset, long length) {
+        if (offset < 0) throw new IllegalArgumentException("offset must not be negative");
+        if (length < 0) throw new IllegalArgumentException("length must not be negative");
+        this.file = file;
+        this.contentType = contentType;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /**
+     * 同一文件中的另一段
+     *
+     * @param offset 起始位置（相对于文件开头）
+     * @param length 长度
+     * @return FileSource 请求体
+     */
+    @NonNull
+    public FileSource slice(long offset, long length) {
+        return new FileSource(file, contentType, offset, length);
+    }
+
+    @NonNull
+    public File getFile() {
+        return file;
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    @NonNull
+    @Override
+    public String contentType() {
+        return contentType;
+    }
+
+    @Override
+    public long contentLength() {
+        return length;
+    }
+
+    /**
+     * 通用写出，按8KB分段读入后写出，传输层不使用此方法
+     */
+    @Override
+    public void writeTo(@NonNull OutputStream out) throws IOException {
+        copyTo(out, new byte[8192], null);
+    }
+
+    /**
+     * 从文件通道直接传输到目标通道，不经过 Java 堆
+     *
+     * @param target   目标通道（套接字）
+     * @param progress 进度，可为null
+     * @throws IOException 读写失败或文件变短
+     */
+    void transferTo(@NonNull WritableByteChannel target, ProgressTracker progress) throws IOException {
+        try (FileInputStream in = new FileInputStream(file)) {
+            FileChannel channel = in.getChannel();
+            long position = offset;
+            long end = offset + length;
+            while (position < end) {
+                long count = channel.transferTo(position, Math.min(TRANSFER_SLICE, end - position), target);
+                if (count <= 0) {
+                    if (channel.size() <= position) {
+                        throw new EOFException("file truncated: " + file);
+                    }
+                    continue;
+                }
+                position += count;
+                if (progress != null) {
+                    progress.advance(count);
+                }
+            }
+        }
+    }
+
+    /**
+     * 通过给定的缓冲区分段写出，缓冲区由调用方提供，用于限制内存
+     *
+     * @param out      输出流
+     * @param buffer   缓冲区
+     * @param progress 进度，可为null
+     * @throws IOException 读写失败或文件变短
+     */
+    void copyTo(@NonNull OutputStream out, @NonNull byte[] buffer, ProgressTracker progress) throws IOException {
+        try (FileInputStream in = new FileInputStream(file)) {
+            FileChannel channel = in.getChannel();
+            ByteBuffer wrapper = ByteBuffer.wrap(buffer);
+            long position = offset;
+            long end = offset + length;
+            while (position < end) {
+                wrapper.clear();
+                wrapper.limit((int) Math.min(buffer.length, end - position));
+                int read = channel.read(wrapper, position);
+                if (read == -1) {
+                    throw new EOFException("file truncated: " + file);
+                }
+                out.write(buffer, 0, read);
+                position += read;
+                if (progress != null) {
+                    progress.advance(read);
+                }
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "FileSource{" + file + ", offset=" + offset + ", length=" + length + '}';
+    }
+}
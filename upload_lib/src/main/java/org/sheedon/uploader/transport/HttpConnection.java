@@ -0,0 +1,528 @@
+package org.sheedon.uploader.transport;
+
+import androidx.annotation.NonNull;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ProtocolException;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.SSLPeerUnverifiedException;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+
+/**
+ * 一条 HTTP/1.1 连接，同一时间只执行一次请求，响应完整读取后可放回连接池复用。
+ * 请求体按长度或 chunked 直接写入套接字，响应体按 Content-Length、chunked 或读到连接关闭为止。
+ * 明文连接基于{@link SocketChannel}，文件请求体{@link FileSource}可从文件通道直接传输到套接字；
+ * https 连接的文件请求体通过缓冲区池{@link BufferPool}分段写出。
+ *
+ * @Author: sheedon
+ * @Email: sheedonsun@163.com
+ * @Date: 2021/10/11 9:40 上午
+ */
+final class HttpConnection {
+
+    private static final Charset ASCII = Charset.forName("US-ASCII");
+    // 状态行与响应头单行的长度上限
+    private static final int MAX_LINE_LENGTH = 8192;
+    private static final byte[] CRLF = {'\r', '\n'};
+
+    // 连接的服务端
+    private final Address address;
+    private final Socket socket;
+    // 明文连接的套接字通道，https 时为null
+    private final SocketChannel channel;
+    // 发送文件时使用的缓冲区池
+    private final BufferPool buffers;
+    // 等待缓冲区的时长
+    private final long bufferWait;
+    private final InputStream in;
+    private final OutputStream out;
+    // 读超时
+    private final int readTimeout;
+    // 是否可以继续复用
+    private boolean reusable = true;
+    // 是否已执行过请求（从连接池取出的为复用连接）
+    private boolean used;
+    // 本次请求是否已收到响应的字节
+    private boolean responseStarted;
+    // 放回连接池的时间
+    long idleSince;
+    // 服务端允许的空闲时长，未指定为 Long.MAX_VALUE
+    long serverKeepAlive = Long.MAX_VALUE;
+
+    private HttpConnection(Address address, Socket socket, SocketChannel channel, int readTimeout,
+                           BufferPool buffers, long bufferWait) throws IOException {
+        this.address = address;
+        this.socket = socket;
+        this.channel = channel;
+        this.readTimeout = readTimeout;
+        this.buffers = buffers;
+        this.bufferWait = bufferWait;
+        this.in = new BufferedInputStream(socket.getInputStream(), 8192);
+        this.out = new BufferedOutputStream(socket.getOutputStream(), 8192);
+    }
+
+    /**
+     * 建立连接，https 时完成握手并校验主机名
+     */
+    static HttpConnection connect(@NonNull Address address, int connectTimeout, int readTimeout,
+                                  @NonNull SSLSocketFactory sslSocketFactory,
+                                  @NonNull HostnameVerifier hostnameVerifier,
+                                  @NonNull BufferPool buffers, long bufferWait) throws IOException {
+        SocketChannel channel = address.secure ? null : SocketChannel.open();
+        Socket socket = channel != null ? channel.socket() : new Socket();
+        try {
+            socket.setTcpNoDelay(true);
+            socket.setKeepAlive(true);
+            socket.connect(new InetSocketAddress(address.host, address.port), connectTimeout);
+            socket.setSoTimeout(readTimeout);
+            if (address.secure) {
+                SSLSocket sslSocket = (SSLSocket) sslSocketFactory.createSocket(
+                        socket, address.host, address.port, true);
+                sslSocket.startHandshake();
+                if (!hostnameVerifier.verify(address.host, sslSocket.getSession())) {
+                    sslSocket.close();
+                    throw new SSLPeerUnverifiedException("hostname " + address.host + " not verified");
+                }
+                socket = sslSocket;
+            }
+            return new HttpConnection(address, socket, channel, readTimeout, buffers, bufferWait);
+        } catch (IOException e) {
+            closeQuietly(socket);
+            throw e;
+        }
+    }
+
+    Address getAddress() {
+        return address;
+    }
+
+    /**
+     * 是否为复用的连接
+     */
+    boolean isReused() {
+        return used;
+    }
+
+    boolean isReusable() {
+        return reusable;
+    }
+
+    boolean isResponseStarted() {
+        return responseStarted;
+    }
+
+    /**
+     * 空闲连接是否仍然可用：未关闭、没有意外数据、服务端未关闭连接
+     */
+    boolean isHealthy() {
+        if (socket.isClosed() || socket.isInputShutdown() || socket.isOutputShutdown()) {
+            return false;
+        }
+        try {
+            if (in.available() > 0) {
+                return false;
+            }
+            socket.setSoTimeout(1);
+            try {
+                // 空闲时读到数据或连接结束均不可用
+                in.read();
+                return false;
+            } catch (SocketTimeoutException e) {
+                return true;
+            } finally {
+                socket.setSoTimeout(readTimeout);
+            }
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 执行一次请求并完整读取响应
+     *
+     * @param method           请求方法
+     * @param target           请求目标（路径与查询）
+     * @param headers          请求头
+     * @param body             请求体，为null时不发送
+     * @param progress         发送进度，可为null
+     * @param maxResponseBytes 保留的响应体上限，超过部分读取后丢弃
+     * @param startNanos       请求开始时间
+     * @return 上传结果
+     * @throws IOException 连接或读写异常
+     */
+    UploadResult exchange(String method, String target, Map<String, String> headers, RequestBody body,
+                          ProgressListener progress, int maxResponseBytes, long startNanos) throws IOException {
+        used = true;
+        responseStarted = false;
+        writeHead(method, target, headers, body);
+        if (body != null) {
+            ProgressTracker tracker = progress != null ? new ProgressTracker(progress, body.contentLength()) : null;
+            writeBody(body, tracker);
+            if (tracker != null) {
+                tracker.finish();
+            }
+        }
+        out.flush();
+
+        int statusCode;
+        Map<String, String> responseHeaders;
+        boolean http10;
+        do {
+            String statusLine = readLine();
+            responseStarted = true;
+            if (!statusLine.startsWith("HTTP/1.") || statusLine.length() < 12) {
+                throw new ProtocolException("unexpected status line: " + statusLine);
+            }
+            http10 = statusLine.startsWith("HTTP/1.0");
+            try {
+                statusCode = Integer.parseInt(statusLine.substring(9, 12));
+            } catch (NumberFormatException e) {
+                throw new ProtocolException("unexpected status line: " + statusLine);
+            }
+            responseHeaders = readHeaders();
+            // 跳过 1xx 中间响应
+        } while (statusCode >= 100 && statusCode < 200 && statusCode != 101);
+
+        String connection = responseHeaders.get("connection");
+        if (connection != null ? connection.equalsIgnoreCase("close") : http10) {
+            reusable = false;
+        }
+        serverKeepAlive = parseKeepAlive(responseHeaders.get("keep-alive"));
+
+        byte[] responseBody = readBody(method, statusCode, responseHeaders, maxResponseBytes);
+        long elapsedMillis = (System.nanoTime() - startNanos) / 1_000_000;
+        return UploadResult.response(statusCode, responseHeaders, responseBody, elapsedMillis);
+    }
+
+    private void writeHead(String method, String target, Map<String, String> headers, RequestBody body)
+            throws IOException {
+        StringBuilder head = new StringBuilder(256);
+        head.append(method).append(' ').append(target).append(" HTTP/1.1\r\n");
+        head.append("Host: ").append(address.hostHeader()).append("\r\n");
+        head.append("Connection: keep-alive\r\n");
+        if (body != null) {
+            head.append("Content-Type: ").append(body.contentType()).append("\r\n");
+            long length = body.contentLength();
+            if (length >= 0) {
+                head.append("Content-Length: ").append(length).append("\r\n");
+            } else {
+                head.append("Transfer-Encoding: chunked\r\n");
+            }
+        } else if (method.equals("POST") || method.equals("PUT")) {
+            head.append("Content-Length: 0\r\n");
+        }
+        for (Map.Entry<String, String> entry : headers.entrySet()) {
+            head.append(entry.getKey()).append(": ").append(entry.getValue()).append("\r\n");
+        }
+        head.append("\r\n");
+        out.write(head.toString().getBytes(ASCII));
+    }
+
+    private void writeBody(RequestBody body, ProgressTracker tracker) throws IOException {
+        if (body instanceof FileSource) {
+            writeFile((FileSource) body, tracker);
+            return;
+        }
+        long length = body.contentLength();
+        if (length < 0) {
+            ChunkedOutputStream chunked = new ChunkedOutputStream(out);
+            body.writeTo(new CountingOutputStream(chunked, tracker));
+            chunked.finish();
+            return;
+        }
+        CountingOutputStream counting = new CountingOutputStream(out, tracker);
+        body.writeTo(counting);
+        if (counting.count != length) {
+            reusable = false;
+            throw new ProtocolException("expected " + length + " bytes but wrote " + counting.count);
+        }
+    }
+
+    /**
+     * 写出文件请求体：明文连接从文件通道直接传输到套接字，https 连接借用缓冲区分段写出
+     */
+    private void writeFile(FileSource file, ProgressTracker tracker) throws IOException {
+        try {
+            if (channel != null) {
+                // 先写出缓冲中的请求头，再由文件通道直接写入套接字
+                out.flush();
+                file.transferTo(channel, tracker);
+                return;
+            }
+            byte[] buffer = buffers.acquire(bufferWait);
+            try {
+                file.copyTo(out, buffer, tracker);
+            } finally {
+                buffers.release(buffer);
+            }
+        } catch (IOException e) {
+            reusable = false;
+            throw e;
+        }
+    }
+
+    private byte[] readBody(String method, int statusCode, Map<String, String> headers, int maxResponseBytes)
+            throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        if (method.equals("HEAD") || statusCode == 204 || statusCode == 304) {
+            return body.toByteArray();
+        }
+        String transferEncoding = headers.get("transfer-encoding");
+        String contentLength = headers.get("content-length");
+        if (transferEncoding != null && transferEncoding.toLowerCase().contains("chunked")) {
+            readChunked(body, maxResponseBytes);
+        } else if (contentLength != null) {
+            long length;
+            try {
+                length = Long.parseLong(contentLength.trim());
+            } catch (NumberFormatException e) {
+                throw new ProtocolException("unexpected content-length: " + contentLength);
+            }
+            readFixed(body, length, maxResponseBytes);
+        } else {
+            // 没有长度时读到连接关闭，连接不可复用
+            reusable = false;
+            readFixed(body, Long.MAX_VALUE, maxResponseBytes);
+        }
+        return body.toByteArray();
+    }
+
+    private void readChunked(ByteArrayOutputStream body, int maxResponseBytes) throws IOException {
+        while (true) {
+            String line = readLine();
+            int extension = line.indexOf(';');
+            String size = (extension >= 0 ? line.substring(0, extension) : line).trim();
+            long chunkSize;
+            try {
+                chunkSize = Long.parseLong(size, 16);
+            } catch (NumberFormatException e) {
+                throw new ProtocolException("unexpected chunk size: " + line);
+            }
+            if (chunkSize == 0) {
+                // 忽略尾部的响应头
+                while (!readLine().isEmpty()) {
+                    continue;
+                }
+                return;
+            }
+            readFixed(body, chunkSize, maxResponseBytes);
+            readLine();
+        }
+    }
+
+    /**
+     * 读取指定长度，长度为 Long.MAX_VALUE 时读到连接关闭
+     */
+    private void readFixed(ByteArrayOutputStream body, long length, int maxResponseBytes) throws IOException {
+        byte[] buffer = new byte[4096];
+        long remaining = length;
+        while (remaining > 0) {
+            int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+            if (read == -1) {
+                if (length == Long.MAX_VALUE) {
+                    return;
+                }
+                throw new EOFException("unexpected end of response body");
+            }
+            int keep = Math.min(read, maxResponseBytes - body.size());
+            if (keep > 0) {
+                body.write(buffer, 0, keep);
+            }
+            remaining -= read;
+        }
+    }
+
+    private Map<String, String> readHeaders() throws IOException {
+        Map<String, String> headers = new LinkedHashMap<>();
+        String line;
+        while (!(line = readLine()).isEmpty()) {
+            int colon = line.indexOf(':');
+            if (colon <= 0) {
+                throw new ProtocolException("unexpected header: " + line);
+            }
+            String name = line.substring(0, colon).trim().toLowerCase();
+            String value = line.substring(colon + 1).trim();
+            String previous = headers.get(name);
+            headers.put(name, previous == null ? value : previous + ", " + value);
+        }
+        return headers;
+    }
+
+    private String readLine() throws IOException {
+        StringBuilder line = new StringBuilder(64);
+        int c;
+        while ((c = in.read()) != -1) {
+            if (c == '\n') {
+                int length = line.length();
+                if (length > 0 && line.charAt(length - 1) == '\r') {
+                    line.setLength(length - 1);
+                }
+                return line.toString();
+            }
+            if (line.length() >= MAX_LINE_LENGTH) {
+                throw new ProtocolException("line too long");
+            }
+            line.append((char) c);
+        }
+        throw new EOFException("unexpected end of stream");
+    }
+
+    /**
+     * 解析 Keep-Alive: timeout=N
+     */
+    private static long parseKeepAlive(String value) {
+        if (value == null) {
+            return Long.MAX_VALUE;
+        }
+        for (String part : value.split(",")) {
+            String item = part.trim();
+            if (item.startsWith("timeout=")) {
+                try {
+                    return Long.parseLong(item.substring(8).trim()) * 1000;
+                } catch (NumberFormatException e) {
+                    return Long.MAX_VALUE;
+                }
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+
+    void close() {
+        reusable = false;
+        closeQuietly(socket);
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * chunked 分块输出，请求体写出的关闭不会关闭连接
+     */
+    private static final class ChunkedOutputStream extends FilterOutputStream {
+
+        ChunkedOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(@NonNull byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return;
+            }
+            out.write(Integer.toHexString(len).getBytes(ASCII));
+            out.write(CRLF);
+            out.write(b, off, len);
+            out.write(CRLF);
+        }
+
+        void finish() throws IOException {
+            out.write('0');
+            out.write(CRLF);
+            out.write(CRLF);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * 统计写出的字节数，核对 Content-Length 并记录发送进度
+     */
+    private static final class CountingOutputStream extends FilterOutputStream {
+
+        private final ProgressTracker tracker;
+        long count;
+
+        CountingOutputStream(OutputStream out, ProgressTracker tracker) {
+            super(out);
+            this.tracker = tracker;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+            if (tracker != null) {
+                tracker.advance(1);
+            }
+        }
+
+        @Override
+        public void write(@NonNull byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+            if (tracker != null) {
+                tracker.advance(len);
+            }
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * 连接的服务端，按协议、主机与端口区分
+     */
+    static final class Address {
+        final String host;
+        final int port;
+        final boolean secure;
+
+        Address(String host, int port, boolean secure) {
+            this.host = host;
+            this.port = port;
+            this.secure = secure;
+        }
+
+        String hostHeader() {
+            boolean defaultPort = secure ? port == 443 : port == 80;
+            String name = host.indexOf(':') >= 0 ? '[' + host + ']' : host;
+            return defaultPort ? name : name + ':' + port;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Address)) return false;
+            Address address = (Address) o;
+            return port == address.port && secure == address.secure && host.equals(address.host);
+        }
+
+        @Override
+        public int hashCode() {
+            return (host.hashCode() * 31 + port) * 31 + (secure ? 1 : 0);
+        }
+
+        @Override
+        public String toString() {
+            return (secure ? "https://" : "http://") + hostHeader();
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package org.sheedon.uploader.transport;
+
+import androidx.annotation.WorkerThread;
+
+/**
+ * 上传进度监听，在执行上传的线程上回调，回调中不可阻塞
+ *
+ * @Author: sheedon
+ * @Email: sheedonsun@163.com
+ * @Date: 2021/10/12 9:00 上午
+ */
+public interface ProgressListener {
+
+    /**
+     * 请求体的发送进度，按段回调（文件每段最多256KB，其他请求体每64KB），发送完成时必定回调一次
+     *
+     * @param bytesSent  已发送的字节数
+     * @param totalBytes 请求体总字节数，未知时为-1
+     */
+    @WorkerThread
+    void onProgress(long bytesSent, long totalBytes);
+}
@@ -0,0 +1,50 @@
+package org.sheedon.uploader.transport;
+
+import androidx.annotation.NonNull;
+
+/**
+ * 单次请求的发送进度，累计已发送的字节数，按间隔回调{@link ProgressListener}
+ *
+ * @Author: sheedon
+ * @Email: sheedonsun@163.com
+ * @Date: 2021/10/12 9:20 上午
+ */
+final class ProgressTracker {
+
+    // 回调间隔的字节数
+    static final long REPORT_INTERVAL = 64 * 1024;
+
+    private final ProgressListener listener;
+    // 总字节数，未知为-1
+    private final long total;
+    // 已发送的字节数
+    private long sent;
+    // 上一次回调时的字节数
+    private long reported;
+
+    ProgressTracker(@NonNull ProgressListener listener, long total) {
+        this.listener = listener;
+        this.total = total;
+    }
+
+    /**
+     * 已发送 count 字节，超过间隔时回调
+     */
+    void advance(long count) {
+        sent += count;
+        if (sent - reported >= REPORT_INTERVAL || sent == total) {
+            reported = sent;
+            listener.onProgress(sent, total);
+        }
+    }
+
+    /**
+     * 发送完成，未回调过最终进度时回调一次
+     */
+    void finish() {
+        if (reported != sent || sent == 0) {
+            reported = sent;
+            listener.onProgress(sent, total);
+        }
+    }
+}
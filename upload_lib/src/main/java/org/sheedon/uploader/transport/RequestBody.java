@@ -0,0 +1,136 @@
+package org.sheedon.uploader.transport;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+
+/**
+ * 上传的请求体，由传输层直接写入连接的输出流，不需要先整体读入内存。
+ * 长度已知时按 Content-Length 发送，长度未知（-1）时按 chunked 分块发送。
+ * <p>
+ * 自定义请求体可继承并实现{@link #writeTo(OutputStream)}，边生成边写出（如逐条序列化的记录）。
+ *
+ * @Author: sheedon
+ * @Email: sheedonsun@163.com
+ * @Date: 2021/10/11 9:00 上午
+ */
+public abstract class RequestBody {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * 内容类型，如 application/json
+     */
+    @NonNull
+    public abstract String contentType();
+
+    /**
+     * 内容长度
+     *
+     * @return 字节数，未知时返回-1，按 chunked 分块发送
+     */
+    public long contentLength() {
+        return -1;
+    }
+
+    /**
+     * 是否可以重复写出，连接复用失败时只有可重复写出的请求体才会在新连接上重发
+     */
+    public boolean isReplayable() {
+        return true;
+    }
+
+    /**
+     * 写出请求体，无需关闭输出流
+     *
+     * @param out 连接的输出流
+     * @throws IOException 写出失败
+     */
+    public abstract void writeTo(@NonNull OutputStream out) throws IOException;
+
+    /**
+     * 字节数组请求体
+     *
+     * @param contentType 内容类型
+     * @param content     内容
+     * @return RequestBody 请求体
+     */
+    @NonNull
+    public static RequestBody create(@NonNull String contentType, @NonNull byte[] content) {
+        return new RequestBody() {
+            @NonNull
+            @Override
+            public String contentType() {
+                return contentType;
+            }
+
+            @Override
+            public long contentLength() {
+                return content.length;
+            }
+
+            @Override
+            public void writeTo(@NonNull OutputStream out) throws IOException {
+                out.write(content);
+            }
+        };
+    }
+
+    /**
+     * 字符串请求体，按 UTF-8 编码
+     *
+     * @param contentType 内容类型
+     * @param content     内容
+     * @return RequestBody 请求体
+     */
+    @NonNull
+    public static RequestBody create(@NonNull String contentType, @NonNull String content) {
+        return create(contentType, content.getBytes(UTF_8));
+    }
+
+    /**
+     * 输入流请求体，边读边写，只能写出一次，写出后关闭输入流
+     *
+     * @param contentType   内容类型
+     * @param in            输入流
+     * @param contentLength 内容长度，未知时为-1
+     * @return RequestBody 请求体
+     */
+    @NonNull
+    public static RequestBody create(@NonNull String contentType, @NonNull InputStream in, long contentLength) {
+        if (contentLength < -1) throw new IllegalArgumentException("contentLength must not be less than -1");
+        return new RequestBody() {
+            @NonNull
+            @Override
+            public String contentType() {
+                return contentType;
+            }
+
+            @Override
+            public long contentLength() {
+                return contentLength;
+            }
+
+            @Override
+            public boolean isReplayable() {
+                return false;
+            }
+
+            @Override
+            public void writeTo(@NonNull OutputStream out) throws IOException {
+                try {
+                    byte[] buffer = new byte[8192];
+                    int read;
+                    while ((read = in.read(buffer)) != -1) {
+                        out.write(buffer, 0, read);
+                    }
+                } finally {
+                    in.close();
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,155 @@
+package org.sheedon.uploader.transport;
+
+import androidx.annotation.NonNull;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * 分块上传的本地进度存储，记录每个上传标识已被服务端确认的偏移量，供{@link ChunkedUploader}断点续传。
+ * 每个上传标识一个小文件，先写临时文件并同步到磁盘再改名替换，进程被杀或断电后不会读到写了一半的记录。
+ * 记录同时保存上传总长度，总长度不一致（文件已变化）时视为没有记录，从头上传。
+ *
+ * @Author: sheedon
+ * @Email: sheedonsun@163.com
+ * @Date: 2021/10/12 2:20 下午
+ */
+public final class UploadOffsetStore {
+
+    // 记录文件后缀
+    private static final String RECORD_SUFFIX = ".offset";
+    // 临时文件后缀
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    // 存储目录
+    private final File directory;
+
+    private UploadOffsetStore(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * 打开进度存储，目录中已有的记录保留，遗留的临时文件删除
+     *
+     * @param directory 存储目录
+     * @return UploadOffsetStore 进度存储
+     */
+    public static UploadOffsetStore open(@NonNull File directory) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("cannot create directory: " + directory);
+        }
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (file.getName().endsWith(TEMP_SUFFIX) && !file.delete()) {
+                    file.deleteOnExit();
+                }
+            }
+        }
+        return new UploadOffsetStore(directory);
+    }
+
+    /**
+     * 已确认的偏移量
+     *
+     * @param uploadId 上传标识
+     * @param length   上传总长度
+     * @return 偏移量，没有记录、记录损坏或总长度不一致时返回0
+     */
+    public synchronized long offsetOf(@NonNull String uploadId, long length) {
+        File file = fileOf(uploadId);
+        if (!file.isFile()) {
+            return 0;
+        }
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            String id = in.readUTF();
+            long recordLength = in.readLong();
+            long offset = in.readLong();
+            if (!id.equals(uploadId) || recordLength != length || offset < 0 || offset > length) {
+                return 0;
+            }
+            return offset;
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * 保存已确认的偏移量
+     *
+     * @param uploadId 上传标识
+     * @param offset   偏移量
+     * @param length   上传总长度
+     */
+    public synchronized void save(@NonNull String uploadId, long offset, long length) throws IOException {
+        File file = fileOf(uploadId);
+        File temp = new File(directory, file.getName() + TEMP_SUFFIX);
+        try (FileOutputStream stream = new FileOutputStream(temp)) {
+            DataOutputStream out = new DataOutputStream(stream);
+            out.writeUTF(uploadId);
+            out.writeLong(length);
+            out.writeLong(offset);
+            out.flush();
+            stream.getFD().sync();
+        }
+        if (!temp.renameTo(file)) {
+            // 部分平台不允许改名覆盖已有文件
+            if (!file.delete() || !temp.renameTo(file)) {
+                throw new IOException("cannot replace " + file);
+            }
+        }
+    }
+
+    /**
+     * 删除记录，上传完成或放弃时调用
+     *
+     * @param uploadId 上传标识
+     */
+    public synchronized void remove(@NonNull String uploadId) {
+        File file = fileOf(uploadId);
+        if (file.exists() && !file.delete()) {
+            file.deleteOnExit();
+        }
+    }
+
+    /**
+     * 记录数量
+     */
+    public synchronized int size() {
+        File[] files = directory.listFiles();
+        int count = 0;
+        if (files != null) {
+            for (File file : files) {
+                if (file.getName().endsWith(RECORD_SUFFIX)) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 上传标识对应的记录文件，文件名为标识的 SHA-1
+     */
+    private File fileOf(String uploadId) {
+        byte[] digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1").digest(uploadId.getBytes(UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        StringBuilder name = new StringBuilder(digest.length * 2 + RECORD_SUFFIX.length());
+        for (byte b : digest) {
+            name.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return new File(directory, name.append(RECORD_SUFFIX).toString());
+    }
+}
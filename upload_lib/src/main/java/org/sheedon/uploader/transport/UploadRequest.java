@@ -0,0 +1,141 @@
+package org.sheedon.uploader.transport;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 上传请求，路径相对于传输层的 baseUrl 解析，也可以是完整的 http/https 地址
+ *
+ * @Author: sheedon
+ * @Email: sheedonsun@163.com
+ * @Date: 2021/10/11 9:10 上午
+ */
+public final class UploadRequest {
+
+    // 请求方法
+    private final String method;
+    // 请求路径
+    private final String path;
+    // 请求头
+    private final Map<String, String> headers;
+    // 请求体，为null时不发送
+    private final RequestBody body;
+    // 发送进度
+    private final ProgressListener progressListener;
+
+    private UploadRequest(Builder builder) {
+        this.method = builder.method;
+        this.path = builder.path;
+        this.headers = Collections.unmodifiableMap(new LinkedHashMap<>(builder.headers));
+        this.body = builder.body;
+        this.progressListener = builder.progressListener;
+    }
+
+    @NonNull
+    public String getMethod() {
+        return method;
+    }
+
+    @NonNull
+    public String getPath() {
+        return path;
+    }
+
+    @NonNull
+    public Map<String, String> getHeaders() {
+        return headers;
+    }
+
+    @Nullable
+    public RequestBody getBody() {
+        return body;
+    }
+
+    @Nullable
+    public ProgressListener getProgressListener() {
+        return progressListener;
+    }
+
+    @Override
+    public String toString() {
+        return "UploadRequest{" + method + ' ' + path + '}';
+    }
+
+    /**
+     * 上传请求构造器
+     */
+    public static class Builder {
+
+        private String method = "POST";
+        private String path = "";
+        private final Map<String, String> headers = new LinkedHashMap<>();
+        private RequestBody body;
+        private ProgressListener progressListener;
+
+        /**
+         * 请求方法，默认为 POST
+         *
+         * @param method 请求方法，如 POST、PUT、GET、HEAD
+         * @return Builder 构造器
+         */
+        public Builder method(@NonNull String method) {
+            if (method.trim().isEmpty()) throw new IllegalArgumentException("method must not be empty");
+            this.method = method.trim().toUpperCase();
+            return this;
+        }
+
+        /**
+         * 请求路径，相对于 baseUrl 解析，默认为 baseUrl 本身
+         *
+         * @param path 路径
+         * @return Builder 构造器
+         */
+        public Builder path(@NonNull String path) {
+            this.path = path;
+            return this;
+        }
+
+        /**
+         * 添加请求头，同名覆盖
+         *
+         * @param name  名称
+         * @param value 值
+         * @return Builder 构造器
+         */
+        public Builder header(@NonNull String name, @NonNull String value) {
+            if (name.trim().isEmpty()) throw new IllegalArgumentException("header name must not be empty");
+            headers.put(name.trim(), value);
+            return this;
+        }
+
+        /**
+         * 请求体
+         *
+         * @param body 请求体
+         * @return Builder 构造器
+         */
+        public Builder body(@Nullable RequestBody body) {
+            this.body = body;
+            return this;
+        }
+
+        /**
+         * 监听请求体的发送进度
+         *
+         * @param progressListener 进度监听
+         * @return Builder 构造器
+         */
+        public Builder progress(@Nullable ProgressListener progressListener) {
+            this.progressListener = progressListener;
+            return this;
+        }
+
+        public UploadRequest build() {
+            return new UploadRequest(this);
+        }
+    }
+}
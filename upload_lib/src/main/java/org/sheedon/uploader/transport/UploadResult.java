@@ -0,0 +1,205 @@
+package org.sheedon.uploader.transport;
+
+import androidx.annotation.IntDef;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.sheedon.uploader.MessageHandleCenter;
+
+import java.io.IOException;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * 上传结果，按响应码归类为 成功、可重试 与 永久失败：
+ * <ul>
+ *     <li>2xx 成功</li>
+ *     <li>408、425、429 与 5xx（501、505 除外）可重试，连接或读写异常也视为可重试</li>
+ *     <li>其余（3xx 不跟随、4xx、501、505）永久失败，重试也不会成功，由子调度器决定是否丢弃资源</li>
+ * </ul>
+ *
+ * @Author: sheedon
+ * @Email: sheedonsun@163.com
+ * @Date: 2021/10/11 9:20 上午
+ */
+public final class UploadResult {
+
+    // 成功
+    public static final int OUTCOME_SUCCESS = 0;
+    // 可重试
+    public static final int OUTCOME_RETRYABLE = 1;
+    // 永久失败
+    public static final int OUTCOME_PERMANENT = 2;
+
+    @IntDef({OUTCOME_SUCCESS, OUTCOME_RETRYABLE, OUTCOME_PERMANENT})
+    @Retention(RetentionPolicy.SOURCE)
+    public @interface Outcome {
+    }
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    // 结果归类
+    @Outcome
+    private final int outcome;
+    // 响应码，未收到响应时为0
+    private final int statusCode;
+    // 响应头，名称为小写
+    private final Map<String, String> headers;
+    // 响应体，超过上限的部分丢弃
+    private final byte[] body;
+    // 连接或读写异常
+    private final IOException error;
+    // 耗时（毫秒）
+    private final long elapsedMillis;
+
+    private UploadResult(int outcome, int statusCode, Map<String, String> headers, byte[] body,
+                         IOException error, long elapsedMillis) {
+        this.outcome = outcome;
+        this.statusCode = statusCode;
+        this.headers = headers;
+        this.body = body;
+        this.error = error;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    /**
+     * 收到响应的结果
+     */
+    static UploadResult response(int statusCode, @NonNull Map<String, String> headers, @NonNull byte[] body,
+                                 long elapsedMillis) {
+        return new UploadResult(outcomeOf(statusCode), statusCode, Collections.unmodifiableMap(headers),
+                body, null, elapsedMillis);
+    }
+
+    /**
+     * 连接或读写异常的结果，可重试
+     */
+    static UploadResult failure(@NonNull IOException error, long elapsedMillis) {
+        return failure(error, OUTCOME_RETRYABLE, elapsedMillis);
+    }
+
+    /**
+     * 未收到可用响应的结果，按给定归类，如服务端不支持协议时为永久失败
+     */
+    static UploadResult failure(@NonNull IOException error, @Outcome int outcome, long elapsedMillis) {
+        return new UploadResult(outcome, 0, Collections.<String, String>emptyMap(),
+                new byte[0], error, elapsedMillis);
+    }
+
+    /**
+     * 响应码的归类
+     *
+     * @param statusCode 响应码
+     * @return 结果归类
+     */
+    @Outcome
+    public static int outcomeOf(int statusCode) {
+        if (statusCode >= 200 && statusCode < 300) {
+            return OUTCOME_SUCCESS;
+        }
+        if (statusCode == 408 || statusCode == 425 || statusCode == 429) {
+            return OUTCOME_RETRYABLE;
+        }
+        if (statusCode >= 500 && statusCode != 501 && statusCode != 505) {
+            return OUTCOME_RETRYABLE;
+        }
+        return OUTCOME_PERMANENT;
+    }
+
+    @Outcome
+    public int getOutcome() {
+        return outcome;
+    }
+
+    public boolean isSuccessful() {
+        return outcome == OUTCOME_SUCCESS;
+    }
+
+    public boolean isRetryable() {
+        return outcome == OUTCOME_RETRYABLE;
+    }
+
+    public boolean isPermanent() {
+        return outcome == OUTCOME_PERMANENT;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * 响应头
+     *
+     * @param name 名称，不区分大小写
+     * @return 值，不存在返回null
+     */
+    @Nullable
+    public String getHeader(@NonNull String name) {
+        return headers.get(name.toLowerCase());
+    }
+
+    @NonNull
+    public Map<String, String> getHeaders() {
+        return headers;
+    }
+
+    @NonNull
+    public byte[] getBody() {
+        return body;
+    }
+
+    @NonNull
+    public String getBodyString() {
+        return new String(body, UTF_8);
+    }
+
+    @Nullable
+    public IOException getError() {
+        return error;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    /**
+     * 服务端要求的重试等待（Retry-After，秒数形式）
+     *
+     * @return 等待时间（毫秒），未提供或无法解析返回-1
+     */
+    public long getRetryAfterMillis() {
+        String value = getHeader("Retry-After");
+        if (value == null) {
+            return -1;
+        }
+        try {
+            return Math.max(0, Long.parseLong(value.trim())) * 1000;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * 将结果反馈给调度，成功反馈成功，其余反馈失败
+     *
+     * @param center 消息执行处理中心
+     */
+    public void deliverTo(@NonNull MessageHandleCenter center) {
+        if (isSuccessful()) {
+            center.sendSuccessMessage();
+        } else {
+            center.sendFailureMessage();
+        }
+    }
+
+    @Override
+    public String toString() {
+        String name = outcome == OUTCOME_SUCCESS ? "success"
+                : outcome == OUTCOME_RETRYABLE ? "retryable" : "permanent";
+        return "UploadResult{" + name + ", statusCode=" + statusCode
+                + (error != null ? ", error=" + error : "") + ", elapsed=" + elapsedMillis + "ms}";
+    }
+}
@@ -0,0 +1,385 @@
+package org.sheedon.uploader.transport;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.WorkerThread;
+
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLSocketFactory;
+
+/**
+ * 内置的 HTTP 上传传输层，供{@link org.sheedon.uploader.AbstractRealHandler#handleRealEvent}向客户端的 baseUrl 上传资源。
+ * <p>
+ * 连接按服务端放在连接池中保持长连接（keep-alive）复用，每个服务端同时使用的连接不超过上限；
+ * 请求体由{@link RequestBody}直接写入连接，长度未知时按 chunked 分块发送，不需要整体读入内存；
+ * 文件请求体{@link FileSource}在明文连接上从文件通道直接传输到套接字，不经过 Java 堆，
+ * https 连接上使用总量固定的缓冲区分段发送；大文件可通过{@link ChunkedUploader}分块上传，失败后从已确认的位置继续；
+ * 可通过{@link UploadRequest.Builder#progress(ProgressListener)}监听发送进度；
+ * 响应按响应码归类为 成功、可重试 与 永久失败{@link UploadResult}，连接或读写异常归为可重试，不抛出异常。
+ * <p>
+ * 复用的空闲连接可能已被服务端关闭，此时请求体可重复写出{@link RequestBody#isReplayable()}的请求在新连接上重发一次。
+ * 请求在调用线程上阻塞执行，需在真实处理线程（调度后端的阻塞任务执行器）上调用，不可在主线程调用。
+ *
+ * @Author: sheedon
+ * @Email: sheedonsun@163.com
+ * @Date: 2021/10/11 11:00 上午
+ */
+public final class UploadTransport {
+
+    // 服务器基础地址
+    private final URL baseUrl;
+    // 每个请求都附带的请求头
+    private final Map<String, String> defaultHeaders;
+    // 保留的响应体上限
+    private final int maxResponseBytes;
+    // 发送文件时使用的缓冲区池
+    private final BufferPool buffers;
+    // 连接池
+    private final ConnectionPool pool;
+
+    private UploadTransport(Builder builder) {
+        this.baseUrl = builder.baseUrl;
+        this.defaultHeaders = Collections.unmodifiableMap(new LinkedHashMap<>(builder.headers));
+        this.maxResponseBytes = builder.maxResponseBytes;
+        this.buffers = new BufferPool(builder.fileBufferMemory);
+        this.pool = new ConnectionPool(builder.maxConnectionsPerHost, builder.keepAliveMillis,
+                builder.connectTimeout, builder.readTimeout,
+                builder.sslSocketFactory != null ? builder.sslSocketFactory
+                        : HttpsURLConnection.getDefaultSSLSocketFactory(),
+                builder.hostnameVerifier != null ? builder.hostnameVerifier
+                        : HttpsURLConnection.getDefaultHostnameVerifier(),
+                buffers, builder.acquireTimeout);
+    }
+
+    /**
+     * 服务器基础地址
+     */
+    @NonNull
+    public String getBaseUrl() {
+        return baseUrl.toString();
+    }
+
+    /**
+     * 向 baseUrl 下的路径 POST 请求体
+     *
+     * @param path 路径，相对于 baseUrl 解析
+     * @param body 请求体
+     * @return 上传结果
+     */
+    @WorkerThread
+    @NonNull
+    public UploadResult post(@NonNull String path, @NonNull RequestBody body) {
+        return execute(new UploadRequest.Builder().path(path).body(body).build());
+    }
+
+    /**
+     * 执行请求
+     *
+     * @param request 上传请求
+     * @return 上传结果，连接或读写异常时为可重试的结果
+     */
+    @WorkerThread
+    @NonNull
+    public UploadResult execute(@NonNull UploadRequest request) {
+        long startNanos = System.nanoTime();
+        URL url;
+        try {
+            url = resolve(request.getPath());
+        } catch (MalformedURLException e) {
+            throw new IllegalArgumentException("invalid path: " + request.getPath(), e);
+        }
+        HttpConnection.Address address = addressOf(url);
+        String target = url.getFile().isEmpty() ? "/" : url.getFile();
+        Map<String, String> headers = defaultHeaders;
+        if (!request.getHeaders().isEmpty()) {
+            headers = new LinkedHashMap<>(defaultHeaders);
+            headers.putAll(request.getHeaders());
+        }
+        RequestBody body = request.getBody();
+
+        boolean retried = false;
+        while (true) {
+            HttpConnection connection;
+            try {
+                connection = pool.acquire(address);
+            } catch (IOException e) {
+                return UploadResult.failure(e, elapsedMillis(startNanos));
+            }
+            try {
+                UploadResult result = connection.exchange(request.getMethod(), target, headers, body,
+                        request.getProgressListener(), maxResponseBytes, startNanos);
+                pool.release(connection);
+                return result;
+            } catch (IOException e) {
+                connection.close();
+                pool.release(connection);
+                // 复用的连接已被服务端关闭，在新连接上重发一次
+                boolean stale = connection.isReused() && !connection.isResponseStarted();
+                if (stale && !retried && (body == null || body.isReplayable())) {
+                    retried = true;
+                    continue;
+                }
+                return UploadResult.failure(e, elapsedMillis(startNanos));
+            } catch (RuntimeException e) {
+                // 请求体或进度回调抛出的异常，连接状态未知，关闭并归还许可
+                connection.close();
+                pool.release(connection);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * 连接池统计
+     */
+    @NonNull
+    public PoolStat getPoolStat() {
+        return new PoolStat(pool.getCreatedCount(), pool.getReusedCount(), pool.getIdleCount(),
+                buffers.getAllocatedBytes());
+    }
+
+    /**
+     * 关闭全部空闲连接，之后仍可继续使用
+     */
+    public void evictAll() {
+        pool.evictAll();
+    }
+
+    /**
+     * 关闭传输层，关闭空闲连接，正在执行的请求结束后关闭其连接，之后的请求均失败
+     */
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    private URL resolve(String path) throws MalformedURLException {
+        URL url = new URL(baseUrl, path);
+        String protocol = url.getProtocol();
+        if (!protocol.equals("http") && !protocol.equals("https")) {
+            throw new MalformedURLException("unsupported protocol: " + protocol);
+        }
+        return url;
+    }
+
+    private static HttpConnection.Address addressOf(URL url) {
+        boolean secure = url.getProtocol().equals("https");
+        int port = url.getPort() != -1 ? url.getPort() : url.getDefaultPort();
+        return new HttpConnection.Address(url.getHost(), port, secure);
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    /**
+     * 连接池统计，不可变
+     */
+    public static final class PoolStat {
+        // 新建的连接数量
+        private final long created;
+        // 复用空闲连接的次数
+        private final long reused;
+        // 当前空闲的连接数量
+        private final int idle;
+        // 发送文件已分配的缓冲区字节数
+        private final long bufferBytes;
+
+        PoolStat(long created, long reused, int idle, long bufferBytes) {
+            this.created = created;
+            this.reused = reused;
+            this.idle = idle;
+            this.bufferBytes = bufferBytes;
+        }
+
+        public long getCreated() {
+            return created;
+        }
+
+        public long getReused() {
+            return reused;
+        }
+
+        public int getIdle() {
+            return idle;
+        }
+
+        public long getBufferBytes() {
+            return bufferBytes;
+        }
+
+        @Override
+        public String toString() {
+            return "PoolStat{created=" + created + ", reused=" + reused + ", idle=" + idle
+                    + ", bufferBytes=" + bufferBytes + '}';
+        }
+    }
+
+    /**
+     * 上传传输层构造器
+     */
+    public static class Builder {
+
+        private final URL baseUrl;
+        private int maxConnectionsPerHost = 4;
+        private long keepAliveMillis = 60_000;
+        private int connectTimeout = 15_000;
+        private int readTimeout = 30_000;
+        private long acquireTimeout = 30_000;
+        private int maxResponseBytes = 64 * 1024;
+        private long fileBufferMemory = 4 * BufferPool.DEFAULT_BUFFER_SIZE;
+        private final Map<String, String> headers = new LinkedHashMap<>();
+        private SSLSocketFactory sslSocketFactory;
+        private HostnameVerifier hostnameVerifier;
+
+        /**
+         * @param baseUrl 服务器基础地址，http 或 https，请求路径相对于此地址解析
+         */
+        public Builder(@NonNull String baseUrl) {
+            String url = baseUrl.trim();
+            if (url.isEmpty()) throw new IllegalArgumentException("baseUrl must not be empty");
+            // 以 / 结尾，使相对路径解析到其下
+            if (!url.endsWith("/")) {
+                url = url + '/';
+            }
+            try {
+                this.baseUrl = new URL(url);
+            } catch (MalformedURLException e) {
+                throw new IllegalArgumentException("invalid baseUrl: " + baseUrl, e);
+            }
+            String protocol = this.baseUrl.getProtocol();
+            if (!protocol.equals("http") && !protocol.equals("https"))
+                throw new IllegalArgumentException("baseUrl must be http or https");
+        }
+
+        /**
+         * 每个服务端同时使用的连接上限，默认为4
+         *
+         * @param maxConnectionsPerHost 连接上限，需大于0
+         * @return Builder 构造器
+         */
+        public Builder maxConnectionsPerHost(int maxConnectionsPerHost) {
+            if (maxConnectionsPerHost < 1) throw new IllegalArgumentException("maxConnectionsPerHost must be greater than 0");
+            this.maxConnectionsPerHost = maxConnectionsPerHost;
+            return this;
+        }
+
+        /**
+         * 空闲连接的保活时长，默认60秒，服务端 Keep-Alive 指定的时长更短时以服务端为准
+         *
+         * @param keepAliveMillis 保活时长（毫秒），0表示不复用
+         * @return Builder 构造器
+         */
+        public Builder keepAlive(long keepAliveMillis) {
+            if (keepAliveMillis < 0) throw new IllegalArgumentException("keepAlive must not be negative");
+            this.keepAliveMillis = keepAliveMillis;
+            return this;
+        }
+
+        /**
+         * 建立连接的超时，默认15秒
+         *
+         * @param connectTimeout 超时（毫秒），需大于0
+         * @return Builder 构造器
+         */
+        public Builder connectTimeout(int connectTimeout) {
+            if (connectTimeout <= 0) throw new IllegalArgumentException("connectTimeout must be greater than 0");
+            this.connectTimeout = connectTimeout;
+            return this;
+        }
+
+        /**
+         * 读取响应的超时，默认30秒
+         *
+         * @param readTimeout 超时（毫秒），需大于0
+         * @return Builder 构造器
+         */
+        public Builder readTimeout(int readTimeout) {
+            if (readTimeout <= 0) throw new IllegalArgumentException("readTimeout must be greater than 0");
+            this.readTimeout = readTimeout;
+            return this;
+        }
+
+        /**
+         * 连接数量达到上限或文件缓冲区用尽时的等待时长，默认30秒
+         *
+         * @param acquireTimeout 等待时长（毫秒）
+         * @return Builder 构造器
+         */
+        public Builder acquireTimeout(long acquireTimeout) {
+            if (acquireTimeout < 0) throw new IllegalArgumentException("acquireTimeout must not be negative");
+            this.acquireTimeout = acquireTimeout;
+            return this;
+        }
+
+        /**
+         * 保留的响应体上限，默认64KB，超过部分读取后丢弃
+         *
+         * @param maxResponseBytes 字节数
+         * @return Builder 构造器
+         */
+        public Builder maxResponseBytes(int maxResponseBytes) {
+            if (maxResponseBytes < 0) throw new IllegalArgumentException("maxResponseBytes must not be negative");
+            this.maxResponseBytes = maxResponseBytes;
+            return this;
+        }
+
+        /**
+         * https 连接发送文件时缓冲区的总量，默认256KB（4个64KB），同时发送的文件超出时等待归还，
+         * 明文连接直接从文件通道传输，不占用缓冲区
+         *
+         * @param fileBufferMemory 字节数，需大于0
+         * @return Builder 构造器
+         */
+        public Builder fileBufferMemory(long fileBufferMemory) {
+            if (fileBufferMemory <= 0) throw new IllegalArgumentException("fileBufferMemory must be greater than 0");
+            this.fileBufferMemory = fileBufferMemory;
+            return this;
+        }
+
+        /**
+         * 每个请求都附带的请求头，如鉴权信息，同名时请求自身的请求头优先
+         *
+         * @param name  名称
+         * @param value 值
+         * @return Builder 构造器
+         */
+        public Builder header(@NonNull String name, @NonNull String value) {
+            if (name.trim().isEmpty()) throw new IllegalArgumentException("header name must not be empty");
+            headers.put(name.trim(), value);
+            return this;
+        }
+
+        /**
+         * https 使用的套接字工厂，默认与 HttpsURLConnection 一致
+         *
+         * @param sslSocketFactory 套接字工厂
+         * @return Builder 构造器
+         */
+        public Builder sslSocketFactory(@NonNull SSLSocketFactory sslSocketFactory) {
+            this.sslSocketFactory = sslSocketFactory;
+            return this;
+        }
+
+        /**
+         * https 的主机名校验，默认与 HttpsURLConnection 一致
+         *
+         * @param hostnameVerifier 主机名校验
+         * @return Builder 构造器
+         */
+        public Builder hostnameVerifier(@NonNull HostnameVerifier hostnameVerifier) {
+            this.hostnameVerifier = hostnameVerifier;
+            return this;
+        }
+
+        public UploadTransport build() {
+            return new UploadTransport(this);
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package org.sheedon.uploader.transport;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * 分块上传在随机断开连接与进程重启后从已确认的偏移量继续，使用进程内的套接字服务端
+ */
+public class ChunkedUploaderTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final String UPLOAD_ID = "logs/app.log:1048593";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private StubServer server;
+    private byte[] content;
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new StubServer();
+        content = new byte[16 * CHUNK_SIZE + 17];
+        new Random(7).nextBytes(content);
+        file = folder.newFile("app.log");
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(content);
+        }
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.close();
+    }
+
+    @Test
+    public void resumesAcrossRandomDrops() throws IOException {
+        server.dropRate = 0.3;
+        UploadOffsetStore store = UploadOffsetStore.open(folder.newFolder("offsets"));
+        UploadTransport transport = new UploadTransport.Builder(server.baseUrl()).build();
+        ChunkedUploader uploader = new ChunkedUploader.Builder(transport, store)
+                .chunkSize(CHUNK_SIZE)
+                .maxChunkRetries(0)
+                .build();
+
+        UploadResult result = null;
+        int attempts = 0;
+        // 模拟调度的失败重试
+        while (attempts < 100 && (result == null || !result.isSuccessful())) {
+            result = uploader.upload(UPLOAD_ID, "files", new FileSource(file, "text/plain"), null);
+            attempts++;
+        }
+        assertTrue(result.isSuccessful());
+        assertTrue(attempts > 1);
+        assertArrayEquals(content, server.uploaded(UPLOAD_ID));
+        assertEquals(0, store.size());
+
+        // 确认丢失后以服务端的偏移量为准继续
+        assertTrue(server.conflicts.get() > 0);
+        // 每次断开最多重发一个块
+        assertTrue(server.drops.get() > 0);
+        assertTrue(server.received.get() <= content.length + (long) server.drops.get() * CHUNK_SIZE);
+        transport.shutdown();
+    }
+
+    @Test
+    public void resumesAfterRestart() throws IOException {
+        File directory = folder.newFolder("offsets");
+        long half = 8 * CHUNK_SIZE;
+        server.dropFrom = half;
+        UploadTransport transport = new UploadTransport.Builder(server.baseUrl()).build();
+        ChunkedUploader uploader = new ChunkedUploader.Builder(transport, UploadOffsetStore.open(directory))
+                .chunkSize(CHUNK_SIZE)
+                .build();
+        UploadResult failed = uploader.upload(UPLOAD_ID, "files", new FileSource(file, "text/plain"), null);
+        assertTrue(failed.isRetryable());
+        assertEquals(half, uploader.getAcknowledgedOffset(UPLOAD_ID, content.length));
+        transport.shutdown();
+
+        // 重启：新的传输层与重新打开的进度存储
+        server.dropFrom = -1;
+        server.chunkOffsets.clear();
+        transport = new UploadTransport.Builder(server.baseUrl()).build();
+        UploadOffsetStore store = UploadOffsetStore.open(directory);
+        uploader = new ChunkedUploader.Builder(transport, store).chunkSize(CHUNK_SIZE).build();
+        List<Long> progress = new ArrayList<>();
+        UploadResult result = uploader.upload(UPLOAD_ID, "files", new FileSource(file, "text/plain"),
+                (sent, total) -> progress.add(sent));
+
+        assertTrue(result.isSuccessful());
+        assertEquals(half, (long) server.chunkOffsets.get(0));
+        assertEquals(9, server.chunkOffsets.size());
+        assertArrayEquals(content, server.uploaded(UPLOAD_ID));
+        assertEquals(content.length, (long) progress.get(progress.size() - 1));
+        assertEquals(0, store.size());
+        transport.shutdown();
+    }
+
+    @Test
+    public void ignoresRecordOfChangedFile() throws IOException {
+        UploadOffsetStore store = UploadOffsetStore.open(folder.newFolder("offsets"));
+        store.save(UPLOAD_ID, 4096, 10000);
+        assertEquals(4096, store.offsetOf(UPLOAD_ID, 10000));
+        assertEquals(0, store.offsetOf(UPLOAD_ID, 20000));
+        assertEquals(0, store.offsetOf("other", 10000));
+        store.remove(UPLOAD_ID);
+        assertEquals(0, store.size());
+    }
+
+    /**
+     * 实现分块协议的服务端，可按概率或从指定偏移量起断开连接
+     */
+    private static final class StubServer {
+        private final ServerSocket socket;
+        private final ExecutorService executor = Executors.newCachedThreadPool();
+        private final Map<String, ByteArrayOutputStream> uploads = new HashMap<>();
+        private final Random random = new Random(42);
+        final List<Long> chunkOffsets = Collections.synchronizedList(new ArrayList<Long>());
+        final AtomicLong received = new AtomicLong();
+        final AtomicInteger drops = new AtomicInteger();
+        final AtomicInteger conflicts = new AtomicInteger();
+        volatile double dropRate;
+        volatile long dropFrom = -1;
+
+        StubServer() throws IOException {
+            socket = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+            executor.execute(() -> {
+                while (!socket.isClosed()) {
+                    try {
+                        Socket client = socket.accept();
+                        executor.execute(() -> serve(client));
+                    } catch (IOException ignored) {
+                    }
+                }
+            });
+        }
+
+        String baseUrl() {
+            return "http://127.0.0.1:" + socket.getLocalPort() + "/";
+        }
+
+        byte[] uploaded(String id) {
+            synchronized (uploads) {
+                return uploads.get(id).toByteArray();
+            }
+        }
+
+        private void serve(Socket client) {
+            try (Socket connection = client) {
+                InputStream in = new BufferedInputStream(connection.getInputStream());
+                OutputStream out = connection.getOutputStream();
+                while (true) {
+                    String requestLine = readLine(in);
+                    if (requestLine == null || requestLine.isEmpty()) {
+                        return;
+                    }
+                    Map<String, String> headers = new HashMap<>();
+                    String line;
+                    while ((line = readLine(in)) != null && !line.isEmpty()) {
+                        int colon = line.indexOf(':');
+                        headers.put(line.substring(0, colon).trim().toLowerCase(), line.substring(colon + 1).trim());
+                    }
+                    String id = headers.get("upload-id");
+                    long offset = Long.parseLong(headers.get("upload-offset"));
+                    int length = Integer.parseInt(headers.get("content-length"));
+                    chunkOffsets.add(offset);
+
+                    // 0 正常，1 读请求体前断开，2 读一半断开，3 写入后未响应即断开
+                    int mode = 0;
+                    synchronized (random) {
+                        if (dropFrom >= 0 && offset >= dropFrom) {
+                            mode = 1;
+                        } else if (random.nextDouble() < dropRate) {
+                            mode = 1 + random.nextInt(3);
+                        }
+                    }
+                    if (mode == 1) {
+                        drops.incrementAndGet();
+                        return;
+                    }
+                    byte[] body = new byte[mode == 2 ? length / 2 : length];
+                    int read = 0;
+                    while (read < body.length) {
+                        int count = in.read(body, read, body.length - read);
+                        if (count == -1) {
+                            return;
+                        }
+                        read += count;
+                    }
+                    received.addAndGet(read);
+                    if (mode == 2) {
+                        drops.incrementAndGet();
+                        return;
+                    }
+
+                    long acknowledged;
+                    int status;
+                    synchronized (uploads) {
+                        ByteArrayOutputStream data = uploads.get(id);
+                        if (data == null) {
+                            data = new ByteArrayOutputStream();
+                            uploads.put(id, data);
+                        }
+                        if (offset == data.size()) {
+                            data.write(body);
+                            status = 200;
+                        } else {
+                            conflicts.incrementAndGet();
+                            status = 409;
+                        }
+                        acknowledged = data.size();
+                    }
+                    if (mode == 3) {
+                        drops.incrementAndGet();
+                        return;
+                    }
+                    out.write(("HTTP/1.1 " + status + (status == 200 ? " OK" : " Conflict") + "\r\n"
+                            + "Upload-Offset: " + acknowledged + "\r\n"
+                            + "Content-Length: 0\r\n\r\n").getBytes(UTF_8));
+                    out.flush();
+                }
+            } catch (IOException ignored) {
+            }
+        }
+
+        private static String readLine(InputStream in) throws IOException {
+            StringBuilder line = new StringBuilder();
+            int b;
+            while ((b = in.read()) != -1) {
+                if (b == '\n') {
+                    int end = line.length();
+                    return end > 0 && line.charAt(end - 1) == '\r' ? line.substring(0, end - 1) : line.toString();
+                }
+                line.append((char) b);
+            }
+            return line.length() > 0 ? line.toString() : null;
+        }
+
+        void close() throws IOException {
+            socket.close();
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package org.sheedon.uploader.transport;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.SocketTimeoutException;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * 文件请求体的分段写出、文件变短的处理，以及文件缓冲区的总量上限
+ */
+public class FileSourceTest {
+
+    @Test
+    public void copiesSliceThroughGivenBuffer() throws IOException {
+        File file = createFile(200_000);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long[] last = new long[2];
+        ProgressTracker tracker = new ProgressTracker((sent, total) -> {
+            last[0] = sent;
+            last[1] = total;
+        }, 150_000);
+        new FileSource(file, "application/octet-stream", 50_000, 150_000)
+                .copyTo(out, new byte[4096], tracker);
+        tracker.finish();
+
+        byte[] expected = Arrays.copyOfRange(content(200_000), 50_000, 200_000);
+        assertArrayEquals(expected, out.toByteArray());
+        assertEquals(150_000, last[0]);
+        assertEquals(150_000, last[1]);
+    }
+
+    @Test(expected = EOFException.class)
+    public void failsWhenFileShrinks() throws IOException {
+        File file = createFile(10_000);
+        FileSource source = new FileSource(file, "application/octet-stream");
+        try (RandomAccessFile truncate = new RandomAccessFile(file, "rw")) {
+            truncate.setLength(5_000);
+        }
+        source.copyTo(new ByteArrayOutputStream(), new byte[4096], null);
+    }
+
+    @Test
+    public void bufferPoolHoldsMemoryCeiling() throws IOException {
+        BufferPool pool = new BufferPool(150 * 1024);
+        byte[] first = pool.acquire(0);
+        byte[] second = pool.acquire(0);
+        assertEquals(BufferPool.DEFAULT_BUFFER_SIZE, first.length);
+        try {
+            pool.acquire(20);
+            fail("ceiling exceeded");
+        } catch (SocketTimeoutException expected) {
+            // 超过总量时等待超时
+        }
+        pool.release(first);
+        assertSame(first, pool.acquire(0));
+        pool.release(second);
+        assertEquals(2 * BufferPool.DEFAULT_BUFFER_SIZE, pool.getAllocatedBytes());
+
+        BufferPool small = new BufferPool(1000);
+        assertEquals(1000, small.acquire(0).length);
+    }
+
+    private static byte[] content(int length) {
+        byte[] content = new byte[length];
+        for (int i = 0; i < length; i++) {
+            content[i] = (byte) (i * 7 + (i >> 9));
+        }
+        return content;
+    }
+
+    private static File createFile(int length) throws IOException {
+        File file = File.createTempFile("source", ".bin");
+        file.deleteOnExit();
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(content(length));
+        }
+        return file;
+    }
+}
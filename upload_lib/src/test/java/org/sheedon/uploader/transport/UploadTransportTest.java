@@ -0,0 +1,284 @@
+package org.sheedon.uploader.transport;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+
+import static org.junit.Assert.*;
+
+/**
+ * 上传传输层的连接复用、流式请求体、文件直接传输、响应码归类与连接上限，使用进程内的 HTTP 服务端
+ */
+public class UploadTransportTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private HttpServer server;
+    private String baseUrl;
+    // 服务端看到的客户端端口，即连接数量
+    private final Set<Integer> remotePorts = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger concurrent = new AtomicInteger();
+    private final AtomicInteger maxConcurrent = new AtomicInteger();
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/records", exchange -> {
+            remotePorts.add(exchange.getRemoteAddress().getPort());
+            int length = drain(exchange.getRequestBody());
+            String encoding = exchange.getRequestHeaders().getFirst("Transfer-Encoding");
+            respond(exchange, 200, length + (encoding != null ? " " + encoding : ""));
+        });
+        server.createContext("/checksum", exchange -> {
+            CRC32 crc = new CRC32();
+            byte[] buffer = new byte[8192];
+            long total = 0;
+            int read;
+            InputStream in = exchange.getRequestBody();
+            while ((read = in.read(buffer)) != -1) {
+                crc.update(buffer, 0, read);
+                total += read;
+            }
+            respond(exchange, 200, total + ":" + crc.getValue());
+        });
+        server.createContext("/slow", exchange -> {
+            int now = concurrent.incrementAndGet();
+            maxConcurrent.accumulateAndGet(now, Math::max);
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException ignored) {
+            }
+            concurrent.decrementAndGet();
+            drain(exchange.getRequestBody());
+            respond(exchange, 200, "ok");
+        });
+        server.createContext("/status/", exchange -> {
+            drain(exchange.getRequestBody());
+            String path = exchange.getRequestURI().getPath();
+            int code = Integer.parseInt(path.substring(path.lastIndexOf('/') + 1));
+            if (code == 429) {
+                exchange.getResponseHeaders().add("Retry-After", "7");
+            }
+            respond(exchange, code, "status " + code);
+        });
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void reusesKeepAliveConnection() {
+        UploadTransport transport = new UploadTransport.Builder(baseUrl).build();
+        for (int i = 0; i < 5; i++) {
+            UploadResult result = transport.post("records", RequestBody.create("text/plain", "record-" + i));
+            assertTrue(result.isSuccessful());
+            assertEquals("8", result.getBodyString());
+        }
+        assertEquals(1, remotePorts.size());
+        UploadTransport.PoolStat stat = transport.getPoolStat();
+        assertEquals(1, stat.getCreated());
+        assertEquals(4, stat.getReused());
+        assertEquals(1, stat.getIdle());
+
+        transport.shutdown();
+        assertEquals(0, transport.getPoolStat().getIdle());
+        assertTrue(transport.post("records", RequestBody.create("text/plain", "x")).isRetryable());
+    }
+
+    @Test
+    public void streamsBodyOfUnknownLength() {
+        UploadTransport transport = new UploadTransport.Builder(baseUrl).build();
+        RequestBody body = new RequestBody() {
+            @Override
+            public String contentType() {
+                return "application/octet-stream";
+            }
+
+            @Override
+            public void writeTo(OutputStream out) throws IOException {
+                byte[] piece = new byte[1000];
+                for (int i = 0; i < 100; i++) {
+                    out.write(piece);
+                }
+            }
+        };
+        UploadResult first = transport.post("records", body);
+        assertEquals("100000 chunked", first.getBodyString());
+        // chunked 结束后连接仍可复用
+        UploadResult second = transport.post("records", body);
+        assertEquals("100000 chunked", second.getBodyString());
+        assertEquals(1, transport.getPoolStat().getCreated());
+        transport.shutdown();
+    }
+
+    @Test
+    public void sendsFileSourceWithoutHeapBuffers() throws IOException {
+        File file = File.createTempFile("upload", ".bin");
+        file.deleteOnExit();
+        byte[] content = new byte[3 * 1024 * 1024 + 123];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) (i * 31 + (i >> 11));
+        }
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(content);
+        }
+
+        UploadTransport transport = new UploadTransport.Builder(baseUrl).build();
+        List<Long> progress = new ArrayList<>();
+        UploadResult result = transport.execute(new UploadRequest.Builder()
+                .path("checksum")
+                .body(new FileSource(file, "application/octet-stream"))
+                .progress((sent, total) -> {
+                    assertEquals(content.length, total);
+                    progress.add(sent);
+                })
+                .build());
+        assertEquals(checksum(content, 0, content.length), result.getBodyString());
+        // 每段256KB回调一次，最后一次为总长度
+        assertEquals(13, progress.size());
+        assertEquals(content.length, (long) progress.get(progress.size() - 1));
+
+        UploadResult slice = transport.post("checksum",
+                new FileSource(file, "application/octet-stream").slice(1000, 5000));
+        assertEquals(checksum(content, 1000, 5000), slice.getBodyString());
+        // 明文连接直接从文件通道传输，不分配缓冲区
+        assertEquals(0, transport.getPoolStat().getBufferBytes());
+        assertEquals(1, transport.getPoolStat().getCreated());
+        transport.shutdown();
+    }
+
+    @Test
+    public void mapsStatusCodes() throws IOException {
+        UploadTransport transport = new UploadTransport.Builder(baseUrl + "status").build();
+        RequestBody body = RequestBody.create("text/plain", "x");
+        assertTrue(transport.post("status/204", body).isSuccessful());
+        assertTrue(transport.post("status/503", body).isRetryable());
+        assertTrue(transport.post("status/400", body).isPermanent());
+        assertTrue(transport.post("status/501", body).isPermanent());
+
+        UploadResult limited = transport.post("status/429", body);
+        assertTrue(limited.isRetryable());
+        assertEquals(429, limited.getStatusCode());
+        assertEquals(7000, limited.getRetryAfterMillis());
+        assertEquals("status 429", limited.getBodyString());
+        transport.shutdown();
+
+        int closedPort;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            closedPort = socket.getLocalPort();
+        }
+        UploadTransport refused = new UploadTransport.Builder("http://127.0.0.1:" + closedPort).build();
+        UploadResult result = refused.post("records", body);
+        assertTrue(result.isRetryable());
+        assertEquals(0, result.getStatusCode());
+        assertNotNull(result.getError());
+    }
+
+    @Test
+    public void boundsConnectionsPerHost() throws Exception {
+        UploadTransport transport = new UploadTransport.Builder(baseUrl).maxConnectionsPerHost(2).build();
+        ExecutorService executor = Executors.newFixedThreadPool(6);
+        List<Future<UploadResult>> futures = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            futures.add(executor.submit(() -> transport.post("slow", RequestBody.create("text/plain", "x"))));
+        }
+        for (Future<UploadResult> future : futures) {
+            assertTrue(future.get().isSuccessful());
+        }
+        executor.shutdown();
+        assertEquals(2, maxConcurrent.get());
+        assertTrue(transport.getPoolStat().getCreated() <= 2);
+        transport.shutdown();
+    }
+
+    @Test
+    public void releasesConnectionWhenBodyThrows() {
+        UploadTransport transport = new UploadTransport.Builder(baseUrl).maxConnectionsPerHost(1).build();
+        RequestBody broken = new RequestBody() {
+            @Override
+            public String contentType() {
+                return "text/plain";
+            }
+
+            @Override
+            public void writeTo(OutputStream out) {
+                throw new IllegalStateException("broken body");
+            }
+        };
+        for (int i = 0; i < 3; i++) {
+            try {
+                transport.post("records", broken);
+                fail();
+            } catch (IllegalStateException expected) {
+            }
+        }
+        try {
+            transport.execute(new UploadRequest.Builder()
+                    .path("records")
+                    .body(RequestBody.create("text/plain", "x"))
+                    .progress((sent, total) -> {
+                        throw new IllegalStateException("broken listener");
+                    })
+                    .build());
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+
+        // 异常后许可已归还，唯一的连接许可仍可使用
+        assertTrue(transport.post("records", RequestBody.create("text/plain", "x")).isSuccessful());
+        transport.shutdown();
+    }
+
+    private static String checksum(byte[] content, int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(content, offset, length);
+        return length + ":" + crc.getValue();
+    }
+
+    private static int drain(InputStream in) throws IOException {
+        byte[] buffer = new byte[4096];
+        int total = 0;
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            total += read;
+        }
+        return total;
+    }
+
+    private static void respond(HttpExchange exchange, int code, String body) throws IOException {
+        byte[] bytes = body.getBytes(UTF_8);
+        if (code == 204) {
+            exchange.sendResponseHeaders(code, -1);
+        } else {
+            exchange.sendResponseHeaders(code, bytes.length);
+            exchange.getResponseBody().write(bytes);
+        }
+        exchange.close();
+    }
+}